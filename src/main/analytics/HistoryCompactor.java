@@ -0,0 +1,135 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: HistoryCompactor.java
+ * Purpose: Background task that periodically compacts a set of PlayHistory instances. Its owner
+ *          (e.g. UserManager) registers the histories of loaded libraries and stops the compactor
+ *          on shutdown. Histories are held weakly, so a library that is no longer referenced is
+ *          not kept alive by the compactor. One daemon thread serves all registered histories.
+ */
+package main.analytics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public final class HistoryCompactor implements AutoCloseable {
+    public static final long DEFAULT_INTERVAL_MINUTES = 60; // How often the background task runs
+
+    private final Set<PlayHistory> histories =
+            Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+    private final long intervalMinutes;
+    private ScheduledExecutorService scheduler; // Started on the first registration, null once closed
+    private boolean closed;
+
+    /**
+     * Constructs a compactor that runs every DEFAULT_INTERVAL_MINUTES once a history is registered.
+     */
+    public HistoryCompactor() {
+        this(DEFAULT_INTERVAL_MINUTES);
+    }
+
+    /**
+     * Constructs a compactor.
+     *
+     * @param intervalMinutes Minutes between background compactions.
+     */
+    public HistoryCompactor(long intervalMinutes) {
+        if (intervalMinutes <= 0) {
+            throw new IllegalArgumentException("Interval must be positive.");
+        }
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    /**
+     * Registers a history for periodic background compaction and starts the
+     * background task if it is not running yet. Does nothing once the compactor is closed.
+     *
+     * @param history The history to compact periodically.
+     */
+    public void register(PlayHistory history) {
+        if (history == null) {
+            throw new IllegalArgumentException("History cannot be null.");
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            startIfNeeded();
+        }
+        histories.add(history);
+    }
+
+    /**
+     * Stops compacting a history.
+     *
+     * @param history The history.
+     */
+    public void unregister(PlayHistory history) {
+        histories.remove(history);
+    }
+
+    /**
+     * Compacts every registered history now.
+     *
+     * @return The number of histories compacted.
+     */
+    public int compactAll() {
+        List<PlayHistory> snapshot;
+        synchronized (histories) {
+            snapshot = new ArrayList<>(histories);
+        }
+        for (PlayHistory history : snapshot) {
+            history.compact();
+        }
+        return snapshot.size();
+    }
+
+    public int getRegisteredCount() {
+        return histories.size();
+    }
+
+    /**
+     * Returns true while the background thread is running.
+     *
+     * @return True if started and not closed.
+     */
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Stops the background thread and forgets all histories. Registering afterwards does nothing.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            closed = true;
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdownNow();
+        }
+        histories.clear();
+    }
+
+    private void startIfNeeded() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "play-history-compactor");
+            thread.setDaemon(true); // Never keeps the application alive
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::compactAll, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: HyperLogLog.java
+ * Purpose: Approximate distinct counter (HyperLogLog) used for "unique listeners" statistics.
+ *          Starts in a sparse representation that only stores the registers that were touched,
+ *          and switches to a dense 4 KB register array once that becomes smaller. Counters are
+ *          mergeable, so per-user counters can be unioned into catalog-wide counts.
+ */
+package main.analytics;
+
+import java.util.Arrays;
+
+public class HyperLogLog {
+    public static final int PRECISION = 12; // 2^12 registers, ~1.6% standard error
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final int SPARSE_LIMIT = 512; // Max sparse entries (4 bytes each) before switching to dense
+
+    private int[] sparse; // Encoded (index << 8 | rank) entries, null once dense
+    private int sparseSize;
+    private byte[] registers; // Dense registers, null while sparse
+
+    /**
+     * Constructs an empty counter in sparse mode.
+     */
+    public HyperLogLog() {
+        this.sparse = new int[8];
+        this.sparseSize = 0;
+        this.registers = null;
+    }
+
+    /**
+     * Copy constructor - creates an independent copy of another counter.
+     *
+     * @param original The counter to copy.
+     */
+    public HyperLogLog(HyperLogLog original) {
+        if (original == null) {
+            throw new IllegalArgumentException("Original HyperLogLog cannot be null");
+        }
+        this.sparse = original.sparse == null ? null : Arrays.copyOf(original.sparse, original.sparse.length);
+        this.sparseSize = original.sparseSize;
+        this.registers = original.registers == null ? null : Arrays.copyOf(original.registers, REGISTER_COUNT);
+    }
+
+    // ================== UPDATES ================== //
+
+    /**
+     * Adds an item (e.g. a username) to the counter.
+     *
+     * @param item The item to add.
+     */
+    public void add(String item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Item cannot be null.");
+        }
+        long hash = hash64(item);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Rank = position of the first 1-bit in the remaining bits
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, 64 - PRECISION + 1);
+        updateRegister(index, rank);
+    }
+
+    /**
+     * Unions another counter into this one (in place).
+     *
+     * @param other The counter to merge in (not modified).
+     */
+    public void addAll(HyperLogLog other) {
+        if (other == null) {
+            throw new IllegalArgumentException("HyperLogLog to merge cannot be null.");
+        }
+        if (other.registers != null) {
+            toDense();
+            for (int i = 0; i < REGISTER_COUNT; i++) {
+                if (other.registers[i] > registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        } else {
+            for (int i = 0; i < other.sparseSize; i++) {
+                updateRegister(other.sparse[i] >>> 8, other.sparse[i] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Merges this counter with another one into a new counter.
+     *
+     * @param other The counter to merge with.
+     * @return A new counter estimating the size of the union.
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        HyperLogLog result = new HyperLogLog(this);
+        result.addAll(other);
+        return result;
+    }
+
+    // ================== QUERIES ================== //
+
+    /**
+     * Estimates the number of distinct items added.
+     *
+     * @return The estimated cardinality.
+     */
+    public long cardinality() {
+        if (registers == null) {
+            // Sparse mode: every entry is a distinct non-zero register, so linear counting applies
+            return linearCounting(REGISTER_COUNT - sparseSize);
+        }
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+        double estimate = alpha * REGISTER_COUNT * (double) REGISTER_COUNT / sum;
+        // Small-range correction
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            return linearCounting(zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Returns whether the counter is still in its sparse representation.
+     *
+     * @return True if sparse, false if dense.
+     */
+    public boolean isSparse() {
+        return registers == null;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the registers.
+     *
+     * @return Size of the register storage in bytes.
+     */
+    public int sizeInBytes() {
+        return registers != null ? REGISTER_COUNT : sparse.length * Integer.BYTES;
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private void updateRegister(int index, int rank) {
+        if (registers != null) {
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+            }
+            return;
+        }
+        // Sparse mode: update existing entry for this index, if any
+        for (int i = 0; i < sparseSize; i++) {
+            if ((sparse[i] >>> 8) == index) {
+                if (rank > (sparse[i] & 0xFF)) {
+                    sparse[i] = (index << 8) | rank;
+                }
+                return;
+            }
+        }
+        if (sparseSize >= SPARSE_LIMIT) {
+            toDense();
+            updateRegister(index, rank);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.min(sparse.length * 2, SPARSE_LIMIT));
+        }
+        sparse[sparseSize++] = (index << 8) | rank;
+    }
+
+    private void toDense() {
+        if (registers != null) {
+            return;
+        }
+        registers = new byte[REGISTER_COUNT];
+        for (int i = 0; i < sparseSize; i++) {
+            registers[sparse[i] >>> 8] = (byte) (sparse[i] & 0xFF);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    private static long linearCounting(int zeros) {
+        if (zeros == 0) {
+            return REGISTER_COUNT;
+        }
+        return Math.round(REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros));
+    }
+
+    /**
+     * 64-bit FNV-1a hash followed by the MurmurHash3 finalizer for good bit mixing.
+     */
+    private static long hash64(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            hash ^= item.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: ListenerCounts.java
+ * Purpose: Keeps one HyperLogLog per song and per album so "N unique listeners" can be answered
+ *          without storing the set of users for every song. Instances are mergeable across users.
+ */
+package main.analytics;
+
+import main.model.Album;
+import main.model.Song;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ListenerCounts {
+    private final Map<String, HyperLogLog> songListeners; // Song key -> distinct listeners
+    private final Map<String, HyperLogLog> albumListeners; // Album key -> distinct listeners
+
+    /**
+     * Constructs an empty set of listener counters.
+     */
+    public ListenerCounts() {
+        this.songListeners = new HashMap<>();
+        this.albumListeners = new HashMap<>();
+    }
+
+    /**
+     * Copy constructor - creates a deep copy of another instance.
+     *
+     * @param original The instance to copy.
+     */
+    public ListenerCounts(ListenerCounts original) {
+        if (original == null) {
+            throw new IllegalArgumentException("Original ListenerCounts cannot be null");
+        }
+        this.songListeners = new HashMap<>();
+        this.albumListeners = new HashMap<>();
+        mergeInto(songListeners, original.songListeners);
+        mergeInto(albumListeners, original.albumListeners);
+    }
+
+    // ================== UPDATES ================== //
+
+    /**
+     * Records that a listener played a song (and therefore its album).
+     *
+     * @param song       The song that was played.
+     * @param listenerId The unique id of the listener (e.g. the username).
+     */
+    public void record(Song song, String listenerId) {
+        if (song == null || listenerId == null) {
+            throw new IllegalArgumentException("Song and listener cannot be null.");
+        }
+        songListeners.computeIfAbsent(song.getKey(), k -> new HyperLogLog()).add(listenerId);
+        Album album = song.getAlbum();
+        if (album != null) {
+            albumListeners.computeIfAbsent(album.getKey(), k -> new HyperLogLog()).add(listenerId);
+        }
+    }
+
+    /**
+     * Unions another instance into this one (in place).
+     *
+     * @param other The counters to merge in (not modified).
+     */
+    public void addAll(ListenerCounts other) {
+        if (other == null) {
+            throw new IllegalArgumentException("ListenerCounts to merge cannot be null.");
+        }
+        mergeInto(songListeners, other.songListeners);
+        mergeInto(albumListeners, other.albumListeners);
+    }
+
+    // ================== QUERIES ================== //
+
+    /**
+     * Returns the estimated number of distinct listeners of a song.
+     *
+     * @param songKey The song key (see Song.getKey()).
+     * @return The estimated number of unique listeners, 0 if never played.
+     */
+    public long getSongListeners(String songKey) {
+        HyperLogLog counter = songListeners.get(songKey);
+        return counter == null ? 0 : counter.cardinality();
+    }
+
+    /**
+     * Returns the estimated number of distinct listeners of an album.
+     *
+     * @param albumKey The album key (see Album.getKey()).
+     * @return The estimated number of unique listeners, 0 if never played.
+     */
+    public long getAlbumListeners(String albumKey) {
+        HyperLogLog counter = albumListeners.get(albumKey);
+        return counter == null ? 0 : counter.cardinality();
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private static void mergeInto(Map<String, HyperLogLog> target, Map<String, HyperLogLog> source) {
+        for (Map.Entry<String, HyperLogLog> entry : source.entrySet()) {
+            HyperLogLog existing = target.get(entry.getKey());
+            if (existing == null) {
+                target.put(entry.getKey(), new HyperLogLog(entry.getValue()));
+            } else {
+                existing.addAll(entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: ListeningSession.java
+ * Purpose: Running aggregates for one listening session (a run of plays without a long pause).
+ *          Every field is updated in O(1) per play, so no raw play log is needed to compute them.
+ */
+package main.analytics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+public class ListeningSession {
+    private final long startTime; // Epoch millis of the first play
+    private long lastPlayTime; // Epoch millis of the most recent play
+    private int songCount; // Plays in this session
+    private int rapidReplays; // Plays started shortly after the previous one (skip-like)
+    private final Map<String, Integer> genreMix; // Genre -> plays
+
+    /**
+     * Starts a new session at the given time.
+     *
+     * @param startTime Epoch millis of the first play.
+     */
+    public ListeningSession(long startTime) {
+        this.startTime = startTime;
+        this.lastPlayTime = startTime;
+        this.genreMix = new HashMap<>();
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param original The session to copy.
+     */
+    public ListeningSession(ListeningSession original) {
+        this.startTime = original.startTime;
+        this.lastPlayTime = original.lastPlayTime;
+        this.songCount = original.songCount;
+        this.rapidReplays = original.rapidReplays;
+        this.genreMix = new HashMap<>(original.genreMix);
+    }
+
+    /**
+     * Adds a play to the session.
+     *
+     * @param timestamp Epoch millis of the play.
+     * @param genre     Genre of the played song (may be null).
+     * @param rapid     True if the play followed the previous one within the rapid-replay window.
+     */
+    void recordPlay(long timestamp, String genre, boolean rapid) {
+        lastPlayTime = Math.max(lastPlayTime, timestamp);
+        songCount++;
+        if (rapid) {
+            rapidReplays++;
+        }
+        if (genre != null) {
+            genreMix.merge(genre, 1, Integer::sum);
+        }
+    }
+
+    // ================== GETTERS ================== //
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getLastPlayTime() {
+        return lastPlayTime;
+    }
+
+    public long getDurationMillis() {
+        return lastPlayTime - startTime;
+    }
+
+    public int getSongCount() {
+        return songCount;
+    }
+
+    public int getRapidReplays() {
+        return rapidReplays;
+    }
+
+    public Map<String, Integer> getGenreMix() {
+        return Collections.unmodifiableMap(genreMix);
+    }
+
+    // ================== PERSISTENCE ================== //
+
+    /**
+     * Encodes the session compactly as [start, lastPlay, songs, rapidReplays, {genre: plays}].
+     *
+     * @return The compact JSON form.
+     */
+    public JSONArray toJson() {
+        JSONArray json = new JSONArray();
+        json.put(startTime);
+        json.put(lastPlayTime);
+        json.put(songCount);
+        json.put(rapidReplays);
+        json.put(new JSONObject(genreMix));
+        return json;
+    }
+
+    /**
+     * Decodes a session written by toJson().
+     *
+     * @param json The compact JSON form.
+     * @return The decoded session.
+     */
+    public static ListeningSession fromJson(JSONArray json) {
+        ListeningSession session = new ListeningSession(json.getLong(0));
+        session.lastPlayTime = json.getLong(1);
+        session.songCount = json.getInt(2);
+        session.rapidReplays = json.getInt(3);
+        JSONObject genres = json.getJSONObject(4);
+        for (String genre : genres.keySet()) {
+            session.genreMix.put(genre, genres.getInt(genre));
+        }
+        return session;
+    }
+}
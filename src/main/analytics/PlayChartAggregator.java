@@ -0,0 +1,84 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: PlayChartAggregator.java
+ * Purpose: Builds catalog-wide play charts and unique-listener counts by merging the per-user
+ *          sketches kept by each PlaybackTracker. Merging runs as a parallel reduction and uses
+ *          bounded memory regardless of how many users are involved.
+ */
+package main.analytics;
+
+import main.model.PlaybackTracker;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class PlayChartAggregator {
+    public static final int DEFAULT_CHART_SIZE = 100; // Number of songs in a global chart
+    public static final int DEFAULT_GLOBAL_CAPACITY = 1000; // Counters kept by the merged sketch
+
+    private PlayChartAggregator() {
+        // Utility class
+    }
+
+    /**
+     * Merges many sketches into one in parallel.
+     *
+     * @param sketches The sketches to merge (not modified).
+     * @param capacity The capacity of the merged sketch.
+     * @return A new sketch summarizing all inputs.
+     */
+    public static SpaceSavingSketch mergeSketches(Collection<SpaceSavingSketch> sketches, int capacity) {
+        if (sketches == null) {
+            throw new IllegalArgumentException("Sketches cannot be null.");
+        }
+        SpaceSavingSketch identity = new SpaceSavingSketch(capacity);
+        // merge() never mutates its inputs, so the shared identity is safe across threads
+        return sketches.parallelStream()
+                .reduce(identity, SpaceSavingSketch::merge, SpaceSavingSketch::merge);
+    }
+
+    /**
+     * Returns the global top songs across the given playback trackers.
+     *
+     * @param trackers The playback trackers of all users.
+     * @param limit    The number of songs in the chart.
+     * @return The top songs (keyed by Song.getKey()) with count estimates and error bounds.
+     */
+    public static List<SpaceSavingSketch.HeavyHitter> topSongs(Collection<PlaybackTracker> trackers, int limit) {
+        if (trackers == null) {
+            throw new IllegalArgumentException("Trackers cannot be null.");
+        }
+        List<SpaceSavingSketch> sketches = trackers.stream()
+                .map(PlaybackTracker::getPlaySketch)
+                .collect(Collectors.toList());
+        int capacity = Math.max(limit, DEFAULT_GLOBAL_CAPACITY);
+        return mergeSketches(sketches, capacity).topK(limit);
+    }
+
+    /**
+     * Unions the unique-listener counters of all given trackers in parallel.
+     *
+     * @param trackers The playback trackers of all users.
+     * @return Listener counts for every song and album played by any user.
+     */
+    public static ListenerCounts mergeListenerCounts(Collection<PlaybackTracker> trackers) {
+        if (trackers == null) {
+            throw new IllegalArgumentException("Trackers cannot be null.");
+        }
+        return trackers.parallelStream()
+                .map(PlaybackTracker::getListenerCounts)
+                .collect(ListenerCounts::new, ListenerCounts::addAll, ListenerCounts::addAll);
+    }
+
+    /**
+     * Returns the global top 100 songs across the given playback trackers.
+     *
+     * @param trackers The playback trackers of all users.
+     * @return The top songs with count estimates and error bounds.
+     */
+    public static List<SpaceSavingSketch.HeavyHitter> topSongs(Collection<PlaybackTracker> trackers) {
+        return topSongs(trackers, DEFAULT_CHART_SIZE);
+    }
+}
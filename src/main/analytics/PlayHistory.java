@@ -0,0 +1,333 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: PlayHistory.java
+ * Purpose: Timestamped play history with rollups. Recent plays are kept as raw events; plays older
+ *          than the raw retention window are compacted into per-day per-song counters, and days older
+ *          than the daily retention window are rolled into per-month counters, and months older than
+ *          the monthly retention window are folded into one per-song counter. Memory and disk use
+ *          stay bounded (by retention windows and distinct songs) while per-song totals remain exact.
+ */
+package main.analytics;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+public class PlayHistory {
+    public static final int DEFAULT_RAW_RETENTION_DAYS = 7; // Raw events kept for a week
+    public static final int DEFAULT_DAILY_RETENTION_DAYS = 90; // Daily counters kept for ~3 months
+    public static final int DEFAULT_MONTHLY_RETENTION_MONTHS = 24; // Monthly counters kept for 2 years
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final Clock clock;
+    private final int rawRetentionDays;
+    private final int dailyRetentionDays;
+    private final int monthlyRetentionMonths;
+    private final Deque<PlayEvent> rawEvents; // Chronological raw plays
+    private final TreeMap<Long, Map<String, Long>> dailyCounts; // Epoch day -> song key -> plays
+    private final TreeMap<YearMonth, Map<String, Long>> monthlyCounts; // Month -> song key -> plays
+    private final Map<String, Long> olderCounts; // Song key -> plays before the oldest month kept
+    private long dayResolutionFrom; // Earliest epoch day still available at day resolution
+    private YearMonth monthResolutionFrom; // Earliest month still available, null if none expired
+
+    /**
+     * Constructs an empty history with default retention windows.
+     *
+     * @param clock The time source used for compaction.
+     */
+    public PlayHistory(Clock clock) {
+        this(clock, DEFAULT_RAW_RETENTION_DAYS, DEFAULT_DAILY_RETENTION_DAYS);
+    }
+
+    /**
+     * Constructs an empty history with custom retention windows.
+     *
+     * @param clock              The time source used for compaction.
+     * @param rawRetentionDays   Days of raw events to keep before compacting into daily counters.
+     * @param dailyRetentionDays Days of daily counters to keep before rolling into monthly counters.
+     */
+    public PlayHistory(Clock clock, int rawRetentionDays, int dailyRetentionDays) {
+        this(clock, rawRetentionDays, dailyRetentionDays, DEFAULT_MONTHLY_RETENTION_MONTHS);
+    }
+
+    /**
+     * Constructs an empty history with custom retention windows, including the monthly one.
+     *
+     * @param clock                  The time source used for compaction.
+     * @param rawRetentionDays       Days of raw events to keep before compacting into daily counters.
+     * @param dailyRetentionDays     Days of daily counters to keep before rolling into monthly counters.
+     * @param monthlyRetentionMonths Months of monthly counters to keep before folding them into
+     *                               the per-song totals of older plays.
+     */
+    public PlayHistory(Clock clock, int rawRetentionDays, int dailyRetentionDays, int monthlyRetentionMonths) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        if (rawRetentionDays < 0 || dailyRetentionDays < rawRetentionDays || monthlyRetentionMonths < 1) {
+            throw new IllegalArgumentException("Invalid retention windows.");
+        }
+        this.clock = clock;
+        this.rawRetentionDays = rawRetentionDays;
+        this.dailyRetentionDays = dailyRetentionDays;
+        this.monthlyRetentionMonths = monthlyRetentionMonths;
+        this.rawEvents = new ArrayDeque<>();
+        this.dailyCounts = new TreeMap<>();
+        this.monthlyCounts = new TreeMap<>();
+        this.olderCounts = new HashMap<>();
+        this.dayResolutionFrom = Long.MIN_VALUE;
+    }
+
+    /**
+     * Copy constructor - creates a deep copy of another history.
+     *
+     * @param original The history to copy.
+     */
+    public PlayHistory(PlayHistory original) {
+        this(original.clock, original.rawRetentionDays, original.dailyRetentionDays, original.monthlyRetentionMonths);
+        synchronized (original) {
+            rawEvents.addAll(original.rawEvents);
+            original.dailyCounts.forEach((day, counts) -> dailyCounts.put(day, new HashMap<>(counts)));
+            original.monthlyCounts.forEach((month, counts) -> monthlyCounts.put(month, new HashMap<>(counts)));
+            olderCounts.putAll(original.olderCounts);
+            dayResolutionFrom = original.dayResolutionFrom;
+            monthResolutionFrom = original.monthResolutionFrom;
+        }
+    }
+
+    // ================== UPDATES ================== //
+
+    /**
+     * Records a play.
+     *
+     * @param songKey   The played song's key (see Song.getKey()).
+     * @param timestamp Epoch millis of the play.
+     */
+    public synchronized void record(String songKey, long timestamp) {
+        if (songKey == null) {
+            throw new IllegalArgumentException("Song key cannot be null.");
+        }
+        rawEvents.addLast(new PlayEvent(songKey, timestamp));
+    }
+
+    /**
+     * Compacts the history relative to the clock's current time.
+     */
+    public void compact() {
+        compact(clock.millis());
+    }
+
+    /**
+     * Compacts raw events older than the raw retention window into daily counters, daily
+     * counters older than the daily retention window into monthly counters, and monthly
+     * counters older than the monthly retention window into the totals of older plays.
+     *
+     * @param now Current epoch millis.
+     */
+    public synchronized void compact(long now) {
+        long today = epochDay(now);
+
+        // Raw events -> daily counters (whole days only, so a day is never split across tiers)
+        long firstRawDay = today - rawRetentionDays;
+        while (!rawEvents.isEmpty() && epochDay(rawEvents.peekFirst().timestamp) < firstRawDay) {
+            PlayEvent event = rawEvents.pollFirst();
+            dailyCounts.computeIfAbsent(epochDay(event.timestamp), d -> new HashMap<>())
+                    .merge(event.songKey, 1L, Long::sum);
+        }
+
+        // Daily counters -> monthly counters
+        long firstDailyDay = today - dailyRetentionDays;
+        while (!dailyCounts.isEmpty() && dailyCounts.firstKey() < firstDailyDay) {
+            Map.Entry<Long, Map<String, Long>> day = dailyCounts.pollFirstEntry();
+            Map<String, Long> month = monthlyCounts.computeIfAbsent(
+                    YearMonth.from(LocalDate.ofEpochDay(day.getKey())), m -> new HashMap<>());
+            day.getValue().forEach((key, count) -> month.merge(key, count, Long::sum));
+        }
+        dayResolutionFrom = Math.max(dayResolutionFrom, firstDailyDay);
+
+        // Monthly counters -> per-song totals of older plays
+        YearMonth firstMonth = YearMonth.from(LocalDate.ofEpochDay(today)).minusMonths(monthlyRetentionMonths);
+        while (!monthlyCounts.isEmpty() && monthlyCounts.firstKey().isBefore(firstMonth)) {
+            monthlyCounts.pollFirstEntry().getValue().forEach((key, count) -> olderCounts.merge(key, count, Long::sum));
+            monthResolutionFrom = firstMonth;
+        }
+    }
+
+    // ================== QUERIES ================== //
+
+    /**
+     * Returns the exact total number of plays of a song across all tiers.
+     *
+     * @param songKey The song key.
+     * @return Total plays.
+     */
+    public synchronized long getTotalPlays(String songKey) {
+        long total = 0;
+        for (PlayEvent event : rawEvents) {
+            if (event.songKey.equals(songKey)) {
+                total++;
+            }
+        }
+        for (Map<String, Long> counts : dailyCounts.values()) {
+            total += counts.getOrDefault(songKey, 0L);
+        }
+        for (Map<String, Long> counts : monthlyCounts.values()) {
+            total += counts.getOrDefault(songKey, 0L);
+        }
+        return total + olderCounts.getOrDefault(songKey, 0L);
+    }
+
+    /**
+     * Returns the plays of a song on one day (UTC).
+     * Days already rolled into monthly counters are no longer available at day resolution.
+     *
+     * @param songKey The song key.
+     * @param day     The day.
+     * @return The number of plays, or -1 if the day has been rolled up into its month.
+     */
+    public synchronized long getPlaysOn(String songKey, LocalDate day) {
+        long epochDay = day.toEpochDay();
+        if (epochDay < dayResolutionFrom) {
+            return -1;
+        }
+        long total = dailyCounts.getOrDefault(epochDay, Collections.emptyMap()).getOrDefault(songKey, 0L);
+        for (PlayEvent event : rawEvents) {
+            if (epochDay(event.timestamp) == epochDay && event.songKey.equals(songKey)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the exact plays of a song in one month (UTC), combining all tiers.
+     * Months past the monthly retention window are no longer available.
+     *
+     * @param songKey The song key.
+     * @param month   The month.
+     * @return The number of plays, or -1 if the month has been folded into the older totals.
+     */
+    public synchronized long getPlaysInMonth(String songKey, YearMonth month) {
+        if (monthResolutionFrom != null && month.isBefore(monthResolutionFrom)) {
+            return -1;
+        }
+        long total = monthlyCounts.getOrDefault(month, Collections.emptyMap()).getOrDefault(songKey, 0L);
+        long from = month.atDay(1).toEpochDay();
+        long to = month.atEndOfMonth().toEpochDay();
+        for (Map<String, Long> counts : dailyCounts.subMap(from, true, to, true).values()) {
+            total += counts.getOrDefault(songKey, 0L);
+        }
+        for (PlayEvent event : rawEvents) {
+            long day = epochDay(event.timestamp);
+            if (day >= from && day <= to && event.songKey.equals(songKey)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    public synchronized int getRawEventCount() {
+        return rawEvents.size();
+    }
+
+    public synchronized int getDailyBucketCount() {
+        return dailyCounts.size();
+    }
+
+    public synchronized int getMonthlyBucketCount() {
+        return monthlyCounts.size();
+    }
+
+    // ================== PERSISTENCE ================== //
+
+    /**
+     * Encodes the history as {"raw": [[millis, key], ...], "daily": {epochDay: {key: n}},
+     * "monthly": {"yyyy-MM": {key: n}}, "older": {key: n}}.
+     *
+     * @return The JSON form.
+     */
+    public synchronized JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        JSONArray raw = new JSONArray();
+        for (PlayEvent event : rawEvents) {
+            raw.put(new JSONArray().put(event.timestamp).put(event.songKey));
+        }
+        json.put("raw", raw);
+        JSONObject daily = new JSONObject();
+        dailyCounts.forEach((day, counts) -> daily.put(String.valueOf(day), new JSONObject(counts)));
+        json.put("daily", daily);
+        JSONObject monthly = new JSONObject();
+        monthlyCounts.forEach((month, counts) -> monthly.put(month.toString(), new JSONObject(counts)));
+        json.put("monthly", monthly);
+        json.put("dayResolutionFrom", dayResolutionFrom);
+        json.put("older", new JSONObject(olderCounts));
+        if (monthResolutionFrom != null) {
+            json.put("monthResolutionFrom", monthResolutionFrom.toString());
+        }
+        return json;
+    }
+
+    /**
+     * Replaces this history's contents with the state encoded by toJson().
+     *
+     * @param json The JSON form.
+     */
+    public synchronized void loadJson(JSONObject json) {
+        rawEvents.clear();
+        dailyCounts.clear();
+        monthlyCounts.clear();
+        olderCounts.clear();
+        JSONArray raw = json.getJSONArray("raw");
+        for (int i = 0; i < raw.length(); i++) {
+            JSONArray event = raw.getJSONArray(i);
+            rawEvents.addLast(new PlayEvent(event.getString(1), event.getLong(0)));
+        }
+        JSONObject daily = json.getJSONObject("daily");
+        for (String day : daily.keySet()) {
+            dailyCounts.put(Long.parseLong(day), readCounts(daily.getJSONObject(day)));
+        }
+        JSONObject monthly = json.getJSONObject("monthly");
+        for (String month : monthly.keySet()) {
+            monthlyCounts.put(YearMonth.parse(month), readCounts(monthly.getJSONObject(month)));
+        }
+        dayResolutionFrom = json.optLong("dayResolutionFrom", Long.MIN_VALUE);
+        JSONObject older = json.optJSONObject("older"); // Absent in histories saved before months expired
+        if (older != null) {
+            olderCounts.putAll(readCounts(older));
+        }
+        String monthFrom = json.optString("monthResolutionFrom", null);
+        monthResolutionFrom = monthFrom == null ? null : YearMonth.parse(monthFrom);
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private static long epochDay(long timestamp) {
+        return Math.floorDiv(timestamp, DAY_MILLIS); // UTC day
+    }
+
+    private static Map<String, Long> readCounts(JSONObject json) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String key : json.keySet()) {
+            counts.put(key, json.getLong(key));
+        }
+        return counts;
+    }
+
+    /**
+     * A single raw play.
+     */
+    private static final class PlayEvent {
+        private final String songKey;
+        private final long timestamp;
+
+        private PlayEvent(String songKey, long timestamp) {
+            this.songKey = songKey;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: SessionTracker.java
+ * Purpose: Incremental listening-session detector fed by PlaybackTracker. A new session starts
+ *          whenever the gap since the previous play exceeds the inactivity threshold. Per-session
+ *          and lifetime aggregates are maintained in O(1) per play, and only a bounded number of
+ *          completed sessions is retained, so nothing has to be recomputed from raw play logs.
+ */
+package main.analytics;
+
+import java.util.*;
+
+import main.model.Song;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+public class SessionTracker {
+    public static final long DEFAULT_INACTIVITY_GAP_MILLIS = 30 * 60 * 1000L; // 30 minutes
+    public static final long RAPID_REPLAY_WINDOW_MILLIS = 30 * 1000L; // Replays of a song closer than this look like skips
+    private static final int MAX_SESSIONS_KEPT = 100; // Completed sessions kept for detailed queries
+
+    private final long inactivityGapMillis;
+    private ListeningSession currentSession; // Open session, null before the first play
+    private String lastSongKey; // Song of the previous play in the open session, for rapid replays
+    private final Deque<ListeningSession> completedSessions; // Most recent first
+
+    // Lifetime aggregates over all completed sessions
+    private long totalSessions;
+    private long totalSongs;
+    private long totalDurationMillis;
+    private long totalRapidReplays;
+    private final Map<String, Long> totalGenreMix;
+
+    /**
+     * Constructs a tracker with the default 30 minute inactivity gap.
+     */
+    public SessionTracker() {
+        this(DEFAULT_INACTIVITY_GAP_MILLIS);
+    }
+
+    /**
+     * Constructs a tracker with a custom inactivity gap.
+     *
+     * @param inactivityGapMillis Pause length (millis) that ends a session.
+     */
+    public SessionTracker(long inactivityGapMillis) {
+        if (inactivityGapMillis <= 0) {
+            throw new IllegalArgumentException("Inactivity gap must be positive.");
+        }
+        this.inactivityGapMillis = inactivityGapMillis;
+        this.completedSessions = new ArrayDeque<>();
+        this.totalGenreMix = new HashMap<>();
+    }
+
+    /**
+     * Copy constructor - creates a deep copy of another tracker.
+     *
+     * @param original The tracker to copy.
+     */
+    public SessionTracker(SessionTracker original) {
+        if (original == null) {
+            throw new IllegalArgumentException("Original SessionTracker cannot be null");
+        }
+        this.inactivityGapMillis = original.inactivityGapMillis;
+        this.currentSession = original.currentSession == null ? null : new ListeningSession(original.currentSession);
+        this.lastSongKey = original.lastSongKey;
+        this.completedSessions = new ArrayDeque<>();
+        for (ListeningSession session : original.completedSessions) {
+            this.completedSessions.addLast(new ListeningSession(session));
+        }
+        this.totalSessions = original.totalSessions;
+        this.totalSongs = original.totalSongs;
+        this.totalDurationMillis = original.totalDurationMillis;
+        this.totalRapidReplays = original.totalRapidReplays;
+        this.totalGenreMix = new HashMap<>(original.totalGenreMix);
+    }
+
+    // ================== EVENTS ================== //
+
+    /**
+     * Feeds a play event into the detector. A play counts as a rapid replay when the same song
+     * was played just before it, less than RAPID_REPLAY_WINDOW_MILLIS earlier.
+     *
+     * @param song      The song that was played.
+     * @param timestamp Epoch millis of the play.
+     */
+    public void onPlay(Song song, long timestamp) {
+        if (song == null) {
+            throw new IllegalArgumentException("Song cannot be null.");
+        }
+        expireIdle(timestamp);
+        String songKey = song.getKey();
+        boolean rapid = false;
+        if (currentSession == null) {
+            currentSession = new ListeningSession(timestamp);
+        } else {
+            rapid = songKey.equals(lastSongKey)
+                    && timestamp - currentSession.getLastPlayTime() < RAPID_REPLAY_WINDOW_MILLIS;
+        }
+        lastSongKey = songKey;
+        String genre = song.getAlbum() != null ? song.getAlbum().getGenre() : null;
+        currentSession.recordPlay(timestamp, genre, rapid);
+    }
+
+    /**
+     * Closes the open session if it has been idle longer than the inactivity gap.
+     *
+     * @param now Current epoch millis.
+     */
+    public void expireIdle(long now) {
+        if (currentSession != null && now - currentSession.getLastPlayTime() > inactivityGapMillis) {
+            completeCurrentSession();
+        }
+    }
+
+    // ================== QUERIES ================== //
+
+    /**
+     * Returns a copy of the open session.
+     *
+     * @return The current session, or null if none is open.
+     */
+    public ListeningSession getCurrentSession() {
+        return currentSession == null ? null : new ListeningSession(currentSession);
+    }
+
+    /**
+     * Returns copies of the most recent completed sessions, newest first.
+     *
+     * @return Up to 100 completed sessions.
+     */
+    public List<ListeningSession> getCompletedSessions() {
+        List<ListeningSession> result = new ArrayList<>();
+        for (ListeningSession session : completedSessions) {
+            result.add(new ListeningSession(session));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of completed sessions over the tracker's lifetime.
+     *
+     * @return Total completed sessions.
+     */
+    public long getSessionCount() {
+        return totalSessions;
+    }
+
+    /**
+     * Returns the average length of completed sessions.
+     *
+     * @return Average duration in millis, or 0 if no session has completed.
+     */
+    public double getAverageSessionLengthMillis() {
+        return totalSessions == 0 ? 0 : (double) totalDurationMillis / totalSessions;
+    }
+
+    /**
+     * Returns the average number of songs per completed session.
+     *
+     * @return Average songs per session, or 0 if no session has completed.
+     */
+    public double getAverageSongsPerSession() {
+        return totalSessions == 0 ? 0 : (double) totalSongs / totalSessions;
+    }
+
+    /**
+     * Returns the fraction of plays in completed sessions that were rapid replays.
+     *
+     * @return Rapid replays / total plays, or 0 if nothing was played.
+     */
+    public double getRapidReplayRate() {
+        return totalSongs == 0 ? 0 : (double) totalRapidReplays / totalSongs;
+    }
+
+    /**
+     * Returns how many plays of each genre happened in completed sessions.
+     *
+     * @return An unmodifiable genre -> plays map.
+     */
+    public Map<String, Long> getGenreMix() {
+        return Collections.unmodifiableMap(totalGenreMix);
+    }
+
+    // ================== PERSISTENCE ================== //
+
+    /**
+     * Encodes the tracker compactly:
+     * {"totals": [sessions, songs, durationMillis, rapidReplays], "genres": {...},
+     *  "recent": [session, ...], "current": session}.
+     *
+     * @return The compact JSON form.
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("totals", new JSONArray(new long[] {totalSessions, totalSongs, totalDurationMillis, totalRapidReplays}));
+        json.put("genres", new JSONObject(totalGenreMix));
+        JSONArray recent = new JSONArray();
+        for (ListeningSession session : completedSessions) {
+            recent.put(session.toJson());
+        }
+        json.put("recent", recent);
+        if (currentSession != null) {
+            json.put("current", currentSession.toJson());
+            json.put("lastSong", lastSongKey);
+        }
+        return json;
+    }
+
+    /**
+     * Replaces this tracker's state with the state encoded by toJson().
+     *
+     * @param json The compact JSON form.
+     */
+    public void loadJson(JSONObject json) {
+        JSONArray totals = json.getJSONArray("totals");
+        totalSessions = totals.getLong(0);
+        totalSongs = totals.getLong(1);
+        totalDurationMillis = totals.getLong(2);
+        totalRapidReplays = totals.getLong(3);
+
+        totalGenreMix.clear();
+        JSONObject genres = json.getJSONObject("genres");
+        for (String genre : genres.keySet()) {
+            totalGenreMix.put(genre, genres.getLong(genre));
+        }
+
+        completedSessions.clear();
+        JSONArray recent = json.getJSONArray("recent");
+        for (int i = 0; i < recent.length(); i++) {
+            completedSessions.addLast(ListeningSession.fromJson(recent.getJSONArray(i)));
+        }
+        currentSession = json.has("current") ? ListeningSession.fromJson(json.getJSONArray("current")) : null;
+        lastSongKey = json.optString("lastSong", null);
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private void completeCurrentSession() {
+        ListeningSession session = currentSession;
+        currentSession = null;
+        lastSongKey = null;
+
+        totalSessions++;
+        totalSongs += session.getSongCount();
+        totalDurationMillis += session.getDurationMillis();
+        totalRapidReplays += session.getRapidReplays();
+        for (Map.Entry<String, Integer> entry : session.getGenreMix().entrySet()) {
+            totalGenreMix.merge(entry.getKey(), (long) entry.getValue(), Long::sum);
+        }
+
+        completedSessions.addFirst(session);
+        if (completedSessions.size() > MAX_SESSIONS_KEPT) {
+            completedSessions.removeLast();
+        }
+    }
+}
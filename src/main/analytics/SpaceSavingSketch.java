@@ -0,0 +1,289 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: SpaceSavingSketch.java
+ * Purpose: Fixed-memory heavy-hitter summary (Space-Saving algorithm) used to approximate the most
+ *          played songs. Each sketch monitors at most `capacity` keys, so its size never depends on how
+ *          many distinct songs were played. Sketches are mergeable, which lets per-user summaries be
+ *          combined into catalog-wide charts without merging every user's exact play counts.
+ */
+package main.analytics;
+
+import java.util.*;
+
+public class SpaceSavingSketch {
+    private final int capacity;
+    private final Map<String, Counter> counters; // Monitored keys and their counters
+    private final TreeMap<Long, LinkedHashSet<String>> buckets; // Count -> keys with that count (for O(log k) min lookup)
+    private long totalCount; // Sum of all increments offered to this sketch
+
+    /**
+     * Constructs an empty sketch that monitors at most the given number of keys.
+     *
+     * @param capacity The maximum number of monitored keys (must be positive).
+     * @throws IllegalArgumentException If capacity is not positive.
+     */
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+        this.buckets = new TreeMap<>();
+    }
+
+    /**
+     * Copy constructor - creates an independent copy of another sketch.
+     *
+     * @param original The sketch to copy.
+     */
+    public SpaceSavingSketch(SpaceSavingSketch original) {
+        if (original == null) {
+            throw new IllegalArgumentException("Original sketch cannot be null");
+        }
+        this.capacity = original.capacity;
+        this.counters = new HashMap<>();
+        this.buckets = new TreeMap<>();
+        this.totalCount = original.totalCount;
+        for (Map.Entry<String, Counter> entry : original.counters.entrySet()) {
+            Counter counter = entry.getValue();
+            insert(entry.getKey(), counter.count, counter.error);
+        }
+    }
+
+    // ================== UPDATES ================== //
+
+    /**
+     * Records a single occurrence of a key.
+     *
+     * @param key The key that occurred.
+     */
+    public void offer(String key) {
+        offer(key, 1);
+    }
+
+    /**
+     * Records several occurrences of a key at once.
+     * If the key is not monitored and the sketch is full, the key with the smallest
+     * count is replaced and its count becomes the new key's error bound.
+     *
+     * @param key       The key that occurred.
+     * @param increment How many times it occurred (must be positive).
+     */
+    public void offer(String key, long increment) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+        if (increment <= 0) {
+            throw new IllegalArgumentException("Increment must be positive.");
+        }
+        totalCount += increment;
+
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            // Already monitored: move the key to its new count bucket
+            removeFromBucket(key, counter.count);
+            counter.count += increment;
+            addToBucket(key, counter.count);
+        } else if (counters.size() < capacity) {
+            // Free slot: the count is exact
+            insert(key, increment, 0);
+        } else {
+            // Evict the key with the smallest count and inherit its count as error
+            long minCount = buckets.firstKey();
+            String victim = buckets.firstEntry().getValue().iterator().next();
+            removeFromBucket(victim, minCount);
+            counters.remove(victim);
+            insert(key, minCount + increment, minCount);
+        }
+    }
+
+    /**
+     * Removes all monitored keys.
+     */
+    public void clear() {
+        counters.clear();
+        buckets.clear();
+        totalCount = 0;
+    }
+
+    // ================== MERGING ================== //
+
+    /**
+     * Merges this sketch with another one into a new sketch. Neither input is modified,
+     * so merging is safe to use as a parallel reduction.
+     * Keys missing from a full sketch are charged that sketch's minimum count, which keeps
+     * the merged counts upper bounds of the true counts.
+     *
+     * @param other The sketch to merge with.
+     * @return A new sketch with this sketch's capacity summarizing both inputs.
+     */
+    public SpaceSavingSketch merge(SpaceSavingSketch other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Sketch to merge cannot be null.");
+        }
+        long thisMin = isFull() ? minCount() : 0;
+        long otherMin = other.isFull() ? other.minCount() : 0;
+
+        // Combine counters for the union of monitored keys
+        List<Map.Entry<String, long[]>> combined = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter mine = entry.getValue();
+            Counter theirs = other.counters.get(entry.getKey());
+            long count = mine.count + (theirs != null ? theirs.count : otherMin);
+            long error = mine.error + (theirs != null ? theirs.error : otherMin);
+            combined.add(new AbstractMap.SimpleEntry<>(entry.getKey(), new long[] {count, error}));
+        }
+        for (Map.Entry<String, Counter> entry : other.counters.entrySet()) {
+            if (!counters.containsKey(entry.getKey())) {
+                Counter theirs = entry.getValue();
+                long[] value = {theirs.count + thisMin, theirs.error + thisMin};
+                combined.add(new AbstractMap.SimpleEntry<>(entry.getKey(), value));
+            }
+        }
+
+        // Keep only the largest counters
+        combined.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        SpaceSavingSketch result = new SpaceSavingSketch(capacity);
+        for (int i = 0; i < combined.size() && i < capacity; i++) {
+            long[] value = combined.get(i).getValue();
+            result.insert(combined.get(i).getKey(), value[0], value[1]);
+        }
+        result.totalCount = this.totalCount + other.totalCount;
+        return result;
+    }
+
+    // ================== QUERIES ================== //
+
+    /**
+     * Returns the top monitored keys ordered by estimated count (descending).
+     *
+     * @param k The maximum number of entries to return.
+     * @return A list of heavy hitters with their count estimates and error bounds.
+     */
+    public List<HeavyHitter> topK(int k) {
+        List<HeavyHitter> result = new ArrayList<>();
+        // Walk buckets from the highest count down
+        for (Map.Entry<Long, LinkedHashSet<String>> bucket : buckets.descendingMap().entrySet()) {
+            for (String key : bucket.getValue()) {
+                if (result.size() >= k) {
+                    return result;
+                }
+                result.add(new HeavyHitter(key, bucket.getKey(), counters.get(key).error));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the estimated count of a key (an upper bound of its true count),
+     * or 0 if the key is not monitored.
+     *
+     * @param key The key to look up.
+     * @return The estimated count.
+     */
+    public long getCount(String key) {
+        Counter counter = counters.get(key);
+        return counter == null ? 0 : counter.count;
+    }
+
+    /**
+     * Returns the maximum overestimation of any monitored count.
+     * It never exceeds totalCount / capacity.
+     *
+     * @return The worst-case error of this sketch.
+     */
+    public long getMaxError() {
+        return isFull() ? minCount() : 0;
+    }
+
+    // ================== GETTERS ================== //
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private boolean isFull() {
+        return counters.size() >= capacity;
+    }
+
+    private long minCount() {
+        return buckets.isEmpty() ? 0 : buckets.firstKey();
+    }
+
+    private void insert(String key, long count, long error) {
+        Counter counter = new Counter();
+        counter.count = count;
+        counter.error = error;
+        counters.put(key, counter);
+        addToBucket(key, count);
+    }
+
+    private void addToBucket(String key, long count) {
+        buckets.computeIfAbsent(count, c -> new LinkedHashSet<>()).add(key);
+    }
+
+    private void removeFromBucket(String key, long count) {
+        Set<String> bucket = buckets.get(count);
+        bucket.remove(key);
+        if (bucket.isEmpty()) {
+            buckets.remove(count);
+        }
+    }
+
+    /**
+     * Mutable counter for a monitored key.
+     */
+    private static final class Counter {
+        private long count; // Estimated count (upper bound)
+        private long error; // Maximum overestimation of count
+    }
+
+    /**
+     * An entry of a top-K query: a key, its estimated count and the error bound of that estimate.
+     * The true count lies between count - error and count.
+     */
+    public static final class HeavyHitter {
+        private final String key;
+        private final long count;
+        private final long error;
+
+        public HeavyHitter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * Returns the count this key is guaranteed to have reached.
+         *
+         * @return count - error
+         */
+        public long getGuaranteedCount() {
+            return count - error;
+        }
+    }
+}
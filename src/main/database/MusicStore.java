@@ -6,10 +6,14 @@
  * Purpose: This class represents the music store, which manages the collection of albums and songs.
  *          It loads data from files, organizes albums and songs by title and artist, and provides
  *          methods to search and retrieve music data. The store acts as the database for the application.
+ *          A store never changes after it is loaded, so one store per directory is shared by all
+ *          users (see getShared()); each user's ratings and favorites are kept in their LibraryModel.
  */
 package main.database;
 
 import main.model.Album;
+import main.model.Page;
+import main.model.PageToken;
 import main.model.Song;
 import java.io.BufferedReader;
 import java.io.File;
@@ -20,15 +24,21 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MusicStore {
+    // Shared stores by directory, so album files are read once and their songs shared by all users
+    private static final Map<String, MusicStore> sharedStores = new ConcurrentHashMap<>();
+
+    private final List<Album> albums = new ArrayList<>(); // All albums in load order
     private final Map<String, Album> albumsByTitle = new HashMap<>();
     private final Map<String, List<Album>> albumsByArtist = new HashMap<>();
     private final Map<String, List<Song>> songsByTitle = new HashMap<>();
     private final String basePath;
 
     /**
-     * Constructs a MusicStore instance and initializes it with album data.
+     * Constructs a MusicStore instance and initializes it with album data. Most callers want
+     * getShared() instead, which reads each directory only once.
      * 
      * @param filePath The directory path containing album files.
      * @throws RuntimeException If an error occurs during initialization.
@@ -40,9 +50,23 @@ public class MusicStore {
         } else {
             this.basePath = filePath + File.separator;
         }
+
         initializeStore();
     }
 
+    /**
+     * Returns the store for a directory, reading its album files on first use. Every user's
+     * library refers to the same store; it is only read after loading, so it is safe to share
+     * between threads.
+     * 
+     * @param filePath The directory path containing album files.
+     * @return The shared store.
+     * @throws RuntimeException If an error occurs during initialization.
+     */
+    public static MusicStore getShared(String filePath) {
+        return sharedStores.computeIfAbsent(new File(filePath).getAbsolutePath(), key -> new MusicStore(filePath));
+    }
+
     /**
      * Initializes the music store by loading album data from files.
      */
@@ -105,29 +129,14 @@ public class MusicStore {
 
             // Creating album and adding to data structures
             Album album = new Album(albumTitle, artist, genre, year);
-            albumsByTitle.put(albumTitle.toLowerCase(), album);
-
-            // Adding to albumsByArtist 
-            String artistKey = artist.toLowerCase();
-            if (!albumsByArtist.containsKey(artistKey)) {
-                albumsByArtist.put(artistKey, new ArrayList<>());
-            }
-            albumsByArtist.get(artistKey).add(album);
+            addAlbum(album);
 
             // Processing songs in order
             String songTitle;
             while ((songTitle = reader.readLine()) != null) {
                 songTitle = songTitle.trim();
                 if (!songTitle.isEmpty()) {
-                    Song song = new Song(songTitle, artist, album);
-                    album.addSong(song); // Adding songs to the album in order
-
-                    // Adding to songsByTitle 
-                    String songTitleKey = songTitle.toLowerCase();
-                    if (!songsByTitle.containsKey(songTitleKey)) {
-                        songsByTitle.put(songTitleKey, new ArrayList<>());
-                    }
-                    songsByTitle.get(songTitleKey).add(song);
+                    addSong(album, new Song(songTitle, artist, album));
                 }
             }
         } catch (IOException e) {
@@ -135,6 +144,40 @@ public class MusicStore {
         }
     }
 
+    /**
+     * Adds an album to the lookup structures.
+     * 
+     * @param album The album to add.
+     */
+    private void addAlbum(Album album) {
+        albums.add(album);
+        albumsByTitle.put(album.getTitle().toLowerCase(), album);
+
+        // Adding to albumsByArtist 
+        String artistKey = album.getArtist().toLowerCase();
+        if (!albumsByArtist.containsKey(artistKey)) {
+            albumsByArtist.put(artistKey, new ArrayList<>());
+        }
+        albumsByArtist.get(artistKey).add(album);
+    }
+
+    /**
+     * Adds a song to its album (in order) and to the lookup structures.
+     * 
+     * @param album The album the song belongs to.
+     * @param song  The song to add.
+     */
+    private void addSong(Album album, Song song) {
+        album.addSong(song); // Adding songs to the album in order
+
+        // Adding to songsByTitle 
+        String songTitleKey = song.getTitle().toLowerCase();
+        if (!songsByTitle.containsKey(songTitleKey)) {
+            songsByTitle.put(songTitleKey, new ArrayList<>());
+        }
+        songsByTitle.get(songTitleKey).add(song);
+    }
+
     // ================== PUBLIC METHODS ================== //
 
     /**
@@ -240,4 +283,63 @@ public class MusicStore {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    // ================== PAGED QUERIES ================== //
+
+    /**
+     * Retrieves one page of the albums by an artist (case-insensitive), in load order.
+     * The catalog never changes, so a token is a position in the result.
+     *
+     * @param artist    The artist name to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most albums on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Album> getAlbumsByArtist(String artist, String pageToken, int limit) {
+        return Page.slice(getAlbumsByArtist(artist), "store-albums-by-artist:" + artist.toLowerCase(), pageToken, limit);
+    }
+
+    /**
+     * Retrieves one page of the songs with a title (case-insensitive), in load order.
+     *
+     * @param title     The title to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> getSongsByTitle(String title, String pageToken, int limit) {
+        return Page.slice(getSongsByTitle(title), "store-songs-by-title:" + title.toLowerCase(), pageToken, limit);
+    }
+
+    /**
+     * Retrieves one page of the songs by an artist (case-insensitive), album by album in load
+     * order. Albums before the page are skipped by size, so only the page's songs are copied.
+     *
+     * @param artist    The artist name to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> getSongsByArtist(String artist, String pageToken, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        String query = "store-songs-by-artist:" + artist.toLowerCase();
+        int offset = PageToken.decodeOffset(pageToken, query);
+        List<Song> page = new ArrayList<>();
+        int position = 0; // Position of the current album's first song
+        for (Album album : getAlbumsByArtist(artist)) {
+            int end = position + album.size();
+            int wanted = offset + page.size(); // Next position the page needs
+            if (page.size() < limit && wanted < end) {
+                page.addAll(album.getSongs(wanted - position, limit - page.size()).getItems());
+            }
+            position = end;
+        }
+        int next = offset + page.size();
+        return new Page<>(page, offset, position, next < position ? PageToken.encodeOffset(query, next) : null);
+    }
+}
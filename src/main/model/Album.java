@@ -62,6 +62,15 @@ public class Album {
     public void addSong(Song song) {
         songs.add(song);
     }
+
+    /* 
+     * Returns a stable identity key for the album (artist + title, case-insensitive)
+     * Params: None
+     * Output: String key
+     */
+    public String getKey() {
+        return artist.toLowerCase() + "|" + title.toLowerCase();
+    }
     
     // ================== GETTERS ================== //
 
@@ -84,4 +93,17 @@ public class Album {
     public List<Song> getSongs() { 
         return new ArrayList<>(songs);
     }
+
+    /* 
+     * Returns one page of the album's songs in track order; only the page is copied.
+     * Params: offset (int) - position of the first song, limit (int) - most songs on the page
+     * Output: Page<Song>
+     */
+    public Page<Song> getSongs(int offset, int limit) {
+        return Page.slice(songs, offset, limit);
+    }
+
+    public int size() {
+        return songs.size();
+    }
 }
\ No newline at end of file
@@ -63,7 +63,7 @@ public class AutoPlaylistManager {
         // Create Favorite Songs playlist
         Playlist favoriteSongsPlaylist = new Playlist("Favorite Songs");
         for (Song song : songs) {
-            if (song.isFavorite() || song.getRating() == 5) {
+            if (userLibrary.isFavorite(song) || userLibrary.getRating(song) == 5) {
                 favoriteSongsPlaylist.addSong(song);
             }
         }
@@ -72,7 +72,7 @@ public class AutoPlaylistManager {
         // Create Top Rated playlist
         Playlist topRatedPlaylist = new Playlist("Top Rated");
         for (Song song : songs) {
-            if (song.getRating() >= 4) {
+            if (userLibrary.getRating(song) >= 4) {
                 topRatedPlaylist.addSong(song);
             }
         }
@@ -0,0 +1,103 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LibraryChangeLog.java
+ * Purpose: Records which parts of a user's library changed since the last save (albums added or
+ *          changed, albums removed, song ratings/favorites, playlists) so that User.saveLibraryData
+ *          can write only a small delta instead of re-serializing the whole library.
+ */
+package main.model;
+
+import java.util.*;
+
+public class LibraryChangeLog {
+    private final Set<Album> changedAlbums; // Albums added or whose song list changed
+    private final Set<Album> removedAlbums; // Albums removed from the library
+    private final Set<Song> changedSongs; // Songs whose rating or favorite flag changed
+    private final Map<Playlist, Integer> savedPlaylistVersions; // Playlist -> version at last save
+
+    /**
+     * Constructs an empty change log.
+     */
+    public LibraryChangeLog() {
+        this.changedAlbums = new LinkedHashSet<>();
+        this.removedAlbums = new LinkedHashSet<>();
+        this.changedSongs = new LinkedHashSet<>();
+        this.savedPlaylistVersions = new IdentityHashMap<>();
+    }
+
+    // ================== RECORDING CHANGES ================== //
+
+    void albumChanged(Album album) {
+        removedAlbums.remove(album);
+        changedAlbums.add(album);
+    }
+
+    void albumRemoved(Album album) {
+        changedAlbums.remove(album);
+        removedAlbums.add(album);
+    }
+
+    void songChanged(Song song) {
+        changedSongs.add(song);
+    }
+
+    // ================== QUERIES ================== //
+
+    public Set<Album> getChangedAlbums() {
+        return Collections.unmodifiableSet(changedAlbums);
+    }
+
+    public Set<Album> getRemovedAlbums() {
+        return Collections.unmodifiableSet(removedAlbums);
+    }
+
+    public Set<Song> getChangedSongs() {
+        return Collections.unmodifiableSet(changedSongs);
+    }
+
+    /**
+     * Returns the playlists that are new or were modified since the last save.
+     * Playlists are compared by version, so changes made directly on a Playlist are also detected.
+     *
+     * @param playlists The library's current playlists.
+     * @return The changed playlists.
+     */
+    public List<Playlist> getChangedPlaylists(List<Playlist> playlists) {
+        List<Playlist> changed = new ArrayList<>();
+        for (Playlist playlist : playlists) {
+            Integer savedVersion = savedPlaylistVersions.get(playlist);
+            if (savedVersion == null || savedVersion != playlist.getVersion()) {
+                changed.add(playlist);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns true if nothing changed since the last save.
+     *
+     * @param playlists The library's current playlists.
+     * @return True if there is nothing to write.
+     */
+    public boolean isEmpty(List<Playlist> playlists) {
+        return changedAlbums.isEmpty() && removedAlbums.isEmpty() && changedSongs.isEmpty()
+                && getChangedPlaylists(playlists).isEmpty();
+    }
+
+    /**
+     * Marks the current state as saved.
+     *
+     * @param playlists The library's current playlists.
+     */
+    public void markSaved(List<Playlist> playlists) {
+        changedAlbums.clear();
+        removedAlbums.clear();
+        changedSongs.clear();
+        savedPlaylistVersions.clear();
+        for (Playlist playlist : playlists) {
+            savedPlaylistVersions.put(playlist, playlist.getVersion());
+        }
+    }
+}
@@ -6,19 +6,37 @@
  * Purpose: This class serves as the model for the music library, managing the user's collection of songs,
  *          albums, and playlists. It provides methods to add, remove, and search for music, as well as
  *          handle ratings and favorites. The model interacts with the MusicStore to ensure data consistency.
+ *          Catalog songs are shared by every user's library, so this user's ratings and favorites
+ *          are kept here, per song, rather than on the songs.
  */
 package main.model;
 
+import main.analytics.HistoryCompactor;
 import main.database.MusicStore;
 import java.util.*;
 
 public class LibraryModel {
+    // Joins the fields of cursor sort keys; sorts before any character, so "ab" < "abc"
+    private static final char KEY_SEPARATOR = '\u0000';
+    // Orders of the sorted views; each ends in the song's key and album so pages are stable
+    private static final Comparator<Song> SONG_IDENTITY_ORDER = Comparator
+        .comparing(Song::getKey)
+        .thenComparing(song -> song.getAlbum() == null ? "" : song.getAlbum().getTitle());
+    private static final Comparator<Song> TITLE_ARTIST_ORDER = Comparator
+        .comparing(Song::getTitle, String.CASE_INSENSITIVE_ORDER)
+        .thenComparing(Song::getArtist, String.CASE_INSENSITIVE_ORDER)
+        .thenComparing(SONG_IDENTITY_ORDER);
+
     private final Set<Song> songLibrary = new HashSet<>();
     private final Set<Album> albumLibrary = new HashSet<>();
     private final List<Playlist> playlists = new ArrayList<>();
+    private final Map<Song, SongState> songStates = new HashMap<>(); // This user's ratings and favorites
     private final MusicStore musicStore;
     private final PlaybackTracker playbackTracker; 
     private final AutoPlaylistManager autoPlaylistManager;
+    private final LibraryChangeLog changeLog = new LibraryChangeLog(); // Unsaved changes for delta saves
+    private Runnable changeListener; // Notified after each mutation (e.g. to mark the user dirty)
+    private Runnable playbackLoader; // Loads playback history on first access; null once loaded
     
 
     /**
@@ -48,9 +66,72 @@ public class LibraryModel {
      * @return The PlaybackTracker instance.
      */
     public PlaybackTracker getPlaybackTracker() {
+        synchronized (this.playbackTracker) {
+            Runnable loader = this.playbackLoader;
+            if (loader != null) {
+                this.playbackLoader = null;
+                try {
+                    loader.run();
+                } catch (RuntimeException e) {
+                    this.playbackLoader = loader; // Never save an empty history over the stored one
+                    throw e;
+                }
+            }
+        }
         return this.playbackTracker;
     }
 
+    /**
+     * Has a background compactor roll up the playback history, without loading the history.
+     *
+     * @param compactor The compactor, or null to stop background compaction.
+     */
+    public void setHistoryCompactor(HistoryCompactor compactor) {
+        playbackTracker.setHistoryCompactor(compactor);
+    }
+
+    /**
+     * Defers loading the playback history until the tracker is first requested.
+     *
+     * @param loader Fills the tracker from storage; runs at most once.
+     */
+    public void setPlaybackLoader(Runnable loader) {
+        synchronized (this.playbackTracker) {
+            this.playbackLoader = loader;
+        }
+    }
+
+    /**
+     * Returns true once the playback history is in memory (or was never deferred).
+     *
+     * @return True if no playback load is pending.
+     */
+    public boolean isPlaybackLoaded() {
+        synchronized (this.playbackTracker) {
+            return this.playbackLoader == null;
+        }
+    }
+
+    /**
+     * Retrieves the log of changes made since the library was last saved.
+     * 
+     * @return The LibraryChangeLog instance.
+     */
+    public LibraryChangeLog getChangeLog() {
+        return this.changeLog;
+    }
+
+    /**
+     * Sets the listener notified after the library or its playback history changes, e.g. to
+     * schedule a background save. Direct edits on a Playlist object are not reported.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+        this.playbackTracker.setChangeListener(listener);
+    }
+
     
     // ================== LIBRARY MANAGEMENT ================== //
 
@@ -69,24 +150,28 @@ public class LibraryModel {
             // Get the album from the MusicStore
             Album storeAlbum = song.getAlbum();
             if (storeAlbum != null) {
-                // Check if the album already exists in the user's library
+                // Check if the album already exists in the user's library (same title and artist,
+                // so a store album shared with other users is never given a foreign song)
                 Album libraryAlbum = searchAlbumByTitle(storeAlbum.getTitle());
 
-                if (libraryAlbum == null) {
+                if (libraryAlbum == null || !libraryAlbum.getArtist().equalsIgnoreCase(storeAlbum.getArtist())) {
                     // If the album doesn't exist in the library, create a new album with only this song
                     List<Song> songsInAlbum = new ArrayList<>();
                     songsInAlbum.add(song);
                     Album newAlbum = new Album(storeAlbum.getTitle(), storeAlbum.getArtist(), storeAlbum.getGenre(), storeAlbum.getYear(), songsInAlbum);
                     albumLibrary.add(newAlbum);
+                    changeLog.albumChanged(newAlbum);
                 } else {
                     // If the album exists, add the song to the existing album (if it's not already there)
                     if (!libraryAlbum.getSongs().contains(song)) {
                         libraryAlbum.addSong(song);
+                        changeLog.albumChanged(libraryAlbum);
                     }
                 }
             }
             // Update auto playlists
             autoPlaylistManager.updateAutoPlaylists(this);
+            notifyChanged();
         }
     }
 
@@ -100,6 +185,7 @@ public class LibraryModel {
         songLibrary.remove(song);
         // Update auto playlists
         autoPlaylistManager.updateAutoPlaylists(this);
+        notifyChanged();
     }
 
     /**
@@ -110,6 +196,7 @@ public class LibraryModel {
     public void addAlbum(Album album) {
         if (inStore(album)) {
             albumLibrary.add(album);
+            changeLog.albumChanged(album);
             // Add all songs from the album to the song library
             for (Song song : album.getSongs()) {
                 addSong(song);
@@ -123,7 +210,10 @@ public class LibraryModel {
      * @param album The album to remove.
      */
     public void removeAlbum(Album album) {
-        albumLibrary.remove(album);
+        if (albumLibrary.remove(album)) {
+            changeLog.albumRemoved(album);
+            notifyChanged();
+        }
         // Remove all songs from the album from the song library
         for (Song song : album.getSongs()) {
             removeSong(song);
@@ -314,6 +404,7 @@ public class LibraryModel {
     public Playlist createPlaylist(String name) {
         Playlist playlist = new Playlist(name);
         playlists.add(playlist);
+        notifyChanged();
         return playlist;
     }
 
@@ -359,9 +450,15 @@ public class LibraryModel {
         if (rating < 1 || rating > 5) {
             throw new IllegalArgumentException("Rating must be 1-5");
         }
-        song.rate(rating);
+        SongState state = stateOf(song);
+        state.rating = rating;
+        if (rating == 5) {
+            state.favorite = true; // A rating of 5 also marks the song as a favorite
+        }
+        changeLog.songChanged(song);
         // Update auto playlists
         autoPlaylistManager.updateAutoPlaylists(this);
+        notifyChanged();
     }
 
     /**
@@ -374,7 +471,7 @@ public class LibraryModel {
         // Loop through all songs in the library
         for (Song song : songLibrary) {
             // Check if the song is marked as a favorite
-            if (song.isFavorite()) {
+            if (isFavorite(song)) {
                 favorites.add(song);
             }
         }
@@ -387,9 +484,55 @@ public class LibraryModel {
      * @param song The song to mark as favorite.
      */
     public void markAsFavorite(Song song) {
-        song.markAsFavorite();
+        stateOf(song).favorite = true;
+        changeLog.songChanged(song);
         // Update auto playlists
         autoPlaylistManager.updateAutoPlaylists(this);
+        notifyChanged();
+    }
+
+    /**
+     * Returns this user's rating of a song.
+     * 
+     * @param song The song.
+     * @return The rating (1-5), or 0 if the song is unrated.
+     */
+    public int getRating(Song song) {
+        SongState state = songStates.get(song);
+        return state == null ? 0 : state.rating;
+    }
+
+    /**
+     * Checks if this user marked a song as a favorite.
+     * 
+     * @param song The song.
+     * @return True if the song is a favorite.
+     */
+    public boolean isFavorite(Song song) {
+        SongState state = songStates.get(song);
+        return state != null && state.favorite;
+    }
+
+    /**
+     * Restores a saved rating and favorite flag while the library is read from storage; unlike
+     * rateSong() and markAsFavorite() this is not a change to save.
+     * 
+     * @param song     The song.
+     * @param rating   The saved rating (0 = unrated, otherwise 1-5).
+     * @param favorite The saved favorite flag.
+     * @throws IllegalArgumentException If the rating is invalid.
+     */
+    public void restoreSongState(Song song, int rating, boolean favorite) {
+        if (rating < 0 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be 1-5");
+        }
+        if (rating == 0 && !favorite) {
+            songStates.remove(song);
+            return;
+        }
+        SongState state = stateOf(song);
+        state.rating = rating;
+        state.favorite = favorite || rating == 5;
     }
     
     /**
@@ -427,6 +570,17 @@ public class LibraryModel {
         return musicStore.albumExists(album.getTitle(), album.getArtist());
     }
 
+    private SongState stateOf(Song song) {
+        return songStates.computeIfAbsent(song, key -> new SongState());
+    }
+
+    private void notifyChanged() {
+        Runnable listener = this.changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
     /**
      * Returns a list of unique artist names in the library.
      * 
@@ -458,6 +612,76 @@ public class LibraryModel {
     }
     
     
+    /**
+     * Returns the MusicStore album a library album was taken from, provided every one of its
+     * songs is a track of that store album. Such albums can be saved as catalog references.
+     * 
+     * @param album The library album.
+     * @return The store album, or null if the album is not (entirely) from the store.
+     */
+    public Album findCatalogAlbum(Album album) {
+        if (musicStore == null) {
+            return null;
+        }
+        Album catalogAlbum = musicStore.getAlbumByArtistAndTitle(album.getArtist(), album.getTitle());
+        if (catalogAlbum == null) {
+            return null;
+        }
+        for (Song song : album.getSongs()) {
+            if (findTrack(catalogAlbum, song.getTitle()) == null) {
+                return null;
+            }
+        }
+        return catalogAlbum;
+    }
+
+    /**
+     * Finds a track on a store album by title (case-insensitive).
+     * 
+     * @param catalogAlbum The store album.
+     * @param title        The song title.
+     * @return The store song, or null if the album has no such track.
+     */
+    public Song findTrack(Album catalogAlbum, String title) {
+        for (Song song : catalogAlbum.getSongs()) {
+            if (song.getTitle().equalsIgnoreCase(title)) {
+                return song;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the library album for saved store songs, linking to the MusicStore's own objects
+     * the same way addAlbum() and addSong() do: the store album itself when all of its tracks
+     * were saved, otherwise a library album holding only the saved store songs.
+     * The album is not added; use addAlbumDirect().
+     * 
+     * @param catalogAlbum The store album.
+     * @param storeSongs   The saved tracks of that album (store Song objects).
+     * @return The album to add to the library.
+     */
+    public Album linkCatalogSongs(Album catalogAlbum, List<Song> storeSongs) {
+        if (storeSongs.equals(catalogAlbum.getSongs())) {
+            return catalogAlbum;
+        }
+        return new Album(catalogAlbum.getTitle(), catalogAlbum.getArtist(), catalogAlbum.getGenre(),
+                catalogAlbum.getYear(), storeSongs);
+    }
+
+    /**
+     * Removes an album and its songs directly, without recording a change.
+     * Intended for replaying saved deltas while loading user libraries.
+     * 
+     * @param album The album to be removed from the library.
+     */
+    public void removeAlbumDirect(Album album) {
+        albumLibrary.remove(album);
+        for (Song song : album.getSongs()) {
+            songLibrary.remove(song);
+        }
+    }
+    
     /**
      * Returns all library songs sorted by title (A-Z) then artist (A-Z).
      * Case-insensitive comparison.
@@ -468,9 +692,7 @@ public class LibraryModel {
         // Create modifiable copy of song library
         List<Song> sorted = new ArrayList<>(songLibrary);
         // Sort by title then artist (case-insensitive)
-        sorted.sort(Comparator
-            .comparing(Song::getTitle, String.CASE_INSENSITIVE_ORDER)
-            .thenComparing(Song::getArtist, String.CASE_INSENSITIVE_ORDER));
+        sorted.sort(TITLE_ARTIST_ORDER);
         return sorted;
     }
 
@@ -512,9 +734,7 @@ public class LibraryModel {
         // Create modifiable copy of song library
         List<Song> sorted = new ArrayList<>(songLibrary);
         // Sort by rating then title
-        sorted.sort(Comparator
-            .comparingInt(Song::getRating)
-            .thenComparing(Song::getTitle, String.CASE_INSENSITIVE_ORDER));
+        sorted.sort(ratingOrder());
         return sorted;
     }
 
@@ -548,6 +768,267 @@ public class LibraryModel {
         return shuffledSongs;
     }
     
+    // ================== PAGED VIEWS ================== //
+
+    /**
+     * Returns one page of the songs sorted by title then artist, without sorting the whole library.
+     *
+     * @param offset Position of the page's first song.
+     * @param limit  Most songs on the page.
+     * @return The page.
+     * @throws IllegalArgumentException If offset is negative or limit is not positive.
+     */
+    public Page<Song> getSongsSortedByTitleAndArtist(int offset, int limit) {
+        return Page.sorted(songLibrary, TITLE_ARTIST_ORDER, offset, limit);
+    }
+
+    /**
+     * Returns one page of the songs sorted by rating then title, without sorting the whole library.
+     *
+     * @param offset Position of the page's first song.
+     * @param limit  Most songs on the page.
+     * @return The page.
+     * @throws IllegalArgumentException If offset is negative or limit is not positive.
+     */
+    public Page<Song> getSongsSortedByRating(int offset, int limit) {
+        return Page.sorted(songLibrary, ratingOrder(), offset, limit);
+    }
+
+    /**
+     * Returns one page of the songs in a random order fixed by the seed, so paging back and forth
+     * through the same shuffle shows the same songs.
+     *
+     * @param seed   Chooses the order; use the same seed for every page of one shuffle.
+     * @param offset Position of the page's first song.
+     * @param limit  Most songs on the page.
+     * @return The page.
+     * @throws IllegalArgumentException If offset is negative or limit is not positive.
+     */
+    public Page<Song> getShuffledSongs(long seed, int offset, int limit) {
+        return Page.sorted(songLibrary, shuffleOrder(seed), offset, limit);
+    }
+
+    private Comparator<Song> ratingOrder() {
+        return Comparator.comparingInt(this::getRating)
+            .thenComparing(Song::getTitle, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(SONG_IDENTITY_ORDER);
+    }
+
+    private static Comparator<Song> shuffleOrder(long seed) {
+        return Comparator.<Song>comparingLong(song -> mix(seed + song.getKey().hashCode()))
+            .thenComparing(SONG_IDENTITY_ORDER);
+    }
+
+    /**
+     * Scrambles a number (SplitMix64 finalizer) so nearby keys land far apart.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    // ================== CURSOR QUERIES ================== //
+
+    /*
+     * Each query below returns one page and a continuation token for the next. Results are
+     * ordered by a sort key string (lower-cased fields joined by KEY_SEPARATOR and ending in
+     * the item's identity), and the token holds the last key shown, so the order is stable and
+     * pages neither repeat nor skip items when the library changes between them. A page costs
+     * one pass over the library and O(page) memory; no full result list is built.
+     */
+
+    /**
+     * Returns one page of the songs sorted by title then artist.
+     *
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> getSongsSortedByTitleAndArtist(String pageToken, int limit) {
+        return Page.after(songLibrary, song -> true, LibraryModel::titleArtistKey,
+            "library-songs-by-title", pageToken, limit);
+    }
+
+    /**
+     * Returns one page of the songs sorted by rating then title (lowest ratings first).
+     *
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> getSongsSortedByRating(String pageToken, int limit) {
+        return Page.after(songLibrary, song -> true, this::ratingKey,
+            "library-songs-by-rating", pageToken, limit);
+    }
+
+    /**
+     * Returns one page of the albums sorted by title.
+     *
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most albums on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Album> getAlbumsSortedByTitle(String pageToken, int limit) {
+        return Page.after(albumLibrary, album -> true, LibraryModel::albumKey,
+            "library-albums-by-title", pageToken, limit);
+    }
+
+    /**
+     * Returns one page of the artists sorted by name. Artists are collected first, so this
+     * costs memory in the number of artists (not songs).
+     *
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most artists on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<String> getArtistsSorted(String pageToken, int limit) {
+        return Page.after(getArtists(), artist -> true, artist -> artist.toLowerCase() + KEY_SEPARATOR + artist,
+            "library-artists", pageToken, limit);
+    }
+
+    /**
+     * Returns one page of the songs in a random order fixed by the seed.
+     *
+     * @param seed      Chooses the order; pass the same seed with every token of one shuffle.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid (or from another seed) or limit is not positive.
+     */
+    public Page<Song> getShuffledSongs(long seed, String pageToken, int limit) {
+        return Page.after(songLibrary, song -> true,
+            song -> String.format("%016x", mix(seed + song.getKey().hashCode()) ^ Long.MIN_VALUE)
+                + KEY_SEPARATOR + songIdentityKey(song),
+            "library-shuffle:" + seed, pageToken, limit);
+    }
+
+    /**
+     * Returns one page of the favorite songs sorted by title then artist.
+     *
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> getFavoriteSongs(String pageToken, int limit) {
+        return Page.after(songLibrary, this::isFavorite, LibraryModel::titleArtistKey,
+            "library-favorites", pageToken, limit);
+    }
+
+    /**
+     * Searches the library for songs by title (case-insensitive), one page at a time.
+     *
+     * @param title     The title to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, sorted by title then artist, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> searchSongByTitle(String title, String pageToken, int limit) {
+        return Page.after(songLibrary, song -> song.getTitle().equalsIgnoreCase(title), LibraryModel::titleArtistKey,
+            "library-search-title:" + title.toLowerCase(), pageToken, limit);
+    }
+
+    /**
+     * Searches the library for songs by artist (case-insensitive), one page at a time.
+     *
+     * @param artist    The artist to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, sorted by title then artist, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> searchSongByArtist(String artist, String pageToken, int limit) {
+        return Page.after(songLibrary, song -> song.getArtist().equalsIgnoreCase(artist), LibraryModel::titleArtistKey,
+            "library-search-artist:" + artist.toLowerCase(), pageToken, limit);
+    }
+
+    /**
+     * Searches the library for songs by genre (case-insensitive), one page at a time.
+     *
+     * @param genre     The genre to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, sorted by title then artist, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Song> searchSongByGenre(String genre, String pageToken, int limit) {
+        return Page.after(songLibrary, song -> song.getAlbum().getGenre().equalsIgnoreCase(genre),
+            LibraryModel::titleArtistKey, "library-search-genre:" + genre.toLowerCase(), pageToken, limit);
+    }
+
+    /**
+     * Searches the library for albums by artist (case-insensitive), one page at a time.
+     *
+     * @param artist    The artist to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most albums on the page.
+     * @return The page, sorted by title, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public Page<Album> searchAlbumByArtist(String artist, String pageToken, int limit) {
+        return Page.after(albumLibrary, album -> album.getArtist().equalsIgnoreCase(artist), LibraryModel::albumKey,
+            "library-search-album-artist:" + artist.toLowerCase(), pageToken, limit);
+    }
+
+    /**
+     * Searches the MusicStore for songs by title, one page at a time (catalog order).
+     *
+     * @param title     The title to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     */
+    public Page<Song> searchStoreSongByTitle(String title, String pageToken, int limit) {
+        return musicStore.getSongsByTitle(title, pageToken, limit);
+    }
+
+    /**
+     * Searches the MusicStore for songs by artist, one page at a time (catalog order).
+     *
+     * @param artist    The artist to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most songs on the page.
+     * @return The page, with the token of the next page.
+     */
+    public Page<Song> searchStoreSongByArtist(String artist, String pageToken, int limit) {
+        return musicStore.getSongsByArtist(artist, pageToken, limit);
+    }
+
+    /**
+     * Searches the MusicStore for albums by artist, one page at a time (catalog order).
+     *
+     * @param artist    The artist to search for.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most albums on the page.
+     * @return The page, with the token of the next page.
+     */
+    public Page<Album> searchStoreAlbumByArtist(String artist, String pageToken, int limit) {
+        return musicStore.getAlbumsByArtist(artist, pageToken, limit);
+    }
+
+    private static String titleArtistKey(Song song) {
+        return song.getTitle().toLowerCase() + KEY_SEPARATOR + song.getArtist().toLowerCase()
+            + KEY_SEPARATOR + songIdentityKey(song);
+    }
+
+    private String ratingKey(Song song) {
+        return Integer.toString(getRating(song)) + KEY_SEPARATOR + song.getTitle().toLowerCase() + KEY_SEPARATOR + songIdentityKey(song);
+    }
+
+    private static String songIdentityKey(Song song) {
+        return song.getKey() + KEY_SEPARATOR + (song.getAlbum() == null ? "" : song.getAlbum().getTitle());
+    }
+
+    private static String albumKey(Album album) {
+        return album.getTitle().toLowerCase() + KEY_SEPARATOR + album.getKey();
+    }
+
     /**
      * Returns a defensive copy of the AutoPlaylistManager.
      * Uses copy constructor to create the new instance.
@@ -557,4 +1038,12 @@ public class LibraryModel {
     public AutoPlaylistManager getAutoPlaylistManager() {
         return new AutoPlaylistManager(this.autoPlaylistManager); // Copy constructor
     }
+
+    /**
+     * This user's rating and favorite flag for one song.
+     */
+    private static final class SongState {
+        private int rating; // 0 = unrated
+        private boolean favorite;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LibrarySummary.java
+ * Purpose: Size of a user's library (albums, songs, playlists). Stored in a small record next to the
+ *          library so login can show it without reading the library itself.
+ */
+package main.model;
+
+import org.json.JSONObject;
+
+public final class LibrarySummary {
+    private final int albumCount;
+    private final int songCount;
+    private final int playlistCount;
+
+    /**
+     * Constructs a summary from counts.
+     *
+     * @param albumCount    Number of albums.
+     * @param songCount     Number of songs.
+     * @param playlistCount Number of playlists.
+     * @throws IllegalArgumentException If a count is negative.
+     */
+    public LibrarySummary(int albumCount, int songCount, int playlistCount) {
+        if (albumCount < 0 || songCount < 0 || playlistCount < 0) {
+            throw new IllegalArgumentException("Counts cannot be negative.");
+        }
+        this.albumCount = albumCount;
+        this.songCount = songCount;
+        this.playlistCount = playlistCount;
+    }
+
+    /**
+     * Summarizes a loaded library.
+     *
+     * @param library The library.
+     * @return Its summary.
+     */
+    public static LibrarySummary of(LibraryModel library) {
+        return new LibrarySummary(library.getAlbumLibrary().size(), library.getSongLibrary().size(),
+                library.getPlaylists().size());
+    }
+
+    // ================== GETTERS ================== //
+
+    public int getAlbumCount() {
+        return albumCount;
+    }
+
+    public int getSongCount() {
+        return songCount;
+    }
+
+    public int getPlaylistCount() {
+        return playlistCount;
+    }
+
+    // ================== SERIALIZATION ================== //
+
+    public JSONObject toJson() {
+        JSONObject summaryJson = new JSONObject();
+        summaryJson.put("albums", albumCount);
+        summaryJson.put("songs", songCount);
+        summaryJson.put("playlists", playlistCount);
+        return summaryJson;
+    }
+
+    public static LibrarySummary fromJson(JSONObject summaryJson) {
+        return new LibrarySummary(summaryJson.getInt("albums"), summaryJson.getInt("songs"),
+                summaryJson.getInt("playlists"));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LibrarySummary)) {
+            return false;
+        }
+        LibrarySummary summary = (LibrarySummary) other;
+        return albumCount == summary.albumCount && songCount == summary.songCount
+                && playlistCount == summary.playlistCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return (albumCount * 31 + songCount) * 31 + playlistCount;
+    }
+
+    @Override
+    public String toString() {
+        return albumCount + " albums, " + songCount + " songs, " + playlistCount + " playlists";
+    }
+}
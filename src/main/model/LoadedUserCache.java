@@ -0,0 +1,220 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LoadedUserCache.java
+ * Purpose: Bounds how many user libraries stay in memory. Users whose library is loaded are kept
+ *          in least-recently-used order with an estimate of their size; when there are more of
+ *          them than allowed, or their estimated bytes exceed the budget, the least recently used
+ *          ones are saved (only their unsaved changes) and unloaded. An unloaded user keeps only
+ *          credentials and a summary, and reads the library back on next access.
+ */
+package main.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoadedUserCache {
+    public static final int DEFAULT_MAX_USERS = 1000;
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    // Rough heap cost of a loaded library (indexes, overlay, tracker; the catalog is shared) and of its contents
+    static final long BASE_BYTES = 16 * 1024;
+    static final long ALBUM_BYTES = 1024;
+    static final long SONG_BYTES = 512;
+    static final long PLAYLIST_BYTES = 256;
+
+    private final int maxUsers;
+    private final long maxBytes;
+
+    // Loaded users in access order (least recently used first) with their estimated bytes; guarded by this
+    private final LinkedHashMap<User, Long> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private long estimatedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long failedEvictions;
+
+    /**
+     * Constructs a cache with the default limits.
+     */
+    public LoadedUserCache() {
+        this(DEFAULT_MAX_USERS, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructs a cache.
+     *
+     * @param maxUsers Most libraries kept in memory.
+     * @param maxBytes Most estimated bytes kept in memory (one library is kept even if larger).
+     */
+    public LoadedUserCache(int maxUsers, long maxBytes) {
+        if (maxUsers < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive.");
+        }
+        this.maxUsers = maxUsers;
+        this.maxBytes = maxBytes;
+    }
+
+    // ================== ACCESS ================== //
+
+    /**
+     * Records that a user was accessed (e.g. logged in or resumed a session). Counts a hit and
+     * makes the user most recently used if the library is in memory; otherwise nothing happens
+     * until the library is actually read (see loaded()).
+     *
+     * @param user The user.
+     */
+    public void touch(User user) {
+        synchronized (this) {
+            Long previous = loaded.get(user); // Moves the user to the most recently used end
+            if (previous == null) {
+                return;
+            }
+            hits++;
+            long estimate = estimate(user);
+            loaded.put(user, estimate);
+            estimatedBytes += estimate - previous;
+        }
+        evictOverflow(user);
+    }
+
+    /**
+     * Records that a user's library was created or read into memory (a miss), then unloads
+     * least recently used users while the limits are exceeded. Called by the user's load
+     * listener.
+     *
+     * @param user The user whose library is now in memory.
+     */
+    public void loaded(User user) {
+        synchronized (this) {
+            misses++;
+            long estimate = estimate(user);
+            Long previous = loaded.put(user, estimate);
+            estimatedBytes += estimate - (previous == null ? 0 : previous);
+        }
+        evictOverflow(user);
+    }
+
+    /**
+     * Stops tracking a user (e.g. one that was removed) without unloading it.
+     *
+     * @param user The user.
+     */
+    public synchronized void remove(User user) {
+        Long previous = loaded.remove(user);
+        if (previous != null) {
+            estimatedBytes -= previous;
+        }
+    }
+
+    /**
+     * Unloads least recently used users until the limits hold again. Users that are busy
+     * (their lock is held) or cannot be saved stay loaded and become most recently used.
+     *
+     * @param keep The user just accessed, never unloaded here.
+     */
+    private void evictOverflow(User keep) {
+        for (User victim : victims(keep)) {
+            boolean unloaded;
+            try {
+                unloaded = victim.unloadLibrary(); // Saves its unsaved changes first
+            } catch (RuntimeException e) {
+                unloaded = false; // Kept in memory; a later eviction retries the save
+            }
+            synchronized (this) {
+                if (unloaded) {
+                    evictions++;
+                } else {
+                    failedEvictions++;
+                    long estimate = estimate(victim);
+                    loaded.put(victim, estimate);
+                    estimatedBytes += estimate;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used users beyond the limits from the table; they are
+     * unloaded outside the cache's lock, since that saves them.
+     */
+    private synchronized List<User> victims(User keep) {
+        List<User> victims = new ArrayList<>();
+        Iterator<Map.Entry<User, Long>> it = loaded.entrySet().iterator();
+        while ((loaded.size() > maxUsers || estimatedBytes > maxBytes) && it.hasNext()) {
+            Map.Entry<User, Long> eldest = it.next();
+            if (eldest.getKey() == keep) {
+                continue;
+            }
+            estimatedBytes -= eldest.getValue();
+            victims.add(eldest.getKey());
+            it.remove();
+        }
+        return victims;
+    }
+
+    /**
+     * Estimates a user's library size in heap bytes from its album, song and playlist counts.
+     *
+     * @param user The user.
+     * @return The estimated bytes.
+     */
+    static long estimate(User user) {
+        LibrarySummary summary = user.getSummary();
+        return BASE_BYTES + summary.getAlbumCount() * ALBUM_BYTES + summary.getSongCount() * SONG_BYTES
+                + summary.getPlaylistCount() * PLAYLIST_BYTES;
+    }
+
+    // ================== METRICS ================== //
+
+    public synchronized int getLoadedCount() {
+        return loaded.size();
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Returns the number of accesses that found the library already in memory.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of times a library had to be created or read from storage.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of evictions skipped because the user was busy or could not be saved.
+     *
+     * @return The failed eviction count.
+     */
+    public synchronized long getFailedEvictionCount() {
+        return failedEvictions;
+    }
+
+    public int getMaxUsers() {
+        return maxUsers;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
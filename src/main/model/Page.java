@@ -0,0 +1,219 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: Page.java
+ * Purpose: One page of a longer, ordered result (e.g. songs 40-59 of a 50k-song library), together
+ *          with where it starts and how many results there are in total. Pages are selected with a
+ *          bounded heap, so fetching a page never copies or sorts the whole result. Pages fetched
+ *          by continuation token also carry the token of the next page.
+ */
+package main.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public final class Page<T> {
+    private final List<T> items;
+    private final int offset;
+    private final int total;
+    private final String nextToken; // Null on the last page, or for pages fetched by offset
+
+    /**
+     * Constructs a page.
+     *
+     * @param items  The page's items, in order.
+     * @param offset Position of the first item in the whole result.
+     * @param total  Size of the whole result.
+     * @throws IllegalArgumentException If offset or total is negative.
+     */
+    public Page(List<T> items, int offset, int total) {
+        this(items, offset, total, null);
+    }
+
+    /**
+     * Constructs a page of a query fetched by continuation token.
+     *
+     * @param items     The page's items, in order.
+     * @param offset    Position of the first item in the whole result.
+     * @param total     Size of the whole result.
+     * @param nextToken Token of the next page, or null if this is the last page.
+     * @throws IllegalArgumentException If offset or total is negative.
+     */
+    public Page(List<T> items, int offset, int total, String nextToken) {
+        if (items == null || offset < 0 || total < 0) {
+            throw new IllegalArgumentException("Invalid page.");
+        }
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.offset = offset;
+        this.total = total;
+        this.nextToken = nextToken;
+    }
+
+    // ================== SELECTION ================== //
+
+    /**
+     * Returns one page of a list that is already in order. Only the page is copied.
+     *
+     * @param list   The ordered items.
+     * @param offset Position of the page's first item.
+     * @param limit  Most items on the page.
+     * @return The page.
+     * @throws IllegalArgumentException If offset is negative or limit is not positive.
+     */
+    public static <T> Page<T> slice(List<T> list, int offset, int limit) {
+        checkRange(offset, limit);
+        int from = Math.min(offset, list.size());
+        int to = (int) Math.min((long) offset + limit, list.size());
+        return new Page<>(list.subList(from, to), offset, list.size());
+    }
+
+    /**
+     * Returns one page of a collection in the given order without sorting all of it: a max-heap
+     * keeps the first offset + limit items, so a page costs O(n log(offset + limit)) time.
+     * The order must be total (no ties between distinct items) for pages to be stable.
+     *
+     * @param items  The unordered items.
+     * @param order  The order of the whole result.
+     * @param offset Position of the page's first item.
+     * @param limit  Most items on the page.
+     * @return The page.
+     * @throws IllegalArgumentException If offset is negative or limit is not positive.
+     */
+    public static <T> Page<T> sorted(Collection<T> items, Comparator<? super T> order, int offset, int limit) {
+        checkRange(offset, limit);
+        int keep = (int) Math.min((long) offset + limit, items.size());
+        if (offset >= keep) {
+            return new Page<>(Collections.emptyList(), offset, items.size());
+        }
+        PriorityQueue<T> first = new PriorityQueue<>(keep, order.reversed()); // Largest kept item on top
+        for (T item : items) {
+            if (first.size() < keep) {
+                first.add(item);
+            } else if (order.compare(item, first.peek()) < 0) {
+                first.poll();
+                first.add(item);
+            }
+        }
+        List<T> page = new ArrayList<>(keep - offset);
+        while (first.size() > offset) {
+            page.add(first.poll()); // Largest first
+        }
+        Collections.reverse(page);
+        return new Page<>(page, offset, items.size());
+    }
+
+    /**
+     * Returns one page of a list that never changes (e.g. the catalog), continuing at the
+     * position recorded in the token.
+     *
+     * @param list      The ordered items.
+     * @param query     Names the query and its parameters.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most items on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public static <T> Page<T> slice(List<T> list, String query, String pageToken, int limit) {
+        Page<T> page = slice(list, PageToken.decodeOffset(pageToken, query), limit);
+        return new Page<>(page.items, page.offset, page.total,
+                page.hasNext() ? PageToken.encodeOffset(query, page.offset + page.items.size()) : null);
+    }
+
+    /**
+     * Returns the page of matching items that follows the token, in order of their sort keys.
+     * The token holds the last sort key shown rather than a position, so adding or removing
+     * items between pages never repeats or skips the others. One pass keeps only limit + 1
+     * items: O(n log limit) time and O(limit) memory. Items with equal keys are shown once.
+     *
+     * @param items     The unordered items.
+     * @param filter    Selects the items in the result.
+     * @param sortKey   Orders the result; keys must be distinct for distinct items.
+     * @param query     Names the query and its parameters.
+     * @param pageToken Token from the previous page, or null for the first page.
+     * @param limit     Most items on the page.
+     * @return The page, with the token of the next page.
+     * @throws IllegalArgumentException If the token is invalid or limit is not positive.
+     */
+    public static <T> Page<T> after(Iterable<T> items, Predicate<? super T> filter,
+            Function<? super T, String> sortKey, String query, String pageToken, int limit) {
+        checkRange(0, limit);
+        String after = PageToken.decode(pageToken, query);
+        TreeMap<String, T> next = new TreeMap<>(); // The first limit + 1 items after the token
+        int before = 0;
+        int total = 0;
+        for (T item : items) {
+            if (!filter.test(item)) {
+                continue;
+            }
+            total++;
+            String key = sortKey.apply(item);
+            if (after != null && key.compareTo(after) <= 0) {
+                before++;
+            } else if (next.size() <= limit) {
+                next.put(key, item);
+            } else if (key.compareTo(next.lastKey()) < 0 && !next.containsKey(key)) {
+                next.put(key, item);
+                next.pollLastEntry();
+            }
+        }
+        String nextToken = null;
+        if (next.size() > limit) {
+            next.pollLastEntry(); // Only kept to know there is another page
+            nextToken = PageToken.encode(query, next.lastKey());
+        }
+        List<T> page = new ArrayList<>(next.size());
+        for (Map.Entry<String, T> entry : next.entrySet()) {
+            page.add(entry.getValue());
+        }
+        return new Page<>(page, before, total, nextToken);
+    }
+
+    private static void checkRange(int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative.");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+    }
+
+    // ================== GETTERS ================== //
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean hasNext() {
+        return offset + items.size() < total;
+    }
+
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+
+    /**
+     * Returns the token that fetches the next page.
+     *
+     * @return The token, or null if there is no next page (or the page was fetched by offset).
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: PageToken.java
+ * Purpose: Opaque continuation tokens for paged queries. A token records which query it belongs to
+ *          and where the next page starts: the sort key of the last item shown (for queries over
+ *          data that can change between pages) or a position (for the catalog, which never
+ *          changes). Callers only pass tokens back; a token from another query is rejected.
+ */
+package main.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class PageToken {
+    private static final char SEPARATOR = '\u0000';
+
+    private PageToken() {
+    }
+
+    /**
+     * Creates a token that continues a query after the item with the given sort key.
+     *
+     * @param query    Names the query and its parameters (e.g. "library-songs-by-title").
+     * @param position Sort key of the last item returned.
+     * @return The token.
+     */
+    public static String encode(String query, String position) {
+        String raw = query + SEPARATOR + position;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the position from a token.
+     *
+     * @param token The token, or null for the first page.
+     * @param query The query the token must belong to.
+     * @return The position, or null for the first page.
+     * @throws IllegalArgumentException If the token is malformed or belongs to another query.
+     */
+    public static String decode(String token, String query) {
+        if (token == null) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token.");
+        }
+        int split = raw.indexOf(SEPARATOR);
+        if (split < 0 || !raw.substring(0, split).equals(query)) {
+            throw new IllegalArgumentException("Invalid page token.");
+        }
+        return raw.substring(split + 1);
+    }
+
+    /**
+     * Creates a token that continues a query over unchanging data at a position.
+     *
+     * @param query  Names the query and its parameters.
+     * @param offset Position of the next page's first item.
+     * @return The token.
+     */
+    public static String encodeOffset(String query, int offset) {
+        return encode(query, Integer.toString(offset));
+    }
+
+    /**
+     * Reads the position from a token created by encodeOffset().
+     *
+     * @param token The token, or null for the first page.
+     * @param query The query the token must belong to.
+     * @return The position of the page's first item (0 for the first page).
+     * @throws IllegalArgumentException If the token is malformed or belongs to another query.
+     */
+    public static int decodeOffset(String token, String query) {
+        String position = decode(token, query);
+        if (position == null) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(position);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid page token.");
+    }
+}
@@ -8,29 +8,96 @@
  */
 package main.model;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Clock;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
+import main.analytics.HistoryCompactor;
+import main.analytics.ListenerCounts;
+import main.analytics.PlayHistory;
+import main.analytics.SessionTracker;
+import main.analytics.SpaceSavingSketch;
+import main.persistence.DataStore;
+import main.persistence.DataStores;
+import main.persistence.JsonTokenReader;
+import main.persistence.JsonTokenWriter;
+
 public class PlaybackTracker {
     private Deque<Song> recentlyPlayed; // Stores the last 10 played songs
     private Map<Song, Integer> playCounts; // Tracks how often each song is played
+    private final SpaceSavingSketch playSketch; // Fixed-size top-K summary used for global charts
+    private final ListenerCounts listenerCounts; // Distinct-listener sketches per song and album
+    private String listenerId; // Username of the tracker's owner, null if not attached to a user
+    private Runnable changeListener; // Notified after each play (e.g. to mark the user dirty)
+    private final SessionTracker sessionTracker; // Streaming listening-session aggregates
+    private final PlayHistory playHistory; // Timestamped plays with daily/monthly rollups
+    private final Clock clock; // Time source for play timestamps
+    private HistoryCompactor historyCompactor; // Owner's background rollup, null if none
 
     private static final int RECENTLY_PLAYED_LIMIT = 10; // Maximum number of recently played songs to store
+    private static final int CHART_SKETCH_CAPACITY = 256; // Songs monitored by the per-user chart sketch
 
     /**
      * Constructs a new PlaybackTracker instance.
      */
     public PlaybackTracker() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a new PlaybackTracker that timestamps plays with the given clock.
+     *
+     * @param clock The time source for play timestamps.
+     */
+    public PlaybackTracker(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.clock = clock;
+        this.sessionTracker = new SessionTracker();
+        this.playHistory = new PlayHistory(clock);
         this.recentlyPlayed = new ArrayDeque<>(RECENTLY_PLAYED_LIMIT);
         this.playCounts = new HashMap<>();
+        this.playSketch = new SpaceSavingSketch(CHART_SKETCH_CAPACITY);
+        this.listenerCounts = new ListenerCounts();
+    }
+
+    /**
+     * Attaches this tracker to a listener so plays count towards unique-listener statistics.
+     *
+     * @param listenerId The listener's unique id (the username).
+     */
+    public void setListenerId(String listenerId) {
+        this.listenerId = listenerId;
+    }
+
+    /**
+     * Has the owner's compactor roll up this tracker's play history in the background.
+     * The compactor holds the history weakly, so this does not keep the tracker alive.
+     *
+     * @param compactor The compactor, or null to stop background compaction.
+     */
+    public synchronized void setHistoryCompactor(HistoryCompactor compactor) {
+        if (historyCompactor != null) {
+            historyCompactor.unregister(playHistory);
+        }
+        historyCompactor = compactor;
+        if (compactor != null) {
+            compactor.register(playHistory);
+        }
+    }
+
+    /**
+     * Sets the listener notified after each play, e.g. to schedule a background save.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
     }
 
     // ================== SONG PLAYBACK ================== //
@@ -56,6 +123,20 @@ public class PlaybackTracker {
 
         // Update the play count for the song
         playCounts.put(song, playCounts.getOrDefault(song, 0) + 1);
+        playSketch.offer(song.getKey());
+        if (listenerId != null) {
+            listenerCounts.record(song, listenerId);
+        }
+
+        // Feed the listening-session detector and the timestamped history
+        long now = clock.millis();
+        sessionTracker.onPlay(song, now);
+        playHistory.record(song.getKey(), now);
+
+        Runnable listener = this.changeListener;
+        if (listener != null) {
+            listener.run();
+        }
     }
 
     // ================== GET RECENTLY PLAYED SONGS ================== //
@@ -96,6 +177,52 @@ public class PlaybackTracker {
     	return Collections.unmodifiableMap(playCounts);
     }
 
+    /**
+     * Returns a copy of the fixed-size heavy-hitter sketch of this tracker's plays.
+     * Sketches from many users can be merged with PlayChartAggregator.
+     *
+     * @return A copy of the play sketch, keyed by Song.getKey().
+     */
+    public SpaceSavingSketch getPlaySketch() {
+        return new SpaceSavingSketch(playSketch);
+    }
+
+    /**
+     * Returns a snapshot of the listening-session analytics. The open session stays open until
+     * the next play or expireIdleSession(), so call that first for up-to-date totals.
+     *
+     * @return A copy of the session tracker.
+     */
+    public SessionTracker getSessionTracker() {
+        return new SessionTracker(sessionTracker);
+    }
+
+    /**
+     * Closes the open listening session if it has been idle longer than the inactivity gap.
+     */
+    public void expireIdleSession() {
+        sessionTracker.expireIdle(clock.millis());
+    }
+
+    /**
+     * Returns a snapshot of the timestamped play history and its daily/monthly rollups.
+     *
+     * @return A copy of the play history.
+     */
+    public PlayHistory getPlayHistory() {
+        return new PlayHistory(playHistory);
+    }
+
+    /**
+     * Returns a copy of the unique-listener sketches of this tracker.
+     * Counters from many users can be merged with PlayChartAggregator.
+     *
+     * @return A copy of the listener counts.
+     */
+    public ListenerCounts getListenerCounts() {
+        return new ListenerCounts(listenerCounts);
+    }
+
     // ================== SAVE/LOAD PLAYBACK DATA ================== //
 
     /**
@@ -104,36 +231,54 @@ public class PlaybackTracker {
      * @param user The user whose playback history will be saved.
      */
     public void savePlaybackData(User user) {
-        // Ensure the directory exists
-        File dir = new File("user_data");
-        if (!dir.exists()) {
-            boolean dirCreated = dir.mkdirs(); // Create the directory if it doesn't exist
-            if (!dirCreated) {
-                throw new RuntimeException("Failed to create directory: user_data");
-            }
-        }
+        savePlaybackData(user, DataStores.getDefault());
+    }
 
-        // Serialize recentlyPlayed and playCounts to JSON
-        JSONObject playbackData = new JSONObject();
+    /**
+     * Saves playback history for a user to the given store.
+     *
+     * @param user  The user whose playback history will be saved.
+     * @param store The store to write to.
+     */
+    public void savePlaybackData(User user, DataStore store) {
+        // Compact play history first so old raw events are written as rollups
+        playHistory.compact();
 
-        // Serialize recently played songs
-        JSONArray recentlyPlayedArray = new JSONArray();
-        for (Song song : recentlyPlayed) {
-            recentlyPlayedArray.put(song.getTitle()); // Store song titles for simplicity
-        }
-        playbackData.put("recentlyPlayed", recentlyPlayedArray);
+        // Stream recentlyPlayed, playCounts, sessions and history to the store (crash-safe)
+        String key = "user_data/playback_" + user.getUsername() + ".json";
+        try {
+            store.write(key, channel -> {
+                JsonTokenWriter json = new JsonTokenWriter(channel, 4);
+                json.beginObject();
 
-        // Serialize play counts
-        JSONObject playCountsObject = new JSONObject();
-        for (Map.Entry<Song, Integer> entry : playCounts.entrySet()) {
-            playCountsObject.put(entry.getKey().getTitle(), entry.getValue());
-        }
-        playbackData.put("playCounts", playCountsObject);
+                // Recently played songs as stable artist + title references
+                json.name("recentlyPlayed").beginArray();
+                for (Song song : recentlyPlayed) {
+                    json.beginObject();
+                    json.name("title").value(song.getTitle());
+                    json.name("artist").value(song.getArtist());
+                    json.endObject();
+                }
+                json.endArray();
+
+                // Play counts as {title, artist, count}
+                json.name("playCounts").beginArray();
+                for (Map.Entry<Song, Integer> entry : playCounts.entrySet()) {
+                    json.beginObject();
+                    json.name("title").value(entry.getKey().getTitle());
+                    json.name("artist").value(entry.getKey().getArtist());
+                    json.name("count").value(entry.getValue());
+                    json.endObject();
+                }
+                json.endArray();
+
+                // Session aggregates and play history (compact forms, no raw sessions)
+                json.name("sessions").jsonValue(sessionTracker.toJson());
+                json.name("history").jsonValue(playHistory.toJson());
 
-        // Save to a file
-        String fileName = "user_data/playback_" + user.getUsername() + ".json";
-        try (FileWriter writer = new FileWriter(fileName)) {
-            writer.write(playbackData.toString(4)); // To JSON
+                json.endObject();
+                json.flush();
+            });
         } catch (IOException e) {
             throw new RuntimeException("Error saving playback data", e);
         }
@@ -145,47 +290,94 @@ public class PlaybackTracker {
      * @param user The user whose playback history will be loaded.
      */
     public void loadPlaybackData(User user) {
-        // Construct the filename using the user's username
-        String fileName = "user_data/playback_" + user.getUsername() + ".json";
-        File file = new File(fileName);
+        loadPlaybackData(user, DataStores.getDefault());
+    }
 
-        // Return early if no playback data file exists for this user
-        if (!file.exists()) {
-            return; // No playback data exists yet
-        }
+    /**
+     * Loads playback history for a user from the given store.
+     *
+     * @param user  The user whose playback history will be loaded.
+     * @param store The store to read from.
+     */
+    public void loadPlaybackData(User user, DataStore store) {
+        // Construct the record key using the user's username
+        String key = "user_data/playback_" + user.getUsername() + ".json";
 
-        // Try-with-resources to auto-close the reader
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            StringBuilder jsonData = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonData.append(line);
+        // Try-with-resources to auto-close the channel
+        try (ReadableByteChannel channel = store.openForRead(key)) {
+            // Return early if no playback data exists for this user
+            if (channel == null) {
+                return; // No playback data exists yet
             }
 
-            // Parse the JSON string into a JSONObject
-            JSONObject playbackData = new JSONObject(jsonData.toString());
-
-            // Deserialize recently played songs
-            JSONArray recentlyPlayedArray = playbackData.getJSONArray("recentlyPlayed");
+            // Index the library once so each reference resolves in O(1)
+            SongIndex index = new SongIndex(user.getLibrary());
             recentlyPlayed.clear();
-            // Process each song title in the array
-            for (int i = 0; i < recentlyPlayedArray.length(); i++) {
-                String songTitle = recentlyPlayedArray.getString(i);
-                Song song = findSongByTitle(user, songTitle); // Find matching song in library
-                if (song != null) {
-                    recentlyPlayed.add(song); // Add to recently played if found
+            playCounts.clear();
+
+            // Stream the file; each entry is resolved as soon as it is read
+            JsonTokenReader json = new JsonTokenReader(channel);
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "recentlyPlayed":
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            Song song = index.resolve(json.readJsonValue()); // Find matching song in library
+                            if (song != null) {
+                                recentlyPlayed.add(song); // Add to recently played if found
+                            }
+                        }
+                        json.endArray();
+                        break;
+                    case "playCounts":
+                        if (json.peek() == JsonTokenReader.Token.BEGIN_ARRAY) {
+                            // Process each {title, artist, count} entry
+                            json.beginArray();
+                            while (json.hasNext()) {
+                                JSONObject countJson = (JSONObject) json.readJsonValue();
+                                Song song = index.resolve(countJson);
+                                if (song != null) {
+                                    playCounts.put(song, countJson.getInt("count")); // Update play count if song exists
+                                }
+                            }
+                            json.endArray();
+                        } else {
+                            // Legacy format: title -> count
+                            json.beginObject();
+                            while (json.hasNext()) {
+                                Song song = index.findByTitle(json.nextName());
+                                int count = json.nextInt();
+                                if (song != null) {
+                                    playCounts.put(song, count);
+                                }
+                            }
+                            json.endObject();
+                        }
+                        break;
+                    case "sessions":
+                        // Restore session aggregates (absent in older files)
+                        sessionTracker.loadJson((JSONObject) json.readJsonValue());
+                        break;
+                    case "history":
+                        // Restore play history (absent in older files)
+                        playHistory.loadJson((JSONObject) json.readJsonValue());
+                        playHistory.compact();
+                        break;
+                    default:
+                        json.skipValue();
                 }
             }
+            json.endObject();
 
-            // Deserialize play counts
-            JSONObject playCountsObject = playbackData.getJSONObject("playCounts");
-            playCounts.clear();
-            // Process each song entry in play counts
-            for (String songTitle : playCountsObject.keySet()) {
-                int count = playCountsObject.getInt(songTitle); // Get play count
-                Song song = findSongByTitle(user, songTitle); // Find matching song
-                if (song != null) {
-                    playCounts.put(song, count); // Update play count if song exists
+            // Rebuild the chart sketch from the restored counts
+            playSketch.clear();
+            for (Map.Entry<Song, Integer> entry : playCounts.entrySet()) {
+                if (entry.getValue() > 0) {
+                    playSketch.offer(entry.getKey().getKey(), entry.getValue());
+                    if (listenerId != null) {
+                        listenerCounts.record(entry.getKey(), listenerId);
+                    }
                 }
             }
         } catch (IOException e) {
@@ -15,6 +15,7 @@ import java.util.List;
 public class Playlist {
     private final String name;
     private final List<Song> songs;
+    private int version; // Incremented on every change, used to detect unsaved edits
     
     /* 
      * Constructor: Creates a new playlist with the specified name.
@@ -33,7 +34,10 @@ public class Playlist {
      * Output: void
      */
     public void addSong(Song song) {
-        if (song != null) songs.add(song);
+        if (song != null) {
+            songs.add(song);
+            version++;
+        }
     }
     
     /* 
@@ -42,7 +46,7 @@ public class Playlist {
      * Output: void
      */
     public void removeSong(Song song) {
-        songs.remove(song);
+        if (songs.remove(song)) version++;
     }
     
     
@@ -52,7 +56,24 @@ public class Playlist {
         return new ArrayList<>(songs);
     }
 
+    /*
+     * Returns one page of the playlist's songs; only the page is copied.
+     * Params: offset (int) - position of the first song, limit (int) - most songs on the page
+     * Output: Page<Song>
+     */
+    public Page<Song> getSongs(int offset, int limit) {
+        return Page.slice(songs, offset, limit);
+    }
+
+    public int size() {
+        return songs.size();
+    }
+
     public String getName() {
         return name;
     }
+
+    public int getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
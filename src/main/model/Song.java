@@ -4,8 +4,8 @@
  * Project: MusicLibraryApp
  * File: Song.java
  * Purpose: This class represents a song in the music library. It stores details such as the title,
- *          artist, album, and rating. The class provides methods to rate songs and mark them as
- *          favorites, enabling users to personalize their music experience.
+ *          artist and album. Songs come from the catalog shared by all users and never change;
+ *          a user's ratings and favorites are kept in their LibraryModel.
  */
 package main.model;
 
@@ -13,8 +13,6 @@ public class Song {
     private final String title;
     private final String artist;
     private final Album album;
-    private int rating;
-    private boolean isFavorite;
     
     /**
      * Constructs a new Song instance.
@@ -31,29 +29,14 @@ public class Song {
         this.album = album;
     }
     
-    /**
-     * Rates the song on a scale of 1 to 5.
-     * If the rating is 5, the song is automatically marked as a favorite.
-     * 
-     * Params: rating The rating value (must be between 1 and 5).
-     * @throws IllegalArgumentException If the rating is not between 1 and 5.
-     * Output: void
-     */
-    public void rate(int rating) {
-        if (rating < 1 || rating > 5) {
-            throw new IllegalArgumentException("Rating must be between 1-5");
-        }
-        this.rating = rating;
-        if (rating == 5) markAsFavorite();
-    }
-    
     /* 
-     * Marks the song as a favorite
+     * Returns a stable identity key for the song (artist + title, case-insensitive).
+     * Unlike object identity, the key matches across users and across save/load cycles.
      * Params: None
-     * Output: void
+     * Output: String key
      */
-    public void markAsFavorite() { 
-        this.isFavorite = true;
+    public String getKey() {
+        return artist.toLowerCase() + "|" + title.toLowerCase();
     }
 
     
@@ -70,12 +53,4 @@ public class Song {
     public Album getAlbum() { 
     	return album; 
     }
-    
-    public int getRating() { 
-    	return rating;
-    }
-    
-    public boolean isFavorite() { 
-    	return isFavorite; 
-    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: SongIndex.java
+ * Purpose: Hash index over the songs of a user's library, used to resolve saved song references
+ *          (artist + title) in constant time while loading playback history and playlists.
+ *          Also resolves legacy title-only references written by older versions.
+ */
+package main.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+public final class SongIndex {
+    private final Map<String, Song> songsByKey; // Song.getKey() -> song
+    private final Map<String, Song> songsByTitle; // Lowercase title -> first song with that title
+
+    /**
+     * Builds an index over all songs in a library (album songs first, then individual songs).
+     *
+     * @param library The library to index.
+     */
+    public SongIndex(LibraryModel library) {
+        this.songsByKey = new HashMap<>();
+        this.songsByTitle = new HashMap<>();
+        if (library == null) {
+            return;
+        }
+        for (Album album : library.getAlbumLibrary()) {
+            for (Song song : album.getSongs()) {
+                add(song);
+            }
+        }
+        for (Song song : library.getSongLibrary()) {
+            add(song);
+        }
+    }
+
+    /**
+     * Adds a song to the index (the first song for a key or title wins).
+     *
+     * @param song The song to add.
+     */
+    public void add(Song song) {
+        songsByKey.putIfAbsent(song.getKey(), song);
+        songsByTitle.putIfAbsent(song.getTitle().toLowerCase(), song);
+    }
+
+    /**
+     * Finds a song by artist and title (case-insensitive).
+     *
+     * @param artist The artist of the song.
+     * @param title  The title of the song.
+     * @return The song, or null if not in the library.
+     */
+    public Song find(String artist, String title) {
+        return songsByKey.get(artist.toLowerCase() + "|" + title.toLowerCase());
+    }
+
+    /**
+     * Finds the first song with the given title (case-insensitive).
+     *
+     * @param title The title of the song.
+     * @return The song, or null if not in the library.
+     */
+    public Song findByTitle(String title) {
+        return songsByTitle.get(title.toLowerCase());
+    }
+
+    // ================== SONG REFERENCES ================== //
+
+    /**
+     * Creates a stable JSON reference to a song.
+     *
+     * @param song The song to reference.
+     * @return A JSON object with the song's title and artist.
+     */
+    public static JSONObject toReference(Song song) {
+        JSONObject reference = new JSONObject();
+        reference.put("title", song.getTitle());
+        reference.put("artist", song.getArtist());
+        return reference;
+    }
+
+    /**
+     * Resolves a saved song reference. Accepts both the artist + title object written by
+     * toReference() and legacy plain title strings.
+     *
+     * @param reference The saved reference (JSONObject or String).
+     * @return The referenced song, or null if it is not in the library.
+     */
+    public Song resolve(Object reference) {
+        if (reference instanceof JSONObject) {
+            JSONObject json = (JSONObject) reference;
+            return find(json.getString("artist"), json.getString("title"));
+        }
+        if (reference instanceof String) {
+            return findByTitle((String) reference);
+        }
+        return null;
+    }
+}
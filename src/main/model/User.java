@@ -10,11 +10,26 @@
 package main.model;
 
 import main.database.MusicStore;
+import main.persistence.BinaryLibraryCodec;
+import main.persistence.DataStore;
+import main.persistence.DataStores;
+import main.persistence.JsonTokenReader;
+import main.persistence.JsonTokenWriter;
+import main.persistence.LibraryFormat;
 import main.security.PasswordUtil;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONArray;
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Represents an individual user with a unique library.
@@ -22,10 +37,19 @@ import java.util.List;
  */
 public class User {
     private String username;
-    private String salt;
-    private String hashedPassword;
-    private LibraryModel library;
-    private static final String LIBRARY_DIR = "user_data/";
+    private volatile String salt;
+    private volatile String hashedPassword;
+    private volatile LibraryModel library; // Null until first use and while unloaded (see unloadLibrary())
+    private boolean savedStateLoaded; // True once this instance's library matches the stored record
+    private final ReentrantLock lock = new ReentrantLock(); // Held while the library is changed or saved
+    private volatile Runnable changeListener; // Notified when the library changes (not while loading)
+    private volatile Runnable loadListener; // Notified when the library is brought into memory
+    private volatile boolean loading; // True while loadLibraryData() rebuilds the library
+    private volatile boolean libraryLoaded = true; // False while the stored library waits for first access
+    private LibrarySummary summary; // Counts from the summary record, used until the library is loaded
+    private LibrarySummary savedSummary; // Summary last written to the store
+    private static final String LIBRARY_DIR = "user_data/"; // Key prefix of library records
+    private static final long MIN_DELTA_COMPACTION_BYTES = 64 * 1024; // Delta size that may trigger a full rewrite
 
     /**
      * Constructs a new User instance
@@ -45,7 +69,16 @@ public class User {
         this.username = username;
         this.salt = PasswordUtil.generateSalt(); // Generate a random salt
         this.hashedPassword = PasswordUtil.hashPassword(password, this.salt); // Hash the password
-        this.library = new LibraryModel(new MusicStore("src/main/albums/"));
+        // The (empty) library is created on first access
+    }
+
+    /**
+     * Constructs a User from stored credentials without hashing anything.
+     */
+    private User(String username, String salt, String hashedPassword) {
+        this.username = username;
+        this.salt = salt;
+        this.hashedPassword = hashedPassword;
     }
 
     /**
@@ -60,56 +93,332 @@ public class User {
         if (password == null || password.trim().isEmpty()) {
             throw new IllegalArgumentException("Password cannot be null or empty.");
         }
-        return PasswordUtil.validatePassword(password, this.salt, this.hashedPassword);
+        String currentSalt;
+        String currentHash;
+        lock.lock(); // Salt and hash are replaced together by rehashPassword()
+        try {
+            currentSalt = this.salt;
+            currentHash = this.hashedPassword;
+        } finally {
+            lock.unlock();
+        }
+        return PasswordUtil.validatePassword(password, currentSalt, currentHash);
+    }
+
+    /**
+     * Returns true if the stored hash was made with older hashing parameters than new hashes
+     * use, so it should be recomputed (see rehashPassword()).
+     *
+     * @return True if the password should be rehashed.
+     */
+    public boolean needsRehash() {
+        return PasswordUtil.needsRehash(this.hashedPassword);
+    }
+
+    /**
+     * Replaces the stored hash with one made with the current hashing parameters (and a new
+     * salt). Call only with a password that has just been validated.
+     *
+     * @param password The user's plaintext password.
+     * @throws IllegalArgumentException If password is null or empty.
+     */
+    public void rehashPassword(String password) {
+        String newSalt = PasswordUtil.generateSalt();
+        String newHash = PasswordUtil.hashPassword(password, newSalt); // Slow; done before locking
+        lock.lock();
+        try {
+            this.salt = newSalt;
+            this.hashedPassword = newHash;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Returns the user's personalized music library.
+     * Returns the user's personalized music library, reading it from storage on first
+     * access after loadLibraryLazily() or unloadLibrary().
      * 
      * @return The user's LibraryModel instance.
      */
     public LibraryModel getLibrary() {
-        return this.library;
+        LibraryModel current = this.library;
+        if (current == null || !libraryLoaded) {
+            lock.lock();
+            try {
+                if (!libraryLoaded) {
+                    loadLibraryData();
+                } else if (this.library == null) {
+                    this.library = newLibrary(); // Nothing stored yet: start empty
+                    libraryInMemory();
+                }
+                current = this.library;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
     }
 
     /**
-     * Saves user data and library to JSON file.
-     * @throws RuntimeException on file operations failure
+     * Saves any unsaved changes and drops the library from memory; the next getLibrary() reads
+     * it back from storage. Does nothing (and returns false) while another thread holds the
+     * user's lock or this thread is in the middle of using the library.
+     *
+     * @return True if the library is no longer in memory.
+     * @throws RuntimeException If the changes cannot be saved (the library is then kept).
      */
-    public void saveLibraryData() {
-        // Ensure the directory exists
-        File dir = new File(LIBRARY_DIR);
-        if (!dir.exists()) {
-            // Attempt to create all necessary directories in the path
-            boolean dirCreated = dir.mkdirs(); // Create the directory if it doesn't exist
-            if (!dirCreated) {
-                throw new RuntimeException("Failed to create directory: " + LIBRARY_DIR);
+    boolean unloadLibrary() {
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (lock.getHoldCount() > 1 || loading) {
+                return false; // This thread is using the library further up the stack
             }
+            LibraryModel current = this.library;
+            if (current == null || !libraryLoaded) {
+                return true;
+            }
+            saveLibraryData();
+            this.summary = LibrarySummary.of(current);
+            this.library = null;
+            this.savedStateLoaded = false;
+            this.libraryLoaded = false;
+            return true;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // Create root JSON object for all user data
-        JSONObject userJson = new JSONObject();
-        // Store core user credentials
-        userJson.put("username", this.username);
-        userJson.put("salt", this.salt);
-        userJson.put("hashedPassword", this.hashedPassword);
+    /**
+     * Returns true if the library is in memory (false while a lazy load is pending).
+     *
+     * @return True if the library has been loaded.
+     */
+    public boolean isLibraryLoaded() {
+        return libraryLoaded;
+    }
 
-        // Convert the entire library structure to JSON
-        JSONObject libraryJson = serializeLibrary();
-        userJson.put("library", libraryJson);
+    /**
+     * Returns the size of the library without loading it: the stored summary until the
+     * library is first accessed, the live counts afterwards.
+     *
+     * @return The library summary.
+     */
+    public LibrarySummary getSummary() {
+        if (!libraryLoaded && summary != null) {
+            return summary;
+        }
+        LibraryModel current = this.library;
+        if (current == null && libraryLoaded) {
+            return new LibrarySummary(0, 0, 0); // Never used and nothing stored
+        }
+        return LibrarySummary.of(current == null ? getLibrary() : current);
+    }
 
-        // Persist playback history separately (creates additional file)
-        this.library.getPlaybackTracker().savePlaybackData(this);
+    /**
+     * Saves user data and library through the deployment DataStore (JSON or binary record).
+     * Only the changes since the last save are appended to a small delta file; the full library
+     * is rewritten when no base file exists yet or when the delta log has grown too large.
+     * @throws RuntimeException on file operations failure
+     */
+    public void saveLibraryData() {
+        if (!libraryLoaded) {
+            return; // Never accessed since login, so nothing changed
+        }
+        LibraryModel currentLibrary = getLibrary(); // A new user's (empty) library is written too
+
+        // Persist playback history separately (creates additional record) unless it was never read
+        DataStore store = DataStores.getDefault();
+        if (currentLibrary.isPlaybackLoaded()) {
+            currentLibrary.getPlaybackTracker().savePlaybackData(this, store);
+        }
 
-        // Construct the file path correctly
-        File file = new File(dir, "user_" + this.username + ".json");
+        // Construct the record keys (base record in this deployment's format)
+        LibraryFormat format = LibraryFormat.getDeploymentFormat();
+        String baseKey = baseKey(format);
+        String deltaKey = deltaKey();
+        LibraryChangeLog changeLog = currentLibrary.getChangeLog();
+        List<Playlist> playlists = currentLibrary.getPlaylists();
 
-        // Write JSON data 
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(userJson.toString(4)); // 4-space indentation for readability
+        try {
+            // Rewrite everything if the base record is missing/out of sync or the delta log is too big
+            long baseSize = store.size(baseKey);
+            boolean deltaTooLarge = store.size(deltaKey) > Math.max(MIN_DELTA_COMPACTION_BYTES, baseSize / 2);
+            if (!savedStateLoaded || baseSize < 0 || deltaTooLarge) {
+                writeFullLibrary(store, baseKey, format);
+                store.delete(deltaKey);
+            } else if (!changeLog.isEmpty(playlists)) {
+                // Append only what changed, as one JSON line (durable when append returns)
+                String deltaLine = serializeDelta(changeLog, playlists).toString() + System.lineSeparator();
+                store.append(deltaKey, deltaLine.getBytes(StandardCharsets.UTF_8));
+            }
+            writeSummary(store);
         } catch (IOException e) {
             throw new RuntimeException("Error saving user library data", e);
         }
+        changeLog.markSaved(playlists);
+        savedStateLoaded = true;
+    }
+
+    /**
+     * Rewrites the summary record if the library's counts changed since it was last written.
+     *
+     * @param store The store to write to.
+     * @throws IOException If the record cannot be written.
+     */
+    private void writeSummary(DataStore store) throws IOException {
+        LibrarySummary current = LibrarySummary.of(this.library);
+        if (!current.equals(savedSummary)) {
+            store.put(summaryKey(), current.toJson().toString().getBytes(StandardCharsets.UTF_8));
+            savedSummary = current;
+        }
+    }
+
+    /**
+     * Returns the key of this user's base library record in the given format.
+     *
+     * @param format The record format.
+     * @return The base record key.
+     */
+    private String baseKey(LibraryFormat format) {
+        return LIBRARY_DIR + "user_" + this.username + format.getExtension();
+    }
+
+    private String deltaKey() {
+        return LIBRARY_DIR + "user_" + this.username + ".delta";
+    }
+
+    private String summaryKey() {
+        return LIBRARY_DIR + "user_" + this.username + ".summary";
+    }
+
+    /**
+     * Writes the username and the complete library to the base record. Credentials are kept
+     * in the credential journal only, so no (possibly outdated) hash is left in the record.
+     * JSON is streamed straight into the store, album by album; the binary format is
+     * encoded in memory first, as it is small.
+     *
+     * @param store  The store to write to.
+     * @param key    The base record to (over)write.
+     * @param format The format to write.
+     * @throws IOException If the record cannot be written.
+     */
+    private void writeFullLibrary(DataStore store, String key, LibraryFormat format) throws IOException {
+        if (format == LibraryFormat.BINARY) {
+            store.put(key, BinaryLibraryCodec.encode(this.username, this.library));
+            return;
+        }
+        // Written atomically by the store
+        store.write(key, channel -> {
+            JsonTokenWriter json = new JsonTokenWriter(channel, 4); // 4-space indentation for readability
+            json.beginObject();
+            json.name("username").value(this.username);
+            // Write the entire library structure
+            json.name("library");
+            writeLibrary(json);
+            json.endObject();
+            json.flush();
+        });
+    }
+
+    /**
+     * Streams the library (albums, then playlists) in the same layout as serializeLibrary().
+     *
+     * @param json The writer to stream to.
+     * @throws IOException If the output cannot be written.
+     */
+    private void writeLibrary(JsonTokenWriter json) throws IOException {
+        json.beginObject();
+        json.name("albums").beginArray();
+        for (Album album : this.library.getAlbumLibrary()) {
+            json.beginObject();
+            json.name("title").value(album.getTitle());
+            json.name("artist").value(album.getArtist());
+            boolean fromCatalog = this.library.findCatalogAlbum(album) != null;
+            if (fromCatalog) {
+                json.name("catalog").value(true); // Metadata comes from the MusicStore
+            } else {
+                json.name("genre").value(album.getGenre());
+                json.name("year").value(album.getYear());
+            }
+            json.name("songs").beginArray();
+            for (Song song : album.getSongs()) {
+                json.beginObject();
+                json.name("title").value(song.getTitle());
+                if (!fromCatalog) {
+                    json.name("artist").value(song.getArtist());
+                }
+                json.name("rating").value(this.library.getRating(song));
+                json.name("isFavorite").value(this.library.isFavorite(song));
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("playlists").beginArray();
+        for (Playlist playlist : this.library.getPlaylists()) {
+            json.beginObject();
+            json.name("name").value(playlist.getName());
+            json.name("songs").beginArray();
+            for (Song song : playlist.getSongs()) {
+                json.beginObject();
+                json.name("title").value(song.getTitle());
+                json.name("artist").value(song.getArtist());
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * Serializes the unsaved changes of the library into one delta record:
+     * {"albums": [...], "removedAlbums": [...], "songs": [...], "playlists": [...]}.
+     *
+     * @param changeLog The library's change log.
+     * @param playlists The library's current playlists.
+     * @return JSONObject containing only the changed data.
+     */
+    public JSONObject serializeDelta(LibraryChangeLog changeLog, List<Playlist> playlists) {
+        JSONObject deltaJson = new JSONObject();
+
+        // Albums that were added or whose songs changed (written in full)
+        JSONArray albumsArray = new JSONArray();
+        for (Album album : changeLog.getChangedAlbums()) {
+            albumsArray.put(serializeAlbum(album));
+        }
+        deltaJson.put("albums", albumsArray);
+
+        // Removed albums are referenced by title and artist
+        JSONArray removedArray = new JSONArray();
+        for (Album album : changeLog.getRemovedAlbums()) {
+            JSONObject albumRef = new JSONObject();
+            albumRef.put("title", album.getTitle());
+            albumRef.put("artist", album.getArtist());
+            removedArray.put(albumRef);
+        }
+        deltaJson.put("removedAlbums", removedArray);
+
+        // Rating and favorite changes
+        JSONArray songsArray = new JSONArray();
+        for (Song song : changeLog.getChangedSongs()) {
+            songsArray.put(serializeSong(song));
+        }
+        deltaJson.put("songs", songsArray);
+
+        // Changed playlists (written in full, replaced by name on load)
+        JSONArray playlistsArray = new JSONArray();
+        for (Playlist playlist : changeLog.getChangedPlaylists(playlists)) {
+            playlistsArray.put(serializePlaylist(playlist));
+        }
+        deltaJson.put("playlists", playlistsArray);
+
+        return deltaJson;
     }
 
     /**
@@ -120,33 +429,13 @@ public class User {
     public JSONObject serializeLibrary() {
         // Create root JSON object for library data
         JSONObject libraryJson = new JSONObject();
+        LibraryModel currentLibrary = getLibrary();
 
         // Serialize albums
         JSONArray albumsArray = new JSONArray();
         // Process each album in library
-        for (Album album : this.library.getAlbumLibrary()) {
-            // Create JSON object for album metadata
-            JSONObject albumJson = new JSONObject();
-            albumJson.put("title", album.getTitle());
-            albumJson.put("artist", album.getArtist());
-            albumJson.put("genre", album.getGenre());
-            albumJson.put("year", album.getYear());
-
-            // Serialize songs in the album
-            JSONArray songsArray = new JSONArray();
-            // Create detailed song JSON including metadata
-            for (Song song : album.getSongs()) {
-                JSONObject songJson = new JSONObject();
-                songJson.put("title", song.getTitle());
-                songJson.put("artist", song.getArtist());
-                songJson.put("rating", song.getRating()); // Save user rating
-                songJson.put("isFavorite", song.isFavorite());  // Save favorite status
-                songsArray.put(songJson);
-            }
-            
-            // Add songs array to album object
-            albumJson.put("songs", songsArray);
-            albumsArray.put(albumJson);
+        for (Album album : currentLibrary.getAlbumLibrary()) {
+            albumsArray.put(serializeAlbum(album));
         }
         // Add complete albums array to library
         libraryJson.put("albums", albumsArray);
@@ -154,19 +443,8 @@ public class User {
         // Serialize playlists
         JSONArray playlistsArray = new JSONArray();
         // Process each playlist in library
-        for (Playlist playlist : this.library.getPlaylists()) {
-            // Create basic playlist info
-            JSONObject playlistJson = new JSONObject();
-            playlistJson.put("name", playlist.getName());
-
-            // Serialize songs in the playlist
-            JSONArray playlistSongs = new JSONArray();
-            for (Song song : playlist.getSongs()) {
-                playlistSongs.put(song.getTitle()); // Store only song titles for simplicity
-            }
-            // Add song references to playlist
-            playlistJson.put("songs", playlistSongs);
-            playlistsArray.put(playlistJson);
+        for (Playlist playlist : currentLibrary.getPlaylists()) {
+            playlistsArray.put(serializePlaylist(playlist));
         }
         // Add complete playlists array to library
         libraryJson.put("playlists", playlistsArray);
@@ -175,45 +453,424 @@ public class User {
     }
 
     /**
-     * Loads user data from JSON file.
+     * Serializes an album with its songs (including ratings and favorites).
+     * 
+     * @param album The album to serialize.
+     * @return JSONObject containing album data.
+     */
+    private JSONObject serializeAlbum(Album album) {
+        // Create JSON object for album metadata
+        JSONObject albumJson = new JSONObject();
+        albumJson.put("title", album.getTitle());
+        albumJson.put("artist", album.getArtist());
+        boolean fromCatalog = this.library.findCatalogAlbum(album) != null;
+        if (fromCatalog) {
+            albumJson.put("catalog", true); // Metadata comes from the MusicStore
+        } else {
+            albumJson.put("genre", album.getGenre());
+            albumJson.put("year", album.getYear());
+        }
+
+        // Serialize songs in the album (catalog tracks only need the title and the user's overlay)
+        JSONArray songsArray = new JSONArray();
+        for (Song song : album.getSongs()) {
+            JSONObject songJson = serializeSong(song);
+            if (fromCatalog) {
+                songJson.remove("artist");
+            }
+            songsArray.put(songJson);
+        }
+        albumJson.put("songs", songsArray);
+        return albumJson;
+    }
+
+    /**
+     * Serializes a song with its user rating and favorite status.
+     * 
+     * @param song The song to serialize.
+     * @return JSONObject containing song data.
+     */
+    private JSONObject serializeSong(Song song) {
+        JSONObject songJson = new JSONObject();
+        songJson.put("title", song.getTitle());
+        songJson.put("artist", song.getArtist());
+        songJson.put("rating", this.library.getRating(song)); // Save user rating
+        songJson.put("isFavorite", this.library.isFavorite(song));  // Save favorite status
+        return songJson;
+    }
+
+    /**
+     * Serializes a playlist as its name and stable song references.
+     * 
+     * @param playlist The playlist to serialize.
+     * @return JSONObject containing playlist data.
+     */
+    private JSONObject serializePlaylist(Playlist playlist) {
+        // Create basic playlist info
+        JSONObject playlistJson = new JSONObject();
+        playlistJson.put("name", playlist.getName());
+
+        // Serialize songs in the playlist
+        JSONArray playlistSongs = new JSONArray();
+        for (Song song : playlist.getSongs()) {
+            playlistSongs.put(SongIndex.toReference(song)); // Store stable artist + title references
+        }
+        // Add song references to playlist
+        playlistJson.put("songs", playlistSongs);
+        return playlistJson;
+    }
+
+    /**
+     * Prepares the user for login without reading the library: only the small summary record
+     * is read, and the library and playback history load on first access. Costs the same for
+     * any library size. Libraries saved before summaries existed are loaded right away once,
+     * and their summary is written for the next login.
+     * @throws RuntimeException on file operations failure
+     */
+    public void loadLibraryLazily() {
+        lock.lock();
+        try {
+            if (savedStateLoaded) {
+                return; // Already in memory (and newer than the stored copy)
+            }
+            DataStore store = DataStores.getDefault();
+            byte[] summaryData = store.get(summaryKey());
+            if (summaryData == null) {
+                loadLibraryData();
+                if (savedStateLoaded) {
+                    writeSummary(store);
+                }
+                return;
+            }
+            this.summary = LibrarySummary.fromJson(new JSONObject(new String(summaryData, StandardCharsets.UTF_8)));
+            this.savedSummary = this.summary;
+            this.libraryLoaded = false;
+        } catch (IOException | JSONException e) {
+            throw new RuntimeException("Error loading user library summary", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads user data from the library file (JSON or binary).
+     * A file in the other format is converted to this deployment's format on first load.
+     * Playback history is read when the playback tracker is first requested.
      * @throws RuntimeException on file operations failure
      */
     public void loadLibraryData() {
-    	// Construct the path to user's library file
-        File file = new File(LIBRARY_DIR + "user_" + this.username + ".json");
+        // Rebuilding the library is not a change that needs saving
+        loading = true;
+        try {
+            loadLibraryRecords(DataStores.getDefault(), true);
+            libraryLoaded = true;
+        } finally {
+            loading = false;
+        }
+        libraryInMemory();
+    }
+
+    /**
+     * Reads the library (and, on first use, the playback history) from the given store without
+     * modifying it: nothing is converted or rewritten. Used by migration tools.
+     *
+     * @param store The store to read from.
+     * @return True if the store had a library record for this user.
+     * @throws RuntimeException on read failure or malformed data
+     */
+    public boolean readLibraryFrom(DataStore store) {
+        loading = true;
+        try {
+            boolean found = loadLibraryRecords(store, false);
+            libraryLoaded = true;
+            return found;
+        } finally {
+            loading = false;
+        }
+    }
+
+    /**
+     * Writes this user's complete library (deployment format), summary and playback history to
+     * the given store, replacing any records the user already has there. Does not affect what
+     * saveLibraryData() writes to the deployment store. Used by migration tools.
+     *
+     * @param store The store to write to.
+     * @throws RuntimeException on write failure
+     */
+    public void writeLibraryTo(DataStore store) {
+        LibraryModel currentLibrary = getLibrary();
+        LibraryFormat format = LibraryFormat.getDeploymentFormat();
+        try {
+            currentLibrary.getPlaybackTracker().savePlaybackData(this, store);
+            writeFullLibrary(store, baseKey(format), format);
+            store.delete(deltaKey());
+            store.delete(baseKey(format.other()));
+            store.put(summaryKey(), LibrarySummary.of(currentLibrary).toJson().toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing user library data", e);
+        }
+    }
+
+    /**
+     * Reads the base record (either format) and its delta log into the library.
+     *
+     * @param store          The store to read from.
+     * @param convertInPlace True to rewrite a record found in the other format in the
+     *                       deployment format (and delete the old one).
+     * @return True if a library record was found.
+     */
+    private boolean loadLibraryRecords(DataStore store, boolean convertInPlace) {
+    	// Construct the key of the user's library record
+        LibraryFormat format = LibraryFormat.getDeploymentFormat();
+        String key = baseKey(format);
+        String otherKey = baseKey(format.other());
+        boolean otherFormat = !store.exists(key) && store.exists(otherKey);
+        boolean convert = otherFormat && convertInPlace;
+        String source = otherFormat ? otherKey : key;
+        LibraryFormat sourceFormat = otherFormat ? format.other() : format;
+        ensureLibrary();
         
-        // Only proceed if user data file exists
-        if (file.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                // Read entire file content into memory
-                StringBuilder jsonData = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    jsonData.append(line); // Build complete JSON string
+        // Only proceed if user data exists
+        if (store.exists(source)) {
+            try {
+                if (sourceFormat == LibraryFormat.BINARY) {
+                    readBinaryLibrary(store, source);
+                } else {
+                    readJsonLibrary(store, source);
                 }
 
-                // Parse JSON string into structured data
-                JSONObject userJson = new JSONObject(jsonData.toString());
-                
-                // Restore basic user credentials
-                this.username = userJson.getString("username");
-                this.salt = userJson.getString("salt");
-                this.hashedPassword = userJson.getString("hashedPassword");
+                // Replay changes saved since the last full write, oldest first
+                String deltaKey = deltaKey();
+                ReadableByteChannel deltaChannel = store.openForRead(deltaKey);
+                if (deltaChannel != null) {
+                    try (BufferedReader deltaReader = new BufferedReader(
+                            Channels.newReader(deltaChannel, StandardCharsets.UTF_8.newDecoder(), -1))) {
+                        String line;
+                        while ((line = deltaReader.readLine()) != null) {
+                            if (line.trim().isEmpty()) {
+                                continue;
+                            }
+                            JSONObject deltaJson;
+                            try {
+                                deltaJson = new JSONObject(line);
+                            } catch (JSONException e) {
+                                continue; // Torn line from a crash mid-append; it was never acknowledged
+                            }
+                            applyDelta(deltaJson);
+                        }
+                    }
+                }
 
-                // Rebuild library structure from JSON data
-                JSONObject libraryJson = userJson.getJSONObject("library");
-                deserializeLibrary(libraryJson);
+                // Rewrite in the deployment format; the delta is folded into the new base record
+                if (convert) {
+                    writeFullLibrary(store, key, format);
+                    store.delete(deltaKey);
+                    if (!store.delete(otherKey)) {
+                        throw new IOException("Failed to remove converted record for " + this.username);
+                    }
+                }
+                this.library.getChangeLog().markSaved(this.library.getPlaylists());
+                if (convertInPlace) {
+                    this.savedStateLoaded = true; // Otherwise the deployment store was not read
+                }
 
-                // Restore playback history (recently played, play counts)
-                this.library.getPlaybackTracker().loadPlaybackData(this);
+                // Restore playback history (recently played, play counts) on first use
+                LibraryModel loadedLibrary = this.library;
+                loadedLibrary.setPlaybackLoader(
+                        () -> loadedLibrary.getPlaybackTracker().loadPlaybackData(this, store));
+                return true;
 
             } catch (IOException e) {
                 throw new RuntimeException("Error loading user library data", e);
             }
         } else {
-            // If the file doesn't exist, initialize an empty library
-            this.library = new LibraryModel(new MusicStore("src/main/albums/"));
+            // If the record doesn't exist, initialize an empty library
+            this.library = newLibrary();
+            return false;
+        }
+    }
+
+    /**
+     * Reads the username and library from a JSON base record. A salt and hash left in older
+     * records are skipped: the credential journal is their only source.
+     *
+     * @param store The store holding the record.
+     * @param key   The JSON record.
+     * @throws IOException If the record cannot be read or is malformed.
+     */
+    private void readJsonLibrary(DataStore store, String key) throws IOException {
+        try (ReadableByteChannel channel = store.openForRead(key)) {
+            if (channel == null) {
+                throw new IOException("Missing library record: " + key);
+            }
+            // Stream the record token by token; only one album is materialized at a time
+            JsonTokenReader json = new JsonTokenReader(channel);
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "username": this.username = json.nextString(); break;
+                    // Rebuild library structure
+                    case "library": readLibrary(json); break;
+                    default: json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+    }
+
+    /**
+     * Reads the username and library from a binary base record (older records' salt and hash
+     * are skipped, as in readJsonLibrary()).
+     *
+     * @param store The store holding the record.
+     * @param key   The binary record.
+     * @throws IOException If the record cannot be read or is malformed.
+     */
+    private void readBinaryLibrary(DataStore store, String key) throws IOException {
+        byte[] data = store.get(key);
+        if (data == null) {
+            throw new IOException("Missing library record: " + key);
+        }
+        this.username = BinaryLibraryCodec.decode(data, this.library);
+    }
+
+    /**
+     * Reads the library object written by writeLibrary(), building albums and songs directly
+     * from the token stream. Playlists are resolved once all albums are known, since older
+     * files may list them first.
+     *
+     * @param json The reader positioned at the library object.
+     * @throws IOException If the input cannot be read or is malformed.
+     */
+    private void readLibrary(JsonTokenReader json) throws IOException {
+        List<JSONObject> playlists = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("albums")) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    this.library.addAlbumDirect(readAlbum(json)); // Add the album to the library
+                }
+                json.endArray();
+            } else if (name.equals("playlists")) {
+                // Playlists only hold small song references
+                json.beginArray();
+                while (json.hasNext()) {
+                    playlists.add((JSONObject) json.readJsonValue());
+                }
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        // Index the library once so each song reference resolves in O(1)
+        SongIndex index = new SongIndex(this.library);
+        for (JSONObject playlistJson : playlists) {
+            deserializePlaylist(playlistJson, index);
+        }
+    }
+
+    /**
+     * Reads one album and its songs (with ratings and favorites) from the token stream.
+     *
+     * @param json The reader positioned at an album object.
+     * @return The new Album instance.
+     * @throws IOException If the input cannot be read or is malformed.
+     */
+    private Album readAlbum(JsonTokenReader json) throws IOException {
+        String title = null;
+        String artist = null;
+        String genre = null;
+        int year = 0;
+        List<SongFields> songFields = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "title": title = json.nextString(); break;
+                case "artist": artist = json.nextString(); break;
+                case "genre": genre = json.nextString(); break;
+                case "year": year = json.nextInt(); break;
+                case "songs":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        songFields.add(readSongFields(json));
+                    }
+                    json.endArray();
+                    break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+
+        // Songs need their album, which is complete only after the whole object is read
+        return buildAlbum(title, artist, genre, year, songFields);
+    }
+
+    /**
+     * Builds a loaded album. Albums from the MusicStore are linked to the store's own Album and
+     * Song objects, with the saved rating and favorite flag applied on top; other albums
+     * (or albums whose tracks are no longer all in the store) get new objects.
+     *
+     * @param title      Album title.
+     * @param artist     Album artist.
+     * @param genre      Album genre (null for catalog references).
+     * @param year       Album year.
+     * @param songFields The saved songs.
+     * @return The album to add to the library.
+     */
+    private Album buildAlbum(String title, String artist, String genre, int year, List<SongFields> songFields) {
+        MusicStore store = this.library.getMusicStore();
+        Album catalogAlbum = store == null ? null : store.getAlbumByArtistAndTitle(artist, title);
+        if (catalogAlbum != null) {
+            List<Song> storeSongs = new ArrayList<>();
+            for (SongFields fields : songFields) {
+                Song song = this.library.findTrack(catalogAlbum, fields.title);
+                if (song == null) {
+                    storeSongs = null; // Not a catalog album any more; fall back to copies
+                    break;
+                }
+                storeSongs.add(song);
+            }
+            if (storeSongs != null) {
+                for (int i = 0; i < storeSongs.size(); i++) {
+                    applyOverlay(storeSongs.get(i), songFields.get(i));
+                }
+                return this.library.linkCatalogSongs(catalogAlbum, storeSongs);
+            }
+        }
+
+        // Album outside the catalog: create new objects
+        Album album = new Album(title, artist, genre == null ? "" : genre, year);
+        for (SongFields fields : songFields) {
+            Song song = new Song(fields.title, fields.artist == null ? artist : fields.artist, album);
+            applyOverlay(song, fields);
+            album.addSong(song);
+        }
+        return album;
+    }
+
+    private void applyOverlay(Song song, SongFields fields) {
+        this.library.restoreSongState(song, fields.rating, fields.isFavorite); // 0 = unrated
+    }
+
+    private SongFields readSongFields(JsonTokenReader json) throws IOException {
+        SongFields fields = new SongFields();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "title": fields.title = json.nextString(); break;
+                case "artist": fields.artist = json.nextString(); break;
+                case "rating": fields.rating = json.nextInt(); break;
+                case "isFavorite": fields.isFavorite = json.nextBoolean(); break;
+                default: json.skipValue();
+            }
         }
+        json.endObject();
+        return fields;
     }
 
     /**
@@ -222,67 +879,140 @@ public class User {
      * @param libraryJson JSONObject containing library data.
      */
     public void deserializeLibrary(JSONObject libraryJson) {
+        ensureLibrary();
         // Deserialize albums
         if (libraryJson.has("albums")) {
             JSONArray albumsArray = libraryJson.getJSONArray("albums");
             
             // Process each album in the array
             for (int i = 0; i < albumsArray.length(); i++) {
-                // Extract album properties from JSON
-                JSONObject albumJson = albumsArray.getJSONObject(i);
-                String title = albumJson.getString("title");
-                String artist = albumJson.getString("artist");
-                String genre = albumJson.getString("genre");
-                int year = albumJson.getInt("year");
-                
-                // Create new album instance
-                Album album = new Album(title, artist, genre, year);
-
-                // Deserialize songs in the album
-                JSONArray songsArray = albumJson.getJSONArray("songs");
-                for (int j = 0; j < songsArray.length(); j++) {
-                    JSONObject songJson = songsArray.getJSONObject(j);
-                    
-                    // Extract song properties
-                    String songTitle = songJson.getString("title");
-                    String songArtist = songJson.getString("artist");
-                    int rating = songJson.getInt("rating");
-                    boolean isFavorite = songJson.getBoolean("isFavorite");
-
-                    // Create and configure song
-                    Song song = new Song(songTitle, songArtist, album);
-                    song.rate(rating); // Restore rating
-                    if (isFavorite) song.markAsFavorite(); // Restore favorite status
-                    album.addSong(song);
-                }
+                Album album = deserializeAlbum(albumsArray.getJSONObject(i));
                 this.library.addAlbumDirect(album);  // Add the album to the library
             }
         }
 
         // Deserialize playlists
         if (libraryJson.has("playlists")) {
+            // Index the library once so each song reference resolves in O(1)
+            SongIndex index = new SongIndex(this.library);
+
             // Get the array of playlist objects from JSON
             JSONArray playlistsArray = libraryJson.getJSONArray("playlists");
             // Process each playlist
             for (int i = 0; i < playlistsArray.length(); i++) {
-                JSONObject playlistJson = playlistsArray.getJSONObject(i);
-                // Create new playlist with stored name
-                String name = playlistJson.getString("name");
-                Playlist playlist = this.library.createPlaylist(name);
-
-                // Deserialize songs in the playlist
-                JSONArray playlistSongs = playlistJson.getJSONArray("songs");
-                for (int j = 0; j < playlistSongs.length(); j++) {
-                    String songTitle = playlistSongs.getString(j);
-
-                    // Find matching song in library (may return multiple versions)
-                    List<Song> matchingSongs = this.library.searchSongByTitle(songTitle);
-                    // Add first match if found 
-                    if (!matchingSongs.isEmpty()) {
-                        // Add the first matching song to the playlist
-                        playlist.addSong(matchingSongs.get(0));
-                    }
-                }
+                deserializePlaylist(playlistsArray.getJSONObject(i), index);
+            }
+        }
+    }
+
+    /**
+     * Applies one delta record written by serializeDelta() on top of the loaded library.
+     * 
+     * @param deltaJson JSONObject containing the changed data.
+     */
+    public void applyDelta(JSONObject deltaJson) {
+        ensureLibrary();
+        // Index current albums by title + artist
+        Map<String, Album> albumsByKey = new HashMap<>();
+        for (Album album : this.library.getAlbumLibrary()) {
+            albumsByKey.put(album.getKey(), album);
+        }
+
+        // Remove deleted albums
+        JSONArray removedArray = deltaJson.optJSONArray("removedAlbums");
+        for (int i = 0; removedArray != null && i < removedArray.length(); i++) {
+            JSONObject albumRef = removedArray.getJSONObject(i);
+            Album album = albumsByKey.remove(new Album(albumRef.getString("title"),
+                    albumRef.getString("artist"), "", 0).getKey());
+            if (album != null) {
+                this.library.removeAlbumDirect(album);
+            }
+        }
+
+        // Replace added or changed albums
+        JSONArray albumsArray = deltaJson.optJSONArray("albums");
+        for (int i = 0; albumsArray != null && i < albumsArray.length(); i++) {
+            Album album = deserializeAlbum(albumsArray.getJSONObject(i));
+            Album previous = albumsByKey.put(album.getKey(), album);
+            if (previous != null) {
+                this.library.removeAlbumDirect(previous);
+            }
+            this.library.addAlbumDirect(album);
+        }
+
+        // Index the library once so each song reference resolves in O(1)
+        SongIndex index = new SongIndex(this.library);
+
+        // Apply rating and favorite changes
+        JSONArray songsArray = deltaJson.optJSONArray("songs");
+        for (int i = 0; songsArray != null && i < songsArray.length(); i++) {
+            JSONObject songJson = songsArray.getJSONObject(i);
+            Song song = index.resolve(songJson);
+            if (song != null) {
+                this.library.restoreSongState(song, songJson.getInt("rating"), songJson.getBoolean("isFavorite"));
+            }
+        }
+
+        // Replace changed playlists
+        JSONArray playlistsArray = deltaJson.optJSONArray("playlists");
+        for (int i = 0; playlistsArray != null && i < playlistsArray.length(); i++) {
+            deserializePlaylist(playlistsArray.getJSONObject(i), index);
+        }
+    }
+
+    /**
+     * Deserializes an album and its songs (with ratings and favorites).
+     * 
+     * @param albumJson JSONObject containing album data.
+     * @return The album (linked to the MusicStore when it comes from there).
+     */
+    private Album deserializeAlbum(JSONObject albumJson) {
+        // Extract album properties from JSON (catalog references have no genre/year)
+        String title = albumJson.getString("title");
+        String artist = albumJson.getString("artist");
+        String genre = albumJson.optString("genre", null);
+        int year = albumJson.optInt("year");
+
+        // Extract song properties
+        List<SongFields> songFields = new ArrayList<>();
+        JSONArray songsArray = albumJson.getJSONArray("songs");
+        for (int j = 0; j < songsArray.length(); j++) {
+            JSONObject songJson = songsArray.getJSONObject(j);
+            SongFields fields = new SongFields();
+            fields.title = songJson.getString("title");
+            fields.artist = songJson.optString("artist", null);
+            fields.rating = songJson.optInt("rating");
+            fields.isFavorite = songJson.optBoolean("isFavorite");
+            songFields.add(fields);
+        }
+        return buildAlbum(title, artist, genre, year, songFields);
+    }
+
+    /**
+     * Deserializes a playlist, replacing the songs of an existing playlist with the same name.
+     * 
+     * @param playlistJson JSONObject containing playlist data.
+     * @param index        Index used to resolve song references.
+     */
+    private void deserializePlaylist(JSONObject playlistJson, SongIndex index) {
+        // Reuse an existing playlist with the stored name, or create a new one
+        String name = playlistJson.getString("name");
+        Playlist playlist = this.library.getPlaylistByName(name);
+        if (playlist == null) {
+            playlist = this.library.createPlaylist(name);
+        } else {
+            for (Song song : playlist.getSongs()) {
+                playlist.removeSong(song);
+            }
+        }
+
+        // Deserialize songs in the playlist
+        JSONArray playlistSongs = playlistJson.getJSONArray("songs");
+        for (int j = 0; j < playlistSongs.length(); j++) {
+            // Resolve artist + title reference (or legacy title string)
+            Song song = index.resolve(playlistSongs.get(j));
+            if (song != null) {
+                playlist.addSong(song);
             }
         }
     }
@@ -297,11 +1027,79 @@ public class User {
      * @return A User object with the provided credentials.
      */
     public static User fromCredentials(String username, String salt, String hashedPassword) {
-    	// Using a dummy password to avoid exposure of salt and hashing in the user class constructor
-        User user = new User(username, "dummyPassword"); 
-        user.salt = salt; // Set the salt
-        user.hashedPassword = hashedPassword; // Set the hashed password
-        return user;
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username cannot be null or empty.");
+        }
+        // No password is hashed here: the stored salt and hash are used as they are
+        return new User(username, salt, hashedPassword);
+    }
+
+    // ================== CONCURRENCY ================== //
+
+    /**
+     * Returns the lock that guards this user's library. Whoever changes the library from
+     * another thread, and background saves, hold it.
+     *
+     * @return The user's lock.
+     */
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    /**
+     * Sets the listener notified whenever the library or playback history changes
+     * (e.g. to mark the user dirty for a background save).
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Sets the listener notified whenever the library is created or read into memory
+     * (e.g. to account for it in a LoadedUserCache). Runs on the loading thread, which holds
+     * the user's lock.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public void setLoadListener(Runnable listener) {
+        this.loadListener = listener;
+    }
+
+    private void libraryInMemory() {
+        Runnable listener = this.loadListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Creates an empty library wired to this user.
+     *
+     * @return The new library.
+     */
+    private LibraryModel newLibrary() {
+        LibraryModel created = new LibraryModel(MusicStore.getShared("src/main/albums/"));
+        created.getPlaybackTracker().setListenerId(this.username);
+        created.setChangeListener(this::libraryChanged);
+        return created;
+    }
+
+    /**
+     * Creates the empty library records are read into, if there is none yet.
+     */
+    private void ensureLibrary() {
+        if (this.library == null) {
+            this.library = newLibrary();
+        }
+    }
+
+    private void libraryChanged() {
+        Runnable listener = this.changeListener;
+        if (listener != null && !loading) {
+            listener.run();
+        }
     }
 
     // ================== GETTERS ================== //
@@ -317,4 +1115,24 @@ public class User {
     public String getHashedPassword() {
         return hashedPassword;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the username, so log messages (e.g. failed background saves) name the user.
+     * Never includes credentials.
+     */
+    @Override
+    public String toString() {
+        return username;
+    }
+
+    /**
+     * Saved song properties (the per-user overlay for catalog tracks), collected before
+     * the owning album can be constructed or linked.
+     */
+    private static final class SongFields {
+        private String title;
+        private String artist;
+        private int rating;
+        private boolean isFavorite;
+    }
+}
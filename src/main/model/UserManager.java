@@ -6,27 +6,61 @@
  * Purpose: Manages user authentication, registration, and data persistence.
  *          Handles loading/saving user credentials and library data to JSON files.
  *          Uses secure password hashing with salts for credential storage.
+ *          Safe for many concurrent sessions: users live in a concurrent map (lookups never
+ *          block, registration claims a name atomically), and each user's library is loaded
+ *          and saved under that user's own lock.
  */
 package main.model;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import main.analytics.HistoryCompactor;
+import main.persistence.CredentialJournal;
+import main.persistence.DataStores;
+import main.persistence.WriteBehindService;
+import main.security.HashingExecutor;
+import main.security.LoginThrottle;
+import main.security.SessionManager;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class UserManager {
-    private Map<String, User> users; // Stores all users, with username as the key
-    private static final String USER_FILE = "users.json"; // File to store user credentials
+    private final ConcurrentMap<String, User> users; // Stores all users, with username as the key
+    // Credential appends share this lock; replacing the whole snapshot takes it exclusively
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private static final String USER_FILE = "users.json"; // Snapshot record (file) of user credentials
+    private static final String JOURNAL_FILE = "users.journal"; // Credentials registered since the snapshot
+    private final CredentialJournal credentials; // Append-only credential storage
+    private final WriteBehindService<User> persistence; // Background saves of dirty users
+    private final HashingExecutor hashing; // Bounded pool for password hashing
+    private final ExecutorService loginCompletion; // Finishes logins, which wait for saves and read files
+    private final SessionManager sessions; // Signed session tokens issued at login
+    private volatile LoginThrottle throttle; // Limits login attempts before they are hashed
+    private volatile LoadedUserCache cache; // Bounds the libraries kept in memory
+    private final HistoryCompactor historyCompactor; // Rolls up play histories of loaded libraries
+    private static final long SHUTDOWN_FLUSH_MILLIS = 30_000; // Longest wait for pending saves on exit
 
     /**
      * Constructs a new UserManager instance.
      * Initializes the users map and loads existing users from the file.
      */
     public UserManager() {
-        this.users = new HashMap<>();
+        this.users = new ConcurrentHashMap<>();
+        this.credentials = new CredentialJournal(DataStores.getDefault(), USER_FILE, JOURNAL_FILE);
+        this.persistence = new WriteBehindService<>(UserManager::flushUser);
+        this.hashing = new HashingExecutor();
+        this.loginCompletion = Executors.newVirtualThreadPerTaskExecutor();
+        this.sessions = new SessionManager();
+        this.throttle = new LoginThrottle();
+        this.cache = new LoadedUserCache();
+        this.historyCompactor = new HistoryCompactor(); // Its thread starts with the first loaded library
         loadUsers(); // Load users from the file when UserManager is instantiated
     }
 
@@ -38,121 +72,427 @@ public class UserManager {
      * @param username The username of the new user.
      * @param password The password of the new user.
      * @throws IllegalArgumentException If the username is already taken or if username/password is invalid.
+     * @throws RejectedExecutionException If too many password hashes are already queued.
      */
     public void registerUser(String username, String password) {
-        // Check if username already taken
+        join(registerUserAsync(username, password));
+    }
+
+    /**
+     * Registers a new user without blocking the caller. The password is hashed on the bounded
+     * hashing executor.
+     *
+     * @param username The username of the new user.
+     * @param password The password of the new user.
+     * @return A future completed when the user is registered; it fails with
+     *         IllegalArgumentException if the username is taken or invalid, and with
+     *         RejectedExecutionException if too many password hashes are already queued.
+     */
+    public CompletableFuture<Void> registerUserAsync(String username, String password) {
+        // Check if username already taken (claimed atomically once hashed, in case of a concurrent registration)
         if (usernameExists(username)) {
-            throw new IllegalArgumentException("Username already exists.");
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Username already exists."));
         }
+        return hashing.submit(() -> new User(username, password)).thenAccept(this::addNewUser);
+    }
+
+    /**
+     * Stores a newly created user and appends its credentials. The name is claimed with one
+     * atomic putIfAbsent, so of two concurrent registrations exactly one succeeds.
+     *
+     * @param newUser The user.
+     * @throws IllegalArgumentException If the username was taken in the meantime.
+     * @throws IllegalStateException    If the credentials cannot be saved.
+     */
+    private void addNewUser(User newUser) {
+        String username = newUser.getUsername();
+        attach(newUser);
+        snapshotLock.readLock().lock();
+        try {
+            if (users.putIfAbsent(username, newUser) != null) {
+                throw new IllegalArgumentException("Username already exists.");
+            }
 
-        // Create and store new user
-        User newUser = new User(username, password);
-        users.put(username, newUser);
-        saveUsers(); // Save the updated users map to the file
+            // Append only the new user's credentials (O(1) I/O); the journal compacts itself
+            try {
+                credentials.append(new CredentialJournal.Credential(username, newUser.getSalt(), newUser.getHashedPassword()));
+            } catch (IOException e) {
+                users.remove(username, newUser);
+                throw new IllegalStateException("Error saving new user", e);
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
     }
 
     // ================== USER LOGIN ================== //
 
     /**
-     * Authenticates a user and loads their data.
+     * Authenticates a user and prepares their data. The library itself is read lazily, so login
+     * time does not depend on library size. Callers that need a resumable session pass the user
+     * to issueSession() and keep the token.
      *
      * @param username The username of the user.
      * @param password The password of the user.
      * @return The authenticated User object.
      * @throws IllegalArgumentException If the username or password is incorrect.
+     * @throws RejectedExecutionException If there were too many login attempts recently or too
+     *                                    many password checks are already queued.
      */
     public User loginUser(String username, String password) {
+        return join(loginUserAsync(username, password));
+    }
+
+    /**
+     * Authenticates a user without blocking the caller. The password check runs on the bounded
+     * hashing executor; the rest of the login runs once it has passed.
+     *
+     * @param username The username of the user.
+     * @param password The password of the user.
+     * @return A future with the authenticated user; it fails with IllegalArgumentException if
+     *         the username or password is incorrect, and with RejectedExecutionException if the
+     *         user or everyone together made too many attempts recently, or too many password
+     *         checks are already queued.
+     */
+    public CompletableFuture<User> loginUserAsync(String username, String password) {
         // Find user by username
-        User user = users.get(username);
+        User user = findUser(username);
+        if (user == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("User not found."));
+        }
+
+        // Refuse excess attempts before they cost a hash
+        if (!throttle.tryAcquire(username)) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Too many login attempts. Try again later."));
+        }
+
+        // Validate password off the caller's thread, then finish without holding a hashing thread.
+        // The rest blocks (pending saves, summary reads), so it gets its own virtual threads
+        // instead of the common pool.
+        return hashing.submit(() -> checkPassword(user, password)).thenApplyAsync(valid -> {
+            if (!valid) {
+                throw new IllegalArgumentException("Incorrect password.");
+            }
+            return completeLogin(user);
+        }, loginCompletion);
+    }
+
+    // ================== SESSIONS ================== //
+
+    /**
+     * Starts a session for a user who has just logged in. Every call issues a new token, so
+     * the same user can hold several sessions (e.g. two connections) and end them separately.
+     *
+     * @param user The authenticated user.
+     * @return The session token; the caller keeps it for resumeSession() and endSession().
+     */
+    public String issueSession(User user) {
         if (user == null) {
-            throw new IllegalArgumentException("User not found.");
+            throw new IllegalArgumentException("User cannot be null.");
         }
+        return sessions.issue(user.getUsername());
+    }
+
+    /**
+     * Recognizes a user again from the session token issued at login (later requests,
+     * reconnects) without checking the password.
+     *
+     * @param token The user's session token.
+     * @return The user.
+     * @throws IllegalArgumentException If the token is invalid, expired or revoked.
+     */
+    public User resumeSession(String token) {
+        String username = sessions.validate(token);
+        User user = username == null ? null : findUser(username);
+        if (user == null) {
+            throw new IllegalArgumentException("Invalid or expired session.");
+        }
+        return completeLogin(user);
+    }
+
+    /**
+     * Ends one session (on logout); its token is no longer accepted. The user's other
+     * sessions stay valid.
+     *
+     * @param token The session's token.
+     * @return True if the session was live.
+     */
+    public boolean endSession(String token) {
+        return token != null && sessions.revoke(token);
+    }
 
-        // Validate password
+    /**
+     * Returns the session table (for revoking a user's sessions and for its metrics).
+     *
+     * @return The session manager.
+     */
+    public SessionManager getSessionManager() {
+        return sessions;
+    }
+
+    /**
+     * Validates a password and, if it is correct but was hashed with older parameters,
+     * rehashes it with the current ones and saves the new credentials. Runs on the hashing
+     * executor.
+     *
+     * @param user     The user.
+     * @param password The password to check.
+     * @return True if the password is correct.
+     */
+    private boolean checkPassword(User user, String password) {
         if (!user.validatePassword(password)) {
-            throw new IllegalArgumentException("Incorrect password.");
+            return false;
+        }
+        if (user.needsRehash()) {
+            user.rehashPassword(password);
+            saveCredentials(user);
         }
+        return true;
+    }
+
+    /**
+     * Appends a user's current credentials to the journal, replacing the earlier entry.
+     *
+     * @param user The user.
+     */
+    private void saveCredentials(User user) {
+        snapshotLock.readLock().lock();
+        try {
+            credentials.append(credentialsOf(user));
+        } catch (IOException e) {
+            // The stored hash still validates; the upgrade is retried at the next login
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
 
-        loadUserLibrary(user); // Load the user's library when they log in
+    /**
+     * Prepares an authenticated user's data.
+     *
+     * @param user The user.
+     * @return The user.
+     */
+    private User completeLogin(User user) {
+        // A save queued at the last logout must finish before the library is reloaded
+        try {
+            if (!persistence.awaitFlushed(user)) {
+                throw new IllegalStateException("Unsaved changes of " + user.getUsername() + " could not be saved");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a pending save", e);
+        }
+        // Only the library summary is read now; albums, playlists and history load on first use
+        user.loadLibraryLazily();
+        cache.touch(user);
         return user;
     }
 
     // ================== SAVE/LOAD USERS ================== //
 
     /**
-     * Saves all users' credentials (username, salt, hashedPassword) to a JSON file.
+     * Saves all users' credentials (username, salt, hashedPassword) as a new snapshot
+     * and clears the credential journal.
      *
      * @throws IllegalStateException If an error occurs while saving the file.
      */
     public void saveUsers() {
-        JSONArray usersArray = new JSONArray();
-        
-        // Convert each user to JSON
-        for (User user : users.values()) {
-            JSONObject userJson = new JSONObject();
-            userJson.put("username", user.getUsername());
-            userJson.put("salt", user.getSalt()); // Store password salt
-            userJson.put("hashedPassword", user.getHashedPassword()); // Store hashed password
-            usersArray.put(userJson);
-        }
-        // Write to file 
-        try (FileWriter writer = new FileWriter(USER_FILE)) {
-            writer.write(usersArray.toString(4)); // To JSON
+        // Registrations wait while the snapshot is taken, so none is left out of it
+        snapshotLock.writeLock().lock();
+        try {
+            List<CredentialJournal.Credential> all = new ArrayList<>();
+            for (User user : users.values()) {
+                all.add(credentialsOf(user));
+            }
+            credentials.writeSnapshot(all);
         } catch (IOException e) {
             throw new IllegalStateException("Error saving users to file", e);
+        } finally {
+            snapshotLock.writeLock().unlock();
         }
     }
 
     /**
-     * Loads all users' credentials (username, salt, hashedPassword) from a JSON file.
+     * Loads all users' credentials (username, salt, hashedPassword) from the snapshot
+     * and the credential journal.
      *
      * @throws IllegalStateException If an error occurs while loading the file.
      */
     public void loadUsers() {
-        File file = new File(USER_FILE);
-        if (!file.exists()) {
-            return; // No users file exists yet
-        }
-
+        snapshotLock.writeLock().lock();
         try {
-            // Read entire file contents
-            String jsonData = new String(Files.readAllBytes(Paths.get(USER_FILE)));
-            JSONArray usersArray = new JSONArray(jsonData);
-
-            // Process each user in the array
-            for (int i = 0; i < usersArray.length(); i++) {
-                JSONObject userJson = usersArray.getJSONObject(i);
-                String username = userJson.getString("username");
-                String salt = userJson.getString("salt");
-                String hashedPassword = userJson.getString("hashedPassword");
-
+            for (CredentialJournal.Credential credential : credentials.load()) {
                 // Use the factory method to create a User object
-                User user = User.fromCredentials(username, salt, hashedPassword);
-                users.put(username, user);
+                User user = User.fromCredentials(credential.getUsername(), credential.getSalt(),
+                        credential.getHashedPassword());
+                attach(user);
+                users.put(credential.getUsername(), user);
             }
         } catch (IOException e) {
             throw new IllegalStateException("Error loading users from file", e);
+        } finally {
+            snapshotLock.writeLock().unlock();
         }
     }
 
     // ================== SAVE/LOAD USER LIBRARY ================== //
 
     /**
-     * Saves a user's library to a JSON file.
+     * Saves a user's library to a JSON file, holding the user's lock (other users are not
+     * blocked).
      *
      * @param user The user whose library will be saved.
      */
     public void saveUserLibrary(User user) {
-        user.saveLibraryData();
+        user.getLock().lock();
+        try {
+            user.saveLibraryData();
+        } finally {
+            user.getLock().unlock();
+        }
+    }
+
+    /**
+     * Queues a user's library to be saved in the background and returns at once (e.g. on logout).
+     * The save is complete before the user can log in again.
+     *
+     * @param user The user whose library will be saved.
+     */
+    public void saveUserLibraryAsync(User user) {
+        persistence.flushAsync(user);
+    }
+
+    /**
+     * Marks a user as changed. Changes are coalesced and saved in the background after a
+     * short delay; callers block only when too many users are waiting to be saved. Once the
+     * background saves are shut down the library is saved right away instead, as
+     * LibraryCommands.close() does, so late changes are neither lost nor fail.
+     *
+     * @param user The changed user.
+     */
+    public void markDirty(User user) {
+        if (!persistence.markDirtyIfRunning(user)) {
+            saveUserLibrary(user);
+        }
+    }
+
+    /**
+     * Returns the background persistence service (for its queue depth and latency metrics).
+     *
+     * @return The write-behind service.
+     */
+    public WriteBehindService<User> getPersistenceService() {
+        return persistence;
+    }
+
+    /**
+     * Replaces the login throttle (e.g. with other limits).
+     *
+     * @param throttle The throttle to use for later logins.
+     */
+    public void setLoginThrottle(LoginThrottle throttle) {
+        if (throttle == null) {
+            throw new IllegalArgumentException("Throttle cannot be null.");
+        }
+        this.throttle = throttle;
+    }
+
+    public LoginThrottle getLoginThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Records that a logged-in user is working with the library, so the loaded user cache
+     * unloads idle users before active ones. Called at the start of every library command,
+     * not only at login.
+     *
+     * @param user The user issuing the command.
+     */
+    public void touchUser(User user) {
+        cache.touch(user);
+    }
+
+    /**
+     * Replaces the cache that limits the libraries kept in memory (e.g. with other limits).
+     * Libraries loaded before are not tracked by the new cache until their next access.
+     *
+     * @param cache The cache to use from now on.
+     */
+    public void setUserCache(LoadedUserCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("Cache cannot be null.");
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cache of loaded libraries (for its hit, miss and eviction metrics).
+     *
+     * @return The loaded user cache.
+     */
+    public LoadedUserCache getUserCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the compactor that rolls up the play histories of loaded libraries.
+     *
+     * @return The history compactor.
+     */
+    public HistoryCompactor getHistoryCompactor() {
+        return historyCompactor;
+    }
+
+    /**
+     * Returns the executor password hashes run on (for its throughput and queue wait metrics).
+     *
+     * @return The hashing executor.
+     */
+    public HashingExecutor getHashingExecutor() {
+        return hashing;
+    }
+
+    /**
+     * Saves every pending user and stops the background saves. Called on exit and from the
+     * shutdown hook.
+     *
+     * @return True if every pending save completed.
+     */
+    public boolean shutdown() {
+        hashing.shutdown();
+        loginCompletion.shutdown();
+        historyCompactor.close();
+        try {
+            return persistence.shutdown(SHUTDOWN_FLUSH_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     /**
-     * Loads a user's library from a JSON file.
+     * Loads a user's library from a JSON file, holding the user's lock (other users are not
+     * blocked).
      *
      * @param user The user whose library will be loaded.
      */
     public void loadUserLibrary(User user) {
-        user.loadLibraryData();
+        user.getLock().lock();
+        try {
+            user.loadLibraryData();
+        } finally {
+            user.getLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of registered users.
+     *
+     * @return The user count.
+     */
+    public int getUserCount() {
+        return users.size();
     }
 
     // ================== HELPER METHODS ================== //
@@ -166,4 +506,75 @@ public class UserManager {
     private boolean usernameExists(String username) {
         return users.containsKey(username);
     }
+
+    /**
+     * Connects a user to background saves, the loaded user cache and history compaction.
+     *
+     * @param user The user.
+     */
+    private void attach(User user) {
+        user.setChangeListener(() -> markDirty(user));
+        user.setLoadListener(() -> {
+            cache.loaded(user);
+            user.getLibrary().setHistoryCompactor(historyCompactor);
+        });
+    }
+
+    private User findUser(String username) {
+        return users.get(username);
+    }
+
+    /**
+     * Reads a user's salt and hash as the pair rehashPassword() set.
+     *
+     * @param user The user.
+     * @return The user's credentials.
+     */
+    private static CredentialJournal.Credential credentialsOf(User user) {
+        user.getLock().lock();
+        try {
+            return new CredentialJournal.Credential(user.getUsername(), user.getSalt(), user.getHashedPassword());
+        } finally {
+            user.getLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for an async registration or login and rethrows its failure unwrapped.
+     *
+     * @param future The operation.
+     * @return Its result.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Background save of one user. Skipped (and retried later) while someone holds the
+     * user's lock, so a save never reads a library in the middle of a change.
+     *
+     * @param user The user to save.
+     * @return True if saved, false if the user was busy.
+     */
+    private static boolean flushUser(User user) {
+        if (!user.getLock().tryLock()) {
+            return false;
+        }
+        try {
+            user.saveLibraryData();
+            return true;
+        } finally {
+            user.getLock().unlock();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: AtomicFileWriter.java
+ * Purpose: Crash-safe file writes shared by all user data files. Each write goes to a temp file in the
+ *          target's directory, is fsynced, and is atomically renamed over the target, so a crash leaves
+ *          either the old or the new file but never a torn one. Each writer fsyncs its own temp file, so
+ *          those fsyncs run in parallel; the renames are group-committed: one thread (the leader)
+ *          renames everything queued so far, writes to the same file are coalesced to the newest one,
+ *          and each directory is fsynced once per batch.
+ */
+package main.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AtomicFileWriter {
+    private static final AtomicFileWriter shared = new AtomicFileWriter();
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Object lock = new Object();
+    private List<PendingWrite> pending; // Writes waiting for the next group commit
+    private boolean committing; // True while a leader is committing a batch
+    private final AtomicLong filesCommitted; // Files renamed into place
+    private final AtomicLong writesCoalesced; // Writes superseded by a newer write to the same file
+    private final AtomicLong batches; // Group commits performed
+
+    /**
+     * Constructs a writer with its own commit queue.
+     */
+    public AtomicFileWriter() {
+        this.pending = new ArrayList<>();
+        this.filesCommitted = new AtomicLong();
+        this.writesCoalesced = new AtomicLong();
+        this.batches = new AtomicLong();
+    }
+
+    /**
+     * Returns the writer shared by User, PlaybackTracker and UserManager so that their
+     * concurrent saves end up in the same group commits.
+     *
+     * @return The shared writer.
+     */
+    public static AtomicFileWriter getShared() {
+        return shared;
+    }
+
+    // ================== WRITING ================== //
+
+    /**
+     * Atomically replaces the file with the given text (UTF-8).
+     *
+     * @param target  The file to write.
+     * @param content The new file contents.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeString(Path target, String content) throws IOException {
+        write(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Atomically replaces the file with the given bytes. Returns once the data is durable
+     * (fsynced and renamed), or once a newer write to the same file has been committed.
+     *
+     * @param target The file to write.
+     * @param data   The new file contents.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path target, byte[] data) throws IOException {
+        if (data == null) {
+            throw new IllegalArgumentException("Data cannot be null.");
+        }
+        write(target, channel -> {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        });
+    }
+
+    /**
+     * Atomically replaces the file with whatever the content callback streams into the channel,
+     * so large files never have to be built in memory first.
+     *
+     * @param target  The file to write.
+     * @param content Writes the new file contents to the given channel.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path target, Content content) throws IOException {
+        if (target == null || content == null) {
+            throw new IllegalArgumentException("Target and content cannot be null.");
+        }
+        target = target.toAbsolutePath();
+
+        // Write and fsync the temp file outside the lock so writers fill and sync their files in parallel
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString() + ".", TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            content.writeTo(channel);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        PendingWrite write = new PendingWrite(target, temp);
+        synchronized (lock) {
+            pending.add(write);
+        }
+
+        // Either become the leader and commit the queue, or wait for the current leader
+        while (true) {
+            List<PendingWrite> batch;
+            synchronized (lock) {
+                while (committing && !write.done) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for commit of " + target, e);
+                    }
+                }
+                if (write.done) {
+                    break;
+                }
+                committing = true;
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            try {
+                commit(batch);
+            } finally {
+                synchronized (lock) {
+                    for (PendingWrite committed : batch) {
+                        committed.done = true;
+                    }
+                    committing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+        if (write.error != null) {
+            throw write.error;
+        }
+    }
+
+    // ================== METRICS ================== //
+
+    public long getFilesCommitted() {
+        return filesCommitted.get();
+    }
+
+    public long getWritesCoalesced() {
+        return writesCoalesced.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    /**
+     * Renames one batch of (already fsynced) temp files into place. Only the newest write to each
+     * target is kept.
+     *
+     * @param batch The queued writes, oldest first.
+     */
+    private void commit(List<PendingWrite> batch) {
+        batches.incrementAndGet();
+
+        // Keep the newest write per target; older ones are superseded
+        Map<Path, PendingWrite> latest = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            PendingWrite previous = latest.put(write.target, write);
+            if (previous != null) {
+                deleteQuietly(previous.temp);
+                writesCoalesced.incrementAndGet();
+            }
+        }
+
+        // Swap the durable contents into place
+        Set<Path> directories = new LinkedHashSet<>();
+        for (PendingWrite write : latest.values()) {
+            try {
+                move(write.temp, write.target);
+                directories.add(write.target.getParent());
+                filesCommitted.incrementAndGet();
+            } catch (IOException e) {
+                write.error = e;
+                deleteQuietly(write.temp);
+            }
+        }
+
+        // Make the renames durable, once per directory
+        for (Path directory : directories) {
+            syncDirectory(directory);
+        }
+
+        // Superseded writes report the outcome of the write that replaced them
+        for (PendingWrite write : batch) {
+            if (write.error == null) {
+                write.error = latest.get(write.target).error;
+            }
+        }
+    }
+
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING); // Best effort on odd file systems
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms (e.g. Windows) cannot open directories; the rename is still atomic there
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Leftover temp files are harmless and never read
+        }
+    }
+
+    /**
+     * Streams file contents into a channel.
+     */
+    public interface Content {
+        void writeTo(WritableByteChannel channel) throws IOException;
+    }
+
+    /**
+     * A temp file waiting to be committed over its target.
+     */
+    private static final class PendingWrite {
+        private final Path target;
+        private final Path temp;
+        private boolean done; // Guarded by lock
+        private IOException error;
+
+        private PendingWrite(Path target, Path temp) {
+            this.target = target;
+            this.temp = temp;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: BinaryLibraryCodec.java
+ * Purpose: Compact, versioned binary format for a user's library. Every string is
+ *          stored once in a dictionary and referenced by varint index; albums that come from the
+ *          shared catalog (MusicStore) are stored as a reference plus varint track numbers instead of
+ *          full song objects; ratings and favorite flags are bit-packed, two songs per byte.
+ *
+ *          Layout (version 2):
+ *            "MLIB" | version | dictionary | username | albums | playlists
+ *            dictionary: count, then (byte length, UTF-8 bytes) per string
+ *            album:      flags, title, artist, [genre, year if not catalog], song count,
+ *                        per song: catalog track number or (title, artist), then packed ratings
+ *            playlist:   name, song count, per song: ordinal of the song among the albums above
+ *          All counts, indices and numbers are unsigned varints. Version 1 also stored the
+ *          salt and password hash after the username; they are skipped when read, since the
+ *          credential journal is their only source.
+ */
+package main.persistence;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import main.database.MusicStore;
+import main.model.Album;
+import main.model.LibraryModel;
+import main.model.Playlist;
+import main.model.Song;
+
+public final class BinaryLibraryCodec {
+    public static final int VERSION = 2;
+    private static final int VERSION_WITH_CREDENTIALS = 1; // Still read; salt and hash are skipped
+    private static final byte[] MAGIC = {'M', 'L', 'I', 'B'};
+    private static final int FLAG_CATALOG = 1; // Album is a reference into the MusicStore
+    private static final int FAVORITE_BIT = 0x8; // Rating uses the low three bits of each nibble
+
+    private BinaryLibraryCodec() {
+        // Utility class
+    }
+
+    // ================== ENCODING ================== //
+
+    /**
+     * Encodes a user's library into the binary format. Credentials are not written: they are
+     * kept in the credential journal only.
+     *
+     * @param username The user's name.
+     * @param library  The library to encode (its MusicStore is the catalog).
+     * @return The encoded bytes.
+     */
+    public static byte[] encode(String username, LibraryModel library) {
+        MusicStore catalog = library.getMusicStore();
+        Dictionary dictionary = new Dictionary();
+        ByteSink body = new ByteSink();
+
+        // Owner
+        body.writeVarint(dictionary.indexOf(username));
+
+        // Albums; every written song gets an ordinal that playlists refer to
+        Map<Song, Integer> ordinals = new IdentityHashMap<>();
+        Collection<Album> albums = library.getAlbumLibrary();
+        body.writeVarint(albums.size());
+        for (Album album : albums) {
+            List<Song> songs = album.getSongs();
+            int[] tracks = catalogTracks(album, songs, catalog);
+            body.writeByte(tracks != null ? FLAG_CATALOG : 0);
+            body.writeVarint(dictionary.indexOf(album.getTitle()));
+            body.writeVarint(dictionary.indexOf(album.getArtist()));
+            if (tracks == null) {
+                body.writeVarint(dictionary.indexOf(album.getGenre()));
+                body.writeVarint(album.getYear());
+            }
+            body.writeVarint(songs.size());
+            for (int i = 0; i < songs.size(); i++) {
+                Song song = songs.get(i);
+                if (tracks != null) {
+                    body.writeVarint(tracks[i]);
+                } else {
+                    body.writeVarint(dictionary.indexOf(song.getTitle()));
+                    body.writeVarint(dictionary.indexOf(song.getArtist()));
+                }
+                ordinals.putIfAbsent(song, ordinals.size());
+            }
+            // Ratings and favorites, one nibble per song
+            for (int i = 0; i < songs.size(); i += 2) {
+                int packed = nibble(library, songs.get(i));
+                if (i + 1 < songs.size()) {
+                    packed |= nibble(library, songs.get(i + 1)) << 4;
+                }
+                body.writeByte(packed);
+            }
+        }
+
+        // Playlists (songs that are not in the library cannot be resolved on load, as in JSON)
+        List<Playlist> playlists = library.getPlaylists();
+        body.writeVarint(playlists.size());
+        for (Playlist playlist : playlists) {
+            body.writeVarint(dictionary.indexOf(playlist.getName()));
+            List<Integer> refs = new ArrayList<>();
+            for (Song song : playlist.getSongs()) {
+                Integer ordinal = ordinals.get(song);
+                if (ordinal != null) {
+                    refs.add(ordinal);
+                }
+            }
+            body.writeVarint(refs.size());
+            for (int ref : refs) {
+                body.writeVarint(ref);
+            }
+        }
+
+        // Header and dictionary go first so the reader can resolve indices as it goes
+        ByteSink out = new ByteSink();
+        out.writeBytes(MAGIC);
+        out.writeVarint(VERSION);
+        out.writeVarint(dictionary.strings.size());
+        for (String string : dictionary.strings) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(utf8.length);
+            out.writeBytes(utf8);
+        }
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    // ================== DECODING ================== //
+
+    /**
+     * Decodes a binary library into the given library model. Catalog tracks are linked to the
+     * library's MusicStore songs; other albums, songs and all playlists are created.
+     *
+     * @param data    The encoded bytes.
+     * @param library The library to fill (its MusicStore is the catalog).
+     * @return The stored username.
+     * @throws IOException If the data is not a valid library file or references unknown catalog albums.
+     */
+    public static String decode(byte[] data, LibraryModel library) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            for (byte expected : MAGIC) {
+                if (in.get() != expected) {
+                    throw new IOException("Not a binary library file.");
+                }
+            }
+            int version = readVarint(in);
+            if (version != VERSION && version != VERSION_WITH_CREDENTIALS) {
+                throw new IOException("Unsupported binary library version: " + version);
+            }
+
+            // Dictionary
+            String[] strings = new String[readVarint(in)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] utf8 = new byte[readVarint(in)];
+                in.get(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+
+            String username = strings[readVarint(in)];
+            if (version == VERSION_WITH_CREDENTIALS) {
+                readVarint(in); // Salt
+                readVarint(in); // Hashed password
+            }
+
+            // Albums
+            MusicStore catalog = library.getMusicStore();
+            List<Song> songsByOrdinal = new ArrayList<>();
+            int albumCount = readVarint(in);
+            for (int a = 0; a < albumCount; a++) {
+                boolean fromCatalog = (in.get() & FLAG_CATALOG) != 0;
+                String title = strings[readVarint(in)];
+                String artist = strings[readVarint(in)];
+                Album catalogAlbum = null;
+                Album album = null;
+                if (fromCatalog) {
+                    catalogAlbum = catalog.getAlbumByArtistAndTitle(artist, title);
+                    if (catalogAlbum == null) {
+                        throw new IOException("Album not in catalog: " + title + " by " + artist);
+                    }
+                } else {
+                    String genre = strings[readVarint(in)];
+                    album = new Album(title, artist, genre, readVarint(in));
+                }
+
+                // Catalog tracks are linked to the store's own Song objects; others are created
+                int songCount = readVarint(in);
+                List<Song> songs = new ArrayList<>(songCount);
+                for (int s = 0; s < songCount; s++) {
+                    if (fromCatalog) {
+                        List<Song> catalogSongs = catalogAlbum.getSongs();
+                        int track = readVarint(in);
+                        if (track >= catalogSongs.size()) {
+                            throw new IOException("Unknown track " + track + " on " + title);
+                        }
+                        songs.add(catalogSongs.get(track));
+                    } else {
+                        Song song = new Song(strings[readVarint(in)], strings[readVarint(in)], album);
+                        album.addSong(song);
+                        songs.add(song);
+                    }
+                }
+                if (fromCatalog) {
+                    album = library.linkCatalogSongs(catalogAlbum, songs);
+                }
+
+                // Ratings and favorites (the user's overlay on catalog tracks)
+                for (int s = 0; s < songCount; s += 2) {
+                    int packed = in.get() & 0xFF;
+                    applyNibble(library, songs.get(s), packed & 0xF);
+                    if (s + 1 < songCount) {
+                        applyNibble(library, songs.get(s + 1), packed >>> 4);
+                    }
+                }
+                songsByOrdinal.addAll(songs);
+                library.addAlbumDirect(album);
+            }
+
+            // Playlists
+            int playlistCount = readVarint(in);
+            for (int p = 0; p < playlistCount; p++) {
+                String name = strings[readVarint(in)];
+                Playlist playlist = library.getPlaylistByName(name);
+                if (playlist == null) {
+                    playlist = library.createPlaylist(name);
+                }
+                int songCount = readVarint(in);
+                for (int s = 0; s < songCount; s++) {
+                    playlist.addSong(songsByOrdinal.get(readVarint(in)));
+                }
+            }
+            return username;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt binary library file.", e);
+        }
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    /**
+     * Returns the catalog track number of each song if the album (metadata and every song)
+     * comes from the catalog, or null if it has to be stored in full.
+     */
+    private static int[] catalogTracks(Album album, List<Song> songs, MusicStore catalog) {
+        if (catalog == null) {
+            return null;
+        }
+        Album catalogAlbum = catalog.getAlbumByArtistAndTitle(album.getArtist(), album.getTitle());
+        if (catalogAlbum == null || !catalogAlbum.getTitle().equals(album.getTitle())
+                || !catalogAlbum.getArtist().equals(album.getArtist())
+                || !Objects.equals(catalogAlbum.getGenre(), album.getGenre())
+                || catalogAlbum.getYear() != album.getYear()) {
+            return null;
+        }
+        List<Song> catalogSongs = catalogAlbum.getSongs();
+        Map<String, Integer> trackByKey = new HashMap<>();
+        for (int i = catalogSongs.size() - 1; i >= 0; i--) {
+            trackByKey.put(catalogSongs.get(i).getTitle() + "\n" + catalogSongs.get(i).getArtist(), i);
+        }
+        int[] tracks = new int[songs.size()];
+        for (int i = 0; i < songs.size(); i++) {
+            Integer track = trackByKey.get(songs.get(i).getTitle() + "\n" + songs.get(i).getArtist());
+            if (track == null) {
+                return null;
+            }
+            tracks[i] = track;
+        }
+        return tracks;
+    }
+
+    private static int nibble(LibraryModel library, Song song) {
+        return library.getRating(song) | (library.isFavorite(song) ? FAVORITE_BIT : 0);
+    }
+
+    private static void applyNibble(LibraryModel library, Song song, int nibble) {
+        library.restoreSongState(song, nibble & 0x7, (nibble & FAVORITE_BIT) != 0); // 0 = unrated
+    }
+
+    private static int readVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Varint out of range.");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    /**
+     * Assigns each distinct string a dense index in first-use order.
+     */
+    private static final class Dictionary {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        private int indexOf(String string) {
+            String value = string == null ? "" : string;
+            Integer index = indices.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                indices.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Growable byte buffer with varint support.
+     */
+    private static final class ByteSink {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        private void writeByte(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        private void writeBytes(byte[] data) {
+            if (size + data.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + data.length));
+            }
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        private void writeVarint(int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Varints must not be negative.");
+            }
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
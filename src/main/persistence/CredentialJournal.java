@@ -0,0 +1,222 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: CredentialJournal.java
+ * Purpose: Append-only storage for user credentials. Each registration (or credential change) is
+ *          appended to a journal as one JSON line, so saving it costs O(1) I/O regardless of how many
+ *          users exist. The journal is periodically compacted into a snapshot (the users.json array)
+ *          once it holds as many entries as the snapshot, which keeps compaction cost amortized O(1)
+ *          per registration. Loading reads the snapshot into an index by username, then replays the
+ *          journal on top of it.
+ */
+package main.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+public class CredentialJournal {
+    public static final int MIN_COMPACTION_ENTRIES = 1024; // Journal entries always allowed before compacting
+
+    private final DataStore store;
+    private final String snapshotKey;
+    private final String journalKey;
+    private final Map<String, Credential> credentials; // Current credentials by username, snapshot order first
+    private int snapshotEntries;
+    private int journalEntries;
+    private long compactions;
+
+    /**
+     * Constructs a journal over two records of a store. Call load() before appending.
+     *
+     * @param store       The store holding both records.
+     * @param snapshotKey The snapshot record (a JSON array of credentials).
+     * @param journalKey  The journal record (one JSON object per line).
+     */
+    public CredentialJournal(DataStore store, String snapshotKey, String journalKey) {
+        if (store == null || snapshotKey == null || journalKey == null) {
+            throw new IllegalArgumentException("Store and keys cannot be null.");
+        }
+        this.store = store;
+        this.snapshotKey = snapshotKey;
+        this.journalKey = journalKey;
+        this.credentials = new LinkedHashMap<>();
+    }
+
+    // ================== LOADING ================== //
+
+    /**
+     * Reads the snapshot and replays the journal. A later entry for the same username
+     * replaces the earlier one.
+     *
+     * @return The current credentials, in registration order.
+     * @throws IOException If a record cannot be read or the snapshot is malformed.
+     */
+    public synchronized List<Credential> load() throws IOException {
+        credentials.clear();
+        snapshotEntries = 0;
+        journalEntries = 0;
+
+        byte[] snapshot = store.get(snapshotKey);
+        if (snapshot != null) {
+            try {
+                JSONArray usersArray = new JSONArray(new String(snapshot, StandardCharsets.UTF_8));
+                for (int i = 0; i < usersArray.length(); i++) {
+                    put(Credential.fromJson(usersArray.getJSONObject(i)));
+                }
+            } catch (JSONException e) {
+                throw new IOException("Malformed credential snapshot: " + snapshotKey, e);
+            }
+            snapshotEntries = credentials.size();
+        }
+
+        try (ReadableByteChannel channel = store.openForRead(journalKey)) {
+            if (channel != null) {
+                BufferedReader reader = new BufferedReader(
+                        Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        put(Credential.fromJson(new JSONObject(line)));
+                    } catch (JSONException e) {
+                        continue; // Torn line from a crash mid-append; it was never acknowledged
+                    }
+                    journalEntries++;
+                }
+            }
+        }
+        return new ArrayList<>(credentials.values());
+    }
+
+    // ================== WRITING ================== //
+
+    /**
+     * Durably records one user's credentials (new user or changed password hash). Compacts
+     * the journal into the snapshot when no snapshot exists yet or the journal has grown as
+     * large as the snapshot.
+     *
+     * @param credential The credentials to record.
+     * @throws IOException If the journal or snapshot cannot be written.
+     */
+    public synchronized void append(Credential credential) throws IOException {
+        if (credential == null) {
+            throw new IllegalArgumentException("Credential cannot be null.");
+        }
+        put(credential);
+        if (!store.exists(snapshotKey)) {
+            compact();
+            return;
+        }
+        store.append(journalKey, (credential.toJson().toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        journalEntries++;
+        if (journalEntries >= Math.max(MIN_COMPACTION_ENTRIES, snapshotEntries)) {
+            compact();
+        }
+    }
+
+    /**
+     * Replaces everything with the given credentials: writes a new snapshot and clears the journal.
+     *
+     * @param all The complete set of credentials.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public synchronized void writeSnapshot(Collection<Credential> all) throws IOException {
+        credentials.clear();
+        for (Credential credential : all) {
+            put(credential);
+        }
+        compact();
+    }
+
+    /**
+     * Folds the journal into a new snapshot. The snapshot is written before the journal is
+     * deleted, so a crash in between only replays entries the snapshot already contains.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public synchronized void compact() throws IOException {
+        JSONArray usersArray = new JSONArray();
+        for (Credential credential : credentials.values()) {
+            usersArray.put(credential.toJson());
+        }
+        store.put(snapshotKey, usersArray.toString(4).getBytes(StandardCharsets.UTF_8));
+        store.delete(journalKey);
+        snapshotEntries = credentials.size();
+        journalEntries = 0;
+        compactions++;
+    }
+
+    // ================== METRICS ================== //
+
+    public synchronized int getJournalEntries() {
+        return journalEntries;
+    }
+
+    public synchronized long getCompactionCount() {
+        return compactions;
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private void put(Credential credential) {
+        credentials.put(credential.getUsername(), credential);
+    }
+
+    /**
+     * One user's stored credentials.
+     */
+    public static final class Credential {
+        private final String username;
+        private final String salt;
+        private final String hashedPassword;
+
+        public Credential(String username, String salt, String hashedPassword) {
+            if (username == null || salt == null || hashedPassword == null) {
+                throw new IllegalArgumentException("Credential fields cannot be null.");
+            }
+            this.username = username;
+            this.salt = salt;
+            this.hashedPassword = hashedPassword;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getSalt() {
+            return salt;
+        }
+
+        public String getHashedPassword() {
+            return hashedPassword;
+        }
+
+        private JSONObject toJson() {
+            JSONObject userJson = new JSONObject();
+            userJson.put("username", username);
+            userJson.put("salt", salt); // Store password salt
+            userJson.put("hashedPassword", hashedPassword); // Store hashed password
+            return userJson;
+        }
+
+        private static Credential fromJson(JSONObject userJson) {
+            return new Credential(userJson.getString("username"), userJson.getString("salt"),
+                    userJson.getString("hashedPassword"));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: DataStore.java
+ * Purpose: Keyed storage used by User, UserManager and PlaybackTracker for credentials, libraries,
+ *          deltas and playback data. Keys are relative paths such as "users.json" or
+ *          "user_data/user_alice.json", so the file-based store keeps the historical layout while
+ *          other engines (see LogStructuredStore) can keep every record in a single file.
+ */
+package main.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+public interface DataStore {
+
+    /**
+     * Opens a record for streaming reads.
+     *
+     * @param key The record key.
+     * @return A channel over the value (the caller closes it), or null if there is no such record.
+     * @throws IOException If the record cannot be read.
+     */
+    ReadableByteChannel openForRead(String key) throws IOException;
+
+    /**
+     * Replaces a record with streamed content. The write is atomic and durable when it returns.
+     *
+     * @param key     The record key.
+     * @param content Writes the new value.
+     * @throws IOException If the record cannot be written.
+     */
+    void write(String key, AtomicFileWriter.Content content) throws IOException;
+
+    /**
+     * Appends bytes to a record (creating it if needed) and makes them durable. Data ending in
+     * a newline is a line record: it always starts on a line of its own, even if a crash tore
+     * the previous append.
+     *
+     * @param key  The record key.
+     * @param data The bytes to append.
+     * @throws IOException If the record cannot be written.
+     */
+    void append(String key, byte[] data) throws IOException;
+
+    /**
+     * Removes a record.
+     *
+     * @param key The record key.
+     * @return True if a record was removed.
+     * @throws IOException If the record cannot be removed.
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Returns the size of a record in bytes.
+     *
+     * @param key The record key.
+     * @return The size, or -1 if there is no such record.
+     */
+    long size(String key);
+
+    /**
+     * Lists the keys that start with a prefix (e.g. "user_data/user_").
+     *
+     * @param prefix The key prefix.
+     * @return The matching keys.
+     * @throws IOException If the keys cannot be listed.
+     */
+    List<String> keys(String prefix) throws IOException;
+
+    // ================== CONVENIENCE METHODS ================== //
+
+    default boolean exists(String key) {
+        return size(key) >= 0;
+    }
+
+    /**
+     * Reads a whole record.
+     *
+     * @param key The record key.
+     * @return The value, or null if there is no such record.
+     * @throws IOException If the record cannot be read.
+     */
+    default byte[] get(String key) throws IOException {
+        try (ReadableByteChannel channel = openForRead(key)) {
+            if (channel == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                out.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Replaces a record with the given bytes.
+     *
+     * @param key   The record key.
+     * @param value The new value.
+     * @throws IOException If the record cannot be written.
+     */
+    default void put(String key, byte[] value) throws IOException {
+        write(key, channel -> Channels.newOutputStream(channel).write(value));
+    }
+}
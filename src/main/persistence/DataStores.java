@@ -0,0 +1,74 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: DataStores.java
+ * Purpose: Chooses the DataStore used for user data. The engine is picked per deployment with the
+ *          system property "musiclibrary.storage": "files" (default) keeps one file per record under
+ *          the working directory, "single-file" keeps every record in user_data/musiclibrary.db.
+ */
+package main.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public final class DataStores {
+    public static final String STORAGE_PROPERTY = "musiclibrary.storage";
+    public static final String SINGLE_FILE_PATH = "user_data/musiclibrary.db";
+
+    private static DataStore defaultStore; // Created on first use
+
+    private DataStores() {
+    }
+
+    /**
+     * Returns the store used by User, UserManager and PlaybackTracker.
+     *
+     * @return The deployment's data store.
+     * @throws UncheckedIOException If the single-file store cannot be opened.
+     */
+    public static synchronized DataStore getDefault() {
+        if (defaultStore == null) {
+            defaultStore = create(System.getProperty(STORAGE_PROPERTY), Paths.get(""));
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Overrides the deployment store (e.g. from a launcher or a test). The previous store is
+     * not closed.
+     *
+     * @param store The store to use from now on.
+     */
+    public static synchronized void setDefault(DataStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("Store cannot be null.");
+        }
+        defaultStore = store;
+    }
+
+    /**
+     * Creates a store by engine name (case-insensitive); null or empty means "files".
+     *
+     * @param name The engine name.
+     * @param root The directory the store lives in.
+     * @return The new store.
+     * @throws IllegalArgumentException If the name is not a known engine.
+     * @throws UncheckedIOException     If the single-file store cannot be opened.
+     */
+    public static DataStore create(String name, Path root) {
+        if (name == null || name.trim().isEmpty() || name.trim().equalsIgnoreCase("files")) {
+            return new FileDataStore(root);
+        }
+        if (name.trim().equalsIgnoreCase("single-file")) {
+            try {
+                return new LogStructuredStore(root.resolve(SINGLE_FILE_PATH));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open " + SINGLE_FILE_PATH, e);
+            }
+        }
+        throw new IllegalArgumentException("Unknown storage engine: " + name);
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: FileDataStore.java
+ * Purpose: DataStore that keeps every record in its own file under a root directory (the original
+ *          layout: users.json plus user_data/user_<name>.json, .delta and playback_<name>.json).
+ *          Replacements go through AtomicFileWriter, appends are fsynced before returning.
+ */
+package main.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class FileDataStore implements DataStore {
+    private final Path root;
+    private final AtomicFileWriter writer;
+
+    /**
+     * Constructs a store rooted at a directory, writing through the shared AtomicFileWriter.
+     *
+     * @param root The directory keys are resolved against.
+     */
+    public FileDataStore(Path root) {
+        this(root, AtomicFileWriter.getShared());
+    }
+
+    /**
+     * Constructs a store rooted at a directory.
+     *
+     * @param root   The directory keys are resolved against.
+     * @param writer The writer used for atomic replacements.
+     */
+    public FileDataStore(Path root, AtomicFileWriter writer) {
+        if (root == null || writer == null) {
+            throw new IllegalArgumentException("Root and writer cannot be null.");
+        }
+        this.root = root;
+        this.writer = writer;
+    }
+
+    // ================== DATASTORE ================== //
+
+    @Override
+    public ReadableByteChannel openForRead(String key) throws IOException {
+        try {
+            return FileChannel.open(resolve(key), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void write(String key, AtomicFileWriter.Content content) throws IOException {
+        Path path = resolve(key);
+        createParent(path);
+        writer.write(path, content);
+    }
+
+    @Override
+    public void append(String key, byte[] data) throws IOException {
+        Path path = resolve(key);
+        createParent(path);
+        boolean endTornLine = endsLine(data) && !endsLine(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (endTornLine) {
+                // A crash mid-append left a torn last line; end it so this line stays readable
+                writeFully(channel, ByteBuffer.wrap(new byte[] { '\n' }));
+            }
+            writeFully(channel, ByteBuffer.wrap(data));
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public long size(String key) {
+        Path path = resolve(key);
+        try {
+            return Files.isRegularFile(path) ? Files.size(path) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public List<String> keys(String prefix) throws IOException {
+        int slash = prefix.lastIndexOf('/');
+        String directoryKey = slash < 0 ? "" : prefix.substring(0, slash + 1);
+        String namePrefix = prefix.substring(slash + 1);
+        Path directory = directoryKey.isEmpty() ? root : resolve(directoryKey);
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+
+        List<String> keys = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(namePrefix)) {
+                    keys.add(directoryKey + name);
+                }
+            });
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private Path resolve(String key) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("Key cannot be empty.");
+        }
+        return root.resolve(key);
+    }
+
+    private static boolean endsLine(byte[] data) {
+        return data.length > 0 && data[data.length - 1] == '\n';
+    }
+
+    /**
+     * Returns true if the file is missing or empty, or its last byte ends a line.
+     */
+    private static boolean endsLine(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return size == 0 || (channel.read(last, size - 1) == 1 && last.get(0) == '\n');
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void createParent(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileDataStore[" + root + "]";
+    }
+}
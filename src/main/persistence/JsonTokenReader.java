@@ -0,0 +1,488 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: JsonTokenReader.java
+ * Purpose: Streaming, pull-based JSON reader over a buffered NIO channel. Callers walk the document
+ *          token by token (beginObject, nextName, nextString, ...) and build their own objects directly,
+ *          so no DOM and no copy of the whole file is ever held in memory. Small sub-trees can still be
+ *          read as org.json values with readJsonValue().
+ */
+package main.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+public class JsonTokenReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The kinds of tokens in a JSON document.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // Nesting contexts
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5; // Name read, value expected
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer bytes; // Raw bytes, write mode
+    private final CharBuffer chars; // Decoded characters, read mode
+    private final CharsetDecoder decoder;
+    private final StringBuilder text; // Reused for strings and literals
+    private boolean endOfInput;
+    private int[] stack; // Nesting contexts, innermost last
+    private int depth;
+    private Token peeked; // Next token, if already determined
+
+    /**
+     * Constructs a reader over a channel. The caller keeps ownership of the channel.
+     *
+     * @param channel The channel to read UTF-8 JSON from.
+     */
+    public JsonTokenReader(ReadableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null.");
+        }
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        this.chars = CharBuffer.allocate(BUFFER_SIZE);
+        this.chars.flip(); // Start empty
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.text = new StringBuilder();
+        this.stack = new int[16];
+        this.stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    // ================== STRUCTURE ================== //
+
+    /**
+     * Returns the type of the next token without consuming it.
+     *
+     * @return The next token.
+     * @throws IOException If the input cannot be read or is malformed.
+     */
+    public Token peek() throws IOException {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    /**
+     * Returns true if the current array or object has another element.
+     *
+     * @return True if another element follows.
+     * @throws IOException If the input cannot be read or is malformed.
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        read();
+        push(EMPTY_OBJECT);
+        peeked = null;
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        read();
+        depth--;
+        peeked = null;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        read();
+        push(EMPTY_ARRAY);
+        peeked = null;
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        read();
+        depth--;
+        peeked = null;
+    }
+
+    // ================== VALUES ================== //
+
+    /**
+     * Consumes the next property name.
+     *
+     * @return The name.
+     * @throws IOException If the next token is not a name.
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        read(); // Opening quote
+        peeked = null;
+        return readString();
+    }
+
+    /**
+     * Consumes the next string value. Numbers are returned as their literal text.
+     *
+     * @return The string.
+     * @throws IOException If the next token is not a string or number.
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        peeked = null;
+        if (token == Token.STRING) {
+            read(); // Opening quote
+            return readString();
+        }
+        if (token == Token.NUMBER) {
+            return readLiteral();
+        }
+        throw syntaxError("Expected a string but was " + token);
+    }
+
+    /**
+     * Consumes the next number value (numeric strings are accepted too).
+     *
+     * @return The number as a long.
+     * @throws IOException If the next token is not a number.
+     */
+    public long nextLong() throws IOException {
+        Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        String literal = nextString();
+        try {
+            return Long.parseLong(literal);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(literal);
+            } catch (NumberFormatException notNumeric) {
+                throw syntaxError("Expected a number but was \"" + literal + "\"");
+            }
+        }
+    }
+
+    public int nextInt() throws IOException {
+        return (int) nextLong();
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        peeked = null;
+        String literal = readLiteral();
+        if (literal.equals("true")) {
+            return true;
+        }
+        if (literal.equals("false")) {
+            return false;
+        }
+        throw syntaxError("Unexpected literal " + literal);
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        peeked = null;
+        String literal = readLiteral();
+        if (!literal.equals("null")) {
+            throw syntaxError("Unexpected literal " + literal);
+        }
+    }
+
+    /**
+     * Skips the next value, including all nested values.
+     *
+     * @throws IOException If the input cannot be read or is malformed.
+     */
+    public void skipValue() throws IOException {
+        readJsonValue(); // Sub-trees that are skipped are small in our files
+    }
+
+    /**
+     * Reads the next value as an org.json value (JSONObject, JSONArray, String, Long/Double, Boolean
+     * or JSONObject.NULL). Meant for small sub-trees.
+     *
+     * @return The value.
+     * @throws IOException If the input cannot be read or is malformed.
+     */
+    public Object readJsonValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                JSONObject object = new JSONObject();
+                beginObject();
+                while (hasNext()) {
+                    String name = nextName();
+                    object.put(name, readJsonValue());
+                }
+                endObject();
+                return object;
+            case BEGIN_ARRAY:
+                JSONArray array = new JSONArray();
+                beginArray();
+                while (hasNext()) {
+                    array.put(readJsonValue());
+                }
+                endArray();
+                return array;
+            case STRING:
+                return nextString();
+            case NUMBER:
+                String literal = nextString();
+                try {
+                    return Long.parseLong(literal);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(literal);
+                }
+            case BOOLEAN:
+                return nextBoolean();
+            case NULL:
+                nextNull();
+                return JSONObject.NULL;
+            default:
+                throw syntaxError("Expected a value but was " + peek());
+        }
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    /**
+     * Consumes separators up to the next token and determines its type.
+     */
+    private Token doPeek() throws IOException {
+        int context = stack[depth - 1];
+        int c;
+        switch (context) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                if (peekNonWhitespace() == ']') {
+                    return Token.END_ARRAY;
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                c = peekNonWhitespace();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                }
+                consumeSeparator(',');
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = peekNonWhitespace();
+                if (c == '}') {
+                    return Token.END_OBJECT;
+                }
+                if (context == NONEMPTY_OBJECT) {
+                    consumeSeparator(',');
+                }
+                stack[depth - 1] = DANGLING_NAME;
+                if (peekNonWhitespace() != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                return Token.NAME;
+            case DANGLING_NAME:
+                consumeSeparator(':');
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default: // NONEMPTY_DOCUMENT
+                if (peekNonWhitespace() == -1) {
+                    return Token.END_DOCUMENT;
+                }
+                throw syntaxError("Unexpected data after the document");
+        }
+
+        c = peekNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void consumeSeparator(char separator) throws IOException {
+        if (peekNonWhitespace() != separator) {
+            throw syntaxError("Expected '" + separator + "'");
+        }
+        read();
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+    }
+
+    private void push(int context) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = context;
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote was consumed, decoding escapes.
+     */
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (!chars.hasRemaining() && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            // Copy runs of plain characters in bulk
+            int start = chars.position();
+            int limit = chars.limit();
+            int i = start;
+            while (i < limit) {
+                char c = chars.get(i);
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                i++;
+            }
+            text.append(chars, 0, i - start); // Relative to the current position
+            chars.position(i);
+            if (i == limit) {
+                continue; // Need more input
+            }
+            char c = chars.get();
+            if (c == '"') {
+                return text.toString();
+            }
+            text.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n': return '\n';
+            case 't': return '\t';
+            case 'r': return '\r';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * Reads an unquoted literal (number, true, false, null).
+     */
+    private String readLiteral() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = peekChar();
+            if (c == -1 || c == ',' || c == ':' || c == ']' || c == '}' || c == '[' || c == '{'
+                    || c == '"' || Character.isWhitespace(c)) {
+                return text.toString();
+            }
+            text.append((char) read());
+        }
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        while (true) {
+            int c = peekChar();
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                chars.get();
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private int peekChar() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return chars.get(chars.position());
+    }
+
+    private int read() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return chars.get();
+    }
+
+    /**
+     * Decodes more bytes from the channel into the character buffer.
+     *
+     * @return False once the input is exhausted.
+     */
+    private boolean fill() throws IOException {
+        chars.compact();
+        try {
+            while (chars.position() == 0 && !endOfInput) {
+                if (channel.read(bytes) < 0) {
+                    endOfInput = true;
+                }
+                bytes.flip();
+                decoder.decode(bytes, chars, endOfInput);
+                if (endOfInput) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+            }
+        } finally {
+            chars.flip();
+        }
+        return chars.hasRemaining();
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -0,0 +1,305 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: JsonTokenWriter.java
+ * Purpose: Streaming JSON writer over an NIO channel. Values are encoded into a fixed-size buffer and
+ *          written to the channel as the buffer fills, so saving never builds a DOM or a String of
+ *          the whole file. Supports optional indentation to keep files readable.
+ */
+package main.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.json.JSONObject;
+
+public class JsonTokenWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SPACES = "                                "; // Indentation, written in bulk
+
+    // Nesting contexts
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5; // Name written, value expected
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final WritableByteChannel channel;
+    private final int indent; // Spaces per level, 0 for compact output
+    private final CharBuffer chars; // Pending characters, write mode
+    private final ByteBuffer bytes; // Encoded bytes, write mode
+    private final CharsetEncoder encoder;
+    private int[] stack; // Nesting contexts, innermost last
+    private int depth;
+
+    /**
+     * Constructs a writer over a channel. The caller keeps ownership of the channel
+     * and must call flush() when done.
+     *
+     * @param channel The channel to write UTF-8 JSON to.
+     * @param indent  Spaces per nesting level (0 for compact output).
+     */
+    public JsonTokenWriter(WritableByteChannel channel, int indent) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null.");
+        }
+        if (indent < 0) {
+            throw new IllegalArgumentException("Indent cannot be negative.");
+        }
+        this.channel = channel;
+        this.indent = indent;
+        this.chars = CharBuffer.allocate(BUFFER_SIZE);
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE * 2);
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.stack = new int[16];
+        this.stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    // ================== STRUCTURE ================== //
+
+    public JsonTokenWriter beginObject() throws IOException {
+        beforeValue();
+        write('{');
+        push(EMPTY_OBJECT);
+        return this;
+    }
+
+    public JsonTokenWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    public JsonTokenWriter beginArray() throws IOException {
+        beforeValue();
+        write('[');
+        push(EMPTY_ARRAY);
+        return this;
+    }
+
+    public JsonTokenWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes a property name; the next call must write its value.
+     *
+     * @param name The property name.
+     * @return This writer.
+     * @throws IOException If the output cannot be written.
+     */
+    public JsonTokenWriter name(String name) throws IOException {
+        int context = stack[depth - 1];
+        if (context != EMPTY_OBJECT && context != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("Names are only allowed inside objects.");
+        }
+        if (context == NONEMPTY_OBJECT) {
+            write(',');
+        }
+        newline();
+        writeQuoted(name);
+        write(':');
+        if (indent > 0) {
+            write(' ');
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        return this;
+    }
+
+    // ================== VALUES ================== //
+
+    public JsonTokenWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeQuoted(value);
+        return this;
+    }
+
+    public JsonTokenWriter value(long value) throws IOException {
+        beforeValue();
+        write(Long.toString(value));
+        return this;
+    }
+
+    public JsonTokenWriter value(boolean value) throws IOException {
+        beforeValue();
+        write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonTokenWriter nullValue() throws IOException {
+        beforeValue();
+        write("null");
+        return this;
+    }
+
+    /**
+     * Writes an org.json value (compact). Meant for small sub-trees.
+     *
+     * @param value A JSONObject, JSONArray or plain value.
+     * @return This writer.
+     * @throws IOException If the output cannot be written.
+     */
+    public JsonTokenWriter jsonValue(Object value) throws IOException {
+        beforeValue();
+        write(JSONObject.valueToString(value));
+        return this;
+    }
+
+    /**
+     * Writes all buffered output to the channel.
+     *
+     * @throws IOException If the output cannot be written.
+     */
+    public void flush() throws IOException {
+        encode(true);
+        encoder.reset();
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private JsonTokenWriter close(int empty, int nonempty, char bracket) throws IOException {
+        int context = stack[depth - 1];
+        if (context != empty && context != nonempty) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        depth--;
+        if (context == nonempty) {
+            newline();
+        }
+        write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the separator that precedes a value in the current context.
+     */
+    private void beforeValue() throws IOException {
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                newline();
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                newline();
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("A name is required before an object value.");
+        }
+    }
+
+    private void push(int context) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = context;
+    }
+
+    private void newline() throws IOException {
+        if (indent == 0) {
+            return;
+        }
+        write('\n');
+        int spaces = (depth - 1) * indent;
+        while (spaces > 0) {
+            int count = Math.min(spaces, SPACES.length());
+            write(SPACES, 0, count);
+            spaces -= count;
+        }
+    }
+
+    private void writeQuoted(String value) throws IOException {
+        write('"');
+        int plainStart = 0; // Start of the current run of characters that need no escaping
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            write(value, plainStart, i);
+            plainStart = i + 1;
+            switch (c) {
+                case '"': write("\\\""); break;
+                case '\\': write("\\\\"); break;
+                case '\n': write("\\n"); break;
+                case '\r': write("\\r"); break;
+                case '\t': write("\\t"); break;
+                case '\b': write("\\b"); break;
+                case '\f': write("\\f"); break;
+                default: write(String.format("\\u%04x", (int) c));
+            }
+        }
+        write(value, plainStart, value.length());
+        write('"');
+    }
+
+    private void write(String text) throws IOException {
+        write(text, 0, text.length());
+    }
+
+    private void write(String text, int start, int end) throws IOException {
+        if (chars.remaining() >= end - start) {
+            chars.put(text, start, end); // Common case: fits in the buffer
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            write(text.charAt(i));
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+    }
+
+    /**
+     * Encodes pending characters and writes the bytes to the channel. A trailing high surrogate
+     * stays buffered until its pair arrives (unless this is the end of input).
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (!result.isOverflow()) {
+                break;
+            }
+            drain();
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+        }
+        chars.compact();
+        drain();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LibraryFormat.java
+ * Purpose: On-disk formats for per-user library files. The format is chosen per deployment with the
+ *          system property "musiclibrary.format" (json or binary, default json). Files found in the
+ *          other format are converted to the deployment format the first time they are loaded.
+ */
+package main.persistence;
+
+public enum LibraryFormat {
+    JSON(".json"),
+    BINARY(".bin");
+
+    public static final String FORMAT_PROPERTY = "musiclibrary.format";
+
+    private static volatile LibraryFormat deploymentFormat = fromName(System.getProperty(FORMAT_PROPERTY));
+
+    private final String extension;
+
+    LibraryFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the file extension (including the dot) used for this format.
+     *
+     * @return The extension.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Returns the other format, which is converted from on first load.
+     *
+     * @return The other format.
+     */
+    public LibraryFormat other() {
+        return this == JSON ? BINARY : JSON;
+    }
+
+    // ================== DEPLOYMENT SETTING ================== //
+
+    public static LibraryFormat getDeploymentFormat() {
+        return deploymentFormat;
+    }
+
+    /**
+     * Overrides the deployment format (e.g. from a launcher or a test).
+     *
+     * @param format The format new library files are written in.
+     */
+    public static void setDeploymentFormat(LibraryFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format cannot be null.");
+        }
+        deploymentFormat = format;
+    }
+
+    /**
+     * Parses a format name (case-insensitive); null or empty means JSON.
+     *
+     * @param name The format name.
+     * @return The format.
+     * @throws IllegalArgumentException If the name is not a known format.
+     */
+    public static LibraryFormat fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return JSON;
+        }
+        for (LibraryFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown library format: " + name);
+    }
+}
@@ -0,0 +1,749 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LogStructuredStore.java
+ * Purpose: Embedded single-file key-value engine for user data. The data file is an append-only log
+ *          that doubles as the write-ahead log: every put or delete is appended as a checksummed record
+ *          and fsynced before it is acknowledged, and an in-memory index maps each key to its newest
+ *          value. Appends are logged as fragments, so growing a journal record costs only the new
+ *          bytes. Opening the store replays the log and truncates a torn tail left by a crash.
+ *          Values written through write() are streamed into the log rather than built in memory.
+ *          Superseded records are reclaimed by a background compaction that copies the live records
+ *          into a fresh file while writers carry on, then blocks them only to copy what they appended
+ *          in the meantime and atomically swap the new file in.
+ */
+package main.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+public class LogStructuredStore implements DataStore, Closeable {
+    private static final byte[] MAGIC = {'M', 'L', 'K', 'V'};
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8; // Magic + version
+    private static final int RECORD_HEADER_SIZE = 13; // CRC, type, key length, value length
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_APPEND = 3; // Fragment added to the end of the key's value
+    public static final long DEFAULT_MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private final Path path;
+    private final long minCompactionBytes; // Never compact files smaller than this
+    private final Object appendLock; // Serializes writes at the end of the file and the compaction swap
+    private final ReentrantReadWriteLock lock; // Write lock for index updates and the compaction swap
+    private final Object syncLock; // Serializes fsyncs; held by compaction while it swaps files
+    private final Object compactionLock; // One compaction at a time
+    private final TreeMap<String, Entry> index; // Changed under appendLock and lock's write lock
+    private final ExecutorService compactor;
+    private final AtomicBoolean compactionScheduled;
+    private volatile FileChannel channel;
+    private volatile long fileEnd; // Offset where the next record goes
+    private long liveBytes; // Bytes of records the index still points to; guarded like index
+    private long syncedOffset; // Everything before this offset is durable; guarded by syncLock
+    private volatile long generation; // Incremented by each compaction under all three locks
+    private boolean closed;
+    private final AtomicLong syncCount;
+    private final AtomicLong compactionCount;
+
+    /**
+     * Opens (or creates) a store with the default compaction threshold.
+     *
+     * @param path The data file.
+     * @throws IOException If the file cannot be opened or is not a store file.
+     */
+    public LogStructuredStore(Path path) throws IOException {
+        this(path, DEFAULT_MIN_COMPACTION_BYTES);
+    }
+
+    /**
+     * Opens (or creates) a store and replays its log into the index.
+     *
+     * @param path               The data file.
+     * @param minCompactionBytes Smallest file size at which background compaction kicks in.
+     * @throws IOException If the file cannot be opened or is not a store file.
+     */
+    public LogStructuredStore(Path path, long minCompactionBytes) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        if (minCompactionBytes < 0) {
+            throw new IllegalArgumentException("Compaction threshold cannot be negative.");
+        }
+        this.path = path.toAbsolutePath();
+        this.minCompactionBytes = minCompactionBytes;
+        this.appendLock = new Object();
+        this.lock = new ReentrantReadWriteLock();
+        this.syncLock = new Object();
+        this.compactionLock = new Object();
+        this.index = new TreeMap<>();
+        this.compactionScheduled = new AtomicBoolean();
+        this.syncCount = new AtomicLong();
+        this.compactionCount = new AtomicLong();
+
+        Files.createDirectories(this.path.getParent());
+        Files.deleteIfExists(compactionPath()); // Left over from a compaction that did not finish
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.syncedOffset = fileEnd;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ================== DATASTORE ================== //
+
+    @Override
+    public ReadableByteChannel openForRead(String key) throws IOException {
+        byte[] value = get(key);
+        return value == null ? null : Channels.newChannel(new ByteArrayInputStream(value));
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        checkKey(key);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Entry entry = index.get(key);
+            return entry == null ? null : readValue(channel, entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void write(String key, AtomicFileWriter.Content content) throws IOException {
+        checkKey(key);
+        if (content == null) {
+            throw new IllegalArgumentException("Content cannot be null.");
+        }
+        appendStreamedRecord(key, content);
+    }
+
+    @Override
+    public void put(String key, byte[] value) throws IOException {
+        checkKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null.");
+        }
+        appendRecord(TYPE_PUT, key, value);
+    }
+
+    @Override
+    public void append(String key, byte[] data) throws IOException {
+        checkKey(key);
+        if (data == null) {
+            throw new IllegalArgumentException("Data cannot be null.");
+        }
+        appendRecord(TYPE_APPEND, key, data);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        checkKey(key);
+        return appendRecord(TYPE_DELETE, key, new byte[0]);
+    }
+
+    @Override
+    public long size(String key) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(key);
+            return entry == null ? -1 : entry.totalLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> keys(String prefix) {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(index.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ================== COMPACTION ================== //
+
+    /**
+     * Rewrites the live records into a new file and swaps it in, dropping superseded values and
+     * tombstones. The live records are copied without blocking readers or writers; writers are
+     * blocked only while the records they appended during the copy are added and the files are
+     * swapped. Runs in the background on its own; callable directly (e.g. from tests or tools).
+     *
+     * @throws IOException If the new file cannot be written; the old file stays in use.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            TreeMap<String, Entry> live;
+            FileChannel source;
+            long copiedEnd;
+            lock.readLock().lock();
+            try {
+                checkOpen();
+                live = new TreeMap<>(index);
+                source = channel;
+                copiedEnd = fileEnd;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            Path temp = compactionPath();
+            try {
+                // Copy the records live at copiedEnd; the file before that offset never changes
+                TreeMap<String, Entry> compacted = new TreeMap<>();
+                long offset = FILE_HEADER_SIZE;
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    writeFully(out, fileHeader(), 0);
+                    for (Map.Entry<String, Entry> entry : live.entrySet()) {
+                        // Appended fragments are merged into a single record
+                        ByteBuffer record = encodeRecord(TYPE_PUT, entry.getKey(), readValue(source, entry.getValue()));
+                        int recordLength = record.remaining();
+                        writeFully(out, record, offset);
+                        compacted.put(entry.getKey(), new Entry(offset, recordLength, entry.getValue().totalLength, null));
+                        offset += recordLength;
+                    }
+                    out.force(true);
+                }
+                swapIn(temp, compacted, offset, copiedEnd);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stops background compaction and closes the data file. Everything acknowledged so far is
+     * already durable.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (appendLock) {
+            synchronized (syncLock) {
+                lock.writeLock().lock();
+                try {
+                    if (!closed) {
+                        closed = true;
+                        channel.close();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    // ================== METRICS ================== //
+
+    public long getFileSize() {
+        return fileEnd;
+    }
+
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes + FILE_HEADER_SIZE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    /**
+     * Appends one record, updates the index, and waits until the record is durable.
+     *
+     * @param type  PUT, APPEND or DELETE.
+     * @param key   The record key.
+     * @param value The value (PUT) or the bytes to add to the current value (APPEND).
+     * @return False for a DELETE of a missing key (nothing is written), true otherwise.
+     */
+    private boolean appendRecord(byte type, String key, byte[] value) throws IOException {
+        long end;
+        long appendGeneration;
+        synchronized (appendLock) {
+            checkOpen();
+            if (type == TYPE_DELETE && !index.containsKey(key)) {
+                return false;
+            }
+            ByteBuffer record = encodeRecord(type, key, value);
+            int recordLength = record.remaining();
+            long offset = fileEnd;
+            writeFully(channel, record, offset);
+            end = publish(type, key, offset, recordLength, value.length);
+            appendGeneration = generation;
+        }
+
+        sync(end, appendGeneration);
+        scheduleCompactionIfNeeded();
+        return true;
+    }
+
+    /**
+     * Appends a PUT record whose value is streamed straight into the file, then waits until it
+     * is durable. The checksum covers the header first, so it is computed by reading the value
+     * back once its length is known; the header is written last, and a crash before that
+     * leaves a record that recovery discards.
+     *
+     * @param key     The record key.
+     * @param content Writes the value.
+     */
+    private void appendStreamedRecord(String key, AtomicFileWriter.Content content) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long end;
+        long appendGeneration;
+        synchronized (appendLock) {
+            checkOpen();
+            long offset = fileEnd;
+            long valueOffset = offset + RECORD_HEADER_SIZE + keyBytes.length;
+            int valueLength;
+            try {
+                PositionedChannel value = new PositionedChannel(channel, valueOffset);
+                content.writeTo(value);
+                if (value.position - offset > Integer.MAX_VALUE) {
+                    throw new IOException("Value too large for " + key);
+                }
+                valueLength = (int) (value.position - valueOffset);
+
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length);
+                header.putInt(0); // CRC placeholder
+                header.put(TYPE_PUT);
+                header.putInt(keyBytes.length);
+                header.putInt(valueLength);
+                header.put(keyBytes);
+                CRC32 checksum = new CRC32();
+                checksum.update(header.array(), 4, header.capacity() - 4);
+                updateChecksum(checksum, channel, valueOffset, valueLength);
+                header.putInt(0, (int) checksum.getValue());
+                header.flip();
+                writeFully(channel, header, offset);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    channel.truncate(offset); // Drop the partial record
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            end = publish(TYPE_PUT, key, offset, RECORD_HEADER_SIZE + keyBytes.length + valueLength, valueLength);
+            appendGeneration = generation;
+        }
+
+        sync(end, appendGeneration);
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Makes a record written at the end of the file visible to readers. Called under appendLock.
+     *
+     * @return The new end of the file.
+     */
+    private long publish(byte type, String key, long offset, int recordLength, int valueLength) {
+        lock.writeLock().lock();
+        try {
+            liveBytes += applyRecord(index, type, key, offset, recordLength, valueLength);
+            fileEnd = offset + recordLength;
+            return fileEnd;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finishes a compaction: blocks writers, copies the records appended since copiedEnd into
+     * the new file, and swaps it in.
+     *
+     * @param temp      The new file, holding the records live at copiedEnd.
+     * @param compacted The index of the new file.
+     * @param offset    End of the new file.
+     * @param copiedEnd End of the old file when the copy started.
+     */
+    private void swapIn(Path temp, TreeMap<String, Entry> compacted, long offset, long copiedEnd) throws IOException {
+        synchronized (appendLock) {
+            synchronized (syncLock) {
+                lock.writeLock().lock();
+                try {
+                    checkOpen();
+                    long compactedLive = offset - FILE_HEADER_SIZE;
+                    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                        for (long tail = copiedEnd; tail < fileEnd; ) {
+                            recordHeader.clear();
+                            readFully(channel, recordHeader, tail);
+                            byte type = recordHeader.get(4);
+                            int keyLength = recordHeader.getInt(5);
+                            int valueLength = recordHeader.getInt(9);
+                            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyLength + valueLength);
+                            readFully(channel, record, tail);
+                            String key = new String(record.array(), RECORD_HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+                            record.flip();
+                            writeFully(out, record, offset);
+                            compactedLive += applyRecord(compacted, type, key, offset, record.capacity(), valueLength);
+                            offset += record.capacity();
+                            tail += record.capacity();
+                        }
+                        out.force(true);
+                    }
+
+                    try {
+                        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    syncDirectory(path.getParent());
+
+                    FileChannel old = channel;
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    old.close();
+                    index.clear();
+                    index.putAll(compacted);
+                    fileEnd = offset;
+                    liveBytes = compactedLive;
+                    syncedOffset = offset;
+                    generation++;
+                    compactionCount.incrementAndGet();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates an index for a record written at the given offset.
+     *
+     * @return The change in live bytes.
+     */
+    private static long applyRecord(Map<String, Entry> target, byte type, String key, long offset,
+            int recordLength, int valueLength) {
+        Entry previous = target.get(key);
+        if (type == TYPE_APPEND) {
+            target.put(key, new Entry(offset, recordLength, valueLength, previous));
+            return recordLength;
+        }
+        long change = previous == null ? 0 : -previous.chainRecordLength;
+        if (type == TYPE_PUT) {
+            target.put(key, new Entry(offset, recordLength, valueLength, null));
+            change += recordLength;
+        } else {
+            target.remove(key);
+        }
+        return change;
+    }
+
+    /**
+     * Makes everything up to the given offset durable. Appends that arrive while one thread is
+     * fsyncing are covered by the next fsync together (group commit).
+     */
+    private void sync(long end, long appendGeneration) throws IOException {
+        synchronized (syncLock) {
+            if (generation != appendGeneration || syncedOffset >= end) {
+                return; // A compaction or another thread's fsync already covered this record
+            }
+            checkOpen();
+            long target = fileEnd;
+            channel.force(false);
+            syncedOffset = target;
+            syncCount.incrementAndGet();
+        }
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        long size = fileEnd;
+        long garbage;
+        lock.readLock().lock();
+        try {
+            garbage = size - FILE_HEADER_SIZE - liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (size < minCompactionBytes || garbage * 2 < size) {
+            return; // Less than half of the file is reclaimable
+        }
+        if (compactionScheduled.compareAndSet(false, true)) {
+            try {
+                compactor.execute(() -> {
+                    compactionScheduled.set(false);
+                    try {
+                        compact();
+                    } catch (IOException | IllegalStateException e) {
+                        // Compaction is retried after the next write; the current file stays valid
+                    }
+                });
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                compactionScheduled.set(false); // Closing
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index by replaying the log. A torn or corrupt record ends the log: it and
+     * anything after it were never acknowledged, so the file is truncated there.
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            writeFully(channel, fileHeader(), 0);
+            channel.force(true);
+            fileEnd = FILE_HEADER_SIZE;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        readFully(channel, header, 0);
+        byte[] magic = new byte[MAGIC.length];
+        header.flip();
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a store file: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported store version " + version + " in " + path);
+        }
+
+        long offset = FILE_HEADER_SIZE;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, offset);
+            recordHeader.flip();
+            int crc = recordHeader.getInt();
+            byte type = recordHeader.get();
+            int keyLength = recordHeader.getInt();
+            int valueLength = recordHeader.getInt();
+            if ((type != TYPE_PUT && type != TYPE_DELETE && type != TYPE_APPEND) || keyLength <= 0 || valueLength < 0
+                    || offset + RECORD_HEADER_SIZE + (long) keyLength + valueLength > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(keyLength + valueLength);
+            readFully(channel, body, offset + RECORD_HEADER_SIZE);
+            CRC32 checksum = new CRC32();
+            checksum.update(recordHeader.array(), 4, RECORD_HEADER_SIZE - 4);
+            checksum.update(body.array());
+            if ((int) checksum.getValue() != crc) {
+                break;
+            }
+
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            int recordLength = RECORD_HEADER_SIZE + keyLength + valueLength;
+            liveBytes += applyRecord(index, type, key, offset, recordLength, valueLength);
+            offset += recordLength;
+        }
+
+        if (offset < size) {
+            channel.truncate(offset);
+            channel.force(true);
+        }
+        fileEnd = offset;
+    }
+
+    private static ByteBuffer encodeRecord(byte type, String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + value.length);
+        record.putInt(0); // CRC placeholder
+        record.put(type);
+        record.putInt(keyBytes.length);
+        record.putInt(value.length);
+        record.put(keyBytes);
+        record.put(value);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(record.array(), 4, record.capacity() - 4);
+        record.putInt(0, (int) checksum.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Reads a value, joining appended fragments oldest first.
+     */
+    private static byte[] readValue(FileChannel source, Entry entry) throws IOException {
+        byte[] value = new byte[entry.totalLength];
+        int end = value.length;
+        for (Entry fragment = entry; fragment != null; fragment = fragment.previous) {
+            end -= fragment.valueLength;
+            ByteBuffer buffer = ByteBuffer.wrap(value, end, fragment.valueLength);
+            readFully(source, buffer, fragment.offset + fragment.recordLength - fragment.valueLength);
+        }
+        return value;
+    }
+
+    /**
+     * Adds the bytes of a region of the file to a checksum, a chunk at a time.
+     */
+    private static void updateChecksum(CRC32 checksum, FileChannel source, long position, long length)
+            throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+        while (length > 0) {
+            chunk.clear();
+            chunk.limit((int) Math.min(length, chunk.capacity()));
+            readFully(source, chunk, position);
+            checksum.update(chunk.array(), 0, chunk.limit());
+            position += chunk.limit();
+            length -= chunk.limit();
+        }
+    }
+
+    private static ByteBuffer fileHeader() {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = source.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of store file.");
+            }
+            position += read;
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open directories; the rename is still atomic there
+        }
+    }
+
+    private Path compactionPath() {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Store is closed: " + path);
+        }
+    }
+
+    private static void checkKey(String key) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("Key cannot be empty.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LogStructuredStore[" + path + "]";
+    }
+
+    /**
+     * Writes into the data file from a fixed position on, for values streamed by write().
+     * Closing it only stops further writes; the data file stays open.
+     */
+    private static final class PositionedChannel implements WritableByteChannel {
+        private final FileChannel target;
+        private long position;
+        private boolean open = true;
+
+        private PositionedChannel(FileChannel target, long position) {
+            this.target = target;
+            this.position = position;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            int written = source.remaining();
+            writeFully(target, source, position);
+            position += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /**
+     * Location of a key's newest record in the data file. Appended fragments link back to
+     * the records before them, down to the last PUT.
+     */
+    private static final class Entry {
+        private final long offset; // Start of the record
+        private final int recordLength;
+        private final int valueLength; // Bytes of value in this record
+        private final Entry previous; // Earlier fragment, or null for a PUT
+        private final int totalLength; // Bytes of value in this record and all earlier fragments
+        private final long chainRecordLength; // Record bytes of this record and all earlier fragments
+
+        private Entry(long offset, int recordLength, int valueLength, Entry previous) {
+            this.offset = offset;
+            this.recordLength = recordLength;
+            this.valueLength = valueLength;
+            this.previous = previous;
+            this.totalLength = valueLength + (previous == null ? 0 : previous.totalLength);
+            this.chainRecordLength = recordLength + (previous == null ? 0 : previous.chainRecordLength);
+        }
+    }
+}
@@ -0,0 +1,535 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: MigrationTool.java
+ * Purpose: Bulk migration and validation of legacy user data (users.json, user_data/user_*.json and
+ *          user_data/playback_*.json) into a target store and library format. Users are migrated in
+ *          parallel on a bounded work-stealing pool while the source directory is streamed, so the
+ *          set of users never has to fit in a task queue. Every migrated user is re-read from the
+ *          target and compared with the source. Finished users are appended to a checkpoint file,
+ *          so a run that is interrupted resumes where it stopped. Throughput is reported as it runs.
+ *
+ *          Usage: java main.persistence.MigrationTool [--source dir] [--target dir]
+ *                 [--storage files|single-file] [--format json|binary] [--threads n]
+ *                 [--checkpoint file]
+ */
+package main.persistence;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import main.model.LibrarySummary;
+import main.model.User;
+
+public class MigrationTool {
+    public static final int CHUNK_SIZE = 256; // Users read from the directory per submitted task
+    private static final int SPLIT_THRESHOLD = 16; // Users a task migrates itself instead of splitting
+    private static final long REPORT_MILLIS = 5000;
+    private static final String CREDENTIALS_ENTRY = "users.json";
+
+    private final Path sourceRoot;
+    private final DataStore source;
+    private final DataStore target;
+    private final int threads;
+    private final Path checkpointFile;
+    private long reportMillis = REPORT_MILLIS;
+
+    // Progress of the current run
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private Checkpoint checkpoint;
+
+    /**
+     * Constructs a migration of the legacy data under sourceRoot into a target store.
+     *
+     * @param sourceRoot     Directory holding users.json and user_data/.
+     * @param target         The store to migrate into (may be a store over sourceRoot itself).
+     * @param threads        Number of worker threads.
+     * @param checkpointFile File recording finished users, read to resume an interrupted run.
+     */
+    public MigrationTool(Path sourceRoot, DataStore target, int threads, Path checkpointFile) {
+        if (sourceRoot == null || target == null || checkpointFile == null) {
+            throw new IllegalArgumentException("Source, target and checkpoint cannot be null.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        this.sourceRoot = sourceRoot;
+        this.source = new FileDataStore(sourceRoot);
+        this.target = target;
+        this.threads = threads;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Sets how often progress is printed while the migration runs.
+     *
+     * @param reportMillis Interval in milliseconds.
+     */
+    public void setReportInterval(long reportMillis) {
+        if (reportMillis < 1) {
+            throw new IllegalArgumentException("Report interval must be positive.");
+        }
+        this.reportMillis = reportMillis;
+    }
+
+    // ================== MIGRATION ================== //
+
+    /**
+     * Migrates credentials, every user library (with its playback history) and any playback
+     * history without a library. Users already recorded in the checkpoint are skipped; users
+     * that fail are recorded and retried by the next run.
+     *
+     * @param progress Where progress lines are printed.
+     * @return The totals of this run.
+     * @throws IOException If the source directory or checkpoint cannot be read or written.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public Report run(PrintStream progress) throws IOException, InterruptedException {
+        migrated.set(0);
+        skipped.set(0);
+        failed.set(0);
+        bytesRead.set(0);
+        long startNanos = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "migration-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> progress.println(progressLine(startNanos)),
+                reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+
+        try (Checkpoint opened = new Checkpoint(checkpointFile)) {
+            checkpoint = opened;
+            migrateCredentials();
+
+            // Libraries first; playback records that belong to a library are migrated with it
+            Path userData = sourceRoot.resolve("user_data");
+            AtomicReference<Throwable> fatal = new AtomicReference<>();
+            submitAll(pool, userData, "user_*.{json,bin}", true, fatal);
+            submitAll(pool, userData, "playback_*.json", false, fatal);
+            if (fatal.get() != null) {
+                throw new IOException("Migration stopped: " + fatal.get().getMessage(), fatal.get());
+            }
+        } finally {
+            checkpoint = null;
+            pool.shutdown();
+            reporter.shutdownNow();
+        }
+
+        Report report = new Report(migrated.get(), skipped.get(), failed.get(), bytesRead.get(),
+                System.nanoTime() - startNanos);
+        progress.println(report);
+        return report;
+    }
+
+    /**
+     * Streams the entries of a directory into chunks and runs each chunk on the pool. At most
+     * twice as many chunks as threads are in flight, which bounds memory however many users
+     * there are. Returns once every chunk has finished.
+     */
+    private void submitAll(ForkJoinPool pool, Path dir, String glob, boolean libraries,
+            AtomicReference<Throwable> fatal) throws IOException, InterruptedException {
+        int maxInFlight = threads * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, glob)) {
+            for (Path entry : entries) {
+                String fileName = entry.getFileName().toString();
+                if (libraries && fileName.endsWith(".bin")
+                        && Files.exists(dir.resolve(fileName.substring(0, fileName.length() - 4) + ".json"))) {
+                    continue; // Migrated once, through its JSON record
+                }
+                chunk.add(fileName);
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(pool, chunk, libraries, inFlight, fatal);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+                if (fatal.get() != null) {
+                    break;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // No user_data directory: nothing to migrate
+        }
+        if (!chunk.isEmpty()) {
+            submit(pool, chunk, libraries, inFlight, fatal);
+        }
+        inFlight.acquire(maxInFlight); // Wait for the last chunks
+    }
+
+    private void submit(ForkJoinPool pool, List<String> chunk, boolean libraries, Semaphore inFlight,
+            AtomicReference<Throwable> fatal) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(ForkJoinTask.adapt(() -> {
+            try {
+                new MigrateTask(chunk, 0, chunk.size(), libraries).invoke();
+                checkpoint.sync();
+            } catch (RuntimeException | Error e) {
+                fatal.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        }));
+    }
+
+    /**
+     * Migrates a range of a chunk, splitting it so idle workers can steal half of the work.
+     */
+    private final class MigrateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // Tasks are never serialized
+        private final transient List<String> fileNames;
+        private final int from;
+        private final int to;
+        private final boolean libraries;
+
+        private MigrateTask(List<String> fileNames, int from, int to, boolean libraries) {
+            this.fileNames = fileNames;
+            this.from = from;
+            this.to = to;
+            this.libraries = libraries;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    if (libraries) {
+                        migrateUser(fileNames.get(i));
+                    } else {
+                        migrateOrphanPlayback(fileNames.get(i));
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MigrateTask(fileNames, from, middle, libraries),
+                    new MigrateTask(fileNames, middle, to, libraries));
+        }
+    }
+
+    // ================== PER-RECORD WORK ================== //
+
+    /**
+     * Copies the source credentials (snapshot plus journal) into a fresh snapshot in the target.
+     */
+    private void migrateCredentials() throws IOException {
+        if (checkpoint.isDone(CREDENTIALS_ENTRY)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        List<CredentialJournal.Credential> all = new CredentialJournal(source, "users.json", "users.journal").load();
+        bytesRead.addAndGet(Math.max(0, source.size("users.json")) + Math.max(0, source.size("users.journal")));
+        CredentialJournal targetCredentials = new CredentialJournal(target, "users.json", "users.journal");
+        targetCredentials.writeSnapshot(all);
+        target.delete("users.journal");
+        migrated.incrementAndGet();
+        checkpoint.done(CREDENTIALS_ENTRY);
+        checkpoint.sync();
+    }
+
+    /**
+     * Migrates one user's library (and playback history), then validates the copy.
+     *
+     * @param fileName The user's base record, e.g. user_alice.json.
+     */
+    private void migrateUser(String fileName) {
+        String username = fileName.substring("user_".length(), fileName.lastIndexOf('.'));
+        String entry = "user_data/user_" + username;
+        if (checkpoint.isDone(entry)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        try {
+            long size = Math.max(0, source.size("user_data/" + fileName))
+                    + Math.max(0, source.size(entry + ".delta"))
+                    + Math.max(0, source.size("user_data/playback_" + username + ".json"));
+
+            // Read from the source (streamed, nothing rewritten there) and write the full copy.
+            // Library records hold no credentials; those are migrated by migrateCredentials()
+            User user = User.fromCredentials(username, "", "");
+            if (!user.readLibraryFrom(source)) {
+                throw new IllegalStateException("no library record");
+            }
+            LibrarySummary expected = LibrarySummary.of(user.getLibrary());
+            user.writeLibraryTo(target);
+
+            // Validate by reading the copy back
+            User copy = User.fromCredentials(username, "", "");
+            if (!copy.readLibraryFrom(target)) {
+                throw new IllegalStateException("library record missing from target");
+            }
+            LibrarySummary actual = LibrarySummary.of(copy.getLibrary());
+            if (!expected.equals(actual) || !user.getUsername().equals(copy.getUsername())) {
+                throw new IllegalStateException("validation failed: expected " + expected + ", found " + actual);
+            }
+
+            bytesRead.addAndGet(size);
+            migrated.incrementAndGet();
+            checkpoint.done(entry);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            checkpoint.failed(entry, e);
+        }
+    }
+
+    /**
+     * Copies a playback record whose user has no library record, streaming it as is.
+     *
+     * @param fileName The playback record, e.g. playback_alice.json.
+     */
+    private void migrateOrphanPlayback(String fileName) {
+        String username = fileName.substring("playback_".length(), fileName.length() - ".json".length());
+        String key = "user_data/" + fileName;
+        if (source.exists("user_data/user_" + username + ".json")
+                || source.exists("user_data/user_" + username + ".bin")) {
+            return; // Migrated with its library
+        }
+        if (checkpoint.isDone(key)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        try {
+            long size = source.size(key);
+            copy(key); // Safe in place too: the copy is written to a temporary file first
+            if (target.size(key) != size) {
+                throw new IllegalStateException("validation failed: size differs");
+            }
+            bytesRead.addAndGet(size);
+            migrated.incrementAndGet();
+            checkpoint.done(key);
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            checkpoint.failed(key, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            checkpoint.failed(key, e);
+        }
+    }
+
+    private void copy(String key) throws IOException {
+        target.write(key, channel -> {
+            try (ReadableByteChannel in = source.openForRead(key)) {
+                if (in == null) {
+                    throw new IOException("Missing record: " + key);
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                while (in.read(buffer) >= 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+        });
+    }
+
+    private String progressLine(long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("migrated %d, skipped %d, failed %d (%.0f users/sec, %.1f MB/s)",
+                migrated.get(), skipped.get(), failed.get(), migrated.get() / seconds,
+                bytesRead.get() / 1e6 / seconds);
+    }
+
+    // ================== CHECKPOINT ================== //
+
+    /**
+     * Append-only record of finished work: one "ok <entry>" or "failed <entry> <reason>" line
+     * per record. Lines are flushed and synced after every chunk; a torn last line is ignored.
+     */
+    private static final class Checkpoint implements Closeable {
+        private final Set<String> done = new HashSet<>();
+        private final FileChannel channel;
+        private final BufferedWriter writer;
+
+        private Checkpoint(Path file) throws IOException {
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("ok ")) {
+                        done.add(line.substring(3));
+                    }
+                }
+            }
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 8192));
+            writer.newLine(); // Ends a line torn by a crash, so it cannot join the next entry
+        }
+
+        private synchronized boolean isDone(String entry) {
+            return done.contains(entry);
+        }
+
+        private synchronized void done(String entry) {
+            done.add(entry);
+            writeLine("ok " + entry);
+        }
+
+        private synchronized void failed(String entry, RuntimeException cause) {
+            String reason = String.valueOf(cause.getMessage()).replace('\n', ' ');
+            writeLine("failed " + entry + "\t" + reason);
+        }
+
+        private void writeLine(String line) {
+            try {
+                writer.write(line);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write checkpoint", e);
+            }
+        }
+
+        private synchronized void sync() {
+            try {
+                writer.flush();
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write checkpoint", e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    // ================== REPORT ================== //
+
+    /**
+     * Totals of one run.
+     */
+    public static final class Report {
+        private final long migrated;
+        private final long skipped;
+        private final long failed;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        private Report(long migrated, long skipped, long failed, long bytes, long elapsedNanos) {
+            this.migrated = migrated;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getMigrated() {
+            return migrated;
+        }
+
+        /**
+         * Returns how many records were skipped because an earlier run finished them.
+         *
+         * @return The number of skipped records.
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getBytesRead() {
+            return bytes;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getRecordsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : migrated / getElapsedSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("migrated %d, skipped %d, failed %d in %.1f s (%.0f users/sec, %.1f MB read)",
+                    migrated, skipped, failed, getElapsedSeconds(), getRecordsPerSecond(), bytes / 1e6);
+        }
+    }
+
+    // ================== COMMAND LINE ================== //
+
+    public static void main(String[] args) throws Exception {
+        Path sourceDir = Paths.get("");
+        Path targetDir = null;
+        String storage = "files";
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        Path checkpointPath = null;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "--source": sourceDir = Paths.get(value); break;
+                case "--target": targetDir = Paths.get(value); break;
+                case "--storage": storage = value; break;
+                case "--format": LibraryFormat.setDeploymentFormat(LibraryFormat.fromName(value)); break;
+                case "--threads": threadCount = Integer.parseInt(value); break;
+                case "--checkpoint": checkpointPath = Paths.get(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            i++;
+        }
+        if (targetDir == null) {
+            targetDir = sourceDir;
+        }
+        if (checkpointPath == null) {
+            checkpointPath = targetDir.resolve("user_data/migration.checkpoint");
+        }
+
+        DataStore targetStore = DataStores.create(storage, targetDir);
+        Report report;
+        try {
+            report = new MigrationTool(sourceDir, targetStore, threadCount, checkpointPath).run(System.out);
+        } finally {
+            if (targetStore instanceof Closeable) {
+                ((Closeable) targetStore).close();
+            }
+        }
+        if (report.getFailed() > 0) {
+            System.out.println("Failed records are listed in " + checkpointPath + "; run again to retry them.");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: WriteBehindService.java
+ * Purpose: Asynchronous write-behind persistence. Callers mark an item (a user) dirty and return at
+ *          once; a bounded pool of background threads flushes it after a short delay, so a burst of
+ *          changes to the same item is coalesced into one save. The number of items waiting to be
+ *          flushed is bounded (callers block when it is full), everything pending is flushed on
+ *          shutdown, and queue depth and flush latency are tracked. Failed saves are logged and
+ *          retried with exponential backoff.
+ */
+package main.persistence;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class WriteBehindService<T> {
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_MAX_PENDING = 1024;
+    public static final long DEFAULT_DELAY_MILLIS = 2000;
+    private static final long RETRY_MILLIS = 50; // Minimum wait before retrying a busy or failed item
+    private static final long MAX_RETRY_MILLIS = 60_000; // Longest backoff after repeated failures
+    private static final Logger LOG = Logger.getLogger(WriteBehindService.class.getName());
+
+    private final Flusher<T> flusher;
+    private final int maxPending; // Dirty items allowed before markDirty blocks
+    private final long delayMillis; // How long changes are collected before a flush
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<T, Pending> pending; // Items scheduled or being flushed; guarded by this
+    private boolean shutdown; // Guarded by this
+
+    // Metrics, guarded by this
+    private long flushes;
+    private long coalesced;
+    private long retries;
+    private long failures;
+    private RuntimeException lastError;
+    private long totalFlushNanos;
+    private long maxFlushNanos;
+    private long totalLagNanos; // First dirty mark -> flushed
+    private int maxQueueDepth;
+
+    /**
+     * Constructs a service with the default pool size, bound and delay.
+     *
+     * @param flusher Saves one item.
+     */
+    public WriteBehindService(Flusher<T> flusher) {
+        this(flusher, DEFAULT_THREADS, DEFAULT_MAX_PENDING, DEFAULT_DELAY_MILLIS);
+    }
+
+    /**
+     * Constructs a service.
+     *
+     * @param flusher     Saves one item.
+     * @param threads     Number of background flush threads.
+     * @param maxPending  Dirty items allowed before markDirty blocks (backpressure).
+     * @param delayMillis How long changes to an item are coalesced before it is flushed.
+     */
+    public WriteBehindService(Flusher<T> flusher, int threads, int maxPending, long delayMillis) {
+        if (flusher == null) {
+            throw new IllegalArgumentException("Flusher cannot be null.");
+        }
+        if (threads < 1 || maxPending < 1 || delayMillis < 0) {
+            throw new IllegalArgumentException("Invalid pool size, bound or delay.");
+        }
+        this.flusher = flusher;
+        this.maxPending = maxPending;
+        this.delayMillis = delayMillis;
+        this.pending = new IdentityHashMap<>();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + threadCount.incrementAndGet());
+            thread.setDaemon(true); // Pending work is flushed by shutdown(), not by keeping the JVM alive
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    // ================== SCHEDULING ================== //
+
+    /**
+     * Marks an item dirty. It is flushed after the coalescing delay; further marks before then
+     * are folded into the same flush. Blocks while the maximum number of items is pending.
+     *
+     * @param item The changed item.
+     * @throws IllegalStateException If the service has been shut down.
+     */
+    public void markDirty(T item) {
+        schedule(item, delayMillis, true);
+    }
+
+    /**
+     * Marks an item dirty like markDirty(), but reports a stopped service instead of throwing,
+     * e.g. for change listeners that must not fail the change itself. The shutdown check and
+     * the queueing happen under the service's monitor, so the item is either queued (and
+     * flushed by shutdown()) or reported as not queued.
+     *
+     * @param item The changed item.
+     * @return True if the item is queued, false if the service is shut down (or the caller was
+     *         interrupted while waiting for room); the caller then has to save it itself.
+     */
+    public boolean markDirtyIfRunning(T item) {
+        return schedule(item, delayMillis, false);
+    }
+
+    /**
+     * Schedules an item to be flushed as soon as a thread is free (e.g. on logout) and returns
+     * without waiting for the save.
+     *
+     * @param item The item to flush.
+     * @throws IllegalStateException If the service has been shut down.
+     */
+    public void flushAsync(T item) {
+        schedule(item, 0, true);
+    }
+
+    /**
+     * Flushes an item now if it is pending and waits until it has been saved, e.g. before its
+     * data is reloaded. Also waits while shutdown() is flushing it. The caller must not hold
+     * anything the flusher needs.
+     *
+     * @param item The item to wait for.
+     * @return True if the item has no unsaved changes, false if the service stopped before
+     *         they could be saved.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitFlushed(T item) throws InterruptedException {
+        synchronized (this) {
+            if (!pending.containsKey(item)) {
+                return true;
+            }
+        }
+        reschedule(item, 0); // Does nothing once the threads are stopping; shutdown() flushed it already
+        synchronized (this) {
+            while (pending.containsKey(item) && !executor.isTerminated()) {
+                wait(RETRY_MILLIS); // Termination is not notified, so check for it now and then
+            }
+            return !pending.containsKey(item);
+        }
+    }
+
+    /**
+     * Flushes everything that is pending, waits for it (up to the timeout), and stops the
+     * background threads. Safe to call more than once and from a shutdown hook.
+     *
+     * @param timeoutMillis Maximum time to wait for pending flushes.
+     * @return True if every pending item was flushed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        List<T> toFlush;
+        synchronized (this) {
+            shutdown = true;
+            toFlush = new ArrayList<>(pending.keySet());
+            notifyAll(); // Callers waiting for room stop waiting
+        }
+        for (T item : toFlush) {
+            reschedule(item, 0);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean flushed;
+        synchronized (this) {
+            long remaining;
+            while (!pending.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            flushed = pending.isEmpty();
+        }
+        executor.shutdown();
+        return flushed;
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    // ================== METRICS ================== //
+
+    /**
+     * Returns the number of items currently waiting to be flushed or being flushed.
+     *
+     * @return The queue depth.
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public synchronized long getFlushCount() {
+        return flushes;
+    }
+
+    /**
+     * Returns how many dirty marks were folded into an already scheduled flush.
+     *
+     * @return The number of coalesced marks.
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    public synchronized long getRetryCount() {
+        return retries;
+    }
+
+    public synchronized long getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * Returns the exception thrown by the most recent failed save.
+     *
+     * @return The error, or null if no save has failed.
+     */
+    public synchronized RuntimeException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Returns the average time a flush (the save itself) took.
+     *
+     * @return The average flush latency in milliseconds, 0 if nothing was flushed.
+     */
+    public synchronized double getAverageFlushMillis() {
+        return flushes == 0 ? 0.0 : totalFlushNanos / 1e6 / flushes;
+    }
+
+    public synchronized double getMaxFlushMillis() {
+        return maxFlushNanos / 1e6;
+    }
+
+    /**
+     * Returns the average time from an item's first dirty mark until its data was saved.
+     *
+     * @return The average write-behind lag in milliseconds, 0 if nothing was flushed.
+     */
+    public synchronized double getAverageLagMillis() {
+        return flushes == 0 ? 0.0 : totalLagNanos / 1e6 / flushes;
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    /**
+     * Queues an item for a flush after the delay.
+     *
+     * @param strict True to throw when the item cannot be queued, false to return false.
+     * @return True if the item is queued.
+     */
+    private boolean schedule(T item, long delay, boolean strict) {
+        if (item == null) {
+            throw new IllegalArgumentException("Item cannot be null.");
+        }
+        synchronized (this) {
+            if (shutdown) {
+                return notQueued(strict, "Write-behind service is shut down.", null);
+            }
+            Pending existing = pending.get(item);
+            if (existing != null) {
+                coalesced++;
+                if (existing.running) {
+                    existing.dirtyAgain = true; // Flush again once the running save finishes
+                    return true;
+                }
+                if (delay > 0 || (existing.future != null && existing.future.getDelay(TimeUnit.MILLISECONDS) <= 0)) {
+                    return true; // Already scheduled soon enough
+                }
+            } else {
+                // Backpressure: wait for room instead of queueing without bound
+                while (pending.size() >= maxPending) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return notQueued(strict, "Interrupted while waiting for the write-behind queue.", e);
+                    }
+                    if (shutdown) {
+                        return notQueued(strict, "Write-behind service is shut down.", null);
+                    }
+                }
+                pending.put(item, new Pending(System.nanoTime()));
+                maxQueueDepth = Math.max(maxQueueDepth, pending.size());
+            }
+        }
+        reschedule(item, delay);
+        return true;
+    }
+
+    private static boolean notQueued(boolean strict, String message, Throwable cause) {
+        if (strict) {
+            throw new IllegalStateException(message, cause);
+        }
+        return false;
+    }
+
+    /**
+     * (Re)submits the flush task of a pending item unless it is currently running.
+     */
+    private synchronized void reschedule(T item, long delay) {
+        Pending state = pending.get(item);
+        if (state == null || state.running || executor.isShutdown()) {
+            return;
+        }
+        if (state.future != null && !state.future.cancel(false)) {
+            return; // Already started; it will notice dirtyAgain or finish
+        }
+        state.future = executor.schedule(() -> runFlush(item), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void runFlush(T item) {
+        Pending state;
+        synchronized (this) {
+            state = pending.get(item);
+            if (state == null || state.running) {
+                return;
+            }
+            state.running = true;
+            state.dirtyAgain = false;
+        }
+
+        long start = System.nanoTime();
+        boolean saved = false;
+        RuntimeException error = null;
+        try {
+            saved = flusher.flush(item);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        long end = System.nanoTime();
+
+        synchronized (this) {
+            state.running = false;
+            if (saved) {
+                flushes++;
+                totalFlushNanos += end - start;
+                maxFlushNanos = Math.max(maxFlushNanos, end - start);
+                totalLagNanos += end - state.firstDirtyNanos;
+                state.failedAttempts = 0;
+            } else if (error != null) {
+                failures++;
+                lastError = error;
+                state.failedAttempts++;
+            } else {
+                retries++; // Item was busy
+            }
+
+            if (saved && !state.dirtyAgain) {
+                pending.remove(item);
+                notifyAll();
+                return;
+            }
+            if (saved) {
+                state.firstDirtyNanos = end;
+            }
+            // Changed during the save: flush again after the delay; busy: retry; failed: back off
+            long delay;
+            if (saved) {
+                delay = shutdown ? 0 : delayMillis;
+            } else if (shutdown) {
+                delay = RETRY_MILLIS;
+            } else {
+                delay = Math.max(delayMillis, RETRY_MILLIS);
+                if (error != null) {
+                    delay = Math.min(MAX_RETRY_MILLIS, delay << Math.min(state.failedAttempts - 1, 20));
+                }
+            }
+            if (error != null) {
+                LOG.log(Level.WARNING, "Saving " + item + " failed (attempt " + state.failedAttempts
+                        + "); retrying in " + delay + " ms", error);
+            }
+            state.future = null;
+            if (!executor.isShutdown()) {
+                state.future = executor.schedule(() -> runFlush(item), delay, TimeUnit.MILLISECONDS);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Saves one item.
+     */
+    public interface Flusher<T> {
+        /**
+         * Saves the item.
+         *
+         * @param item The item to save.
+         * @return True if saved, false if the item is busy and the flush should be retried later.
+         * @throws RuntimeException If the save failed; it is logged and retried with backoff.
+         */
+        boolean flush(T item);
+    }
+
+    /**
+     * Flush state of one dirty item.
+     */
+    private static final class Pending {
+        private long firstDirtyNanos; // When the unsaved changes began
+        private ScheduledFuture<?> future; // Scheduled flush, null while none is scheduled
+        private boolean running; // True while the flusher is saving the item
+        private boolean dirtyAgain; // Marked dirty while running
+        private int failedAttempts; // Failed saves in a row
+
+        private Pending(long firstDirtyNanos) {
+            this.firstDirtyNanos = firstDirtyNanos;
+        }
+    }
+}
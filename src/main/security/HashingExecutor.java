@@ -0,0 +1,167 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: HashingExecutor.java
+ * Purpose: Dedicated, size-bounded pool for password hashing. PBKDF2 is deliberately expensive, so a
+ *          burst of logins run on the callers' threads could pin every core. Here at most a fixed
+ *          number of hashes run at once, a bounded number wait, and anything beyond that is rejected
+ *          immediately instead of queueing without limit. Tracks hashes per second and queue wait.
+ */
+package main.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashingExecutor {
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_QUEUE_LIMIT = 64;
+
+    private final ThreadPoolExecutor executor;
+    private final long createdNanos;
+
+    // Metrics, guarded by this
+    private long completed;
+    private long rejected;
+    private long totalWaitNanos; // Submitted -> started
+    private long maxWaitNanos;
+    private long totalRunNanos;
+
+    /**
+     * Constructs an executor with one thread per core and the default queue limit.
+     */
+    public HashingExecutor() {
+        this(DEFAULT_THREADS, DEFAULT_QUEUE_LIMIT);
+    }
+
+    /**
+     * Constructs an executor.
+     *
+     * @param threads    Hashes that may run at the same time.
+     * @param queueLimit Hashes that may wait for a thread; further ones are rejected.
+     */
+    public HashingExecutor(int threads, int queueLimit) {
+        if (threads < 1 || queueLimit < 1) {
+            throw new IllegalArgumentException("Thread count and queue limit must be at least 1.");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.createdNanos = System.nanoTime();
+    }
+
+    // ================== SUBMISSION ================== //
+
+    /**
+     * Runs a hashing task on the pool.
+     *
+     * @param task The task (normally one PBKDF2 hash, e.g. a password check).
+     * @return A future with the task's result. If the pool and its queue are full, the future
+     *         is already completed with a RejectedExecutionException; if the task throws, it is
+     *         completed with that exception.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null.");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long submittedNanos = System.nanoTime();
+        try {
+            executor.execute(() -> run(task, result, submittedNanos));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                rejected++;
+            }
+            result.completeExceptionally(new RejectedExecutionException(
+                    executor.isShutdown() ? "Hashing executor is shut down." : "Too many password checks in progress.", e));
+        }
+        return result;
+    }
+
+    private <T> void run(Callable<T> task, CompletableFuture<T> result, long submittedNanos) {
+        long startNanos = System.nanoTime();
+        try {
+            T value = task.call();
+            record(submittedNanos, startNanos);
+            result.complete(value);
+        } catch (Throwable e) {
+            record(submittedNanos, startNanos);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private synchronized void record(long submittedNanos, long startNanos) {
+        long waitNanos = startNanos - submittedNanos;
+        completed++;
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        totalRunNanos += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Stops accepting tasks; tasks already queued still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // ================== METRICS ================== //
+
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of tasks waiting for a thread.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the completed hashes per second since the executor was created.
+     *
+     * @return The hash throughput.
+     */
+    public synchronized double getHashesPerSecond() {
+        double seconds = (System.nanoTime() - createdNanos) / 1e9;
+        return seconds <= 0 ? 0.0 : completed / seconds;
+    }
+
+    /**
+     * Returns the average time a task waited in the queue before a thread picked it up.
+     *
+     * @return The average queue wait in milliseconds, 0 if nothing completed.
+     */
+    public synchronized double getAverageQueueWaitMillis() {
+        return completed == 0 ? 0.0 : totalWaitNanos / 1e6 / completed;
+    }
+
+    public synchronized double getMaxQueueWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    /**
+     * Returns the average time one task (one hash) took to run.
+     *
+     * @return The average hash time in milliseconds, 0 if nothing completed.
+     */
+    public synchronized double getAverageHashMillis() {
+        return completed == 0 ? 0.0 : totalRunNanos / 1e6 / completed;
+    }
+}
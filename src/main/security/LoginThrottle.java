@@ -0,0 +1,152 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LoginThrottle.java
+ * Purpose: Limits password checks before they reach PBKDF2, so a brute-force burst cannot turn into a
+ *          CPU denial of service. Each username has its own token bucket (a few attempts, then a slow
+ *          refill), and all attempts together share a global bucket sized to what the hashing pool
+ *          can handle. Nothing here takes a lock: buckets are single-CAS, the per-user buckets live
+ *          in a ConcurrentHashMap, and the global bucket is striped so threads do not contend on one
+ *          counter. Buckets of idle users are dropped lazily.
+ */
+package main.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class LoginThrottle {
+    public static final int DEFAULT_USER_BURST = 5; // Attempts a user can make at once
+    public static final double DEFAULT_USER_PER_SECOND = 1.0 / 6; // Then one every 6 seconds
+    public static final double DEFAULT_GLOBAL_PER_SECOND = 8.0 * HashingExecutor.DEFAULT_THREADS; // ~ hashing capacity
+    public static final int DEFAULT_GLOBAL_BURST = (int) (2 * DEFAULT_GLOBAL_PER_SECOND);
+    private static final int SWEEP_INTERVAL = 1024; // New user buckets between sweeps of idle ones
+
+    private final int userBurst;
+    private final double userPerSecond;
+    private final LongSupplier ticker;
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final TokenBucket[] globalStripes; // Global budget split evenly across stripes
+    private final AtomicLong createdBuckets = new AtomicLong();
+
+    // Metrics
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedForUser = new LongAdder();
+    private final LongAdder rejectedGlobally = new LongAdder();
+
+    /**
+     * Constructs a throttle with the default limits.
+     */
+    public LoginThrottle() {
+        this(DEFAULT_USER_BURST, DEFAULT_USER_PER_SECOND, DEFAULT_GLOBAL_BURST, DEFAULT_GLOBAL_PER_SECOND, System::nanoTime);
+    }
+
+    /**
+     * Constructs a throttle.
+     *
+     * @param userBurst       Attempts one username may make at once.
+     * @param userPerSecond   Rate at which a username earns attempts back.
+     * @param globalBurst     Attempts all users together may make at once.
+     * @param globalPerSecond Rate at which the global budget refills.
+     * @param ticker          Nanosecond time source (System::nanoTime outside tests).
+     */
+    public LoginThrottle(int userBurst, double userPerSecond, int globalBurst, double globalPerSecond, LongSupplier ticker) {
+        if (userBurst < 1 || !(userPerSecond > 0) || globalBurst < 1 || !(globalPerSecond > 0)) {
+            throw new IllegalArgumentException("Bursts and rates must be positive.");
+        }
+        if (ticker == null) {
+            throw new IllegalArgumentException("Ticker cannot be null.");
+        }
+        this.userBurst = userBurst;
+        this.userPerSecond = userPerSecond;
+        this.ticker = ticker;
+
+        // One stripe per core, but never a stripe smaller than one attempt
+        int stripes = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), globalBurst));
+        this.globalStripes = new TokenBucket[stripes];
+        for (int i = 0; i < stripes; i++) {
+            int burst = globalBurst / stripes + (i < globalBurst % stripes ? 1 : 0);
+            globalStripes[i] = new TokenBucket(burst, globalPerSecond / stripes, ticker);
+        }
+    }
+
+    /**
+     * Takes one login attempt for a username from its bucket and from the global budget.
+     * Call before the password is checked.
+     *
+     * @param username The username being logged in to.
+     * @return True if the attempt may proceed, false if it must be rejected.
+     */
+    public boolean tryAcquire(String username) {
+        // The user's own bucket first, so hammering one account cannot drain the global budget
+        if (!userBucket(username).tryAcquire()) {
+            rejectedForUser.increment();
+            return false;
+        }
+        // Start at this thread's stripe; move on to the others only if it is empty
+        int start = (int) (Thread.currentThread().threadId() % globalStripes.length);
+        for (int i = 0; i < globalStripes.length; i++) {
+            if (globalStripes[(start + i) % globalStripes.length].tryAcquire()) {
+                allowed.increment();
+                return true;
+            }
+        }
+        rejectedGlobally.increment();
+        return false;
+    }
+
+    private TokenBucket userBucket(String username) {
+        TokenBucket bucket = userBuckets.get(username);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (createdBuckets.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            evictIdle();
+        }
+        return userBuckets.computeIfAbsent(username, name -> new TokenBucket(userBurst, userPerSecond, ticker));
+    }
+
+    /**
+     * Drops the buckets of users whose attempts have fully refilled; a new, full bucket is
+     * created if they try again, so nothing changes for them.
+     *
+     * @return The number of buckets dropped.
+     */
+    public int evictIdle() {
+        int count = 0;
+        for (Iterator<TokenBucket> it = userBuckets.values().iterator(); it.hasNext();) {
+            if (it.next().isFull()) {
+                it.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ================== METRICS ================== //
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedForUserCount() {
+        return rejectedForUser.sum();
+    }
+
+    public long getRejectedGloballyCount() {
+        return rejectedGlobally.sum();
+    }
+
+    /**
+     * Returns the number of usernames with a bucket (recent attempts).
+     *
+     * @return The number of tracked usernames.
+     */
+    public int getTrackedUserCount() {
+        return userBuckets.size();
+    }
+}
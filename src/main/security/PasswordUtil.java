@@ -1,28 +1,56 @@
 /**
- * Name: Alina Kushareva 
+ * Name: Alina Kushareva
  * Class: CSC335 Spring 2025
  * Project: MusicLibraryApp
  * File: PasswordUtil.java
  * Purpose: Provides utility methods for securely handling passwords,
- * 			including generating random salts, hashing passwords using 
- *          PBKDF2 with HMAC-SHA1, and validating password hashes.
+ * 			including generating random salts, hashing passwords using
+ *          PBKDF2, and validating password hashes. Stored hashes record the
+ *          algorithm and iteration count that produced them
+ *          ("$pbkdf2-sha256$<iterations>$<hash>"), so the cost can be tuned
+ *          (or calibrated to the host) without invalidating existing hashes.
+ *          Hashes without that prefix are the original PBKDF2-HMAC-SHA1,
+ *          65,536-iteration format.
  */
 package main.security;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.security.spec.KeySpec;
+import java.util.HashMap;
+import java.util.Map;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import java.util.Base64;
 
 public class PasswordUtil {
     private static final int SALT_LENGTH = 16; // Salt length in bytes
-    private static final int ITERATIONS = 65536; // Number of iterations for PBKDF2
     private static final int KEY_LENGTH = 128; // Key length in bits for PBKDF2
 
+    // Parameters of hashes stored without a prefix (the original format)
+    private static final String LEGACY_ALGORITHM = "sha1";
+    private static final int LEGACY_ITERATIONS = 65536;
+
+    // Parameters for new hashes
+    public static final String ALGORITHM = "sha256";
+    public static final int DEFAULT_ITERATIONS = 65536;
+    public static final int MIN_ITERATIONS = 10_000;
+    public static final int MAX_ITERATIONS = 1 << 24;
+    private static final String PREFIX = "$pbkdf2-";
+
+    // Operators choose the cost with one of these (iterations win if both are set)
+    public static final String ITERATIONS_PROPERTY = "musiclibrary.hashIterations";
+    public static final String TARGET_MILLIS_PROPERTY = "musiclibrary.hashMillis";
+
+    private static volatile int iterations; // 0 until first use
+
+    // SecretKeyFactory is not thread-safe and its lookup is costly, so each thread keeps its own
+    private static final ThreadLocal<Map<String, SecretKeyFactory>> FACTORIES = ThreadLocal.withInitial(HashMap::new);
+
     /**
      * Generates a random salt for password hashing.
-     * 
+     *
      * @return Base64 encoded salt.
      */
     public static String generateSalt() {
@@ -33,11 +61,11 @@ public class PasswordUtil {
     }
 
     /**
-     * Hashes the password using PBKDF2 with HMAC-SHA1.
-     * 
+     * Hashes the password using PBKDF2 with HMAC-SHA256 and the current iteration count.
+     *
      * @param password The plaintext password.
      * @param salt The salt used for hashing.
-     * @return Base64 encoded hashed password.
+     * @return The encoded hash: "$pbkdf2-sha256$<iterations>$<Base64 hash>".
      * @throws IllegalArgumentException If password or salt is null or empty.
      * @throws RuntimeException If hashing fails.
      */
@@ -49,29 +77,20 @@ public class PasswordUtil {
         if (salt == null || salt.trim().isEmpty()) {
             throw new IllegalArgumentException("Salt cannot be null or empty.");
         }
-
-        try {
-            // Convert Base64 salt back to bytes for hashing
-            byte[] saltBytes = Base64.getDecoder().decode(salt);
-            
-            // Key specification for PBKDF2
-            KeySpec spec = new PBEKeySpec(password.toCharArray(), saltBytes, ITERATIONS, KEY_LENGTH);
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            byte[] hash = factory.generateSecret(spec).getEncoded(); // Generate the hash
-            
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (Exception e) {
-            throw new RuntimeException("Error hashing password", e);
-        }
+        int cost = getIterations();
+        String hash = Base64.getEncoder().encodeToString(derive(password, salt, ALGORITHM, cost));
+        return PREFIX + ALGORITHM + "$" + cost + "$" + hash;
     }
 
     /**
-     * Validates a given password against a stored hash and salt.
-     * 
+     * Validates a given password against a stored hash and salt. The hash is recomputed with
+     * the parameters recorded in the stored hash, so hashes from older settings still validate.
+     *
      * @param password The plaintext password to validate.
      * @param salt The salt used for hashing.
      * @param hashedPassword The stored hashed password.
      * @return True if the password matches the stored hash, false otherwise.
+     * @throws IllegalArgumentException If an argument is null or empty, or the stored hash is malformed.
      */
     public static boolean validatePassword(String password, String salt, String hashedPassword) {
         // Validating all input parameters
@@ -84,11 +103,170 @@ public class PasswordUtil {
         if (hashedPassword == null || hashedPassword.trim().isEmpty()) {
             throw new IllegalArgumentException("Hashed password cannot be null or empty.");
         }
-        // Hashing the input password with the same salt
-        String inputHash = hashPassword(password, salt);
-        
+        // Hashing the input password with the same salt and parameters
+        StoredHash stored = StoredHash.parse(hashedPassword);
+        byte[] inputHash = derive(password, salt, stored.algorithm, stored.iterations);
+
         // Comparing newly generated hash with the stored hash
         // Uses constant-time comparison to prevent timing attacks
-        return inputHash.equals(hashedPassword);
+        return MessageDigest.isEqual(Base64.getEncoder().encode(inputHash),
+                stored.hash.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns true if a stored hash was made with other parameters than new hashes use, so it
+     * should be replaced (after the next successful login, when the password is known).
+     *
+     * @param hashedPassword The stored hashed password.
+     * @return True if the hash should be recomputed.
+     * @throws IllegalArgumentException If the stored hash is malformed.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.trim().isEmpty()) {
+            throw new IllegalArgumentException("Hashed password cannot be null or empty.");
+        }
+        StoredHash stored = StoredHash.parse(hashedPassword);
+        return !stored.algorithm.equals(ALGORITHM) || stored.iterations != getIterations();
+    }
+
+    // ================== COST ================== //
+
+    /**
+     * Returns the iteration count for new hashes: the ITERATIONS_PROPERTY if set, otherwise
+     * calibrated to TARGET_MILLIS_PROPERTY if set, otherwise DEFAULT_ITERATIONS.
+     *
+     * @return The iteration count.
+     */
+    public static int getIterations() {
+        int current = iterations;
+        if (current == 0) {
+            synchronized (PasswordUtil.class) {
+                if (iterations == 0) {
+                    iterations = configuredIterations();
+                }
+                current = iterations;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Sets the iteration count for new hashes (e.g. from a launcher, or with calibrate()).
+     * Existing hashes keep validating and are upgraded at their next login.
+     *
+     * @param count The iteration count.
+     * @throws IllegalArgumentException If the count is outside MIN_ITERATIONS..MAX_ITERATIONS.
+     */
+    public static void setIterations(int count) {
+        if (count < MIN_ITERATIONS || count > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("Iterations must be between " + MIN_ITERATIONS + " and " + MAX_ITERATIONS + ".");
+        }
+        iterations = count;
+    }
+
+    /**
+     * Measures this host and returns the iteration count at which one hash takes about the
+     * target time. The result is rounded to a power of two, so repeated calibrations on the
+     * same host agree and do not cause needless rehashing.
+     *
+     * @param targetMillis The time one hash should take.
+     * @return The iteration count (not applied; see setIterations()).
+     * @throws IllegalArgumentException If the target is not positive.
+     */
+    public static int calibrate(long targetMillis) {
+        if (targetMillis <= 0) {
+            throw new IllegalArgumentException("Target time must be positive.");
+        }
+        int probe = MIN_ITERATIONS;
+        String salt = generateSalt();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) { // The fastest run is the least disturbed one
+            long start = System.nanoTime();
+            derive("calibration", salt, ALGORITHM, probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double nanosPerIteration = (double) best / probe;
+        double wanted = targetMillis * 1e6 / nanosPerIteration;
+        long rounded = Math.round(Math.pow(2, Math.round(Math.log(wanted) / Math.log(2))));
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, rounded));
+    }
+
+    private static int configuredIterations() {
+        String configured = System.getProperty(ITERATIONS_PROPERTY);
+        if (configured != null && !configured.trim().isEmpty()) {
+            int count = Integer.parseInt(configured.trim());
+            if (count < MIN_ITERATIONS || count > MAX_ITERATIONS) {
+                throw new IllegalArgumentException("Invalid " + ITERATIONS_PROPERTY + ": " + configured);
+            }
+            return count;
+        }
+        String target = System.getProperty(TARGET_MILLIS_PROPERTY);
+        if (target != null && !target.trim().isEmpty()) {
+            return calibrate(Long.parseLong(target.trim()));
+        }
+        return DEFAULT_ITERATIONS;
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    private static byte[] derive(String password, String salt, String algorithm, int cost) {
+        try {
+            // Convert Base64 salt back to bytes for hashing
+            byte[] saltBytes = Base64.getDecoder().decode(salt);
+
+            // Key specification for PBKDF2
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), saltBytes, cost, KEY_LENGTH);
+            try {
+                return factory(algorithm).generateSecret(spec).getEncoded(); // Generate the hash
+            } finally {
+                spec.clearPassword();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error hashing password", e);
+        }
+    }
+
+    private static SecretKeyFactory factory(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, SecretKeyFactory> factories = FACTORIES.get();
+        SecretKeyFactory factory = factories.get(algorithm);
+        if (factory == null) {
+            factory = SecretKeyFactory.getInstance("PBKDF2WithHmac" + algorithm.toUpperCase());
+            factories.put(algorithm, factory);
+        }
+        return factory;
+    }
+
+    /**
+     * A stored hash split into its parameters.
+     */
+    private static final class StoredHash {
+        private final String algorithm;
+        private final int iterations;
+        private final String hash;
+
+        private StoredHash(String algorithm, int iterations, String hash) {
+            this.algorithm = algorithm;
+            this.iterations = iterations;
+            this.hash = hash;
+        }
+
+        private static StoredHash parse(String hashedPassword) {
+            if (!hashedPassword.startsWith("$")) {
+                return new StoredHash(LEGACY_ALGORITHM, LEGACY_ITERATIONS, hashedPassword);
+            }
+            String[] parts = hashedPassword.split("\\$");
+            try {
+                if (parts.length == 4 && hashedPassword.startsWith(PREFIX)) {
+                    String algorithm = parts[1].substring(PREFIX.length() - 1);
+                    int cost = Integer.parseInt(parts[2]);
+                    if ((algorithm.equals("sha1") || algorithm.equals("sha256")) && cost > 0 && !parts[3].isEmpty()) {
+                        return new StoredHash(algorithm, cost, parts[3]);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Unrecognized password hash format.");
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: SessionManager.java
+ * Purpose: Issues and checks session tokens, so a user who has logged in once can be recognized
+ *          again (later requests, reconnects) without another PBKDF2 password check. A token is
+ *          "<session id>.<expiry>.<username>.<signature>", signed with HMAC-SHA256 under a random
+ *          per-process key; checking one is a single HMAC plus a table lookup. Sessions expire,
+ *          can be revoked one by one or per user, and expired entries are removed lazily (when
+ *          looked up, and by an occasional sweep while new sessions are issued).
+ */
+package main.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public class SessionManager {
+    public static final long DEFAULT_TTL_MILLIS = 30 * 60 * 1000; // 30 minutes
+    private static final int SWEEP_INTERVAL = 1024; // Sessions issued between sweeps of expired ones
+    private static final int ID_LENGTH = 16; // Random bytes per session id
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>(); // Live sessions by id
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    // Mac is not thread-safe; each thread keeps one initialized with this manager's key
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    /**
+     * Constructs a session manager with the default lifetime and the system clock.
+     */
+    public SessionManager() {
+        this(DEFAULT_TTL_MILLIS, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a session manager.
+     *
+     * @param ttlMillis How long a session stays valid after it is issued.
+     * @param clock     Time source for expiry.
+     */
+    public SessionManager(long ttlMillis, Clock clock) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Session lifetime must be positive.");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+    }
+
+    // ================== SESSIONS ================== //
+
+    /**
+     * Starts a session for an authenticated user.
+     *
+     * @param username The user the session belongs to.
+     * @return The signed session token.
+     */
+    public String issue(String username) {
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username cannot be null or empty.");
+        }
+        if (issued.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            evictExpired();
+        }
+        byte[] idBytes = new byte[ID_LENGTH];
+        random.nextBytes(idBytes);
+        String id = encode(idBytes);
+        long expiresAt = clock.millis() + ttlMillis;
+        String payload = id + "." + expiresAt + "." + encode(username.getBytes(StandardCharsets.UTF_8));
+        sessions.put(id, new Session(username, expiresAt));
+        return payload + "." + encode(sign(payload));
+    }
+
+    /**
+     * Checks a session token.
+     *
+     * @param token The token from issue().
+     * @return The session's username, or null if the token is forged, malformed, expired or revoked.
+     */
+    public String validate(String token) {
+        String id = verifiedId(token);
+        if (id == null) {
+            return null;
+        }
+        Session session = sessions.get(id);
+        if (session == null) {
+            return null; // Revoked, expired and evicted, or issued by another process
+        }
+        if (session.expiresAt <= clock.millis()) {
+            if (sessions.remove(id, session)) {
+                evicted.incrementAndGet();
+            }
+            return null;
+        }
+        return session.username;
+    }
+
+    /**
+     * Ends a session (logout).
+     *
+     * @param token The session's token.
+     * @return True if the session was live.
+     */
+    public boolean revoke(String token) {
+        String id = verifiedId(token);
+        return id != null && sessions.remove(id) != null;
+    }
+
+    /**
+     * Ends every session of a user (e.g. after a password change).
+     *
+     * @param username The user.
+     * @return The number of sessions ended.
+     */
+    public int revokeAll(String username) {
+        int count = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext();) {
+            if (it.next().username.equals(username)) {
+                it.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes every expired session from the table.
+     *
+     * @return The number of sessions removed.
+     */
+    public int evictExpired() {
+        long now = clock.millis();
+        int count = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext();) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+                count++;
+            }
+        }
+        evicted.addAndGet(count);
+        return count;
+    }
+
+    // ================== METRICS ================== //
+
+    /**
+     * Returns the number of sessions in the table (expired ones not yet evicted included).
+     *
+     * @return The table size.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public long getIssuedCount() {
+        return issued.get();
+    }
+
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    /**
+     * Checks a token's format and signature.
+     *
+     * @return The session id, or null if the token is not one this manager signed.
+     */
+    private String verifiedId(String token) {
+        if (token == null) {
+            return null;
+        }
+        int signatureStart = token.lastIndexOf('.');
+        int idEnd = token.indexOf('.');
+        if (signatureStart <= 0 || idEnd <= 0 || idEnd == signatureStart) {
+            return null;
+        }
+        String payload = token.substring(0, signatureStart);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(signatureStart + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+        return token.substring(0, idEnd);
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * One live session.
+     */
+    private static final class Session {
+        private final String username;
+        private final long expiresAt; // Epoch millis
+
+        private Session(String username, long expiresAt) {
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: TokenBucket.java
+ * Purpose: Lock-free token bucket. Instead of a token count and a refill timestamp, the bucket keeps
+ *          one value, the time at which it will be full again, and takes a token with a single
+ *          compare-and-set on it. Allowing a request moves that time one token interval forward;
+ *          a request is refused when that would put it more than a full bucket ahead of now.
+ */
+package main.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public final class TokenBucket {
+    private final long intervalNanos; // Time to earn one token
+    private final long capacityNanos; // Time to earn a full bucket
+    private final LongSupplier ticker; // Nanosecond time source
+    private final AtomicLong fullAt; // When the bucket will be full again
+
+    /**
+     * Constructs a full bucket.
+     *
+     * @param capacity        Tokens the bucket holds (the largest burst).
+     * @param tokensPerSecond Refill rate.
+     * @param ticker          Nanosecond time source (System::nanoTime outside tests).
+     */
+    public TokenBucket(int capacity, double tokensPerSecond, LongSupplier ticker) {
+        if (capacity < 1 || !(tokensPerSecond > 0)) {
+            throw new IllegalArgumentException("Capacity and rate must be positive.");
+        }
+        if (ticker == null) {
+            throw new IllegalArgumentException("Ticker cannot be null.");
+        }
+        this.intervalNanos = Math.max(1, (long) (1e9 / tokensPerSecond));
+        this.capacityNanos = intervalNanos * capacity;
+        this.ticker = ticker;
+        this.fullAt = new AtomicLong(ticker.getAsLong());
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return True if a token was taken, false if the bucket is empty.
+     */
+    public boolean tryAcquire() {
+        long now = ticker.getAsLong();
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > capacityNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the bucket has refilled completely, i.e. it has not been used for a while
+     * and forgetting it would change nothing.
+     *
+     * @return True if the bucket is full.
+     */
+    public boolean isFull() {
+        return fullAt.get() - ticker.getAsLong() <= 0;
+    }
+}
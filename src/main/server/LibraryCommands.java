@@ -0,0 +1,449 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LibraryCommands.java
+ * Purpose: Text commands for one session (one connection, or one command file): account commands
+ *          (register, login, resume, logout), store search, library operations, playback and
+ *          playlists. A command is one line of words; words with spaces are quoted
+ *          (add-album "A Rush of Blood to the Head" Coldplay). Results are written one item per
+ *          line with tab-separated fields; failures are thrown as IllegalArgumentException (bad
+ *          command or arguments) or IllegalStateException (not logged in). Commands on a
+ *          library run under the user's lock, like the interactive menus.
+ */
+package main.server;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import main.database.MusicStore;
+import main.model.Album;
+import main.model.LibraryModel;
+import main.model.Playlist;
+import main.model.Song;
+import main.model.User;
+import main.model.UserManager;
+
+public class LibraryCommands {
+    // Commands that work on the logged-in user's library
+    private static final Set<String> LIBRARY_COMMANDS = Set.of("summary", "add-song", "add-album",
+            "remove-song", "remove-album", "songs", "songs-by-rating", "albums", "artists", "favorites",
+            "find-songs", "rate", "favorite", "play", "recent", "most-played", "shuffle", "playlists",
+            "playlist", "create-playlist", "playlist-add", "playlist-remove");
+
+    private final UserManager userManager;
+    private final MusicStore catalog; // Shared by all sessions; only searched, never changed
+    private User user; // Logged-in user, null before login and after logout
+    private String token; // This session's token, from login or resume; null when logged out
+
+    /**
+     * Constructs a session.
+     *
+     * @param userManager The users all sessions share.
+     * @param catalog     The store all sessions search.
+     */
+    public LibraryCommands(UserManager userManager, MusicStore catalog) {
+        if (userManager == null || catalog == null) {
+            throw new IllegalArgumentException("User manager and catalog cannot be null.");
+        }
+        this.userManager = userManager;
+        this.catalog = catalog;
+    }
+
+    // ================== EXECUTION ================== //
+
+    /**
+     * Runs one command line.
+     *
+     * @param line The command and its arguments.
+     * @param out  Where the results are written.
+     * @return False if the command ends the session (quit), true otherwise.
+     * @throws IllegalArgumentException If the command is unknown, its arguments are wrong, or it fails.
+     * @throws IllegalStateException    If the command needs a logged-in user and there is none.
+     */
+    public boolean execute(String line, PrintWriter out) {
+        List<String> words = tokenize(line);
+        if (words.isEmpty()) {
+            return true; // Blank line
+        }
+        String command = words.get(0).toLowerCase();
+        List<String> args = words.subList(1, words.size());
+        switch (command) {
+            case "help":
+                help(out);
+                return true;
+            case "quit":
+                return false;
+            case "register":
+                expect(args, 2, "register <username> <password>");
+                userManager.registerUser(args.get(0), args.get(1));
+                return true;
+            case "login":
+                expect(args, 2, "login <username> <password>");
+                User loggedIn = userManager.loginUser(args.get(0), args.get(1));
+                login(loggedIn, userManager.issueSession(loggedIn), out);
+                return true;
+            case "resume":
+                expect(args, 1, "resume <token>");
+                login(userManager.resumeSession(args.get(0)), args.get(0), out);
+                return true;
+            case "logout":
+                expect(args, 0, "logout");
+                logout();
+                return true;
+            case "search-songs":
+                expect(args, 2, "search-songs title|artist <text>");
+                printSongs(field(args.get(0)).equals("title") ? catalog.getSongsByTitle(args.get(1))
+                        : catalog.getSongsByArtist(args.get(1)), null, out); // No user's ratings
+                return true;
+            case "search-albums":
+                expect(args, 2, "search-albums title|artist <text>");
+                if (field(args.get(0)).equals("title")) {
+                    Album album = catalog.getAlbumByTitle(args.get(1));
+                    printAlbums(album == null ? List.of() : List.of(album), out);
+                } else {
+                    printAlbums(catalog.getAlbumsByArtist(args.get(1)), out);
+                }
+                return true;
+            default:
+                if (!LIBRARY_COMMANDS.contains(command)) {
+                    throw new IllegalArgumentException("Unknown command: " + command + " (try help)");
+                }
+                return executeOnLibrary(command, args, out);
+        }
+    }
+
+    /**
+     * Runs a command on the logged-in user's library, holding the user's lock.
+     */
+    private boolean executeOnLibrary(String command, List<String> args, PrintWriter out) {
+        User current = requireUser();
+        userManager.touchUser(current); // Keeps an active session's library from being evicted
+        current.getLock().lock();
+        try {
+            LibraryModel library = current.getLibrary();
+            switch (command) {
+                case "summary":
+                    expect(args, 0, "summary");
+                    out.println(current.getSummary());
+                    break;
+                case "add-song": {
+                    expect(args, 2, "add-song <title> <artist>");
+                    Song song = library.getMusicStore().getSongByArtistAndTitle(args.get(1), args.get(0));
+                    if (song == null) {
+                        throw new IllegalArgumentException("Song not found in MusicStore.");
+                    }
+                    library.addSong(song);
+                    break;
+                }
+                case "add-album": {
+                    expect(args, 2, "add-album <title> <artist>");
+                    Album album = library.getMusicStore().getAlbumByArtistAndTitle(args.get(1), args.get(0));
+                    if (album == null) {
+                        throw new IllegalArgumentException("Album not found in MusicStore.");
+                    }
+                    library.addAlbum(album);
+                    break;
+                }
+                case "remove-song":
+                    expect(args, 2, "remove-song <title> <artist>");
+                    library.removeSong(librarySong(library, args.get(0), args.get(1)));
+                    break;
+                case "remove-album": {
+                    expect(args, 2, "remove-album <title> <artist>");
+                    Album album = library.searchAlbumByTitle(args.get(0));
+                    if (album == null || !album.getArtist().equalsIgnoreCase(args.get(1))) {
+                        throw new IllegalArgumentException("Album not found in your library.");
+                    }
+                    library.removeAlbum(album);
+                    break;
+                }
+                case "songs":
+                    expect(args, 0, "songs");
+                    printSongs(library.getSongsSortedByTitleAndArtist(), library, out);
+                    break;
+                case "songs-by-rating":
+                    expect(args, 0, "songs-by-rating");
+                    printSongs(library.getSongsSortedByRating(), library, out);
+                    break;
+                case "albums":
+                    expect(args, 0, "albums");
+                    printAlbums(library.getAlbumsSortedByTitle(), out);
+                    break;
+                case "artists":
+                    expect(args, 0, "artists");
+                    for (String artist : library.getArtistsSorted()) {
+                        out.println(artist);
+                    }
+                    break;
+                case "favorites":
+                    expect(args, 0, "favorites");
+                    printSongs(library.getFavoriteSongs(), library, out);
+                    break;
+                case "find-songs": {
+                    expect(args, 2, "find-songs title|artist|genre <text>");
+                    String field = args.get(0).toLowerCase();
+                    if (field.equals("genre")) {
+                        printSongs(library.searchSongByGenre(args.get(1)), library, out);
+                    } else {
+                        printSongs(field(field).equals("title") ? library.searchSongByTitle(args.get(1))
+                                : library.searchSongByArtist(args.get(1)), library, out);
+                    }
+                    break;
+                }
+                case "rate":
+                    expect(args, 3, "rate <title> <artist> <1-5>");
+                    library.rateSong(librarySong(library, args.get(0), args.get(1)), number(args.get(2)));
+                    break;
+                case "favorite":
+                    expect(args, 2, "favorite <title> <artist>");
+                    library.markAsFavorite(librarySong(library, args.get(0), args.get(1)));
+                    break;
+                case "play":
+                    expect(args, 2, "play <title> <artist>");
+                    library.getPlaybackTracker().playSong(librarySong(library, args.get(0), args.get(1)));
+                    break;
+                case "recent":
+                    expect(args, 0, "recent");
+                    printSongs(library.getPlaybackTracker().getRecentlyPlayed(), library, out);
+                    break;
+                case "most-played":
+                    expect(args, 0, "most-played");
+                    printSongs(library.getPlaybackTracker().getMostPlayed(), library, out);
+                    break;
+                case "shuffle":
+                    if (args.isEmpty()) {
+                        printSongs(library.getShuffledSongs(), library, out);
+                    } else {
+                        expect(args, 1, "shuffle [playlist]");
+                        printSongs(library.getShuffledPlaylistSongs(playlist(library, args.get(0)).getName()), library, out);
+                    }
+                    break;
+                case "playlists":
+                    expect(args, 0, "playlists");
+                    for (Playlist playlist : library.getPlaylists()) {
+                        out.println(playlist.getName() + "\t" + playlist.getSongs().size());
+                    }
+                    for (Map.Entry<String, Integer> entry : library.getAutoPlaylistManager().getAutoPlaylistInfo().entrySet()) {
+                        out.println(entry.getKey() + "\t" + entry.getValue() + "\tauto");
+                    }
+                    break;
+                case "playlist":
+                    expect(args, 1, "playlist <name>");
+                    printSongs(playlist(library, args.get(0)).getSongs(), library, out);
+                    break;
+                case "create-playlist":
+                    expect(args, 1, "create-playlist <name>");
+                    if (library.getPlaylistByName(args.get(0)) != null) {
+                        throw new IllegalArgumentException("Playlist already exists.");
+                    }
+                    library.createPlaylist(args.get(0));
+                    break;
+                case "playlist-add":
+                    expect(args, 3, "playlist-add <playlist> <title> <artist>");
+                    playlist(library, args.get(0)).addSong(librarySong(library, args.get(1), args.get(2)));
+                    userManager.markDirty(current); // Playlist edits do not notify the library
+                    break;
+                case "playlist-remove": {
+                    expect(args, 3, "playlist-remove <playlist> <title> <artist>");
+                    Playlist playlist = playlist(library, args.get(0));
+                    Song song = librarySong(library, args.get(1), args.get(2));
+                    if (!playlist.getSongs().contains(song)) {
+                        throw new IllegalArgumentException("Song not found in the playlist.");
+                    }
+                    playlist.removeSong(song);
+                    userManager.markDirty(current);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unhandled library command: " + command);
+            }
+            return true;
+        } finally {
+            current.getLock().unlock();
+        }
+    }
+
+    /**
+     * Ends the session without logging out (e.g. the connection closed): the user's changes
+     * are saved in the background (or right away once background saves have been shut down)
+     * and the session token stays valid for resume.
+     */
+    public void close() {
+        if (user != null) {
+            User closing = user;
+            user = null;
+            token = null; // Still valid; the client can resume with it
+            try {
+                userManager.saveUserLibraryAsync(closing);
+            } catch (IllegalStateException e) {
+                userManager.saveUserLibrary(closing); // The write-behind service is shut down
+            }
+        }
+    }
+
+    /**
+     * Returns the logged-in user.
+     *
+     * @return The user, or null if nobody is logged in.
+     */
+    public User getUser() {
+        return user;
+    }
+
+    // ================== SESSION ================== //
+
+    private void login(User loggedIn, String sessionToken, PrintWriter out) {
+        if (user != null && !sessionToken.equals(token)) {
+            logout(); // Ends this connection's previous session; other connections keep theirs
+        }
+        user = loggedIn;
+        token = sessionToken;
+        out.println("token\t" + token);
+        out.println("library\t" + loggedIn.getSummary());
+    }
+
+    private void logout() {
+        User current = requireUser();
+        userManager.saveUserLibraryAsync(current); // Saved in the background
+        userManager.endSession(token);
+        user = null;
+        token = null;
+    }
+
+    private User requireUser() {
+        if (user == null) {
+            throw new IllegalStateException("Not logged in.");
+        }
+        return user;
+    }
+
+    // ================== OUTPUT ================== //
+
+    /**
+     * Writes songs as "title, artist, album, rating, favorite" lines, with the ratings and
+     * favorites of the given library (none if it is null).
+     */
+    private static void printSongs(List<Song> songs, LibraryModel library, PrintWriter out) {
+        for (Song song : songs) {
+            int rating = library == null ? 0 : library.getRating(song);
+            boolean favorite = library != null && library.isFavorite(song);
+            out.println(song.getTitle() + "\t" + song.getArtist() + "\t" + song.getAlbum().getTitle()
+                    + "\t" + rating + "\t" + (favorite ? "favorite" : "-"));
+        }
+    }
+
+    /**
+     * Writes albums as "title, artist, year, genre, song count" lines.
+     */
+    private static void printAlbums(List<Album> albums, PrintWriter out) {
+        for (Album album : albums) {
+            out.println(album.getTitle() + "\t" + album.getArtist() + "\t" + album.getYear() + "\t"
+                    + album.getGenre() + "\t" + album.getSongs().size());
+        }
+    }
+
+    private static void help(PrintWriter out) {
+        out.println("register <username> <password> | login <username> <password> | resume <token> | logout | quit");
+        out.println("search-songs title|artist <text> | search-albums title|artist <text>");
+        out.println("add-song <title> <artist> | add-album <title> <artist> | remove-song <title> <artist> | remove-album <title> <artist>");
+        out.println("songs | songs-by-rating | albums | artists | favorites | summary | find-songs title|artist|genre <text>");
+        out.println("rate <title> <artist> <1-5> | favorite <title> <artist> | play <title> <artist> | recent | most-played");
+        out.println("playlists | playlist <name> | create-playlist <name> | playlist-add <playlist> <title> <artist>");
+        out.println("playlist-remove <playlist> <title> <artist> | shuffle [playlist]");
+    }
+
+    // ================== HELPER METHODS ================== //
+
+    /**
+     * Splits a command line into words. Double quotes group words with spaces; a backslash
+     * escapes the next character.
+     *
+     * @param line The command line.
+     * @return The words.
+     * @throws IllegalArgumentException If a quote is not closed.
+     */
+    public static List<String> tokenize(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                word.append(line.charAt(++i));
+                inWord = true;
+            } else if (c == '"') {
+                quoted = !quoted;
+                inWord = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unclosed quote.");
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Quotes a word so tokenize() reads it back unchanged (e.g. for building command lines).
+     *
+     * @param word The word.
+     * @return The quoted word.
+     */
+    public static String quote(String word) {
+        return "\"" + word.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static void expect(List<String> args, int count, String usage) {
+        if (args.size() != count) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private static String field(String field) {
+        String lower = field.toLowerCase();
+        if (!lower.equals("title") && !lower.equals("artist")) {
+            throw new IllegalArgumentException("Search by title or artist.");
+        }
+        return lower;
+    }
+
+    private static int number(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + text);
+        }
+    }
+
+    private static Song librarySong(LibraryModel library, String title, String artist) {
+        Song song = library.searchSongByArtistAndTitle(artist, title);
+        if (song == null) {
+            throw new IllegalArgumentException("Song not found in your library.");
+        }
+        return song;
+    }
+
+    private static Playlist playlist(LibraryModel library, String name) {
+        Playlist playlist = library.getPlaylistByName(name);
+        if (playlist == null) {
+            throw new IllegalArgumentException("Playlist not found.");
+        }
+        return playlist;
+    }
+}
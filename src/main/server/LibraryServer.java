@@ -0,0 +1,333 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: LibraryServer.java
+ * Purpose: Headless mode: serves many users from one process over a line-based TCP protocol on
+ *          localhost. All connections share one catalog and one UserManager; each connection is a
+ *          session of LibraryCommands (login, library, playback, playlists). Every command line
+ *          is answered with its result lines, each prefixed with "- ", then one status line:
+ *          "OK" or "ERR <message>". Each connection is served by its own virtual thread, up to a
+ *          limit on open connections; connections beyond it get "ERR Server busy" and are closed.
+ */
+package main.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import main.database.MusicStore;
+import main.model.UserManager;
+
+public class LibraryServer {
+    public static final int DEFAULT_PORT = 7335;
+    public static final int DEFAULT_MAX_CONNECTIONS = 4096;
+    private static final int IDLE_TIMEOUT_MILLIS = 15 * 60 * 1000; // Idle connections are closed
+    private static final int MAX_LINE_LENGTH = 8192; // Longest command line accepted
+    private static final int BACKLOG = 512; // Pending connections the OS queues
+
+    private final UserManager userManager;
+    private final MusicStore catalog;
+    private final Semaphore connectionSlots;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet(); // Open client sockets
+    private final Set<Thread> sessions = ConcurrentHashMap.newKeySet(); // Threads serving connections
+    private final Thread.Builder sessionThreads = Thread.ofVirtual().name("library-session-", 1); // Accept thread only
+    private volatile ServerSocket serverSocket;
+    private Thread acceptThread;
+
+    // Metrics
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong failedCommands = new AtomicLong();
+
+    /**
+     * Constructs a server with the default connection limit.
+     *
+     * @param userManager The users shared by all connections.
+     * @param catalog     The store shared by all connections.
+     */
+    public LibraryServer(UserManager userManager, MusicStore catalog) {
+        this(userManager, catalog, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Constructs a server.
+     *
+     * @param userManager    The users shared by all connections.
+     * @param catalog        The store shared by all connections.
+     * @param maxConnections Connections served at the same time.
+     */
+    public LibraryServer(UserManager userManager, MusicStore catalog, int maxConnections) {
+        if (userManager == null || catalog == null) {
+            throw new IllegalArgumentException("User manager and catalog cannot be null.");
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("Connection limit must be at least 1.");
+        }
+        this.userManager = userManager;
+        this.catalog = catalog;
+        this.connectionSlots = new Semaphore(maxConnections);
+    }
+
+    // ================== LIFECYCLE ================== //
+
+    /**
+     * Starts listening on localhost.
+     *
+     * @param port The port, or 0 for any free port.
+     * @return The port the server listens on.
+     * @throws IOException If the port cannot be bound.
+     * @throws IllegalStateException If the server was already started.
+     */
+    public synchronized int start(int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Server already started.");
+        }
+        serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        acceptThread = new Thread(this::acceptLoop, "library-server-accept");
+        acceptThread.start();
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and waits until their sessions have
+     * ended, so every logged-in user's changes are queued for saving before this returns (and
+     * before the caller shuts the UserManager down).
+     *
+     * @throws InterruptedException If interrupted while waiting for the server's threads.
+     */
+    public void stop() throws InterruptedException {
+        Thread accepting;
+        synchronized (this) {
+            if (serverSocket == null) {
+                return;
+            }
+            closeQuietly(serverSocket);
+            accepting = acceptThread;
+        }
+        accepting.join();
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        for (Thread session : sessions) {
+            session.join();
+        }
+    }
+
+    /**
+     * Waits until the server stops (for the command-line entry point).
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void awaitStop() throws InterruptedException {
+        Thread accepting;
+        synchronized (this) {
+            accepting = acceptThread;
+        }
+        if (accepting != null) {
+            accepting.join();
+        }
+    }
+
+    private void acceptLoop() {
+        ServerSocket listening = serverSocket;
+        while (!listening.isClosed()) {
+            Socket socket;
+            try {
+                socket = listening.accept();
+            } catch (IOException e) {
+                if (listening.isClosed()) {
+                    return; // stop()
+                }
+                continue; // Failed handshake of one client
+            }
+            if (!connectionSlots.tryAcquire()) {
+                refused.incrementAndGet();
+                refuse(socket);
+                continue;
+            }
+            accepted.incrementAndGet();
+            connections.add(socket);
+            Thread session = sessionThreads.unstarted(() -> serve(socket));
+            sessions.add(session);
+            session.start();
+        }
+    }
+
+    // ================== SESSIONS ================== //
+
+    /**
+     * Serves one connection until the client quits or disconnects.
+     *
+     * @param socket The client's socket.
+     */
+    private void serve(Socket socket) {
+        LibraryCommands session = new LibraryCommands(userManager, catalog);
+        try (Socket client = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)))) {
+            client.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            client.setTcpNoDelay(true); // Responses are small and flushed whole
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.length() > MAX_LINE_LENGTH) {
+                    out.println("ERR Command too long.");
+                    out.flush();
+                    break;
+                }
+                boolean open = respond(session, line, out);
+                out.flush(); // One write per response
+                if (!open) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException | SocketException e) {
+            // Idle too long, reset by the client, or closed by stop()
+        } catch (IOException e) {
+            // Connection failed; nothing to report to the client
+        } finally {
+            session.close(); // Queues a save of the user's changes; the session can be resumed
+            connections.remove(socket);
+            connectionSlots.release();
+            sessions.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * Runs one command and writes its response.
+     *
+     * @return False if the session should end.
+     */
+    private boolean respond(LibraryCommands session, String line, PrintWriter out) {
+        commands.incrementAndGet();
+        StringWriter result = new StringWriter();
+        boolean open;
+        try (PrintWriter resultWriter = new PrintWriter(result)) {
+            open = session.execute(line, resultWriter);
+        } catch (IllegalArgumentException | IllegalStateException | RejectedExecutionException e) {
+            failedCommands.incrementAndGet();
+            out.println("ERR " + singleLine(e.getMessage()));
+            return true;
+        } catch (RuntimeException e) {
+            // Unexpected failure (e.g. storage); the session stays usable
+            failedCommands.incrementAndGet();
+            out.println("ERR Internal error: " + singleLine(String.valueOf(e.getMessage())));
+            return true;
+        }
+        writeResult(result.toString(), out);
+        out.println("OK");
+        return open;
+    }
+
+    /**
+     * Writes a command's result lines, each prefixed with "- " so none can be mistaken for
+     * the status line.
+     */
+    private static void writeResult(String result, PrintWriter writer) {
+        int start = 0;
+        while (start < result.length()) {
+            int end = result.indexOf('\n', start);
+            if (end < 0) {
+                end = result.length();
+            }
+            int lineEnd = end > start && result.charAt(end - 1) == '\r' ? end - 1 : end;
+            writer.print("- ");
+            writer.write(result, start, lineEnd - start);
+            writer.println();
+            start = end + 1;
+        }
+    }
+
+    private static String singleLine(String message) {
+        return message == null ? "" : message.replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private static void refuse(Socket socket) {
+        try (Socket client = socket) {
+            client.getOutputStream().write("ERR Server busy\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // The client is gone already
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    // ================== METRICS ================== //
+
+    /**
+     * Returns the number of open connections.
+     *
+     * @return The connection count.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * Returns the number of connections turned away because the limit was reached.
+     *
+     * @return The refused connection count.
+     */
+    public long getRefusedCount() {
+        return refused.get();
+    }
+
+    public long getCommandCount() {
+        return commands.get();
+    }
+
+    public long getFailedCommandCount() {
+        return failedCommands.get();
+    }
+
+    // ================== ENTRY POINT ================== //
+
+    /**
+     * Runs the server until the process is stopped: java main.server.LibraryServer [port].
+     *
+     * @param args Optional port (default DEFAULT_PORT).
+     * @throws Exception If the server cannot start.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        UserManager userManager = new UserManager();
+        LibraryServer server = new LibraryServer(userManager, MusicStore.getShared("src/main/albums/"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            userManager.shutdown(); // Flush pending saves
+        }, "library-server-shutdown"));
+        System.out.println("Music library server listening on localhost:" + server.start(port));
+        server.awaitStop();
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: BatchRunner.java
+ * Purpose: Non-interactive mode: runs a file of commands (the same commands as the server, e.g.
+ *          add-album "21" Adele, rate "Rolling in the Deep" Adele 5, play ...) for bulk admin
+ *          work and as a repeatable end-to-end load driver. Output goes through one buffered
+ *          writer; each command's result is followed by its time, and a per-command timing
+ *          table (count, total, average, slowest) is printed at the end.
+ */
+package main.view;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import main.database.MusicStore;
+import main.model.UserManager;
+import main.server.LibraryCommands;
+
+public class BatchRunner {
+    private final UserManager userManager;
+    private final MusicStore catalog;
+    private boolean failFast; // Stop at the first failing command
+    private String loginCommand; // Run before the script, if set
+
+    /**
+     * Constructs a batch runner.
+     *
+     * @param userManager The users the commands run against.
+     * @param catalog     The store searched by the commands.
+     */
+    public BatchRunner(UserManager userManager, MusicStore catalog) {
+        if (userManager == null || catalog == null) {
+            throw new IllegalArgumentException("User manager and catalog cannot be null.");
+        }
+        this.userManager = userManager;
+        this.catalog = catalog;
+    }
+
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /**
+     * Logs in as the given user before each script, so scripts need no login line.
+     *
+     * @param username The user's name.
+     * @param password The user's password.
+     */
+    public void setLogin(String username, String password) {
+        this.loginCommand = "login " + LibraryCommands.quote(username) + " " + LibraryCommands.quote(password);
+    }
+
+    // ================== RUNNING ================== //
+
+    /**
+     * Runs every command in a script. Blank lines and lines starting with # are skipped.
+     * A script starts with a login command unless setLogin() was called.
+     *
+     * @param script The commands, one per line.
+     * @param out    Where results, timings and the summary are written (flushed at the end).
+     * @return The run's statistics.
+     * @throws IOException If the script cannot be read.
+     */
+    public Report run(BufferedReader script, PrintWriter out) throws IOException {
+        LibraryCommands session = new LibraryCommands(userManager, catalog);
+        Report report = new Report();
+        long runStart = System.nanoTime();
+        try {
+            boolean open = true;
+            if (loginCommand != null) {
+                open = runCommand(session, loginCommand, "login (as given)", 0, report, out);
+            }
+            String line;
+            int lineNumber = 0;
+            while (open && (line = script.readLine()) != null) {
+                lineNumber++;
+                String command = line.trim();
+                if (command.isEmpty() || command.startsWith("#")) {
+                    continue;
+                }
+                open = runCommand(session, command, command, lineNumber, report, out);
+            }
+        } finally {
+            session.close(); // Queues a save of the user's changes
+            report.totalNanos = System.nanoTime() - runStart;
+            report.print(out);
+            out.flush();
+        }
+        return report;
+    }
+
+    /**
+     * Runs and times one command, then writes it, its result and its time.
+     *
+     * @return False if the run should stop (quit, or a failure with fail-fast set).
+     */
+    private boolean runCommand(LibraryCommands session, String command, String label, int lineNumber,
+            Report report, PrintWriter out) {
+        StringWriter result = new StringWriter();
+        PrintWriter resultWriter = new PrintWriter(result);
+        String error = null;
+        boolean open = true;
+        long start = System.nanoTime();
+        try {
+            open = session.execute(command, resultWriter);
+        } catch (IllegalArgumentException | IllegalStateException | RejectedExecutionException e) {
+            error = e.getMessage();
+        } catch (RuntimeException e) {
+            error = "Internal error: " + e.getMessage(); // e.g. storage; later commands still run
+        }
+        long nanos = System.nanoTime() - start;
+        report.record(commandName(command), nanos, error == null);
+
+        resultWriter.flush();
+        out.println("> " + label);
+        out.print(result);
+        if (error == null) {
+            out.printf("ok (%.3f ms)%n", nanos / 1e6);
+            return open;
+        }
+        out.printf("error at line %d: %s (%.3f ms)%n", lineNumber, error, nanos / 1e6);
+        return !failFast;
+    }
+
+    private static String commandName(String command) {
+        int end = 0;
+        while (end < command.length() && !Character.isWhitespace(command.charAt(end))) {
+            end++;
+        }
+        return command.substring(0, end).toLowerCase();
+    }
+
+    // ================== REPORT ================== //
+
+    /**
+     * Statistics of one batch run.
+     */
+    public static final class Report {
+        private final Map<String, CommandStats> byCommand = new LinkedHashMap<>(); // In first-use order
+        private int commands;
+        private int failures;
+        private long totalNanos;
+
+        private void record(String name, long nanos, boolean succeeded) {
+            commands++;
+            if (!succeeded) {
+                failures++;
+            }
+            byCommand.computeIfAbsent(name, key -> new CommandStats()).add(nanos);
+        }
+
+        private void print(PrintWriter out) {
+            out.printf("%n=== Batch Summary: %d commands, %d failed, %.1f ms ===%n", commands, failures, totalNanos / 1e6);
+            out.printf("%-18s %8s %12s %10s %10s%n", "command", "count", "total ms", "avg ms", "max ms");
+            for (Map.Entry<String, CommandStats> entry : byCommand.entrySet()) {
+                CommandStats stats = entry.getValue();
+                out.printf("%-18s %8d %12.3f %10.3f %10.3f%n", entry.getKey(), stats.count, stats.totalNanos / 1e6,
+                        stats.totalNanos / 1e6 / stats.count, stats.maxNanos / 1e6);
+            }
+        }
+
+        public int getCommandCount() {
+            return commands;
+        }
+
+        public int getFailureCount() {
+            return failures;
+        }
+
+        public double getElapsedMillis() {
+            return totalNanos / 1e6;
+        }
+
+        /**
+         * Returns how often each command ran.
+         *
+         * @return Command name to run count, in first-use order.
+         */
+        public Map<String, Integer> getCommandCounts() {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, CommandStats> entry : byCommand.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().count);
+            }
+            return Collections.unmodifiableMap(counts);
+        }
+    }
+
+    /**
+     * Timing of one command name.
+     */
+    private static final class CommandStats {
+        private int count;
+        private long totalNanos;
+        private long maxNanos;
+
+        private void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+    }
+}
@@ -14,13 +14,19 @@ package main.view;
 
 import main.model.*;
 import main.database.MusicStore;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
-public class LibraryView {
+public final class LibraryView {
     private final LibraryModel model;
     private final Scanner scanner;
     private final UserManager userManager; 
     private User currentUser; 
+    private final PrintWriter out; // Buffered console writer for long listings
+    private final PagedRenderer pager; // Shows long listings one page at a time
 
     /**
      * Constructs a LibraryView instance.
@@ -31,7 +37,11 @@ public class LibraryView {
         this.model = model;
         this.scanner = new Scanner(System.in);
         this.userManager = new UserManager(); // Initialize UserManager
+        // Flush pending background saves even if the app is closed without choosing Exit
+        Runtime.getRuntime().addShutdownHook(new Thread(userManager::shutdown, "flush-on-shutdown"));
         this.currentUser = null; // No user logged in initially
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        this.pager = new PagedRenderer(out, this::getUserInput, PagedRenderer.DEFAULT_PAGE_SIZE);
     }
 
     // ================== USER REGISTRATION & LOGIN ================== //
@@ -54,7 +64,7 @@ public class LibraryView {
             userManager.registerUser(username, password);
             System.out.println("User registered successfully!"); // Success feedback
             
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | RejectedExecutionException e) {
             // Handle validation errors from UserManager
             System.out.println("Error: " + e.getMessage()); // Error feedback
         }
@@ -76,13 +86,13 @@ public class LibraryView {
         try {
             // Authenticate user through UserManager
             currentUser = userManager.loginUser(username, password);
-            System.out.println("Login successful!"); // Success feedback
+            System.out.println("Login successful! Your library: " + currentUser.getSummary()); // Success feedback
             
             // Transition to main application interface
             promptForCommand(); // Launch main command loop
             
-        } catch (IllegalArgumentException e) {
-            // Handle authentication failures
+        } catch (IllegalArgumentException | RejectedExecutionException e) {
+            // Handle authentication failures (and throttled attempts)
             System.out.println("Error: " + e.getMessage()); // Error feedback
         }
     }
@@ -133,33 +143,42 @@ public class LibraryView {
                             break;
                         case 3:
                             System.out.println("Exiting...");
+                            userManager.shutdown(); // Wait for pending background saves
                             scanner.close();
                             return;
                         default:
                             System.out.println("Invalid choice. Try again.");
                     }
                 } else {
-                    // Handle the regular Music Library Manager menu
-                    switch (choice) {
-                        case 1:
-                            handleStoreSearch(); // Navigate to the store search functionality
-                            break;
-                        case 2:
-                            handleLibraryMenu(); // Navigate to the library menu
-                            break;
-                        case 3:
-                            handlePlaylistMenu(); // Navigate to the playlist menu
-                            break;
-                        case 4:
-                            handleRatingMenu(); // Navigate to the song rating menu
-                            break;
-                        case 5:
-                            userManager.saveUserLibrary(currentUser); // Add this line to save playback data
-                            currentUser = null;
-                            System.out.println("Logged out successfully!");
-                            break;
-                        default:
-                            System.out.println("Invalid choice. Try again.");
+                    // Handle the regular Music Library Manager menu; background saves of this
+                    // user wait until the command is done
+                    User user = currentUser;
+                    userManager.touchUser(user); // Most recently used, so it is not evicted
+                    user.getLock().lock();
+                    try {
+                        switch (choice) {
+                            case 1:
+                                handleStoreSearch(); // Navigate to the store search functionality
+                                break;
+                            case 2:
+                                handleLibraryMenu(); // Navigate to the library menu
+                                break;
+                            case 3:
+                                handlePlaylistMenu(); // Navigate to the playlist menu
+                                break;
+                            case 4:
+                                handleRatingMenu(); // Navigate to the song rating menu
+                                break;
+                            case 5:
+                                userManager.saveUserLibraryAsync(user); // Saved in the background
+                                currentUser = null;
+                                System.out.println("Logged out successfully!");
+                                break;
+                            default:
+                                System.out.println("Invalid choice. Try again.");
+                        }
+                    } finally {
+                        user.getLock().unlock();
                     }
                 }
             } catch (NumberFormatException e) {
@@ -434,22 +453,20 @@ public class LibraryView {
     }
     
     /**
-     * Displays all songs in shuffled order with ratings.
+     * Displays all songs in shuffled order with ratings, one page at a time.
      * Shows message if library is empty.
      */
     private void handleShuffleSongs() {
-        // Display shuffle mode header
-        System.out.println("\n=== Shuffled Songs ===");
-        List<Song> shuffledSongs = model.getShuffledSongs();
         // Handle empty library case
-        if (shuffledSongs.isEmpty()) {
+        if (model.getSongLibrary().isEmpty()) {
+            System.out.println("\n=== Shuffled Songs ===");
             System.out.println("Your library has no songs yet.");
-        } else {
-            // Display each song with consistent formatting
-            for (Song song : shuffledSongs) {
-                printSongWithRating(song);
-            }
+            return;
         }
+        // One seed per shuffle keeps the order the same while paging
+        long seed = new Random().nextLong();
+        pager.render("\n=== Shuffled Songs ===",
+            (offset, limit) -> model.getShuffledSongs(seed, offset, limit), this::writeSongWithRating);
     }
     
  // ================== PLAYBACK FUNCTIONALITY ================== //
@@ -734,21 +751,13 @@ public class LibraryView {
      * Displays all songs in the library.
      */
     private void displayLibrarySongs() {
-        // Get songs sorted alphabetically by title then artist
-        List<Song> songs = model.getSongsSortedByTitleAndArtist();
-        
         // Handle empty library case
-        if (songs.isEmpty()) {
+        if (model.getSongLibrary().isEmpty()) {
             System.out.println("\nYour library has no songs yet.");
         } 
-        // Display all songs with ratings
+        // Display songs sorted by title then artist, one page at a time
         else {
-            System.out.println("\n=== Your Songs ===");  // Section header
-            
-            // Print each song with formatted rating
-            for (Song song : songs) {
-                printSongWithRating(song);  
-            }
+            pager.render("\n=== Your Songs ===", model::getSongsSortedByTitleAndArtist, this::writeSongWithRating);
         }
     }
 
@@ -825,18 +834,11 @@ public class LibraryView {
      * Displays all songs in the library sorted by rating (ascending).
      */
     private void displaySongsByRating() {
-    	// Get songs sorted by rating then title
-        List<Song> songs = model.getSongsSortedByRating();
-        
-        if (songs.isEmpty()) {
+        if (model.getSongLibrary().isEmpty()) {
             System.out.println("\nYour library has no songs yet."); // Empty state
         } else {
-            System.out.println("\n=== Songs by Rating ==="); // Section header
-            
-            // Display each song with formatted rating
-            for (Song song : songs) {
-                printSongWithRating(song); // Consistent song display format
-            }
+            // Songs sorted by rating then title, one page at a time
+            pager.render("\n=== Songs by Rating ===", model::getSongsSortedByRating, this::writeSongWithRating);
         }
     }
     
@@ -997,41 +999,49 @@ public class LibraryView {
             return;  // Exit early if no playlists exist
         }
 
-        // Display user playlists section if they exist
+        // Display each section one page at a time; a page holds playlist headers and songs
         if (!userPlaylists.isEmpty()) {
-            System.out.println("\n=== User Playlists ===");  // Section header
-            for (Playlist playlist : userPlaylists) {
-                // Print playlist name and song count
-                System.out.printf("%s (%d songs):\n", playlist.getName(), playlist.getSongs().size());
-                
-                // Print each song in the playlist with optional rating stars
-                for (Song song : playlist.getSongs()) {
-                    String ratingStars = "";
-                    if (song.getRating() > 0) {
-                        ratingStars = " " + getRatingStars(song.getRating());  // Add visual rating if exists
-                    }
-                    System.out.printf(" - %s by %s%s\n", song.getTitle(), song.getArtist(), ratingStars);
-                }
-            }
+            pager.render("\n=== User Playlists ===", playlistRows(userPlaylists), PrintWriter::println);
         }
-
-        // Display system playlists section if they exist
         if (!systemPlaylists.isEmpty()) {
-            System.out.println("\n=== System Playlists ===");  // Section header
-            for (Playlist playlist : systemPlaylists) {
-                // Print playlist name and song count
-                System.out.printf("%s (%d songs):\n", playlist.getName(), playlist.getSongs().size());
-                
-                // Print each song in the playlist with optional rating stars
-                for (Song song : playlist.getSongs()) {
-                    String ratingStars = "";
-                    if (song.getRating() > 0) {
-                        ratingStars = " " + getRatingStars(song.getRating());  // Add visual rating if exists
+            pager.render("\n=== System Playlists ===", playlistRows(systemPlaylists), PrintWriter::println);
+        }
+    }
+
+    /**
+     * Lists playlists as rows: each playlist's header followed by its songs.
+     * A page is built from only the playlists and songs it shows; no song list is copied whole.
+     *
+     * @param playlists The playlists to list.
+     * @return The rows, fetched one page at a time.
+     */
+    private PagedRenderer.PageSource<String> playlistRows(List<Playlist> playlists) {
+        return (offset, limit) -> {
+            List<String> rows = new ArrayList<>();
+            int position = 0; // Row of the current playlist's header
+            for (Playlist playlist : playlists) {
+                int size = playlist.size();
+                int next = position + 1 + size;
+                int wanted = offset + rows.size(); // Next row the page needs
+                if (rows.size() < limit && wanted < next) {
+                    if (wanted == position) {
+                        rows.add(String.format("%s (%d songs):", playlist.getName(), size));
+                        wanted++;
+                    }
+                    if (rows.size() < limit && wanted < next) {
+                        for (Song song : playlist.getSongs(wanted - position - 1, limit - rows.size()).getItems()) {
+                            String ratingStars = "";
+                            if (model.getRating(song) > 0) {
+                                ratingStars = " " + getRatingStars(model.getRating(song));  // Add visual rating if exists
+                            }
+                            rows.add(String.format(" - %s by %s%s", song.getTitle(), song.getArtist(), ratingStars));
+                        }
                     }
-                    System.out.printf(" - %s by %s%s\n", song.getTitle(), song.getArtist(), ratingStars);
                 }
+                position = next;
             }
-        }
+            return new Page<>(rows, offset, position);
+        };
     }
     
     /**
@@ -1142,9 +1152,9 @@ public class LibraryView {
                 for (Object item : items) {
                     Song song = (Song) item;
                     String ratingStars = "";
-                    if (song.getRating() > 0) {
+                    if (model.getRating(song) > 0) {
                     	// Add star rating if exists
-                        ratingStars = " " + getRatingStars(song.getRating());
+                        ratingStars = " " + getRatingStars(model.getRating(song));
                     }
                     // Print song with album info and rating
                     System.out.printf("- %s by %s (Album: %s)%s\n",
@@ -1162,9 +1172,9 @@ public class LibraryView {
                     // Iterating through the songs in the album and printing their details
                     for (Song song : album.getSongs()) {
                         String ratingStars = "";
-                        if (song.getRating() > 0) {
+                        if (model.getRating(song) > 0) {
                         	// Add star rating if exists
-                            ratingStars = " " + getRatingStars(song.getRating());
+                            ratingStars = " " + getRatingStars(model.getRating(song));
                         }
                         System.out.printf(" - %s%s\n", song.getTitle(), ratingStars);
                     }
@@ -1233,13 +1243,26 @@ public class LibraryView {
      * @param song The song to display.
      */
     private void printSongWithRating(Song song) {
+        System.out.println(formatSongWithRating(song));
+    }
+
+    /**
+     * Writes song details with rating stars to a (buffered) writer.
+     * @param writer Where to write.
+     * @param song The song to display.
+     */
+    private void writeSongWithRating(PrintWriter writer, Song song) {
+        writer.println(formatSongWithRating(song));
+    }
+
+    private String formatSongWithRating(Song song) {
         String ratingStars = "";
-        if (song.getRating() > 0) {
+        if (model.getRating(song) > 0) {
         	// Add stars if rated
-            ratingStars = " " + getRatingStars(song.getRating());
+            ratingStars = " " + getRatingStars(model.getRating(song));
         }
-        // Printing  song details in the specified format
-        System.out.printf("- %s by %s (Album: %s)%s\n",
+        // Formatting song details in the specified format
+        return String.format("- %s by %s (Album: %s)%s",
             song.getTitle(), song.getArtist(), song.getAlbum().getTitle(), ratingStars);
     }
 }
\ No newline at end of file
@@ -6,17 +6,43 @@
  * Purpose: This is the entry point of the MusicLibraryApp. It initializes the MusicStore, LibraryModel,
  *          and LibraryView, and starts the application by launching the user interface. The main method
  *          sets up the necessary components for the application to run.
+ *          With "--server [port]" it runs the headless multi-user server instead, and with
+ *          "--batch <file> [username password] [--fail-fast]" it runs a command file and exits.
  */
 package main.view;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
 import main.database.MusicStore;
 import main.model.LibraryModel;
+import main.model.UserManager;
+import main.server.LibraryServer;
 import main.view.LibraryView;
 
 public class Main {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+	    // Headless mode: many users over TCP on localhost instead of one at the console
+	    if (args.length > 0 && args[0].equals("--server")) {
+	        LibraryServer.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+	        return;
+	    }
+
+	    // Batch mode: run a command file against a user, then exit
+	    if (args.length > 1 && args[0].equals("--batch")) {
+	        runBatch(args);
+	        return;
+	    }
+
 	    // Initializing MusicStore with the path to the test data
-	    MusicStore store = new MusicStore("src/main/albums");
+	    MusicStore store = MusicStore.getShared("src/main/albums");
 
 	    // Initializing LibraryModel with the MusicStore
 	    LibraryModel model = new LibraryModel(store);
@@ -27,4 +53,38 @@ public class Main {
 	    // Starting the UI
 	    view.promptForCommand();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Runs a command file: --batch <file> [username password] [--fail-fast].
+	 *
+	 * @param args The command-line arguments, starting with --batch.
+	 * @throws Exception If the file cannot be read.
+	 */
+	private static void runBatch(String[] args) throws Exception {
+	    UserManager userManager = new UserManager();
+	    BatchRunner runner = new BatchRunner(userManager, MusicStore.getShared("src/main/albums/"));
+	    List<String> credentials = new ArrayList<>();
+	    for (int i = 2; i < args.length; i++) {
+	        if (args[i].equals("--fail-fast")) {
+	            runner.setFailFast(true);
+	        } else {
+	            credentials.add(args[i]);
+	        }
+	    }
+	    if (credentials.size() == 2) {
+	        runner.setLogin(credentials.get(0), credentials.get(1));
+	    }
+
+	    PrintWriter out = new PrintWriter(new BufferedWriter(
+	            new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+	    BatchRunner.Report report;
+	    try (BufferedReader script = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+	        report = runner.run(script, out);
+	    } finally {
+	        userManager.shutdown(); // Flush pending saves
+	    }
+	    if (report.getFailureCount() > 0) {
+	        System.exit(1);
+	    }
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Name: Alina Kushareva
+ * Class: CSC335 Spring 2025
+ * Project: MusicLibraryApp
+ * File: PagedRenderer.java
+ * Purpose: Shows long listings (songs, playlists, shuffles) one page at a time. Only the current page
+ *          is fetched from the model, and every row goes through one buffered writer that is flushed
+ *          once per page, so a 50k-song library no longer costs 50k unbuffered writes. Between pages
+ *          the user can go to the next or previous page, jump to a page, or stop.
+ */
+package main.view;
+
+import java.io.PrintWriter;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import main.model.Page;
+
+public class PagedRenderer {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final PrintWriter out;
+    private final Supplier<String> input;
+    private final int pageSize;
+
+    /**
+     * Fetches one page of a listing.
+     */
+    @FunctionalInterface
+    public interface PageSource<T> {
+        /**
+         * @param offset Position of the page's first item.
+         * @param limit  Most items on the page.
+         * @return The page.
+         */
+        Page<T> fetch(int offset, int limit);
+    }
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param out      The buffered writer all pages go through.
+     * @param input    Reads the user's navigation choice; returns null at end of input.
+     * @param pageSize Items per page.
+     */
+    public PagedRenderer(PrintWriter out, Supplier<String> input, int pageSize) {
+        if (out == null || input == null) {
+            throw new IllegalArgumentException("Output and input cannot be null.");
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        this.out = out;
+        this.input = input;
+        this.pageSize = pageSize;
+    }
+
+    // ================== RENDERING ================== //
+
+    /**
+     * Shows a listing page by page until the user stops or leaves the last page.
+     * A listing that fits on one page is shown without asking anything.
+     *
+     * @param header Printed above every page.
+     * @param source Fetches the pages.
+     * @param row    Writes one item.
+     */
+    public <T> void render(String header, PageSource<T> source, BiConsumer<PrintWriter, T> row) {
+        int pageIndex = 0;
+        while (true) {
+            Page<T> page = source.fetch(pageIndex * pageSize, pageSize);
+            int pageCount = Math.max(1, (page.getTotal() + pageSize - 1) / pageSize);
+            if (pageIndex >= pageCount) {
+                pageIndex = pageCount - 1; // The listing shrank while browsing
+                continue;
+            }
+
+            out.println(header);
+            for (T item : page.getItems()) {
+                row.accept(out, item);
+            }
+            if (pageCount == 1) {
+                out.flush();
+                return;
+            }
+            out.printf("Page %d of %d (%d items) - [n]ext, [p]revious, [j]ump <page>, [q]uit: ",
+                    pageIndex + 1, pageCount, page.getTotal());
+            out.flush(); // One write per page
+
+            Integer next = nextPage(pageIndex, pageCount);
+            if (next == null) {
+                return;
+            }
+            pageIndex = next;
+        }
+    }
+
+    /**
+     * Reads navigation choices until one is valid.
+     *
+     * @return The page to show next, or null to stop.
+     */
+    private Integer nextPage(int pageIndex, int pageCount) {
+        while (true) {
+            String choice = input.get();
+            if (choice == null) {
+                out.println();
+                out.flush();
+                return null;
+            }
+            choice = choice.trim().toLowerCase();
+            if (choice.isEmpty() || choice.equals("n")) {
+                return pageIndex + 1 < pageCount ? pageIndex + 1 : null; // Past the last page ends the listing
+            }
+            if (choice.equals("p")) {
+                return Math.max(0, pageIndex - 1);
+            }
+            if (choice.equals("q")) {
+                return null;
+            }
+            String number = choice.startsWith("j") ? choice.substring(1).trim() : choice;
+            try {
+                int target = Integer.parseInt(number);
+                if (target >= 1 && target <= pageCount) {
+                    return target - 1;
+                }
+                out.printf("Pages are 1 to %d: ", pageCount);
+            } catch (NumberFormatException e) {
+                out.print("Invalid choice. Enter n, p, j <page> or q: ");
+            }
+            out.flush();
+        }
+    }
+}
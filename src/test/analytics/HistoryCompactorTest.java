@@ -0,0 +1,58 @@
+package test.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import main.analytics.HistoryCompactor;
+import main.analytics.PlayHistory;
+
+class HistoryCompactorTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    void testThreadStartsOnFirstRegistrationAndStopsOnClose() {
+        HistoryCompactor compactor = new HistoryCompactor();
+        assertFalse(compactor.isRunning()); // Nothing registered, no thread
+
+        PlayHistory history = new PlayHistory(Clock.systemUTC());
+        compactor.register(history);
+        assertTrue(compactor.isRunning());
+        assertEquals(1, compactor.getRegisteredCount());
+
+        compactor.close();
+        assertFalse(compactor.isRunning());
+        assertEquals(0, compactor.getRegisteredCount());
+        compactor.register(history); // Ignored once closed
+        assertFalse(compactor.isRunning());
+    }
+
+    @Test
+    void testCompactAllCompactsRegisteredHistories() {
+        Clock later = Clock.fixed(Instant.ofEpochMilli(30 * DAY), ZoneOffset.UTC);
+        PlayHistory history = new PlayHistory(later, 7, 90);
+        history.record("adele|daydreamer", 0);
+        history.record("adele|daydreamer", 29 * DAY);
+
+        try (HistoryCompactor compactor = new HistoryCompactor()) {
+            compactor.register(history);
+            assertEquals(1, compactor.compactAll());
+        }
+        assertEquals(1, history.getRawEventCount());
+        assertEquals(1, history.getDailyBucketCount());
+    }
+
+    @Test
+    void testUnregisteredHistoryIsNotCompacted() {
+        try (HistoryCompactor compactor = new HistoryCompactor()) {
+            PlayHistory history = new PlayHistory(Clock.systemUTC());
+            compactor.register(history);
+            compactor.unregister(history);
+            assertEquals(0, compactor.compactAll());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package test.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.analytics.HyperLogLog;
+import main.analytics.ListenerCounts;
+import main.analytics.PlayChartAggregator;
+import main.database.MusicStore;
+import main.model.PlaybackTracker;
+import main.model.Song;
+
+class HyperLogLogTest {
+
+    // ================== TESTS FOR add() / cardinality() ================== //
+
+    @Test
+    void testCardinality_EmptyIsZero() {
+        assertEquals(0, new HyperLogLog().cardinality());
+    }
+
+    @Test
+    void testCardinality_DuplicatesCountedOnce() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            hll.add("alice");
+        }
+        assertEquals(1, hll.cardinality());
+    }
+
+    @Test
+    void testCardinality_SmallSetsStaySparseAndExact() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 50; i++) {
+            hll.add("user" + i);
+        }
+        assertTrue(hll.isSparse());
+        assertEquals(50, hll.cardinality(), 1);
+    }
+
+    @Test
+    void testCardinality_LargeSetsWithinErrorBound() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            hll.add("user" + i);
+        }
+        assertFalse(hll.isSparse());
+        assertEquals(4096, hll.sizeInBytes());
+        assertEquals(100_000, hll.cardinality(), 100_000 * 0.05);
+    }
+
+    // ================== TESTS FOR merge() ================== //
+
+    @Test
+    void testMerge_EstimatesUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            first.add("user" + i);
+            second.add("user" + (i + 10_000));
+        }
+        HyperLogLog union = first.merge(second);
+        assertEquals(30_000, union.cardinality(), 30_000 * 0.05);
+        assertEquals(20_000, first.cardinality(), 20_000 * 0.05); // Input not modified
+    }
+
+    @Test
+    void testMerge_SparseIntoSparse() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        first.add("alice");
+        second.add("bob");
+        second.add("alice");
+        assertEquals(2, first.merge(second).cardinality());
+    }
+
+    // ================== TESTS FOR ListenerCounts ================== //
+
+    @Test
+    void testListenerCounts_AcrossUsers() {
+        MusicStore store = new MusicStore("src/main/albums");
+        Song song = store.getSongByArtistAndTitle("Adele", "Daydreamer");
+        assertNotNull(song);
+
+        List<PlaybackTracker> trackers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            PlaybackTracker tracker = new PlaybackTracker();
+            tracker.setListenerId("listener" + i);
+            tracker.playSong(song);
+            tracker.playSong(song); // Replays do not add listeners
+            trackers.add(tracker);
+        }
+
+        ListenerCounts counts = PlayChartAggregator.mergeListenerCounts(trackers);
+        assertEquals(30, counts.getSongListeners(song.getKey()), 1);
+        assertEquals(30, counts.getAlbumListeners(song.getAlbum().getKey()), 1);
+        assertEquals(0, counts.getSongListeners("nobody|nothing"));
+    }
+}
@@ -0,0 +1,95 @@
+package test.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.analytics.PlayHistory;
+
+class PlayHistoryTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final String SONG = "adele|daydreamer";
+
+    private PlayHistory history;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        history = new PlayHistory(Clock.systemUTC(), 7, 30);
+        start = LocalDate.of(2025, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    // ================== COMPACTION ================== //
+
+    @Test
+    void testCompact_MovesOldRawEventsIntoDailyCounters() {
+        history.record(SONG, start);
+        history.record(SONG, start + 1000);
+        history.record(SONG, start + 10 * DAY);
+
+        history.compact(start + 10 * DAY);
+
+        assertEquals(1, history.getRawEventCount());
+        assertEquals(1, history.getDailyBucketCount());
+        assertEquals(2, history.getPlaysOn(SONG, LocalDate.of(2025, 1, 1)));
+        assertEquals(3, history.getTotalPlays(SONG));
+    }
+
+    @Test
+    void testCompact_RollsOldDaysIntoMonths() {
+        for (int day = 0; day < 60; day++) {
+            history.record(SONG, start + day * DAY);
+        }
+        history.compact(start + 60 * DAY);
+
+        assertEquals(60, history.getTotalPlays(SONG)); // Totals stay exact
+        assertEquals(31, history.getPlaysInMonth(SONG, YearMonth.of(2025, 1)));
+        assertTrue(history.getMonthlyBucketCount() > 0);
+        assertEquals(-1, history.getPlaysOn(SONG, LocalDate.of(2025, 1, 2)));
+        assertTrue(history.getRawEventCount() <= 8);
+        assertTrue(history.getDailyBucketCount() <= 30);
+    }
+
+    @Test
+    void testCompact_FoldsExpiredMonthsIntoTotals() {
+        PlayHistory capped = new PlayHistory(Clock.systemUTC(), 7, 30, 3);
+        for (int month = 0; month < 24; month++) {
+            capped.record(SONG, start + month * 31 * DAY); // One play in each of 24 months
+            capped.compact(start + month * 31 * DAY);
+        }
+
+        assertTrue(capped.getMonthlyBucketCount() <= 4); // Bounded however long the history runs
+        assertEquals(24, capped.getTotalPlays(SONG)); // Totals stay exact
+        assertEquals(-1, capped.getPlaysInMonth(SONG, YearMonth.of(2025, 1)));
+
+        PlayHistory restored = new PlayHistory(Clock.systemUTC(), 7, 30, 3);
+        restored.loadJson(new JSONObject(capped.toJson().toString()));
+        assertEquals(24, restored.getTotalPlays(SONG));
+        assertEquals(-1, restored.getPlaysInMonth(SONG, YearMonth.of(2025, 1)));
+    }
+
+    // ================== PERSISTENCE ================== //
+
+    @Test
+    void testJson_RoundTrip() {
+        for (int day = 0; day < 60; day++) {
+            history.record(SONG, start + day * DAY);
+        }
+        history.compact(start + 60 * DAY);
+
+        PlayHistory restored = new PlayHistory(Clock.systemUTC(), 7, 30);
+        restored.loadJson(new JSONObject(history.toJson().toString()));
+
+        assertEquals(60, restored.getTotalPlays(SONG));
+        assertEquals(history.getPlaysInMonth(SONG, YearMonth.of(2025, 2)),
+            restored.getPlaysInMonth(SONG, YearMonth.of(2025, 2)));
+        assertEquals(-1, restored.getPlaysOn(SONG, LocalDate.of(2025, 1, 2)));
+    }
+}
@@ -0,0 +1,124 @@
+package test.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.analytics.ListeningSession;
+import main.analytics.SessionTracker;
+import main.database.MusicStore;
+import main.model.Song;
+
+class SessionTrackerTest {
+    private static final long MINUTE = 60 * 1000L;
+    private static final MusicStore musicStore = new MusicStore("src/main/albums");
+
+    private SessionTracker tracker;
+    private Song popSong;
+    private Song otherSong;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SessionTracker();
+        popSong = musicStore.getSongByArtistAndTitle("Adele", "Daydreamer");
+        otherSong = musicStore.getSongByArtistAndTitle("Leonard Cohen", "Going Home");
+        assertNotNull(popSong);
+        assertNotNull(otherSong);
+    }
+
+    // ================== SESSION DETECTION ================== //
+
+    @Test
+    void testOnPlay_StartsSession() {
+        tracker.onPlay(popSong, 0);
+        ListeningSession session = tracker.getCurrentSession();
+        assertNotNull(session);
+        assertEquals(1, session.getSongCount());
+        assertEquals(0, tracker.getSessionCount());
+    }
+
+    @Test
+    void testOnPlay_GapStartsNewSession() {
+        tracker.onPlay(popSong, 0);
+        tracker.onPlay(otherSong, 4 * MINUTE);
+        tracker.onPlay(popSong, 60 * MINUTE); // Past the 30 minute gap
+
+        assertEquals(1, tracker.getSessionCount());
+        ListeningSession finished = tracker.getCompletedSessions().get(0);
+        assertEquals(2, finished.getSongCount());
+        assertEquals(4 * MINUTE, finished.getDurationMillis());
+        assertEquals(1, tracker.getCurrentSession().getSongCount());
+    }
+
+    @Test
+    void testOnPlay_CountsRapidReplaysAndGenres() {
+        tracker.onPlay(popSong, 0);
+        tracker.onPlay(popSong, 5_000); // Rapid
+        tracker.onPlay(otherSong, 5 * MINUTE);
+        tracker.expireIdle(120 * MINUTE);
+
+        assertEquals(1, tracker.getSessionCount());
+        assertEquals(3.0, tracker.getAverageSongsPerSession());
+        assertEquals(1.0 / 3, tracker.getRapidReplayRate(), 1e-9);
+        assertEquals(2L, tracker.getGenreMix().get(popSong.getAlbum().getGenre()));
+        assertNull(tracker.getCurrentSession());
+    }
+
+    @Test
+    void testOnPlay_OnlyReplaysOfTheSameSongAreRapid() {
+        tracker.onPlay(popSong, 0);
+        tracker.onPlay(otherSong, 5_000); // Quick, but a different song
+        tracker.onPlay(popSong, 10_000); // Not directly after itself
+        tracker.onPlay(popSong, 15_000); // Rapid
+        tracker.onPlay(popSong, 15_000 + 2 * MINUTE); // Same song, but slow
+        tracker.expireIdle(120 * MINUTE);
+
+        assertEquals(1, tracker.getCompletedSessions().get(0).getRapidReplays());
+    }
+
+    @Test
+    void testExpireIdle_ClosesOnlyIdleSessions() {
+        tracker.onPlay(popSong, 0);
+        tracker.expireIdle(10 * MINUTE);
+        assertNotNull(tracker.getCurrentSession());
+
+        tracker.expireIdle(31 * MINUTE);
+        assertNull(tracker.getCurrentSession());
+        assertEquals(1, tracker.getSessionCount());
+    }
+
+    @Test
+    void testOnPlay_NullSongThrows() {
+        assertThrows(IllegalArgumentException.class, () -> tracker.onPlay(null, 0));
+    }
+
+    // ================== PERSISTENCE ================== //
+
+    @Test
+    void testJson_RoundTrip() {
+        tracker.onPlay(popSong, 0);
+        tracker.onPlay(otherSong, 10 * MINUTE);
+        tracker.onPlay(popSong, 90 * MINUTE);
+
+        JSONObject json = new JSONObject(tracker.toJson().toString());
+        SessionTracker restored = new SessionTracker();
+        restored.loadJson(json);
+
+        assertEquals(tracker.getSessionCount(), restored.getSessionCount());
+        assertEquals(tracker.getAverageSessionLengthMillis(), restored.getAverageSessionLengthMillis());
+        assertEquals(1, restored.getCurrentSession().getSongCount());
+        assertEquals(2, restored.getCompletedSessions().get(0).getSongCount());
+    }
+
+    @Test
+    void testJson_KeepsPreviousSongForRapidReplays() {
+        tracker.onPlay(popSong, 0);
+        SessionTracker restored = new SessionTracker();
+        restored.loadJson(new JSONObject(tracker.toJson().toString()));
+
+        restored.onPlay(popSong, 5_000);
+        assertEquals(1, restored.getCurrentSession().getRapidReplays());
+    }
+}
@@ -0,0 +1,121 @@
+package test.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.analytics.PlayChartAggregator;
+import main.analytics.SpaceSavingSketch;
+import main.database.MusicStore;
+import main.model.PlaybackTracker;
+import main.model.Song;
+
+class SpaceSavingSketchTest {
+
+    // ================== TESTS FOR offer() ================== //
+
+    @Test
+    void testOffer_ExactWhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.offer("a");
+        sketch.offer("a");
+        sketch.offer("b");
+
+        assertEquals(2, sketch.getCount("a"));
+        assertEquals(1, sketch.getCount("b"));
+        assertEquals(0, sketch.getMaxError());
+    }
+
+    @Test
+    void testOffer_NeverExceedsCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(5);
+        for (int i = 0; i < 100; i++) {
+            sketch.offer("song" + i);
+        }
+        assertEquals(5, sketch.size());
+        assertEquals(100, sketch.getTotalCount());
+    }
+
+    @Test
+    void testOffer_HeavyHitterSurvivesEvictions() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(5);
+        for (int i = 0; i < 200; i++) {
+            sketch.offer("hit");
+            sketch.offer("noise" + i);
+        }
+        SpaceSavingSketch.HeavyHitter top = sketch.topK(1).get(0);
+        assertEquals("hit", top.getKey());
+        assertTrue(top.getGuaranteedCount() <= 200 && top.getCount() >= 200);
+    }
+
+    @Test
+    void testOffer_InvalidInputThrows() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(5);
+        assertThrows(IllegalArgumentException.class, () -> sketch.offer(null));
+        assertThrows(IllegalArgumentException.class, () -> sketch.offer("a", 0));
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch(0));
+    }
+
+    // ================== TESTS FOR merge() ================== //
+
+    @Test
+    void testMerge_CombinesCounts() {
+        SpaceSavingSketch first = new SpaceSavingSketch(10);
+        SpaceSavingSketch second = new SpaceSavingSketch(10);
+        first.offer("a", 3);
+        second.offer("a", 4);
+        second.offer("b", 1);
+
+        SpaceSavingSketch merged = first.merge(second);
+
+        assertEquals(7, merged.getCount("a"));
+        assertEquals(1, merged.getCount("b"));
+        assertEquals(8, merged.getTotalCount());
+        assertEquals(3, first.getCount("a")); // Inputs are not modified
+    }
+
+    @Test
+    void testMerge_BoundsTrueCounts() {
+        SpaceSavingSketch first = new SpaceSavingSketch(3);
+        SpaceSavingSketch second = new SpaceSavingSketch(3);
+        for (int i = 0; i < 20; i++) {
+            first.offer("x" + (i % 6));
+            second.offer("x" + (i % 4));
+        }
+        SpaceSavingSketch merged = first.merge(second);
+        assertEquals(3, merged.size());
+        for (SpaceSavingSketch.HeavyHitter hitter : merged.topK(3)) {
+            assertTrue(hitter.getGuaranteedCount() <= hitter.getCount());
+            assertTrue(hitter.getError() <= merged.getTotalCount() / 3 + 1);
+        }
+    }
+
+    // ================== TESTS FOR PlayChartAggregator ================== //
+
+    @Test
+    void testAggregator_TopSongsAcrossTrackers() {
+        MusicStore store = new MusicStore("src/main/albums");
+        Song popular = store.getSongByArtistAndTitle("Adele", "Daydreamer");
+        Song other = store.getSongByArtistAndTitle("Norah Jones", "Begin Again");
+        assertNotNull(popular);
+        assertNotNull(other);
+
+        List<PlaybackTracker> trackers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            PlaybackTracker tracker = new PlaybackTracker();
+            tracker.playSong(popular);
+            if (i % 4 == 0) {
+                tracker.playSong(other);
+            }
+            trackers.add(tracker);
+        }
+
+        List<SpaceSavingSketch.HeavyHitter> chart = PlayChartAggregator.topSongs(trackers, 2);
+        assertEquals(popular.getKey(), chart.get(0).getKey());
+        assertEquals(20, chart.get(0).getCount());
+        assertEquals(5, chart.get(1).getCount());
+    }
+}
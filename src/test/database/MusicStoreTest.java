@@ -2,12 +2,14 @@ package test.database;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
 import main.database.MusicStore;
 import main.model.Album;
+import main.model.Page;
 import main.model.Song;
 
 class MusicStoreTest {
@@ -130,4 +132,42 @@ class MusicStoreTest {
         MusicStore store = new MusicStore(TEST_ALBUMS_PATH);
         assertFalse(store.albumExists("A Rush of Blood to the Head", "Invalid Artist"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSharedStoreIsReadOncePerDirectory() {
+        MusicStore first = MusicStore.getShared(TEST_ALBUMS_PATH);
+        MusicStore second = MusicStore.getShared(TEST_ALBUMS_PATH + "/");
+
+        assertSame(first, second);
+        assertNotSame(first, new MusicStore(TEST_ALBUMS_PATH)); // The constructor always reads the files
+        assertNotNull(first.getSongByArtistAndTitle("Coldplay", "Clocks"));
+    }
+
+    // ================== PAGED QUERIES ================== //
+
+    @Test
+    void testSongsByArtistPagesFollowTheFullList() {
+        MusicStore store = new MusicStore(TEST_ALBUMS_PATH);
+        List<Song> all = store.getSongsByArtist("Adele");
+
+        List<Song> paged = new ArrayList<>();
+        String token = null;
+        do {
+            Page<Song> page = store.getSongsByArtist("adele", token, 5);
+            assertEquals(all.size(), page.getTotal());
+            paged.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void testTokenOfAnotherQueryIsRejected() {
+        MusicStore store = new MusicStore(TEST_ALBUMS_PATH);
+        String token = store.getSongsByArtist("Adele", null, 2).getNextToken();
+        assertNotNull(token);
+        assertThrows(IllegalArgumentException.class, () -> store.getSongsByArtist("Coldplay", token, 2));
+        assertThrows(IllegalArgumentException.class, () -> store.getAlbumsByArtist("Adele", "not a token", 2));
+        assertEquals(2, store.getAlbumsByArtist("Adele", null, 1).getTotal());
+    }
+}
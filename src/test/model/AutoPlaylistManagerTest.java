@@ -33,7 +33,7 @@ class AutoPlaylistManagerTest {
     @Test
     void testMarkedFavoriteAppearsInFavorites() {
         LibraryModel library = new LibraryModel(store);
-        daydreamer.markAsFavorite();
+        library.markAsFavorite(daydreamer);
         library.addSong(daydreamer);
         
         AutoPlaylistManager manager = new AutoPlaylistManager();
@@ -44,7 +44,7 @@ class AutoPlaylistManagerTest {
     @Test
     void testFiveStarSongAppearsInBothPlaylists() {
         LibraryModel library = new LibraryModel(store);
-        chasingPavements.rate(5);
+        library.rateSong(chasingPavements, 5);
         library.addSong(chasingPavements);
         
         AutoPlaylistManager manager = new AutoPlaylistManager();
@@ -55,7 +55,7 @@ class AutoPlaylistManagerTest {
     @Test
     void testFourStarSongAppearsOnlyInTopRated() {
         LibraryModel library = new LibraryModel(store);
-        daydreamer.rate(4);
+        library.rateSong(daydreamer, 4);
         library.addSong(daydreamer);
         
         AutoPlaylistManager manager = new AutoPlaylistManager();
@@ -66,7 +66,7 @@ class AutoPlaylistManagerTest {
     @Test
     void testThreeStarSongDoesNotAppearInPlaylists() {
         LibraryModel library = new LibraryModel(store);
-        chasingPavements.rate(3);
+        library.rateSong(chasingPavements, 3);
         library.addSong(chasingPavements);
         
         AutoPlaylistManager manager = new AutoPlaylistManager();
@@ -87,8 +87,8 @@ class AutoPlaylistManagerTest {
     @Test
     void testMultipleQualifyingSongsAreCounted() {
         LibraryModel library = new LibraryModel(store);
-        daydreamer.markAsFavorite();
-        chasingPavements.rate(5);
+        library.markAsFavorite(daydreamer);
+        library.rateSong(chasingPavements, 5);
         library.addSong(daydreamer);
         library.addSong(chasingPavements);
         
@@ -2,6 +2,8 @@ package test.model;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -10,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import main.database.MusicStore;
 import main.model.Album;
 import main.model.LibraryModel;
+import main.model.Page;
 import main.model.Playlist;
 import main.model.Song;
 
@@ -326,7 +329,7 @@ class LibraryModelTest {
         libraryModel.addSong(song);
         libraryModel.rateSong(song, 5);
 
-        assertTrue(song.isFavorite());
+        assertTrue(libraryModel.isFavorite(song));
     }
 
     @Test
@@ -463,13 +466,13 @@ class LibraryModelTest {
         Album album = new Album("Test Album", "Test Artist", "Pop", 2020);
         Song song1 = new Song("Song 1", "Test Artist", album);
         Song song2 = new Song("Song 2", "Test Artist", album);
-        song1.rate(3);
-        song2.rate(5);
+        libraryModel.rateSong(song1, 3);
+        libraryModel.rateSong(song2, 5);
         libraryModel.addAlbumDirect(new Album("Test Album", "Test Artist", "Pop", 2020, List.of(song1, song2)));
 
         List<Song> sortedSongs = libraryModel.getSongsSortedByRating();
-        assertEquals(3, sortedSongs.get(0).getRating());
-        assertEquals(5, sortedSongs.get(1).getRating());
+        assertEquals(3, libraryModel.getRating(sortedSongs.get(0)));
+        assertEquals(5, libraryModel.getRating(sortedSongs.get(1)));
     }
 
     @Test
@@ -512,6 +515,26 @@ class LibraryModelTest {
 
     // ================== AUTO PLAYLISTS AND FAVORITES ================== //
 
+    @Test
+    void testLibrariesSharingAStoreKeepTheirOwnRatings() {
+        MusicStore musicStore = MusicStore.getShared("src/main/albums");
+        LibraryModel alice = new LibraryModel(musicStore);
+        LibraryModel bob = new LibraryModel(musicStore);
+        Song song = musicStore.getSongByArtistAndTitle("Coldplay", "Clocks");
+        alice.addSong(song);
+        bob.addSong(song);
+
+        alice.rateSong(song, 5);
+        bob.rateSong(song, 2);
+
+        assertEquals(5, alice.getRating(song));
+        assertTrue(alice.isFavorite(song));
+        assertEquals(2, bob.getRating(song));
+        assertFalse(bob.isFavorite(song));
+        assertEquals(List.of(song), alice.getFavoriteSongs());
+        assertTrue(bob.getFavoriteSongs().isEmpty());
+    }
+
     @Test
     void testMarkAsFavorite() {
         MusicStore musicStore = new MusicStore("src/main/albums");
@@ -522,7 +545,7 @@ class LibraryModelTest {
         Song song = album.getSongs().get(0);
 
         libraryModel.markAsFavorite(song);
-        assertTrue(song.isFavorite());
+        assertTrue(libraryModel.isFavorite(song));
     }
 
     @Test
@@ -573,4 +596,93 @@ class LibraryModelTest {
         List<Song> upperCase = libraryModel.searchSongByGenre("POP");
         assertEquals(lowerCase.size(), upperCase.size());
     }
-}
\ No newline at end of file
+
+    // ================== PAGED VIEWS ================== //
+
+    @Test
+    void testPagedSortedViewsMatchTheFullLists() {
+        MusicStore musicStore = new MusicStore("src/main/albums");
+        LibraryModel libraryModel = new LibraryModel(musicStore);
+        libraryModel.addAlbum(musicStore.getAlbumByTitle("19"));
+        libraryModel.addAlbum(musicStore.getAlbumByTitle("21"));
+        libraryModel.rateSong(musicStore.getSongByArtistAndTitle("Adele", "Daydreamer"), 3);
+
+        List<Song> byTitle = new ArrayList<>();
+        List<Song> byRating = new ArrayList<>();
+        for (int offset = 0; offset < libraryModel.getSongLibrary().size(); offset += 5) {
+            byTitle.addAll(libraryModel.getSongsSortedByTitleAndArtist(offset, 5).getItems());
+            byRating.addAll(libraryModel.getSongsSortedByRating(offset, 5).getItems());
+        }
+        assertEquals(libraryModel.getSongsSortedByTitleAndArtist(), byTitle);
+        assertEquals(libraryModel.getSongsSortedByRating(), byRating);
+        assertFalse(libraryModel.getSongsSortedByRating(20, 5).hasNext());
+    }
+
+    @Test
+    void testShuffledPagesAreStableForASeed() {
+        MusicStore musicStore = new MusicStore("src/main/albums");
+        LibraryModel libraryModel = new LibraryModel(musicStore);
+        libraryModel.addAlbum(musicStore.getAlbumByTitle("19"));
+
+        List<Song> shuffled = new ArrayList<>();
+        for (int offset = 0; offset < 12; offset += 4) {
+            shuffled.addAll(libraryModel.getShuffledSongs(7L, offset, 4).getItems());
+        }
+        assertEquals(12, Set.copyOf(shuffled).size()); // Every song exactly once
+        assertEquals(shuffled.subList(4, 8), libraryModel.getShuffledSongs(7L, 4, 4).getItems());
+    }
+
+    @Test
+    void testTokenPagesFollowTheSortedLists() {
+        MusicStore musicStore = new MusicStore("src/main/albums");
+        LibraryModel libraryModel = new LibraryModel(musicStore);
+        libraryModel.addAlbum(musicStore.getAlbumByTitle("19"));
+        libraryModel.addAlbum(musicStore.getAlbumByTitle("21"));
+        libraryModel.rateSong(musicStore.getSongByArtistAndTitle("Adele", "Daydreamer"), 5);
+
+        List<Song> byTitle = new ArrayList<>();
+        List<Song> byRating = new ArrayList<>();
+        String titleToken = null;
+        String ratingToken = null;
+        do {
+            Page<Song> titlePage = libraryModel.getSongsSortedByTitleAndArtist(titleToken, 4);
+            Page<Song> ratingPage = libraryModel.getSongsSortedByRating(ratingToken, 4);
+            byTitle.addAll(titlePage.getItems());
+            byRating.addAll(ratingPage.getItems());
+            titleToken = titlePage.getNextToken();
+            ratingToken = ratingPage.getNextToken();
+        } while (titleToken != null);
+        assertNull(ratingToken);
+        assertEquals(libraryModel.getSongsSortedByTitleAndArtist(), byTitle);
+        assertEquals(libraryModel.getSongsSortedByRating(), byRating);
+
+        assertEquals(List.of(musicStore.getSongByArtistAndTitle("Adele", "Daydreamer")),
+            libraryModel.getFavoriteSongs(null, 10).getItems());
+        assertEquals(libraryModel.getArtistsSorted(), libraryModel.getArtistsSorted(null, 10).getItems());
+        assertEquals(12, libraryModel.searchSongByArtist("adele", null, 50).getItems().stream()
+            .filter(song -> song.getAlbum().getTitle().equals("19")).count());
+    }
+
+    @Test
+    void testTokenPagesNeitherRepeatNorSkipWhenTheLibraryChanges() {
+        MusicStore musicStore = new MusicStore("src/main/albums");
+        LibraryModel libraryModel = new LibraryModel(musicStore);
+        libraryModel.addAlbum(musicStore.getAlbumByTitle("19"));
+
+        Page<Song> first = libraryModel.getShuffledSongs(11L, null, 6);
+        assertEquals(12, first.getTotal());
+        Song removed = libraryModel.getShuffledSongs(11L, first.getNextToken(), 6).getItems().get(0);
+        libraryModel.removeSong(first.getItems().get(0)); // Already shown
+        libraryModel.removeSong(removed); // Not shown yet
+
+        Page<Song> second = libraryModel.getShuffledSongs(11L, first.getNextToken(), 6);
+        assertEquals(5, second.getItems().size());
+        assertFalse(second.getItems().contains(removed));
+        assertEquals(5, second.getOffset()); // Shown songs still in the library
+        assertNull(second.getNextToken());
+        assertTrue(Collections.disjoint(first.getItems(), second.getItems()));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> libraryModel.getShuffledSongs(12L, first.getNextToken(), 6)); // Token of another shuffle
+    }
+}
@@ -0,0 +1,136 @@
+package test.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.database.MusicStore;
+import main.model.Album;
+import main.model.LoadedUserCache;
+import main.model.User;
+import main.persistence.DataStores;
+import main.persistence.FileDataStore;
+
+class LoadedUserCacheTest {
+    @TempDir
+    Path dir;
+
+    private Album adele19;
+
+    @BeforeEach
+    void setUp() {
+        DataStores.setDefault(new FileDataStore(dir));
+        adele19 = new MusicStore("src/main/albums/").getAlbumByTitle("19");
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
+    }
+
+    private static User trackedUser(String name, LoadedUserCache cache) {
+        User user = User.fromCredentials(name, "salt", "hash");
+        user.setLoadListener(() -> cache.loaded(user));
+        return user;
+    }
+
+    @Test
+    void testLeastRecentlyUsedUserIsSavedAndUnloaded() {
+        LoadedUserCache cache = new LoadedUserCache(2, Long.MAX_VALUE);
+        User first = trackedUser("first", cache);
+        User second = trackedUser("second", cache);
+        User third = trackedUser("third", cache);
+
+        first.getLibrary().addAlbum(adele19); // Unsaved change
+        second.getLibrary();
+        cache.touch(first); // second is now least recently used
+        third.getLibrary();
+
+        assertEquals(2, cache.getLoadedCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(first.isLibraryLoaded());
+        assertFalse(second.isLibraryLoaded());
+
+        // Unloading the first user writes its change, and the next access reads it back
+        cache.touch(second);
+        second.getLibrary();
+        assertFalse(first.isLibraryLoaded());
+        assertEquals(1, first.getSummary().getAlbumCount());
+        assertEquals(1, first.getLibrary().getAlbumLibrary().size());
+    }
+
+    @Test
+    void testByteBudgetLimitsLoadedUsers() {
+        LoadedUserCache probe = new LoadedUserCache();
+        trackedUser("probe", probe).getLibrary();
+        long oneEmptyLibrary = probe.getEstimatedBytes();
+        LoadedUserCache cache = new LoadedUserCache(100, oneEmptyLibrary * 3);
+        for (int i = 0; i < 10; i++) {
+            trackedUser("user" + i, cache).getLibrary();
+        }
+
+        assertEquals(3, cache.getLoadedCount());
+        assertTrue(cache.getEstimatedBytes() <= oneEmptyLibrary * 3);
+        assertEquals(7, cache.getEvictionCount());
+    }
+
+    @Test
+    void testHitsAndMisses() {
+        LoadedUserCache cache = new LoadedUserCache(1, Long.MAX_VALUE);
+        User first = trackedUser("first", cache);
+        User second = trackedUser("second", cache);
+
+        first.getLibrary(); // Miss
+        cache.touch(first); // Hit
+        second.getLibrary(); // Miss, unloads first
+        cache.touch(first); // Not in memory: neither
+        first.getLibrary(); // Miss
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    void testBusyUserIsNotUnloaded() throws InterruptedException {
+        LoadedUserCache cache = new LoadedUserCache(1, Long.MAX_VALUE);
+        User busy = trackedUser("busy", cache);
+        busy.getLibrary();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            busy.getLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                busy.getLock().unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+
+        trackedUser("other", cache).getLibrary();
+        release.countDown();
+        holder.join();
+
+        assertTrue(busy.isLibraryLoaded());
+        assertEquals(1, cache.getFailedEvictionCount());
+        assertEquals(2, cache.getLoadedCount());
+    }
+
+    @Test
+    void testInvalidLimitsThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new LoadedUserCache(0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new LoadedUserCache(10, 0));
+    }
+}
@@ -0,0 +1,74 @@
+package test.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import main.model.Page;
+
+class PageTest {
+
+    @Test
+    void testSliceCopiesOnlyThePage() {
+        List<Integer> list = List.of(1, 2, 3, 4, 5);
+        Page<Integer> page = Page.slice(list, 2, 2);
+        assertEquals(List.of(3, 4), page.getItems());
+        assertEquals(5, page.getTotal());
+        assertTrue(page.hasNext());
+        assertTrue(page.hasPrevious());
+
+        Page<Integer> last = Page.slice(list, 4, 2);
+        assertEquals(List.of(5), last.getItems());
+        assertFalse(last.hasNext());
+        assertTrue(Page.slice(list, 9, 2).getItems().isEmpty());
+    }
+
+    @Test
+    void testSortedPagesMatchAFullSort() {
+        List<Integer> values = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            values.add(random.nextInt());
+        }
+        List<Integer> expected = new ArrayList<>(values);
+        Collections.sort(expected);
+
+        List<Integer> paged = new ArrayList<>();
+        for (int offset = 0; offset < values.size(); offset += 37) {
+            Page<Integer> page = Page.sorted(values, Comparator.naturalOrder(), offset, 37);
+            assertEquals(offset, page.getOffset());
+            assertEquals(values.size(), page.getTotal());
+            paged.addAll(page.getItems());
+        }
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void testInvalidRangesThrow() {
+        assertThrows(IllegalArgumentException.class, () -> Page.slice(List.of(1), -1, 5));
+        assertThrows(IllegalArgumentException.class, () -> Page.sorted(List.of(1), Comparator.<Integer>naturalOrder(), 0, 0));
+    }
+
+    @Test
+    void testAfterContinuesFromTheToken() {
+        List<String> words = List.of("pear", "apple", "fig", "banana", "cherry", "date", "kiwi");
+        Page<String> first = Page.after(words, word -> !word.equals("kiwi"), word -> word, "fruit", null, 4);
+        assertEquals(List.of("apple", "banana", "cherry", "date"), first.getItems());
+        assertEquals(6, first.getTotal());
+        assertNotNull(first.getNextToken());
+
+        Page<String> second = Page.after(words, word -> !word.equals("kiwi"), word -> word, "fruit", first.getNextToken(), 4);
+        assertEquals(List.of("fig", "pear"), second.getItems());
+        assertEquals(4, second.getOffset());
+        assertNull(second.getNextToken());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> Page.after(words, word -> true, word -> word, "vegetables", first.getNextToken(), 4));
+    }
+}
@@ -6,15 +6,21 @@ import main.model.Song;
 import main.model.Album;
 import main.database.MusicStore;
 import main.model.User;
+import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -141,7 +147,9 @@ public class PlaybackTrackerTest {
         tracker.savePlaybackData(testUser);
 
         String content = new String(Files.readAllBytes(Paths.get(PLAYBACK_FILE_PATH)));
-        assertTrue(content.contains("\"recentlyPlayed\": [\"Begin Again\"]"));
+        JSONObject reference = new JSONObject(content).getJSONArray("recentlyPlayed").getJSONObject(0);
+        assertEquals("Begin Again", reference.getString("title"));
+        assertEquals("Norah Jones", reference.getString("artist"));
     }
 
     @Test
@@ -152,7 +160,10 @@ public class PlaybackTrackerTest {
         tracker.savePlaybackData(testUser);
 
         String content = new String(Files.readAllBytes(Paths.get(PLAYBACK_FILE_PATH)));
-        assertTrue(content.contains("\"playCounts\": {\"Begin Again\": 2}"));
+        JSONObject countJson = new JSONObject(content).getJSONArray("playCounts").getJSONObject(0);
+        assertEquals("Begin Again", countJson.getString("title"));
+        assertEquals("Norah Jones", countJson.getString("artist"));
+        assertEquals(2, countJson.getInt("count"));
     }
 
     // ================== TESTS FOR loadPlaybackData() ================== //
@@ -170,6 +181,33 @@ public class PlaybackTrackerTest {
     }
 
   
+    @Test
+    void testLoadPlaybackData_RestoresPlayCountsByArtistAndTitle() {
+        Song song = getTestSong();
+        tracker.playSong(song);
+        tracker.playSong(song);
+        tracker.savePlaybackData(testUser);
+
+        PlaybackTracker newTracker = new PlaybackTracker();
+        newTracker.loadPlaybackData(testUser);
+
+        Song librarySong = testUser.getLibrary().searchSongByArtistAndTitle("Norah Jones", "Begin Again");
+        assertEquals(2, newTracker.getPlayCounts().get(librarySong));
+    }
+
+    @Test
+    void testLoadPlaybackData_ReadsLegacyTitleFormat() throws Exception {
+        Files.createDirectories(Paths.get("user_data"));
+        Files.write(Paths.get(PLAYBACK_FILE_PATH),
+            "{\"recentlyPlayed\": [\"Begin Again\"], \"playCounts\": {\"Begin Again\": 3}}".getBytes());
+
+        PlaybackTracker newTracker = new PlaybackTracker();
+        newTracker.loadPlaybackData(testUser);
+
+        assertEquals(1, newTracker.getRecentlyPlayed().size());
+        assertEquals(3, newTracker.getPlayCounts().values().iterator().next());
+    }
+
     @Test
     void testLoadPlaybackData_NoFile_DoesNotThrowException() {
         File playbackFile = new File(PLAYBACK_FILE_PATH);
@@ -319,5 +357,36 @@ public class PlaybackTrackerTest {
         Song foundSong = tracker.findSongByTitle(testUser, "secrets");
 
         assertNotNull(foundSong);
-    }  
-}
\ No newline at end of file
+    }
+
+    @Test
+    void testGetSessionTracker_DoesNotCloseSessions() {
+        AtomicLong now = new AtomicLong(0);
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now.get());
+            }
+        };
+        PlaybackTracker timedTracker = new PlaybackTracker(clock);
+        timedTracker.playSong(musicStore.getSongByArtistAndTitle("Norah Jones", "Begin Again"));
+
+        now.set(2 * 60 * 60 * 1000L); // Two idle hours
+        assertNotNull(timedTracker.getSessionTracker().getCurrentSession()); // Reading changes nothing
+        assertEquals(0, timedTracker.getSessionTracker().getSessionCount());
+
+        timedTracker.expireIdleSession();
+        assertNull(timedTracker.getSessionTracker().getCurrentSession());
+        assertEquals(1, timedTracker.getSessionTracker().getSessionCount());
+    }
+}
@@ -75,4 +75,17 @@ class PlaylistTest {
         songs.remove(0); // Modifying the returned list
         assertEquals(1, playlist.getSongs().size()); // Original list remains unchanged
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetSongsPage() {
+        Playlist playlist = new Playlist("My Playlist");
+        Song first = new Song("Molodost", "Max Korzh", null);
+        Song second = new Song("Malyy povzroslel", "Max Korzh", null);
+        playlist.addSong(first);
+        playlist.addSong(second);
+
+        assertEquals(2, playlist.size());
+        assertEquals(List.of(second), playlist.getSongs(1, 5).getItems());
+        assertEquals(2, playlist.getSongs(1, 5).getTotal());
+    }
+}
@@ -0,0 +1,72 @@
+package test.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import main.database.MusicStore;
+import main.model.LibraryModel;
+import main.model.Song;
+import main.model.SongIndex;
+
+class SongIndexTest {
+
+    private static LibraryModel libraryWithTwoLullabies(MusicStore store) {
+        LibraryModel library = new LibraryModel(store);
+        library.addAlbum(store.getAlbumByTitle("Waking Up")); // OneRepublic
+        library.addAlbum(store.getAlbumByTitle("Old Ideas")); // Leonard Cohen
+        return library;
+    }
+
+    @Test
+    void testSameTitleByDifferentArtistsIsIndexedSeparately() {
+        MusicStore store = new MusicStore("src/main/albums");
+        SongIndex index = new SongIndex(libraryWithTwoLullabies(store));
+
+        Song oneRepublic = index.find("OneRepublic", "Lullaby");
+        Song cohen = index.find("leonard cohen", "LULLABY");
+        assertNotNull(oneRepublic);
+        assertNotNull(cohen);
+        assertNotSame(oneRepublic, cohen);
+        assertEquals("Waking Up", oneRepublic.getAlbum().getTitle());
+        assertEquals("Old Ideas", cohen.getAlbum().getTitle());
+    }
+
+    @Test
+    void testReferencesResolveToTheRightArtist() {
+        MusicStore store = new MusicStore("src/main/albums");
+        SongIndex index = new SongIndex(libraryWithTwoLullabies(store));
+        Song oneRepublic = index.find("OneRepublic", "Lullaby");
+        Song cohen = index.find("Leonard Cohen", "Lullaby");
+
+        // Round trip through the saved form, as playlists and playback history do
+        Object savedOneRepublic = new JSONObject(SongIndex.toReference(oneRepublic).toString());
+        Object savedCohen = new JSONObject(SongIndex.toReference(cohen).toString());
+        assertSame(oneRepublic, index.resolve(savedOneRepublic));
+        assertSame(cohen, index.resolve(savedCohen));
+    }
+
+    @Test
+    void testLegacyTitleOnlyReferences() {
+        MusicStore store = new MusicStore("src/main/albums");
+        SongIndex index = new SongIndex(libraryWithTwoLullabies(store));
+
+        Song daydreamer = store.getSongByArtistAndTitle("Adele", "Daydreamer");
+        index.add(daydreamer);
+        assertSame(daydreamer, index.resolve("daydreamer")); // Old files saved only the title
+
+        Song lullaby = index.resolve("Lullaby");
+        assertNotNull(lullaby); // Ambiguous legacy titles still resolve to one of the songs
+        assertEquals("Lullaby", lullaby.getTitle());
+        assertNull(index.resolve("No Such Song"));
+        assertNull(index.resolve(42));
+    }
+
+    @Test
+    void testEmptyIndex() {
+        SongIndex index = new SongIndex(null);
+        assertNull(index.find("Adele", "Daydreamer"));
+        assertNull(index.findByTitle("Daydreamer"));
+    }
+}
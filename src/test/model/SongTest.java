@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import main.database.MusicStore;
 import main.model.Album;
+import main.model.LibraryModel;
 import main.model.Song;
 
 class SongTest {
@@ -43,116 +44,128 @@ class SongTest {
     @Test
     void testDefaultRating() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        assertEquals(0, song.getRating());
+        assertEquals(0, library.getRating(song));
     }
 
     @Test
     void testDefaultFavoriteStatus() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        assertFalse(song.isFavorite());
+        assertFalse(library.isFavorite(song));
     }
 
     @Test
     void testValidRatingSetTo2() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        song.rate(2);
-        assertEquals(2, song.getRating());
+        library.rateSong(song, 2);
+        assertEquals(2, library.getRating(song));
     }
 
     @Test
     void testValidMinimumRating1() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        song.rate(1);
-        assertEquals(1, song.getRating());
+        library.rateSong(song, 1);
+        assertEquals(1, library.getRating(song));
     }
 
     @Test
     void testValidMaximumRating5() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        song.rate(5);
-        assertEquals(5, song.getRating());
+        library.rateSong(song, 5);
+        assertEquals(5, library.getRating(song));
     }
 
     @Test
     void testRating0ThrowsException() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        assertThrows(IllegalArgumentException.class, () -> song.rate(0));
+        assertThrows(IllegalArgumentException.class, () -> library.rateSong(song, 0));
     }
 
     @Test
     void testRating7ThrowsException() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        assertThrows(IllegalArgumentException.class, () -> song.rate(7));
+        assertThrows(IllegalArgumentException.class, () -> library.rateSong(song, 7));
     }
 
     @Test
     void testNegativeRatingThrowsException() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        assertThrows(IllegalArgumentException.class, () -> song.rate(-7));
+        assertThrows(IllegalArgumentException.class, () -> library.rateSong(song, -7));
     }
 
     @Test
     void testAutoFavoriteAtRating5() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        song.rate(5);
-        assertTrue(song.isFavorite());
+        library.rateSong(song, 5);
+        assertTrue(library.isFavorite(song));
     }
 
     @Test
     void testNoAutoFavoriteAtRating4() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        song.rate(4);
-        assertFalse(song.isFavorite());
+        library.rateSong(song, 4);
+        assertFalse(library.isFavorite(song));
     }
 
     @Test
     void testExplicitFavoriteMarking() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        song.markAsFavorite();
-        assertTrue(song.isFavorite());
+        library.markAsFavorite(song);
+        assertTrue(library.isFavorite(song));
     }
 
     @Test
     void testFavoriteRemainsAfterRatingChange() {
         MusicStore store = new MusicStore("src/main/albums");
+        LibraryModel library = new LibraryModel(store);
         Album album = store.getAlbumByTitle("21");
         List<Song> songs = album.getSongs();
         Song song = songs.get(0);
-        song.rate(5);
-        song.rate(4);
-        assertTrue(song.isFavorite());
+        library.rateSong(song, 5);
+        library.rateSong(song, 4);
+        assertTrue(library.isFavorite(song));
     }
 }
\ No newline at end of file
@@ -5,12 +5,35 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import main.model.UserManager;
 import main.model.User;
+import main.model.Album;
+import main.model.LoadedUserCache;
+import main.database.MusicStore;
+import main.security.LoginThrottle;
+import main.security.PasswordUtil;
 
 class UserManagerTest {
     private static final String TEST_PASSWORD = "password123";
     private static final String EXPECTED_USER_FILE = "users.json";
+    private static final String EXPECTED_JOURNAL_FILE = "users.journal";
     
     private UserManager manager;
     private String uniqueUsername;
@@ -21,6 +44,7 @@ class UserManagerTest {
         uniqueUsername = "testUser_" + System.currentTimeMillis();
         // Ensure clean state
         new File(EXPECTED_USER_FILE).delete();
+        new File(EXPECTED_JOURNAL_FILE).delete();
         new File("user_data/user_" + uniqueUsername + ".json").delete();
         manager = new UserManager();
     }
@@ -28,8 +52,13 @@ class UserManagerTest {
     @AfterEach
     void tearDown() {
         // Clean up files
+        manager.shutdown();
         new File(EXPECTED_USER_FILE).delete();
+        new File(EXPECTED_JOURNAL_FILE).delete();
         new File("user_data/user_" + uniqueUsername + ".json").delete();
+        new File("user_data/user_" + uniqueUsername + ".delta").delete();
+        new File("user_data/user_" + uniqueUsername + ".summary").delete();
+        new File("user_data/playback_" + uniqueUsername + ".json").delete();
     }
 
     @Test
@@ -38,6 +67,43 @@ class UserManagerTest {
         assertTrue(new File(EXPECTED_USER_FILE).exists());
     }
 
+    @Test
+    void testSecondRegistrationAppendsToJournal() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        long snapshotSize = new File(EXPECTED_USER_FILE).length();
+        manager.registerUser(uniqueUsername + "_2", TEST_PASSWORD);
+
+        assertEquals(snapshotSize, new File(EXPECTED_USER_FILE).length());
+        assertTrue(new File(EXPECTED_JOURNAL_FILE).exists());
+        UserManager newManager = new UserManager();
+        assertNotNull(newManager.loginUser(uniqueUsername + "_2", TEST_PASSWORD));
+    }
+
+    @Test
+    void testSaveUsersFoldsJournalIntoSnapshot() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        manager.registerUser(uniqueUsername + "_2", TEST_PASSWORD);
+        manager.saveUsers();
+
+        assertFalse(new File(EXPECTED_JOURNAL_FILE).exists());
+        UserManager newManager = new UserManager();
+        assertNotNull(newManager.loginUser(uniqueUsername + "_2", TEST_PASSWORD));
+    }
+
+    @Test
+    void testLoadedLibrariesAreCompactedUntilShutdown() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        assertFalse(manager.getHistoryCompactor().isRunning()); // No library loaded yet
+
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        user.getLibrary();
+        assertTrue(manager.getHistoryCompactor().isRunning());
+        assertEquals(1, manager.getHistoryCompactor().getRegisteredCount());
+
+        manager.shutdown();
+        assertFalse(manager.getHistoryCompactor().isRunning());
+    }
+
     @Test
     void testRegisterDuplicateUserThrowsException() {
         manager.registerUser(uniqueUsername, TEST_PASSWORD);
@@ -92,4 +158,321 @@ class UserManagerTest {
         assertThrows(IllegalArgumentException.class, () -> 
             newManager.loginUser(uniqueUsername, TEST_PASSWORD));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLoginReadsSummaryButNotLibrary() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        user.getLibrary().addAlbum(user.getLibrary().getMusicStore().getAlbumByTitle("21"));
+        manager.saveUserLibrary(user);
+
+        UserManager newManager = new UserManager();
+        User loggedIn = newManager.loginUser(uniqueUsername, TEST_PASSWORD);
+
+        assertFalse(loggedIn.isLibraryLoaded());
+        assertEquals(1, loggedIn.getSummary().getAlbumCount());
+        assertEquals(1, loggedIn.getLibrary().getAlbumLibrary().size());
+        newManager.shutdown();
+    }
+
+    // ================== WRITE-BEHIND SAVES ================== //
+
+    @Test
+    void testLibraryChangeMarksUserDirty() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        user.getLibrary().createPlaylist("Road Trip");
+
+        assertEquals(1, manager.getPersistenceService().getQueueDepth());
+        assertTrue(manager.shutdown()); // Flushes the pending save
+        assertTrue(new File("user_data/user_" + uniqueUsername + ".json").exists());
+    }
+
+    @Test
+    void testLibraryChangeAfterShutdownIsSavedAtOnce() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        assertTrue(manager.shutdown());
+
+        user.getLibrary().createPlaylist("Late Night"); // Must not throw
+
+        UserManager newManager = new UserManager();
+        User reloaded = newManager.loginUser(uniqueUsername, TEST_PASSWORD);
+        assertNotNull(reloaded.getLibrary().getPlaylistByName("Late Night"));
+        newManager.shutdown();
+    }
+
+    @Test
+    void testSaveUserLibraryAsyncCompletesBeforeNextLogin() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        Album album = user.getLibrary().getMusicStore().getAlbumByTitle("19");
+        user.getLibrary().addAlbum(album);
+        user.getLibrary().rateSong(album.getSongs().get(0), 3);
+
+        manager.saveUserLibraryAsync(user); // Logout
+        User again = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+
+        assertEquals(1, manager.getPersistenceService().getFlushCount());
+        assertEquals(3, again.getLibrary().getRating(again.getLibrary().searchAlbumByTitle("19").getSongs().get(0)));
+    }
+
+    // ================== ASYNC LOGIN AND REGISTRATION ================== //
+
+    @Test
+    void testRegisterAndLoginAsync() throws Exception {
+        manager.registerUserAsync(uniqueUsername, TEST_PASSWORD).get(30, TimeUnit.SECONDS);
+        User user = manager.loginUserAsync(uniqueUsername, TEST_PASSWORD).get(30, TimeUnit.SECONDS);
+
+        assertEquals(uniqueUsername, user.getUsername());
+        assertEquals(2, manager.getHashingExecutor().getCompletedCount());
+        assertTrue(manager.getHashingExecutor().getHashesPerSecond() > 0);
+    }
+
+    @Test
+    void testLoginAsyncFinishesOnVirtualThreadNotCommonPool() throws Exception {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        List<Thread> completions = Collections.synchronizedList(new ArrayList<>());
+        manager.setUserCache(new LoadedUserCache() {
+            @Override
+            public void touch(User user) {
+                completions.add(Thread.currentThread()); // Login touches the cache as it completes
+                super.touch(user);
+            }
+        });
+
+        manager.loginUserAsync(uniqueUsername, TEST_PASSWORD).get(30, TimeUnit.SECONDS);
+
+        assertEquals(1, completions.size());
+        assertTrue(completions.get(0).isVirtual());
+    }
+
+    @Test
+    void testLoginAsyncWithWrongPasswordFails() throws Exception {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> manager.loginUserAsync(uniqueUsername, "wrongPassword").get(30, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void testConcurrentAsyncRegistrationOfSameNameRegistersOnce() {
+        CompletableFuture<Void> first = manager.registerUserAsync(uniqueUsername, TEST_PASSWORD);
+        CompletableFuture<Void> second = manager.registerUserAsync(uniqueUsername, "otherPassword");
+
+        int registered = 0;
+        for (CompletableFuture<Void> future : Arrays.asList(first, second)) {
+            try {
+                future.join();
+                registered++;
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        }
+        assertEquals(1, registered);
+    }
+
+    @Test
+    void testLoginRehashesPasswordWhenCostChanges() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        int original = PasswordUtil.getIterations();
+        try {
+            PasswordUtil.setIterations(PasswordUtil.MIN_ITERATIONS);
+            User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+
+            assertTrue(user.getHashedPassword().contains("$" + PasswordUtil.MIN_ITERATIONS + "$"));
+            assertFalse(user.needsRehash());
+            UserManager newManager = new UserManager(); // The new hash was saved
+            assertFalse(newManager.loginUser(uniqueUsername, TEST_PASSWORD).needsRehash());
+            newManager.shutdown();
+        } finally {
+            PasswordUtil.setIterations(original);
+        }
+    }
+
+    @Test
+    void testRehashedPasswordSurvivesReloadingLibrary() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        manager.saveUserLibrary(user); // The library record holds the old hash
+        int original = PasswordUtil.getIterations();
+        try {
+            PasswordUtil.setIterations(PasswordUtil.MIN_ITERATIONS);
+            manager.loginUser(uniqueUsername, TEST_PASSWORD); // Rehashed; only the credentials are saved
+            manager.shutdown();
+
+            UserManager newManager = new UserManager();
+            User reloaded = newManager.loginUser(uniqueUsername, TEST_PASSWORD);
+            newManager.loadUserLibrary(reloaded);
+            assertTrue(reloaded.getHashedPassword().contains("$" + PasswordUtil.MIN_ITERATIONS + "$"));
+            assertFalse(reloaded.needsRehash());
+            newManager.shutdown();
+        } finally {
+            PasswordUtil.setIterations(original);
+        }
+    }
+
+    // ================== SESSIONS ================== //
+
+    @Test
+    void testIssuedTokenResumesSession() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        String token = manager.issueSession(user);
+        long hashes = manager.getHashingExecutor().getCompletedCount();
+
+        User resumed = manager.resumeSession(token);
+
+        assertSame(user, resumed);
+        assertEquals(hashes, manager.getHashingExecutor().getCompletedCount()); // No password check
+    }
+
+    @Test
+    void testEndSessionRevokesToken() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        User user = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        String token = manager.issueSession(user);
+
+        assertTrue(manager.endSession(token));
+        assertFalse(manager.endSession(token));
+        assertThrows(IllegalArgumentException.class, () -> manager.resumeSession(token));
+    }
+
+    @Test
+    void testEndSessionLeavesOtherSessionsOfTheUserValid() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        String first = manager.issueSession(manager.loginUser(uniqueUsername, TEST_PASSWORD));
+        String second = manager.issueSession(manager.loginUser(uniqueUsername, TEST_PASSWORD));
+
+        assertTrue(manager.endSession(first));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.resumeSession(first));
+        assertEquals(uniqueUsername, manager.resumeSession(second).getUsername());
+    }
+
+    // ================== THROTTLING ================== //
+
+    @Test
+    void testRepeatedWrongPasswordsAreThrottledBeforeHashing() {
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        manager.setLoginThrottle(new LoginThrottle(3, 0.001, 100, 100, System::nanoTime));
+        long hashes = manager.getHashingExecutor().getCompletedCount();
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalArgumentException.class, () -> manager.loginUser(uniqueUsername, "wrongPassword"));
+        }
+        assertThrows(RejectedExecutionException.class, () -> manager.loginUser(uniqueUsername, TEST_PASSWORD));
+
+        assertEquals(hashes + 3, manager.getHashingExecutor().getCompletedCount());
+        assertEquals(1, manager.getLoginThrottle().getRejectedForUserCount());
+    }
+
+    // ================== LOADED USER CACHE ================== //
+
+    @Test
+    void testLoadedLibrariesAreBoundedAndReloadedOnLogin() {
+        manager.setUserCache(new LoadedUserCache(1, Long.MAX_VALUE));
+        manager.registerUser(uniqueUsername, TEST_PASSWORD);
+        manager.registerUser(uniqueUsername + "_2", TEST_PASSWORD);
+        Album album = new MusicStore("src/main/albums/").getAlbumByTitle("19");
+
+        User first = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        first.getLibrary().addAlbum(album);
+        manager.loginUser(uniqueUsername + "_2", TEST_PASSWORD).getLibrary();
+        assertFalse(first.isLibraryLoaded()); // Saved and unloaded to make room
+
+        User again = manager.loginUser(uniqueUsername, TEST_PASSWORD);
+        assertEquals(1, again.getLibrary().getAlbumLibrary().size());
+        LoadedUserCache cache = manager.getUserCache();
+        assertEquals(1, cache.getLoadedCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+
+        new File("user_data/user_" + uniqueUsername + "_2.json").delete();
+        new File("user_data/user_" + uniqueUsername + "_2.summary").delete();
+    }
+
+    // ================== CONCURRENCY ================== //
+
+    @Test
+    void testConcurrentRegisterLoginLogoutStress() throws Exception {
+        final int threads = 16;
+        final int opsPerThread = 150; // 2,400 calls in total
+        final int names = 120;
+        int original = PasswordUtil.getIterations();
+        PasswordUtil.setIterations(PasswordUtil.MIN_ITERATIONS); // Cheap hashes, same code path
+        manager.setLoginThrottle(new LoginThrottle(1_000_000, 1_000_000, 1_000_000, 1_000_000, System::nanoTime));
+        String prefix = uniqueUsername + "_s";
+        Set<String> registered = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicateRegistrations = new AtomicInteger();
+        AtomicInteger logins = new AtomicInteger();
+        AtomicInteger logouts = new AtomicInteger();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final long seed = t;
+                workers.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    List<String> loggedIn = new ArrayList<>(); // Session tokens
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        String name = prefix + random.nextInt(names);
+                        try {
+                            switch (random.nextInt(3)) {
+                                case 0:
+                                    manager.registerUser(name, TEST_PASSWORD);
+                                    assertTrue(registered.add(name), "registered twice: " + name);
+                                    break;
+                                case 1:
+                                    loggedIn.add(manager.issueSession(manager.loginUser(name, TEST_PASSWORD)));
+                                    logins.incrementAndGet();
+                                    break;
+                                default:
+                                    if (!loggedIn.isEmpty()) {
+                                        String token = loggedIn.remove(loggedIn.size() - 1);
+                                        if (manager.resumeSession(token).getUsername().startsWith(prefix)
+                                                && manager.endSession(token)) {
+                                            logouts.incrementAndGet();
+                                        }
+                                    }
+                            }
+                        } catch (IllegalArgumentException e) {
+                            // Name taken or user not registered yet
+                            if (e.getMessage().equals("Username already exists.")) {
+                                duplicateRegistrations.incrementAndGet();
+                            }
+                        } catch (Throwable e) {
+                            unexpected.add(e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+            PasswordUtil.setIterations(original);
+        }
+
+        assertTrue(unexpected.isEmpty(), () -> "unexpected failures: " + unexpected);
+        assertTrue(logins.get() > 0 && logouts.get() > 0 && duplicateRegistrations.get() > 0);
+        assertEquals(registered.size(), manager.getUserCount());
+
+        // Every successful registration was stored exactly once and can log in again
+        UserManager reloaded = new UserManager();
+        assertEquals(registered.size(), reloaded.getUserCount());
+        for (String name : registered) {
+            if (name.hashCode() % 8 == 0) {
+                assertNotNull(reloaded.loginUser(name, TEST_PASSWORD));
+            }
+        }
+        reloaded.shutdown();
+    }
+}
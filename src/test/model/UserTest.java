@@ -4,7 +4,14 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import org.json.JSONObject;
 import org.json.JSONArray;
 import main.model.User;
@@ -12,12 +19,20 @@ import main.model.Album;
 import main.model.Song;
 import main.model.Playlist;
 import main.database.MusicStore;
+import main.persistence.DataStores;
+import main.persistence.FileDataStore;
+import main.persistence.LibraryFormat;
+import main.persistence.LogStructuredStore;
 
 public class UserTest {
     private static final String TEST_USERNAME = "testUser";
     private static final String TEST_PASSWORD = "password123";
     private User user;
     private File testFile;
+    private File deltaFile;
+    private File summaryFile;
+    private File playbackFile;
+    private File binaryFile;
     private MusicStore musicStore;
     private Album adele19;
 
@@ -25,6 +40,10 @@ public class UserTest {
     void setUp() {
         user = new User(TEST_USERNAME, TEST_PASSWORD);
         testFile = new File("user_data/user_" + TEST_USERNAME + ".json");
+        deltaFile = new File("user_data/user_" + TEST_USERNAME + ".delta");
+        summaryFile = new File("user_data/user_" + TEST_USERNAME + ".summary");
+        playbackFile = new File("user_data/playback_" + TEST_USERNAME + ".json");
+        binaryFile = new File("user_data/user_" + TEST_USERNAME + ".bin");
         
         // Initialize music store and load Adele's 19 album
         musicStore = new MusicStore("src/main/albums/");
@@ -34,17 +53,52 @@ public class UserTest {
         if (testFile.exists()) {
             testFile.delete();
         }
+        if (deltaFile.exists()) {
+            deltaFile.delete();
+        }
+        summaryFile.delete();
+        playbackFile.delete();
+        if (binaryFile.exists()) {
+            binaryFile.delete();
+        }
     }
 
     @AfterEach
     void tearDown() {
+        LibraryFormat.setDeploymentFormat(LibraryFormat.JSON);
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
         if (testFile.exists()) {
             testFile.delete();
         }
+        if (deltaFile.exists()) {
+            deltaFile.delete();
+        }
+        summaryFile.delete();
+        playbackFile.delete();
+        if (binaryFile.exists()) {
+            binaryFile.delete();
+        }
     }
 
     // ================== TEST WITH REAL ALBUM DATA ================== //
 
+    @Test
+    void testToString_NamesUserWithoutCredentials() {
+        assertEquals(TEST_USERNAME, user.toString());
+        assertFalse(user.toString().contains(user.getHashedPassword()));
+    }
+
+    @Test
+    void testSaveLibraryData_RecordHoldsNoCredentials() throws Exception {
+        user.getLibrary().addAlbum(adele19);
+        user.saveLibraryData();
+
+        String record = new String(Files.readAllBytes(testFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(record.contains(TEST_USERNAME));
+        assertFalse(record.contains(user.getSalt()));
+        assertFalse(record.contains(user.getHashedPassword()));
+    }
+
     @Test
     void testSerializeLibrary_WithRealAlbum_ContainsCorrectData() {
         // Add real album to library
@@ -118,16 +172,16 @@ public class UserTest {
         testAlbum.addSong(testSong);
         
         user.getLibrary().addAlbum(testAlbum);
-        testSong.markAsFavorite();
-        testSong.rate(5);
+        user.getLibrary().markAsFavorite(testSong);
+        user.getLibrary().rateSong(testSong, 5);
         user.saveLibraryData();
         User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
         loadedUser.loadLibraryData();
         
         Album loadedAlbum = loadedUser.getLibrary().getAlbumLibrary().iterator().next();
         assertEquals("19", loadedAlbum.getTitle());
-        assertTrue(loadedAlbum.getSongs().get(0).isFavorite());
-        assertEquals(5, loadedAlbum.getSongs().get(0).getRating());
+        assertTrue(loadedUser.getLibrary().isFavorite(loadedAlbum.getSongs().get(0)));
+        assertEquals(5, loadedUser.getLibrary().getRating(loadedAlbum.getSongs().get(0)));
     }
 
     @Test
@@ -176,10 +230,29 @@ public class UserTest {
         
         // Verify songs have valid ratings
         for (Song song : user.getLibrary().getAlbumLibrary().iterator().next().getSongs()) {
-            assertTrue(song.getRating() >= 1 && song.getRating() <= 5);
+            assertTrue(user.getLibrary().getRating(song) >= 1 && user.getLibrary().getRating(song) <= 5);
         }
     }
 
+    @Test
+    void testPlaylist_PersistsArtistAndTitleReferences() {
+        user.getLibrary().addAlbum(adele19);
+        Playlist playlist = user.getLibrary().createPlaylist("Adele Mix");
+        playlist.addSong(adele19.getSongs().get(2)); // Chasing Pavements
+
+        JSONObject libraryJson = user.serializeLibrary();
+        JSONObject reference = libraryJson.getJSONArray("playlists").getJSONObject(0)
+            .getJSONArray("songs").getJSONObject(0);
+        assertEquals("Chasing Pavements", reference.getString("title"));
+        assertEquals("Adele", reference.getString("artist"));
+
+        User loadedUser = new User("otherUser", TEST_PASSWORD);
+        loadedUser.deserializeLibrary(libraryJson);
+        Song loadedSong = loadedUser.getLibrary().getPlaylists().get(0).getSongs().get(0);
+        assertEquals("Chasing Pavements", loadedSong.getTitle());
+        assertEquals("Adele", loadedSong.getArtist());
+    }
+
     // ================== TEST RATING SYSTEM WITH REAL SONGS ================== //
 
     @Test
@@ -189,13 +262,279 @@ public class UserTest {
         testAlbum.addSong(testSong);
         
         user.getLibrary().addAlbum(testAlbum);
-        testSong.rate(5);
+        user.getLibrary().rateSong(testSong, 5);
         user.saveLibraryData();
         User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
         loadedUser.loadLibraryData();
         
         Album loadedAlbum = loadedUser.getLibrary().getAlbumLibrary().iterator().next();
-        assertEquals(5, loadedAlbum.getSongs().get(0).getRating());
+        assertEquals(5, loadedUser.getLibrary().getRating(loadedAlbum.getSongs().get(0)));
+    }
+
+    // ================== TEST DELTA SAVES ================== //
+
+    @Test
+    void testSaveLibraryData_SecondSaveWritesOnlyDelta() {
+        user.getLibrary().addAlbum(adele19);
+        user.saveLibraryData();
+        long baseLength = testFile.length();
+        assertFalse(deltaFile.exists());
+
+        Song song = user.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0);
+        user.getLibrary().rateSong(song, 4);
+        user.getLibrary().markAsFavorite(song);
+        user.saveLibraryData();
+
+        assertEquals(baseLength, testFile.length()); // Base file untouched
+        assertTrue(deltaFile.exists());
+        assertTrue(deltaFile.length() < baseLength);
+    }
+
+    @Test
+    void testLoadLibraryData_MergesDeltaIntoBase() {
+        user.getLibrary().addAlbum(adele19);
+        user.saveLibraryData();
+
+        Song song = user.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0);
+        user.getLibrary().rateSong(song, 3);
+        user.getLibrary().createPlaylist("Road Trip").addSong(song);
+        user.saveLibraryData();
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryData();
+
+        Album loadedAlbum = loadedUser.getLibrary().getAlbumLibrary().iterator().next();
+        assertEquals(3, loadedUser.getLibrary().getRating(loadedAlbum.getSongs().get(0)));
+        Playlist playlist = loadedUser.getLibrary().getPlaylistByName("Road Trip");
+        assertNotNull(playlist);
+        assertEquals(1, playlist.getSongs().size());
+    }
+
+    @Test
+    void testLoadLibraryData_AppliesDeltasAppendedAfterTornLine() throws Exception {
+        user.getLibrary().addAlbum(adele19);
+        user.saveLibraryData();
+        List<Song> songs = user.getLibrary().getAlbumLibrary().iterator().next().getSongs();
+        user.getLibrary().rateSong(songs.get(0), 3);
+        user.saveLibraryData();
+        Files.write(deltaFile.toPath(), "{\"rat".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND); // Crash mid-append
+
+        user.getLibrary().rateSong(songs.get(1), 5);
+        user.saveLibraryData();
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryData();
+        List<Song> loadedSongs = loadedUser.getLibrary().getAlbumLibrary().iterator().next().getSongs();
+        assertEquals(3, loadedUser.getLibrary().getRating(loadedSongs.get(0)));
+        assertEquals(5, loadedUser.getLibrary().getRating(loadedSongs.get(1)));
+    }
+
+    // ================== TEST STREAMING LOAD ================== //
+
+    @Test
+    void testLoadLibraryData_ReadsFileWithPlaylistsBeforeAlbums() throws Exception {
+        // Older files were written by org.json, which does not keep key order
+        JSONObject song = new JSONObject().put("title", "Daydreamer").put("artist", "Adele")
+            .put("rating", 4).put("isFavorite", true);
+        JSONObject album = new JSONObject().put("title", "19").put("artist", "Adele")
+            .put("genre", "Pop").put("year", 2008).put("songs", new JSONArray().put(song));
+        JSONObject playlist = new JSONObject().put("name", "Mine")
+            .put("songs", new JSONArray().put("Daydreamer"));
+        String library = "{\"playlists\": [" + playlist + "], \"albums\": [" + album + "]}";
+        String userJson = "{\"library\": " + library + ", \"username\": \"" + TEST_USERNAME
+            + "\", \"salt\": \"" + user.getSalt() + "\", \"hashedPassword\": \"" + user.getHashedPassword() + "\"}";
+        testFile.getParentFile().mkdirs();
+        Files.write(testFile.toPath(), userJson.getBytes(StandardCharsets.UTF_8));
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryData();
+
+        Song loadedSong = loadedUser.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0);
+        assertEquals(4, loadedUser.getLibrary().getRating(loadedSong));
+        assertTrue(loadedUser.getLibrary().isFavorite(loadedSong));
+        assertNotEquals(user.getSalt(), loadedUser.getSalt()); // Credentials come from users.json only
+        assertSame(loadedSong, loadedUser.getLibrary().getPlaylistByName("Mine").getSongs().get(0));
+    }
+
+    // ================== TEST CATALOG REFERENCES ================== //
+
+    @Test
+    void testUsersShareCatalogSongsButNotRatings() {
+        User other = User.fromCredentials(TEST_USERNAME + "_other", "salt", "hash");
+        Song song = user.getLibrary().getMusicStore().getSongByArtistAndTitle("Adele", "Daydreamer");
+        user.getLibrary().addSong(song);
+        other.getLibrary().addSong(song);
+
+        user.getLibrary().rateSong(song, 4);
+
+        assertSame(user.getLibrary().getMusicStore(), other.getLibrary().getMusicStore());
+        assertSame(song, other.getLibrary().searchSongByArtistAndTitle("Adele", "Daydreamer"));
+        assertEquals(4, user.getLibrary().getRating(song));
+        assertEquals(0, other.getLibrary().getRating(song));
+    }
+
+    @Test
+    void testSerializeLibrary_StoresCatalogAlbumsAsReferences() {
+        user.getLibrary().addAlbum(user.getLibrary().getMusicStore().getAlbumByTitle("19"));
+
+        JSONObject albumJson = user.serializeLibrary().getJSONArray("albums").getJSONObject(0);
+        assertTrue(albumJson.getBoolean("catalog"));
+        assertFalse(albumJson.has("genre"));
+        assertFalse(albumJson.getJSONArray("songs").getJSONObject(0).has("artist"));
+    }
+
+    @Test
+    void testLoadLibraryData_LinksSongsToMusicStore() {
+        Song storeSong = user.getLibrary().getMusicStore().getSongByArtistAndTitle("Adele", "Daydreamer");
+        user.getLibrary().addSong(storeSong);
+        user.getLibrary().rateSong(storeSong, 4);
+        user.saveLibraryData();
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryData();
+
+        Song loadedStoreSong = loadedUser.getLibrary().getMusicStore().getSongByArtistAndTitle("Adele", "Daydreamer");
+        Song loadedSong = loadedUser.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0);
+        assertSame(loadedStoreSong, loadedSong);
+        assertEquals(4, loadedUser.getLibrary().getRating(loadedStoreSong));
+
+        // Adding the store song again does not create a duplicate
+        loadedUser.getLibrary().addSong(loadedStoreSong);
+        assertEquals(1, loadedUser.getLibrary().getSongLibrary().size());
+        assertEquals(1, loadedUser.getLibrary().getAlbumLibrary().iterator().next().getSongs().size());
+    }
+
+    // ================== TEST BINARY FORMAT ================== //
+
+    @Test
+    void testLoadLibraryData_ConvertsJsonToBinaryOnFirstLoad() {
+        user.getLibrary().addAlbum(adele19);
+        user.saveLibraryData(); // Written as JSON
+        Song song = user.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(1);
+        user.getLibrary().rateSong(song, 2);
+        user.saveLibraryData(); // Delta on top of the JSON file
+
+        LibraryFormat.setDeploymentFormat(LibraryFormat.BINARY);
+        User convertedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        convertedUser.loadLibraryData();
+
+        assertTrue(binaryFile.exists());
+        assertFalse(testFile.exists());
+        assertFalse(deltaFile.exists());
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryData();
+        Album loadedAlbum = loadedUser.getLibrary().getAlbumLibrary().iterator().next();
+        assertEquals(adele19.getSongs().size(), loadedAlbum.getSongs().size());
+        assertEquals(2, loadedUser.getLibrary().getRating(loadedAlbum.getSongs().get(1)));
+        assertTrue(loadedUser.validatePassword(TEST_PASSWORD));
+    }
+
+    // ================== TEST LAZY LOADING ================== //
+
+    @Test
+    void testLoadLibraryLazily_ReadsOnlySummaryUntilFirstAccess() {
+        user.getLibrary().addAlbum(adele19);
+        user.getLibrary().createPlaylist("Rainy Day");
+        user.saveLibraryData();
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryLazily();
+
+        assertFalse(loadedUser.isLibraryLoaded());
+        assertEquals(1, loadedUser.getSummary().getAlbumCount());
+        assertEquals(adele19.getSongs().size(), loadedUser.getSummary().getSongCount());
+        assertEquals(1, loadedUser.getSummary().getPlaylistCount());
+        assertFalse(loadedUser.isLibraryLoaded());
+
+        assertEquals(1, loadedUser.getLibrary().getAlbumLibrary().size());
+        assertTrue(loadedUser.isLibraryLoaded());
+    }
+
+    @Test
+    void testSaveLibraryData_BeforeFirstAccessKeepsStoredLibrary() {
+        user.getLibrary().addAlbum(adele19);
+        user.saveLibraryData();
+
+        User lazyUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        lazyUser.loadLibraryLazily();
+        lazyUser.saveLibraryData();
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryData();
+        assertEquals(1, loadedUser.getLibrary().getAlbumLibrary().size());
+    }
+
+    @Test
+    void testLoadLibraryLazily_WritesSummaryForOlderLibraries() {
+        user.getLibrary().addAlbum(adele19);
+        user.saveLibraryData();
+        summaryFile.delete(); // As saved before summaries existed
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryLazily();
+
+        assertTrue(loadedUser.isLibraryLoaded());
+        assertTrue(summaryFile.exists());
+        assertEquals(1, loadedUser.getSummary().getAlbumCount());
+    }
+
+    @Test
+    void testPlaybackHistory_LoadsOnFirstTrackerAccess() {
+        user.getLibrary().addAlbum(adele19);
+        Song song = user.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0);
+        user.getLibrary().getPlaybackTracker().playSong(song);
+        user.saveLibraryData();
+
+        User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        loadedUser.loadLibraryData();
+        assertFalse(loadedUser.getLibrary().isPlaybackLoaded());
+        loadedUser.saveLibraryData(); // Must not overwrite the unread history
+
+        User reloadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+        reloadedUser.loadLibraryData();
+        List<Song> recentlyPlayed = reloadedUser.getLibrary().getPlaybackTracker().getRecentlyPlayed();
+        assertTrue(reloadedUser.getLibrary().isPlaybackLoaded());
+        assertEquals(1, recentlyPlayed.size());
+        assertEquals(song.getTitle(), recentlyPlayed.get(0).getTitle());
+    }
+
+    @Test
+    void testRehashPassword_SurvivesLoadingOlderLibraryRecord() {
+        user.saveLibraryData();
+        User loadedUser = User.fromCredentials(TEST_USERNAME, user.getSalt(), user.getHashedPassword());
+        loadedUser.rehashPassword(TEST_PASSWORD);
+        String newHash = loadedUser.getHashedPassword();
+
+        loadedUser.loadLibraryData(); // The record still holds the old hash
+
+        assertEquals(newHash, loadedUser.getHashedPassword());
+        assertTrue(loadedUser.validatePassword(TEST_PASSWORD));
+    }
+
+    // ================== TEST SINGLE-FILE STORE ================== //
+
+    @Test
+    void testSaveAndLoadLibrary_WithSingleFileStore_KeepsAllRecordsInOneFile(@TempDir Path dir) throws Exception {
+        try (LogStructuredStore store = new LogStructuredStore(dir.resolve("musiclibrary.db"))) {
+            DataStores.setDefault(store);
+            user.getLibrary().addAlbum(adele19);
+            user.saveLibraryData();
+            Song song = user.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0);
+            user.getLibrary().rateSong(song, 4);
+            user.saveLibraryData(); // Delta record
+
+            User loadedUser = new User(TEST_USERNAME, TEST_PASSWORD);
+            loadedUser.loadLibraryData();
+
+            assertFalse(testFile.exists());
+            assertTrue(store.exists("user_data/user_" + TEST_USERNAME + ".json"));
+            assertTrue(store.exists("user_data/user_" + TEST_USERNAME + ".delta"));
+            assertTrue(store.exists("user_data/playback_" + TEST_USERNAME + ".json"));
+            Album loadedAlbum = loadedUser.getLibrary().getAlbumLibrary().iterator().next();
+            assertEquals(4, loadedUser.getLibrary().getRating(loadedAlbum.getSongs().get(0)));
+        }
     }
 
     // ================== TEST EDGE CASES WITH REAL DATA ================== //
@@ -0,0 +1,108 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.persistence.AtomicFileWriter;
+
+class AtomicFileWriterTest {
+    @TempDir
+    Path dir;
+
+    private AtomicFileWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new AtomicFileWriter();
+    }
+
+    // ================== WRITING ================== //
+
+    @Test
+    void testWriteString_CreatesAndReplacesFile() throws IOException {
+        Path file = dir.resolve("user_test.json");
+        writer.writeString(file, "first");
+        writer.writeString(file, "second");
+
+        assertEquals("second", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertEquals(2, writer.getFilesCommitted());
+    }
+
+    @Test
+    void testWrite_LeavesNoTempFiles() throws IOException {
+        writer.writeString(dir.resolve("a.json"), "a");
+        writer.writeString(dir.resolve("b.json"), "b");
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void testWrite_NullTargetThrows() {
+        assertThrows(IllegalArgumentException.class, () -> writer.writeString(null, "x"));
+    }
+
+    // ================== GROUP COMMIT ================== //
+
+    @Test
+    void testWrite_ConcurrentWritersAreGroupCommitted() throws Exception {
+        int threads = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Path file = dir.resolve("user_" + i + ".json");
+            String content = "user " + i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                writer.writeString(file, content);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        for (int i = 0; i < threads; i++) {
+            assertEquals("user " + i, Files.readString(dir.resolve("user_" + i + ".json")));
+        }
+        assertEquals(threads, writer.getFilesCommitted());
+        assertTrue(writer.getBatchCount() <= threads);
+    }
+
+    @Test
+    void testWrite_ConcurrentWritesToSameFileKeepOneWholeVersion() throws Exception {
+        Path file = dir.resolve("users.json");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String content = "version-" + i;
+            futures.add(pool.submit(() -> {
+                writer.writeString(file, content);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertTrue(Files.readString(file).matches("version-\\d+"));
+        assertEquals(40, writer.getFilesCommitted() + writer.getWritesCoalesced());
+    }
+}
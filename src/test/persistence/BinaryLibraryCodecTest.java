@@ -0,0 +1,136 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.database.MusicStore;
+import main.model.Album;
+import main.model.LibraryModel;
+import main.model.Playlist;
+import main.model.Song;
+import main.model.User;
+import main.persistence.BinaryLibraryCodec;
+
+class BinaryLibraryCodecTest {
+    private static final MusicStore musicStore = new MusicStore("src/main/albums/");
+
+    private LibraryModel library;
+
+    @BeforeEach
+    void setUp() {
+        library = new LibraryModel(musicStore);
+    }
+
+    private LibraryModel decode(byte[] data) throws IOException {
+        LibraryModel decoded = new LibraryModel(new MusicStore("src/main/albums/")); // Catalog read by another process
+        assertEquals("alice", BinaryLibraryCodec.decode(data, decoded));
+        return decoded;
+    }
+
+    // ================== ROUND TRIP ================== //
+
+    @Test
+    void testRoundTrip_CatalogAlbumRatingsAndPlaylists() throws IOException {
+        Song daydreamer = musicStore.getSongByArtistAndTitle("Adele", "Daydreamer");
+        Song goingHome = musicStore.getSongByArtistAndTitle("Leonard Cohen", "Going Home");
+        library.addSong(daydreamer);
+        library.addSong(goingHome);
+        library.rateSong(daydreamer, 3);
+        library.markAsFavorite(goingHome);
+        Playlist playlist = library.createPlaylist("Mix");
+        playlist.addSong(goingHome);
+        playlist.addSong(daydreamer);
+
+        LibraryModel decoded = decode(BinaryLibraryCodec.encode("alice", library));
+
+        assertEquals(2, decoded.getAlbumLibrary().size());
+        Song loadedDaydreamer = decoded.searchSongByArtistAndTitle("Adele", "Daydreamer");
+        Song loadedGoingHome = decoded.searchSongByArtistAndTitle("Leonard Cohen", "Going Home");
+        assertEquals(3, decoded.getRating(loadedDaydreamer));
+        assertFalse(decoded.isFavorite(loadedDaydreamer));
+        assertTrue(decoded.isFavorite(loadedGoingHome));
+        assertEquals("Pop", loadedDaydreamer.getAlbum().getGenre());
+        assertSame(decoded.getMusicStore().getSongByArtistAndTitle("Adele", "Daydreamer"), loadedDaydreamer); // Linked, not copied
+        Playlist loadedPlaylist = decoded.getPlaylistByName("Mix");
+        assertSame(loadedGoingHome, loadedPlaylist.getSongs().get(0));
+        assertSame(loadedDaydreamer, loadedPlaylist.getSongs().get(1));
+    }
+
+    @Test
+    void testRoundTrip_AlbumNotInCatalogIsStoredInFull() throws IOException {
+        Album custom = new Album("Demos", "Garage Band", "Rock", 2024);
+        Song song = new Song("Take Ü", "Garage Band", custom);
+        custom.addSong(song);
+        library.rateSong(song, 5);
+        library.addAlbumDirect(custom);
+
+        LibraryModel decoded = decode(BinaryLibraryCodec.encode("alice", library));
+
+        Album loaded = decoded.getAlbumLibrary().iterator().next();
+        assertEquals("Demos", loaded.getTitle());
+        assertEquals(2024, loaded.getYear());
+        assertEquals("Take Ü", loaded.getSongs().get(0).getTitle());
+        assertEquals(5, decoded.getRating(loaded.getSongs().get(0)));
+        assertTrue(decoded.isFavorite(loaded.getSongs().get(0)));
+    }
+
+    @Test
+    void testEncode_MuchSmallerThanJson() {
+        User user = User.fromCredentials("alice", "salt", "hash");
+        for (String title : new String[] {"19", "21", "Old Ideas", "Begin Again", "Tapestry"}) {
+            user.getLibrary().addAlbum(user.getLibrary().getMusicStore().getAlbumByTitle(title));
+        }
+
+        int binarySize = BinaryLibraryCodec.encode("alice", user.getLibrary()).length;
+        int jsonSize = user.serializeLibrary().toString(4).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(binarySize * 10 < jsonSize, binarySize + " vs " + jsonSize);
+    }
+
+    // ================== ERRORS ================== //
+
+    @Test
+    void testDecode_RejectsOtherFiles() {
+        byte[] notBinary = "{\"username\": \"alice\"}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> BinaryLibraryCodec.decode(notBinary, library));
+    }
+
+    @Test
+    void testDecode_RejectsTruncatedData() {
+        library.addAlbum(musicStore.getAlbumByTitle("19"));
+        byte[] data = BinaryLibraryCodec.encode("alice", library);
+        byte[] truncated = Arrays.copyOf(data, data.length - 3);
+        assertThrows(IOException.class, () -> BinaryLibraryCodec.decode(truncated, new LibraryModel(musicStore)));
+    }
+
+    @Test
+    void testEncode_WritesNoCredentials() {
+        User user = User.fromCredentials("alice", "c2FsdA==", "aGFzaA==");
+        byte[] data = BinaryLibraryCodec.encode("alice", user.getLibrary());
+        String text = new String(data, StandardCharsets.UTF_8);
+        assertFalse(text.contains(user.getSalt()));
+        assertFalse(text.contains(user.getHashedPassword()));
+    }
+
+    @Test
+    void testDecode_SkipsCredentialsOfVersion1() throws IOException {
+        byte[] data = {'M', 'L', 'I', 'B', 1, // Magic, version 1
+            3, 5, 'a', 'l', 'i', 'c', 'e', 4, 's', 'a', 'l', 't', 4, 'h', 'a', 's', 'h', // Dictionary
+            0, 1, 2, // Username, salt, hashed password
+            0, 0}; // No albums, no playlists
+        assertEquals("alice", BinaryLibraryCodec.decode(data, library));
+        assertTrue(library.getAlbumLibrary().isEmpty());
+    }
+
+    @Test
+    void testDecode_RejectsNewerVersion() {
+        byte[] data = BinaryLibraryCodec.encode("alice", library);
+        data[4] = (byte) (BinaryLibraryCodec.VERSION + 1);
+        assertThrows(IOException.class, () -> BinaryLibraryCodec.decode(data, library));
+    }
+}
@@ -0,0 +1,115 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.persistence.AtomicFileWriter;
+import main.persistence.CredentialJournal;
+import main.persistence.CredentialJournal.Credential;
+import main.persistence.DataStore;
+import main.persistence.FileDataStore;
+
+class CredentialJournalTest {
+    @TempDir
+    Path dir;
+
+    private DataStore store;
+    private CredentialJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new FileDataStore(dir, new AtomicFileWriter());
+        journal = new CredentialJournal(store, "users.json", "users.journal");
+        journal.load();
+    }
+
+    private CredentialJournal reopen() throws IOException {
+        CredentialJournal reopened = new CredentialJournal(store, "users.json", "users.journal");
+        reopened.load();
+        return reopened;
+    }
+
+    @Test
+    void testFirstAppend_WritesSnapshot() throws IOException {
+        journal.append(new Credential("alice", "salt", "hash"));
+
+        assertTrue(store.exists("users.json"));
+        assertFalse(store.exists("users.journal"));
+    }
+
+    @Test
+    void testLaterAppends_OnlyGrowJournal() throws IOException {
+        journal.append(new Credential("alice", "salt", "hash"));
+        long snapshotSize = store.size("users.json");
+        journal.append(new Credential("bob", "salt", "hash"));
+        journal.append(new Credential("carol", "salt", "hash"));
+
+        assertEquals(snapshotSize, store.size("users.json"));
+        assertEquals(2, journal.getJournalEntries());
+        List<Credential> loaded = reopen().load();
+        assertEquals(3, loaded.size());
+        assertEquals("carol", loaded.get(2).getUsername());
+    }
+
+    @Test
+    void testLaterEntryReplacesEarlierOne() throws IOException {
+        journal.append(new Credential("alice", "salt", "old"));
+        journal.append(new Credential("alice", "salt", "new"));
+
+        List<Credential> loaded = reopen().load();
+        assertEquals(1, loaded.size());
+        assertEquals("new", loaded.get(0).getHashedPassword());
+    }
+
+    @Test
+    void testJournalCompactsOnceAsLargeAsSnapshot() throws IOException {
+        for (int i = 0; i <= CredentialJournal.MIN_COMPACTION_ENTRIES; i++) {
+            journal.append(new Credential("user" + i, "salt", "hash"));
+        }
+
+        assertEquals(2, journal.getCompactionCount());
+        assertFalse(store.exists("users.journal"));
+        assertEquals(CredentialJournal.MIN_COMPACTION_ENTRIES + 1, reopen().load().size());
+    }
+
+    @Test
+    void testTornJournalLineIsIgnored() throws IOException {
+        journal.append(new Credential("alice", "salt", "hash"));
+        journal.append(new Credential("bob", "salt", "hash"));
+        store.append("users.journal", "{\"username\":\"car".getBytes(StandardCharsets.UTF_8));
+
+        List<Credential> loaded = reopen().load();
+        assertEquals(2, loaded.size());
+    }
+
+    @Test
+    void testEntriesAppendedAfterTornLineAreKept() throws IOException {
+        journal.append(new Credential("alice", "salt", "hash"));
+        journal.append(new Credential("bob", "salt", "hash"));
+        store.append("users.journal", "{\"username\":\"car".getBytes(StandardCharsets.UTF_8));
+
+        CredentialJournal reopened = reopen();
+        reopened.append(new Credential("dave", "salt", "hash"));
+        List<Credential> loaded = reopen().load();
+        assertEquals(3, loaded.size());
+        assertEquals("dave", loaded.get(2).getUsername());
+    }
+
+    @Test
+    void testLoad_ReadsLegacyUsersFile() throws IOException {
+        String legacy = "[{\"username\":\"alice\",\"salt\":\"s\",\"hashedPassword\":\"h\"}]";
+        store.put("users.json", legacy.getBytes(StandardCharsets.UTF_8));
+
+        List<Credential> loaded = reopen().load();
+        assertEquals("alice", loaded.get(0).getUsername());
+        assertEquals("h", loaded.get(0).getHashedPassword());
+    }
+}
@@ -0,0 +1,71 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.persistence.AtomicFileWriter;
+import main.persistence.FileDataStore;
+
+class FileDataStoreTest {
+    @TempDir
+    Path dir;
+
+    private FileDataStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new FileDataStore(dir, new AtomicFileWriter());
+    }
+
+    @Test
+    void testPut_WritesFileAtKeyPath() throws IOException {
+        store.put("user_data/user_a.json", "{}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("{}", new String(Files.readAllBytes(dir.resolve("user_data/user_a.json")), StandardCharsets.UTF_8));
+        assertEquals(2, store.size("user_data/user_a.json"));
+    }
+
+    @Test
+    void testAppend_GrowsFile() throws IOException {
+        store.append("user_data/user_a.delta", "one\n".getBytes(StandardCharsets.UTF_8));
+        store.append("user_data/user_a.delta", "two\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("one\ntwo\n", new String(store.get("user_data/user_a.delta"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testAppend_EndsTornLineBeforeNextLine() throws IOException {
+        store.append("user_data/user_a.delta", "one\n".getBytes(StandardCharsets.UTF_8));
+        store.append("user_data/user_a.delta", "tw".getBytes(StandardCharsets.UTF_8)); // Crash mid-append
+        store.append("user_data/user_a.delta", "three\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("one\ntw\nthree\n", new String(store.get("user_data/user_a.delta"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testMissingKey() throws IOException {
+        assertNull(store.openForRead("users.json"));
+        assertNull(store.get("users.json"));
+        assertFalse(store.exists("users.json"));
+        assertFalse(store.delete("users.json"));
+    }
+
+    @Test
+    void testKeys_ListsFilesWithPrefix() throws IOException {
+        store.put("user_data/user_b.json", new byte[0]);
+        store.put("user_data/user_a.bin", new byte[0]);
+        store.put("user_data/playback_a.json", new byte[0]);
+
+        assertEquals(Arrays.asList("user_data/user_a.bin", "user_data/user_b.json"), store.keys("user_data/user_"));
+        assertTrue(store.keys("missing_dir/user_").isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import main.persistence.JsonTokenReader;
+import main.persistence.JsonTokenReader.Token;
+
+class JsonTokenReaderTest {
+
+    private static JsonTokenReader reader(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return new JsonTokenReader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    // ================== TOKENS ================== //
+
+    @Test
+    void testReadsNestedDocument() throws IOException {
+        JsonTokenReader json = reader("{ \"title\": \"19\", \"year\": 2008, \"songs\": [ {\"isFavorite\": true}, {} ], \"x\": null }");
+        json.beginObject();
+        assertEquals("title", json.nextName());
+        assertEquals("19", json.nextString());
+        assertEquals("year", json.nextName());
+        assertEquals(2008, json.nextInt());
+        assertEquals("songs", json.nextName());
+        json.beginArray();
+        json.beginObject();
+        assertEquals("isFavorite", json.nextName());
+        assertTrue(json.nextBoolean());
+        json.endObject();
+        json.beginObject();
+        assertFalse(json.hasNext());
+        json.endObject();
+        assertFalse(json.hasNext());
+        json.endArray();
+        assertEquals("x", json.nextName());
+        json.nextNull();
+        json.endObject();
+        assertEquals(Token.END_DOCUMENT, json.peek());
+    }
+
+    @Test
+    void testDecodesEscapesAndUnicode() throws IOException {
+        JsonTokenReader json = reader("[\"Cuando Los \\u00c1ngeles\", \"a\\\"b\\\\c\\nd\", \"Maná 🎵\"]");
+        json.beginArray();
+        assertEquals("Cuando Los Ángeles", json.nextString());
+        assertEquals("a\"b\\c\nd", json.nextString());
+        assertEquals("Maná 🎵", json.nextString());
+        json.endArray();
+    }
+
+    @Test
+    void testReadsValuesLongerThanTheBuffer() throws IOException {
+        String longTitle = "é".repeat(100_000); // Multi-byte characters across buffer refills
+        JsonTokenReader json = reader(new JSONArray().put(longTitle).put(7).toString());
+        json.beginArray();
+        assertEquals(longTitle, json.nextString());
+        assertEquals(7, json.nextLong());
+        json.endArray();
+    }
+
+    @Test
+    void testReadJsonValue_MatchesOrgJson() throws IOException {
+        String text = "{\"sessions\":{\"totals\":[1,2.5],\"genres\":{\"Pop\":3}},\"flag\":false}";
+        Object value = reader(text).readJsonValue();
+        assertTrue(new JSONObject(text).similar(value));
+    }
+
+    @Test
+    void testSkipValue() throws IOException {
+        JsonTokenReader json = reader("{\"skip\": {\"a\": [1, {\"b\": 2}]}, \"keep\": \"yes\"}");
+        json.beginObject();
+        json.nextName();
+        json.skipValue();
+        assertEquals("keep", json.nextName());
+        assertEquals("yes", json.nextString());
+        json.endObject();
+    }
+
+    // ================== ERRORS ================== //
+
+    @Test
+    void testMalformedInputThrows() {
+        assertThrows(IOException.class, () -> reader("{\"a\" 1}").readJsonValue());
+        assertThrows(IOException.class, () -> reader("[1, 2").readJsonValue());
+        assertThrows(IOException.class, () -> reader("\"unterminated").readJsonValue());
+    }
+
+    @Test
+    void testWrongTokenThrows() throws IOException {
+        JsonTokenReader json = reader("[1]");
+        assertThrows(IOException.class, json::beginObject);
+    }
+}
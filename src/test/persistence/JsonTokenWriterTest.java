@@ -0,0 +1,70 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import main.persistence.JsonTokenWriter;
+
+class JsonTokenWriterTest {
+
+    // ================== OUTPUT ================== //
+
+    @Test
+    void testWritesDocumentReadableByOrgJson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonTokenWriter json = new JsonTokenWriter(Channels.newChannel(out), 4);
+        json.beginObject();
+        json.name("title").value("Say \"Hi\"\n");
+        json.name("year").value(2008);
+        json.name("isFavorite").value(true);
+        json.name("songs").beginArray().endArray();
+        json.name("tags").beginArray().value("a").nullValue().endArray();
+        json.name("sessions").jsonValue(new JSONObject().put("count", 2));
+        json.endObject();
+        json.flush();
+
+        JSONObject parsed = new JSONObject(out.toString(StandardCharsets.UTF_8));
+        assertEquals("Say \"Hi\"\n", parsed.getString("title"));
+        assertEquals(2008, parsed.getInt("year"));
+        assertTrue(parsed.getBoolean("isFavorite"));
+        assertEquals(0, parsed.getJSONArray("songs").length());
+        assertTrue(parsed.getJSONArray("tags").isNull(1));
+        assertEquals(2, parsed.getJSONObject("sessions").getInt("count"));
+    }
+
+    @Test
+    void testCompactOutputHasNoWhitespace() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonTokenWriter json = new JsonTokenWriter(Channels.newChannel(out), 0);
+        json.beginArray().value(1).value("x").endArray();
+        json.flush();
+        assertEquals("[1,\"x\"]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWritesLongUnicodeAcrossBufferBoundaries() throws IOException {
+        String longTitle = "🎵".repeat(50_000); // Surrogate pairs split across buffer flushes
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonTokenWriter json = new JsonTokenWriter(Channels.newChannel(out), 0);
+        json.beginArray().value("x").value(longTitle).endArray();
+        json.flush();
+        assertEquals(longTitle, new JSONArray(out.toString(StandardCharsets.UTF_8)).getString(1));
+    }
+
+    // ================== ERRORS ================== //
+
+    @Test
+    void testValueWithoutNameInObjectThrows() throws IOException {
+        JsonTokenWriter json = new JsonTokenWriter(Channels.newChannel(new ByteArrayOutputStream()), 0);
+        json.beginObject();
+        assertThrows(IllegalStateException.class, () -> json.value("x"));
+    }
+}
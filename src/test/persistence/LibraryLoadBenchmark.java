@@ -0,0 +1,79 @@
+package test.persistence;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
+import org.json.JSONObject;
+
+import main.database.MusicStore;
+import main.model.Album;
+import main.model.Playlist;
+import main.model.Song;
+import main.model.User;
+
+/**
+ * Benchmark (run with main, not part of the unit tests): compares loading a large user library
+ * with the streaming reader against the old approach (whole file into a StringBuilder, org.json
+ * DOM, then walking the DOM).
+ */
+public class LibraryLoadBenchmark {
+    private static final int COPIES = 300; // Copies of the catalog in the library
+    private static final int ROUNDS = 10;
+    private static final String[] ALBUMS = {"19", "21", "Old Ideas", "Begin Again", "Tapestry", "Sigh No More"};
+
+    public static void main(String[] args) throws Exception {
+        MusicStore store = new MusicStore("src/main/albums/");
+        User user = User.fromCredentials("benchload", "c2FsdA==", "aGFzaA==");
+
+        // A large library: many renamed copies of the catalog plus playlists
+        for (int copy = 0; copy < COPIES; copy++) {
+            for (String title : ALBUMS) {
+                Album album = store.getAlbumByTitle(title);
+                Album renamed = new Album(album.getTitle() + " #" + copy, album.getArtist(), album.getGenre(), album.getYear());
+                album.getSongs().forEach(song -> renamed.addSong(new Song(song.getTitle(), song.getArtist(), renamed)));
+                user.getLibrary().addAlbumDirect(renamed); // Renamed copies are not in the store
+            }
+        }
+        Playlist playlist = user.getLibrary().createPlaylist("Everything");
+        user.getLibrary().getAlbumLibrary().forEach(album -> album.getSongs().forEach(playlist::addSong));
+        user.saveLibraryData();
+        File file = new File("user_data/user_benchload.json");
+        System.out.printf("Library file: %.1f MB%n", file.length() / 1e6);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            // Users are created up front so password hashing is not timed
+            User domUser = User.fromCredentials("benchload", "c2FsdA==", "aGFzaA==");
+            User streamUser = User.fromCredentials("benchload", "c2FsdA==", "aGFzaA==");
+            long domNanos = time(() -> loadWithDom(file, domUser));
+            long streamNanos = time(streamUser::loadLibraryData);
+            System.out.printf("round %d: DOM %d ms, streaming %d ms (%.1fx)%n", round,
+                    domNanos / 1_000_000, streamNanos / 1_000_000, (double) domNanos / streamNanos);
+        }
+
+        new File("user_data/user_benchload.json").delete();
+        new File("user_data/playback_benchload.json").delete();
+    }
+
+    private static void loadWithDom(File file, User user) throws Exception {
+        StringBuilder jsonData = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                jsonData.append(line);
+            }
+        }
+        JSONObject userJson = new JSONObject(jsonData.toString());
+        user.deserializeLibrary(userJson.getJSONObject("library"));
+    }
+
+    private static long time(ThrowingRunnable task) throws Exception {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,323 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.persistence.LogStructuredStore;
+
+class LogStructuredStoreTest {
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private LogStructuredStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("musiclibrary.db");
+        store = new LogStructuredStore(file);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] data) {
+        return data == null ? null : new String(data, StandardCharsets.UTF_8);
+    }
+
+    // ================== POINT READS AND WRITES ================== //
+
+    @Test
+    void testPutAndGet_ReturnsNewestValue() throws IOException {
+        store.put("users.json", bytes("first"));
+        store.put("users.json", bytes("second"));
+
+        assertEquals("second", text(store.get("users.json")));
+        assertEquals(6, store.size("users.json"));
+        assertNull(store.get("missing"));
+        assertEquals(-1, store.size("missing"));
+    }
+
+    @Test
+    void testAppend_ConcatenatesToExistingValue() throws IOException {
+        store.append("user_data/user_a.delta", bytes("one\n"));
+        store.append("user_data/user_a.delta", bytes("two\n"));
+
+        assertEquals("one\ntwo\n", text(store.get("user_data/user_a.delta")));
+    }
+
+    @Test
+    void testAppend_LogsOnlyNewBytesAndSurvivesReopenAndCompaction() throws IOException {
+        store.put("users.journal", bytes("0\n"));
+        long before = store.getFileSize();
+        for (int i = 1; i < 100; i++) {
+            store.append("users.journal", bytes(i + "\n"));
+        }
+        long perAppend = (store.getFileSize() - before) / 99;
+        assertTrue(perAppend < 64, "append rewrote the existing value: " + perAppend + " bytes each");
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(i).append('\n');
+        }
+        store.close();
+        store = new LogStructuredStore(file);
+        assertEquals(expected.toString(), text(store.get("users.journal")));
+        store.compact();
+        assertEquals(expected.toString(), text(store.get("users.journal")));
+        assertEquals(expected.length(), store.size("users.journal"));
+    }
+
+    @Test
+    void testDelete_RemovesKey() throws IOException {
+        store.put("user_data/user_a.json", bytes("a"));
+
+        assertTrue(store.delete("user_data/user_a.json"));
+        assertFalse(store.delete("user_data/user_a.json"));
+        assertFalse(store.exists("user_data/user_a.json"));
+    }
+
+    @Test
+    void testKeys_ListsKeysWithPrefix() throws IOException {
+        store.put("user_data/user_b.json", bytes("b"));
+        store.put("user_data/user_a.json", bytes("a"));
+        store.put("user_data/playback_a.json", bytes("p"));
+        store.put("users.json", bytes("[]"));
+
+        assertEquals(Arrays.asList("user_data/user_a.json", "user_data/user_b.json"), store.keys("user_data/user_"));
+    }
+
+    @Test
+    void testWrite_StreamsContentIntoRecord() throws IOException {
+        store.write("users.json", channel -> channel.write(ByteBuffer.wrap(bytes("[1,2]"))));
+
+        assertEquals("[1,2]", text(store.get("users.json")));
+    }
+
+    @Test
+    void testWrite_StreamsLargeValueAndSurvivesReopen() throws IOException {
+        byte[] chunk = new byte[100_000];
+        Arrays.fill(chunk, (byte) 'x');
+        store.write("user_data/user_a.json", channel -> {
+            for (int i = 0; i < 10; i++) {
+                channel.write(ByteBuffer.wrap(chunk));
+            }
+        });
+
+        store.close();
+        store = new LogStructuredStore(file);
+        assertEquals(1_000_000, store.size("user_data/user_a.json"));
+    }
+
+    @Test
+    void testWrite_FailedContentLeavesNoRecord() throws IOException {
+        store.put("a", bytes("old"));
+
+        assertThrows(IOException.class, () -> store.write("a", channel -> {
+            channel.write(ByteBuffer.wrap(bytes("partial")));
+            throw new IOException("serialization failed");
+        }));
+        store.put("b", bytes("next"));
+
+        store.close();
+        store = new LogStructuredStore(file);
+        assertEquals("old", text(store.get("a")));
+        assertEquals("next", text(store.get("b")));
+    }
+
+    @Test
+    void testEmptyKeyThrows() {
+        assertThrows(IllegalArgumentException.class, () -> store.put("", bytes("x")));
+    }
+
+    // ================== RECOVERY ================== //
+
+    @Test
+    void testReopen_ReplaysLog() throws IOException {
+        store.put("a", bytes("1"));
+        store.put("b", bytes("2"));
+        store.put("a", bytes("3"));
+        store.delete("b");
+        store.close();
+
+        store = new LogStructuredStore(file);
+        assertEquals("3", text(store.get("a")));
+        assertFalse(store.exists("b"));
+    }
+
+    @Test
+    void testReopen_TruncatesTornRecord() throws IOException {
+        store.put("a", bytes("kept"));
+        long validSize = store.getFileSize();
+        store.put("b", bytes("torn away"));
+        store.close();
+
+        // Simulate a crash in the middle of the last append
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(validSize + 10);
+        }
+
+        store = new LogStructuredStore(file);
+        assertEquals("kept", text(store.get("a")));
+        assertFalse(store.exists("b"));
+        assertEquals(validSize, Files.size(file));
+
+        store.put("c", bytes("after"));
+        assertEquals("after", text(store.get("c")));
+    }
+
+    @Test
+    void testReopen_StopsAtCorruptRecord() throws IOException {
+        store.put("a", bytes("kept"));
+        long validSize = store.getFileSize();
+        store.put("b", bytes("flipped"));
+        store.close();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), Files.size(file) - 1);
+        }
+
+        store = new LogStructuredStore(file);
+        assertFalse(store.exists("b"));
+        assertEquals(validSize, store.getFileSize());
+    }
+
+    @Test
+    void testOpen_RejectsForeignFile() throws IOException {
+        Path other = dir.resolve("other.db");
+        Files.write(other, bytes("{\"not\": \"a store\"}"));
+
+        assertThrows(IOException.class, () -> new LogStructuredStore(other));
+    }
+
+    // ================== COMPACTION ================== //
+
+    @Test
+    void testCompact_DropsSupersededRecords() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            store.put("user_data/user_a.json", bytes("version " + i));
+        }
+        store.put("gone", bytes("x"));
+        store.delete("gone");
+        long before = store.getFileSize();
+
+        store.compact();
+
+        assertTrue(store.getFileSize() < before);
+        assertEquals(store.getLiveBytes(), store.getFileSize());
+        assertEquals("version 99", text(store.get("user_data/user_a.json")));
+        assertFalse(store.exists("gone"));
+
+        store.close();
+        store = new LogStructuredStore(file);
+        assertEquals("version 99", text(store.get("user_data/user_a.json")));
+    }
+
+    @Test
+    void testBackgroundCompaction_RunsWhenMostOfFileIsGarbage() throws Exception {
+        store.close();
+        store = new LogStructuredStore(file, 4096);
+        byte[] value = new byte[512];
+        for (int i = 0; i < 64; i++) {
+            store.put("user_data/user_a.json", value);
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.getCompactionCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(store.getCompactionCount() > 0);
+        assertArrayEquals(value, store.get("user_data/user_a.json"));
+    }
+
+    // ================== CONCURRENCY ================== //
+
+    @Test
+    void testConcurrentWrites_AllDurableAndGroupCommitted() throws Exception {
+        int threads = 8;
+        int writesPerThread = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < writesPerThread; i++) {
+                    store.put("user_data/user_" + id + ".json", bytes("value " + i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertTrue(store.getSyncCount() <= threads * writesPerThread);
+        store.close();
+        store = new LogStructuredStore(file);
+        for (int t = 0; t < threads; t++) {
+            assertEquals("value " + (writesPerThread - 1), text(store.get("user_data/user_" + t + ".json")));
+        }
+    }
+
+    @Test
+    void testCompaction_KeepsWritesMadeWhileItCopies() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            store.put("user_data/user_" + i + ".json", new byte[1024]);
+        }
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                store.put("user_data/user_" + i + ".json", bytes("value " + i));
+                store.append("users.journal", bytes(i + "\n"));
+                if (i % 2 == 0) {
+                    store.delete("user_data/user_" + i + ".json");
+                }
+            }
+            return null;
+        });
+        while (!writer.isDone()) {
+            store.compact();
+        }
+        writer.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+        store.compact();
+
+        store.close();
+        store = new LogStructuredStore(file);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i % 2 == 0 ? null : "value " + i, text(store.get("user_data/user_" + i + ".json")));
+        }
+        assertEquals(200, text(store.get("users.journal")).split("\n").length);
+        assertEquals(store.getLiveBytes(), store.getFileSize());
+    }
+
+    @Test
+    void testClosedStoreThrows() throws IOException {
+        store.close();
+
+        assertThrows(IllegalStateException.class, () -> store.put("a", bytes("x")));
+    }
+}
@@ -0,0 +1,77 @@
+package test.persistence;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import main.database.MusicStore;
+import main.model.User;
+import main.persistence.AtomicFileWriter;
+
+/**
+ * Benchmark (run with main, not part of the unit tests): simulates a logout storm where
+ * 1,000 users save their library and playback data at the same moment, and reports
+ * saves/sec together with how many group commits the shared writer needed.
+ */
+public class LogoutStormBenchmark {
+    private static final int USERS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : USERS;
+        MusicStore store = new MusicStore("src/main/albums/");
+
+        // Users with a few albums and ratings each (credentials are fake to skip PBKDF2)
+        List<User> loggedIn = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            User user = User.fromCredentials("storm" + i, "c2FsdA==", "aGFzaA==");
+            user.getLibrary().addAlbum(store.getAlbumByTitle("19"));
+            user.getLibrary().addAlbum(store.getAlbumByTitle("Old Ideas"));
+            user.getLibrary().rateSong(user.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0), 4);
+            loggedIn.add(user);
+        }
+
+        AtomicFileWriter writer = AtomicFileWriter.getShared();
+        long filesBefore = writer.getFilesCommitted();
+        long batchesBefore = writer.getBatchCount();
+
+        // Every user logs out at once
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(users);
+        for (User user : loggedIn) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    user.saveLibraryData();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        finished.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        long files = writer.getFilesCommitted() - filesBefore;
+        long batches = writer.getBatchCount() - batchesBefore;
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d concurrent logouts in %.2f s -> %.0f saves/sec%n", users, seconds, users / seconds);
+        System.out.printf("%d files committed in %d group commits (%.1f files per fsync batch)%n",
+                files, batches, batches == 0 ? 0.0 : (double) files / batches);
+
+        // Remove the benchmark's files
+        for (int i = 0; i < users; i++) {
+            new File("user_data/user_storm" + i + ".json").delete();
+            new File("user_data/playback_storm" + i + ".json").delete();
+        }
+    }
+}
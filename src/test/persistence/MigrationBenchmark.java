@@ -0,0 +1,80 @@
+package test.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import main.database.MusicStore;
+import main.model.Album;
+import main.model.Song;
+import main.model.User;
+import main.persistence.CredentialJournal;
+import main.persistence.DataStores;
+import main.persistence.FileDataStore;
+import main.persistence.LogStructuredStore;
+import main.persistence.MigrationTool;
+
+/**
+ * Benchmark (run with main, not part of the unit tests): writes N legacy users (a one-album
+ * library and a playback history each, 50,000 by default) and migrates them into the
+ * single-file store with one worker per core, then reports throughput and the projected time
+ * for 1,000,000 users. Legacy files are stamped from a template so generating them is cheap.
+ */
+public class MigrationBenchmark {
+    private static final int USERS = 50_000;
+    private static final String TEMPLATE = "templateuser";
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : USERS;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path dir = Files.createTempDirectory("migration-benchmark");
+        Path source = Files.createDirectories(dir.resolve("legacy"));
+
+        // One real user as the template
+        DataStores.setDefault(new FileDataStore(source));
+        User template = User.fromCredentials(TEMPLATE, "salt", "hash");
+        Album album = new MusicStore("src/main/albums/").getAlbumByTitle("19");
+        template.getLibrary().addAlbum(album);
+        template.getLibrary().createPlaylist("Favorites mix");
+        for (Song song : template.getLibrary().getAlbumLibrary().iterator().next().getSongs()) {
+            template.getLibrary().getPlaybackTracker().playSong(song);
+        }
+        template.saveLibraryData();
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
+        String library = new String(Files.readAllBytes(source.resolve("user_data/user_" + TEMPLATE + ".json")), StandardCharsets.UTF_8);
+        String playback = new String(Files.readAllBytes(source.resolve("user_data/playback_" + TEMPLATE + ".json")), StandardCharsets.UTF_8);
+        Files.delete(source.resolve("user_data/user_" + TEMPLATE + ".json"));
+        Files.delete(source.resolve("user_data/user_" + TEMPLATE + ".summary"));
+        Files.delete(source.resolve("user_data/playback_" + TEMPLATE + ".json"));
+
+        long startNanos = System.nanoTime();
+        List<CredentialJournal.Credential> credentials = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String name = "user" + i;
+            Files.write(source.resolve("user_data/user_" + name + ".json"), library.replace(TEMPLATE, name).getBytes(StandardCharsets.UTF_8));
+            Files.write(source.resolve("user_data/playback_" + name + ".json"), playback.getBytes(StandardCharsets.UTF_8));
+            credentials.add(new CredentialJournal.Credential(name, "salt", "hash"));
+        }
+        new CredentialJournal(new FileDataStore(source), "users.json", "users.journal").writeSnapshot(credentials);
+        System.out.printf("generated %d legacy users in %.1f s%n", users, (System.nanoTime() - startNanos) / 1e9);
+
+        Path target = Files.createDirectories(dir.resolve("migrated"));
+        MigrationTool.Report report;
+        try (LogStructuredStore store = new LogStructuredStore(target.resolve("musiclibrary.db"))) {
+            MigrationTool tool = new MigrationTool(source, store, threads, target.resolve("migration.checkpoint"));
+            report = tool.run(System.out);
+        }
+        System.out.printf("%d threads: %.0f users/sec -> 1,000,000 users in about %.1f minutes%n",
+                threads, report.getRecordsPerSecond(), 1_000_000 / report.getRecordsPerSecond() / 60);
+
+        // Remove the benchmark's files
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
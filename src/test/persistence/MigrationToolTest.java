@@ -0,0 +1,175 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.database.MusicStore;
+import main.model.Album;
+import main.model.LibrarySummary;
+import main.model.Song;
+import main.model.User;
+import main.persistence.CredentialJournal;
+import main.persistence.DataStore;
+import main.persistence.DataStores;
+import main.persistence.FileDataStore;
+import main.persistence.LibraryFormat;
+import main.persistence.LogStructuredStore;
+import main.persistence.MigrationTool;
+
+class MigrationToolTest {
+    @TempDir
+    Path dir;
+
+    private Path source;
+    private Path checkpoint;
+    private PrintStream progress;
+    private Album adele19;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        source = Files.createDirectories(dir.resolve("legacy"));
+        checkpoint = dir.resolve("migration.checkpoint");
+        progress = new PrintStream(new ByteArrayOutputStream(), true, "UTF-8");
+        adele19 = new MusicStore("src/main/albums/").getAlbumByTitle("19");
+    }
+
+    @AfterEach
+    void tearDown() {
+        LibraryFormat.setDeploymentFormat(LibraryFormat.JSON);
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
+    }
+
+    /**
+     * Writes legacy data for users user0..user(n-1): credentials, a library with one album
+     * (and a playlist for every other user), and a played song.
+     */
+    private void createLegacyUsers(int count) throws IOException {
+        DataStore legacy = new FileDataStore(source);
+        DataStores.setDefault(legacy);
+        List<CredentialJournal.Credential> credentials = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = User.fromCredentials("user" + i, "salt" + i, "hash" + i);
+            user.getLibrary().addAlbum(adele19);
+            if (i % 2 == 0) {
+                user.getLibrary().createPlaylist("Mix " + i);
+            }
+            Song song = user.getLibrary().getAlbumLibrary().iterator().next().getSongs().get(0);
+            user.getLibrary().getPlaybackTracker().playSong(song);
+            user.saveLibraryData();
+            credentials.add(new CredentialJournal.Credential("user" + i, "salt" + i, "hash" + i));
+        }
+        new CredentialJournal(legacy, "users.json", "users.journal").writeSnapshot(credentials);
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
+    }
+
+    private static User readUser(DataStore store, String username) {
+        User user = User.fromCredentials(username, "", "");
+        assertTrue(user.readLibraryFrom(store), "no library for " + username);
+        return user;
+    }
+
+    @Test
+    void testRun_MigratesEveryUserIntoSingleFileStore() throws Exception {
+        createLegacyUsers(300);
+
+        try (LogStructuredStore target = new LogStructuredStore(dir.resolve("musiclibrary.db"))) {
+            MigrationTool.Report report = new MigrationTool(source, target, 4, checkpoint).run(progress);
+
+            assertEquals(301, report.getMigrated()); // Credentials and 300 users
+            assertEquals(0, report.getFailed());
+            assertTrue(report.getBytesRead() > 0);
+            List<CredentialJournal.Credential> credentials =
+                    new CredentialJournal(target, "users.json", "users.journal").load();
+            assertEquals(300, credentials.size());
+            for (int i = 0; i < 300; i += 37) {
+                User user = readUser(target, "user" + i);
+                assertEquals("hash" + i, credentials.get(i).getHashedPassword());
+                assertEquals(new LibrarySummary(1, adele19.getSongs().size(), i % 2 == 0 ? 1 : 0),
+                        LibrarySummary.of(user.getLibrary()));
+                assertEquals(1, user.getLibrary().getPlaybackTracker().getRecentlyPlayed().size());
+                assertTrue(target.exists("user_data/user_user" + i + ".summary"));
+            }
+        }
+    }
+
+    @Test
+    void testRun_ConvertsToDeploymentFormat() throws Exception {
+        createLegacyUsers(3);
+        LibraryFormat.setDeploymentFormat(LibraryFormat.BINARY);
+        DataStore target = new FileDataStore(dir.resolve("migrated"));
+
+        new MigrationTool(source, target, 2, checkpoint).run(progress);
+
+        assertTrue(target.exists("user_data/user_user1.bin"));
+        assertFalse(target.exists("user_data/user_user1.json"));
+        assertTrue(Files.exists(source.resolve("user_data/user_user1.json"))); // Source is left as it was
+        assertEquals(1, readUser(target, "user1").getLibrary().getAlbumLibrary().size());
+    }
+
+    @Test
+    void testRun_ResumesFromCheckpoint() throws Exception {
+        createLegacyUsers(5);
+        DataStore target = new FileDataStore(dir.resolve("migrated"));
+        new MigrationTool(source, target, 2, checkpoint).run(progress);
+
+        MigrationTool.Report second = new MigrationTool(source, target, 2, checkpoint).run(progress);
+
+        assertEquals(0, second.getMigrated());
+        assertEquals(6, second.getSkipped());
+    }
+
+    @Test
+    void testRun_RecordsFailuresAndRetriesThemNextRun() throws Exception {
+        createLegacyUsers(4);
+        Path broken = source.resolve("user_data/user_user2.json");
+        byte[] original = Files.readAllBytes(broken);
+        Files.write(broken, "{\"username\": \"user2\", \"libr".getBytes(StandardCharsets.UTF_8));
+        DataStore target = new FileDataStore(dir.resolve("migrated"));
+
+        MigrationTool.Report first = new MigrationTool(source, target, 2, checkpoint).run(progress);
+        assertEquals(1, first.getFailed());
+        assertEquals(4, first.getMigrated());
+        assertTrue(new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8)
+                .contains("failed user_data/user_user2"));
+
+        Files.write(broken, original);
+        MigrationTool.Report second = new MigrationTool(source, target, 2, checkpoint).run(progress);
+        assertEquals(1, second.getMigrated());
+        assertEquals(0, second.getFailed());
+        assertEquals(1, readUser(target, "user2").getLibrary().getAlbumLibrary().size());
+    }
+
+    @Test
+    void testRun_CopiesPlaybackWithoutLibrary() throws Exception {
+        createLegacyUsers(1);
+        Path orphan = source.resolve("user_data/playback_ghost.json");
+        Files.copy(source.resolve("user_data/playback_user0.json"), orphan);
+        DataStore target = new FileDataStore(dir.resolve("migrated"));
+
+        MigrationTool.Report report = new MigrationTool(source, target, 1, checkpoint).run(progress);
+
+        assertEquals(3, report.getMigrated());
+        assertArrayEquals(Files.readAllBytes(orphan), target.get("user_data/playback_ghost.json"));
+    }
+
+    @Test
+    void testInvalidArgumentsThrow() {
+        DataStore target = new FileDataStore(dir);
+        assertThrows(IllegalArgumentException.class, () -> new MigrationTool(source, target, 0, checkpoint));
+        assertThrows(IllegalArgumentException.class, () -> new MigrationTool(null, target, 1, checkpoint));
+    }
+}
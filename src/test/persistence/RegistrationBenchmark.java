@@ -0,0 +1,71 @@
+package test.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import main.persistence.AtomicFileWriter;
+import main.persistence.CredentialJournal;
+import main.persistence.DataStore;
+import main.persistence.FileDataStore;
+
+/**
+ * Benchmark (run with main, not part of the unit tests): registers 100,000 users back to back
+ * through the credential journal and compares the per-registration cost with the old approach
+ * of rewriting the whole users.json array on every registration (run on fewer users, since it
+ * is quadratic). Credentials are precomputed so PBKDF2 does not dominate the timings.
+ */
+public class RegistrationBenchmark {
+    private static final int USERS = 100_000;
+    private static final int LEGACY_USERS = 2_000;
+    private static final String SALT = "c2FsdHNhbHRzYWx0c2FsdA==";
+    private static final String HASH = "aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g=";
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : USERS;
+        int legacyUsers = args.length > 1 ? Integer.parseInt(args[1]) : LEGACY_USERS;
+        Path dir = Files.createTempDirectory("registration-benchmark");
+        DataStore store = new FileDataStore(dir, new AtomicFileWriter());
+
+        // Journal: one appended line per registration, amortized snapshot compaction
+        CredentialJournal journal = new CredentialJournal(store, "users.json", "users.journal");
+        journal.load();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            journal.append(new CredentialJournal.Credential("user" + i, SALT, HASH));
+        }
+        double journalSeconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("journal: %d registrations in %.2f s -> %.0f registrations/sec (%.1f us each, %d compactions)%n",
+                users, journalSeconds, users / journalSeconds, journalSeconds * 1e6 / users, journal.getCompactionCount());
+
+        startNanos = System.nanoTime();
+        int loaded = new CredentialJournal(store, "users.json", "users.journal").load().size();
+        System.out.printf("reload of %d users: %.0f ms%n", loaded, (System.nanoTime() - startNanos) / 1e6);
+
+        // Legacy: rewrite every user's credentials on each registration
+        List<JSONObject> legacy = new ArrayList<>();
+        startNanos = System.nanoTime();
+        for (int i = 0; i < legacyUsers; i++) {
+            JSONObject userJson = new JSONObject();
+            userJson.put("username", "legacy" + i);
+            userJson.put("salt", SALT);
+            userJson.put("hashedPassword", HASH);
+            legacy.add(userJson);
+            store.put("legacy_users.json", new JSONArray(legacy).toString(4).getBytes(StandardCharsets.UTF_8));
+        }
+        double legacySeconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("full rewrite: %d registrations in %.2f s -> %.0f registrations/sec (%.1f us each)%n",
+                legacyUsers, legacySeconds, legacyUsers / legacySeconds, legacySeconds * 1e6 / legacyUsers);
+
+        // Remove the benchmark's files
+        for (String key : new String[] {"users.json", "users.journal", "legacy_users.json"}) {
+            store.delete(key);
+        }
+        Files.deleteIfExists(dir);
+    }
+}
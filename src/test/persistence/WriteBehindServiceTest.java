@@ -0,0 +1,258 @@
+package test.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import main.persistence.WriteBehindService;
+
+class WriteBehindServiceTest {
+
+    // ================== COALESCING ================== //
+
+    @Test
+    void testMarkDirty_CoalescesRepeatedChangesIntoOneFlush() throws InterruptedException {
+        List<String> flushed = new CopyOnWriteArrayList<>();
+        WriteBehindService<String> service = new WriteBehindService<>(item -> flushed.add(item), 1, 16, 100);
+
+        for (int i = 0; i < 10; i++) {
+            service.markDirty("alice");
+        }
+        assertEquals(1, service.getQueueDepth());
+        service.awaitFlushed("alice");
+
+        assertEquals(List.of("alice"), flushed);
+        assertEquals(9, service.getCoalescedCount());
+        assertEquals(0, service.getQueueDepth());
+        service.shutdown(1000);
+    }
+
+    @Test
+    void testFlushAsync_DoesNotWaitForDelay() throws InterruptedException {
+        CountDownLatch saved = new CountDownLatch(1);
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            saved.countDown();
+            return true;
+        }, 1, 16, 60_000);
+
+        service.markDirty("alice");
+        service.flushAsync("alice");
+
+        assertTrue(saved.await(5, TimeUnit.SECONDS));
+        service.shutdown(1000);
+    }
+
+    @Test
+    void testChangeDuringFlush_IsFlushedAgain() throws InterruptedException {
+        CountDownLatch inFlush = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger flushes = new AtomicInteger();
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            if (flushes.incrementAndGet() == 1) {
+                inFlush.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        }, 1, 16, 10);
+
+        service.flushAsync("alice");
+        assertTrue(inFlush.await(5, TimeUnit.SECONDS));
+        service.markDirty("alice"); // Arrives while the first save is running
+        release.countDown();
+        service.awaitFlushed("alice");
+
+        assertEquals(2, flushes.get());
+        service.shutdown(1000);
+    }
+
+    // ================== RETRIES AND BACKPRESSURE ================== //
+
+    @Test
+    void testBusyItem_IsRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        WriteBehindService<String> service = new WriteBehindService<>(item -> attempts.incrementAndGet() >= 3, 1, 16, 0);
+
+        service.flushAsync("alice");
+        service.awaitFlushed("alice");
+
+        assertEquals(3, attempts.get());
+        assertEquals(2, service.getRetryCount());
+        assertEquals(1, service.getFlushCount());
+        service.shutdown(1000);
+    }
+
+    @Test
+    void testFailedFlush_IsCountedAndRetried() throws InterruptedException {
+        AtomicBoolean failed = new AtomicBoolean();
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new RuntimeException("disk full");
+            }
+            return true;
+        }, 1, 16, 0);
+
+        service.flushAsync("alice");
+        service.awaitFlushed("alice");
+
+        assertEquals(1, service.getFailureCount());
+        assertEquals(1, service.getFlushCount());
+        service.shutdown(1000);
+    }
+
+    @Test
+    void testRepeatedFailures_BackOffAndKeepLastError() throws InterruptedException {
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            throw new RuntimeException("disk full");
+        }, 1, 16, 0);
+
+        service.flushAsync("alice");
+        Thread.sleep(700); // Fixed 50 ms retries would fail about 14 times
+
+        assertTrue(service.getFailureCount() >= 2);
+        assertTrue(service.getFailureCount() <= 6);
+        assertEquals("disk full", service.getLastError().getMessage());
+        assertEquals(1, service.getQueueDepth());
+        assertFalse(service.shutdown(100));
+        assertFalse(service.awaitFlushed("alice")); // Stopped with the changes unsaved
+    }
+
+    @Test
+    void testMarkDirty_BlocksWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, 1, 2, 0);
+        service.flushAsync("a");
+        service.flushAsync("b");
+
+        Thread producer = new Thread(() -> service.markDirty("c"));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "third item should wait for room in the queue");
+        assertEquals(2, service.getQueueDepth());
+
+        release.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertTrue(service.shutdown(5000));
+        assertEquals(2, service.getMaxQueueDepth());
+    }
+
+    @Test
+    void testMarkDirtyIfRunning_ReturnsFalseWhenShutdownEndsTheWait() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, 1, 2, 0);
+        service.flushAsync("a");
+        service.flushAsync("b");
+
+        AtomicBoolean queued = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> queued.set(service.markDirtyIfRunning("c")));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "third item should wait for room in the queue");
+
+        assertFalse(service.shutdown(100));
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertFalse(queued.get());
+        release.countDown();
+    }
+
+    // ================== SHUTDOWN AND METRICS ================== //
+
+    @Test
+    void testShutdown_FlushesPendingItems() throws InterruptedException {
+        List<String> flushed = new CopyOnWriteArrayList<>();
+        WriteBehindService<String> service = new WriteBehindService<>(item -> flushed.add(item), 2, 16, 60_000);
+        service.markDirty("alice");
+        service.markDirty("bob");
+
+        assertTrue(service.shutdown(5000));
+
+        assertEquals(2, flushed.size());
+        assertThrows(IllegalStateException.class, () -> service.markDirty("carol"));
+        assertFalse(service.markDirtyIfRunning("carol"));
+    }
+
+    @Test
+    void testAwaitFlushed_WaitsForSaveStartedByShutdown() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> flushed = new CopyOnWriteArrayList<>();
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return flushed.add(item);
+        }, 1, 16, 60_000);
+        service.markDirty("alice");
+
+        Thread shutdown = new Thread(() -> {
+            try {
+                service.shutdown(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        shutdown.start();
+        while (!service.isShutdown()) {
+            Thread.sleep(5);
+        }
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+
+        assertTrue(service.awaitFlushed("alice"));
+        assertEquals(List.of("alice"), flushed);
+        shutdown.join();
+    }
+
+    @Test
+    void testMetrics_TrackFlushLatency() throws InterruptedException {
+        WriteBehindService<String> service = new WriteBehindService<>(item -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, 1, 16, 0);
+
+        service.flushAsync("alice");
+        service.awaitFlushed("alice");
+
+        assertTrue(service.getAverageFlushMillis() >= 15);
+        assertTrue(service.getMaxFlushMillis() >= service.getAverageFlushMillis());
+        assertTrue(service.getAverageLagMillis() >= service.getAverageFlushMillis());
+        service.shutdown(1000);
+    }
+}
@@ -0,0 +1,74 @@
+package test.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import main.security.HashingExecutor;
+import main.security.PasswordUtil;
+
+class HashingExecutorTest {
+    private HashingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testSubmit_ReturnsHashAndRecordsMetrics() throws Exception {
+        executor = new HashingExecutor(2, 4);
+        String salt = PasswordUtil.generateSalt();
+
+        String hash = executor.submit(() -> PasswordUtil.hashPassword("password123", salt)).get(30, TimeUnit.SECONDS);
+
+        assertEquals(PasswordUtil.hashPassword("password123", salt), hash);
+        assertEquals(1, executor.getCompletedCount());
+        assertTrue(executor.getAverageHashMillis() > 0);
+        assertTrue(executor.getHashesPerSecond() > 0);
+    }
+
+    @Test
+    void testSubmit_RejectsImmediatelyWhenQueueIsFull() throws Exception {
+        executor = new HashingExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit(() -> release.await(30, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = executor.submit(() -> true);
+
+        CompletableFuture<Boolean> rejected = executor.submit(() -> true);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(1, executor.getRejectedCount());
+
+        release.countDown();
+        assertTrue(running.get(30, TimeUnit.SECONDS));
+        assertTrue(queued.get(30, TimeUnit.SECONDS));
+        assertTrue(executor.getMaxQueueWaitMillis() > 0);
+    }
+
+    @Test
+    void testSubmit_TaskFailureCompletesFutureExceptionally() {
+        executor = new HashingExecutor(1, 1);
+
+        CompletableFuture<String> future = executor.submit(() -> PasswordUtil.hashPassword("", "salt"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void testInvalidSizesThrow() {
+        executor = new HashingExecutor(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> new HashingExecutor(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new HashingExecutor(1, 0));
+    }
+}
@@ -0,0 +1,127 @@
+package test.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.security.LoginThrottle;
+import main.security.TokenBucket;
+
+class LoginThrottleTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private AtomicLong now;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(5 * SECOND);
+    }
+
+    // ================== TOKEN BUCKET ================== //
+
+    @Test
+    void testTokenBucket_AllowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(3, 2.0, now::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertFalse(bucket.isFull());
+
+        now.addAndGet(SECOND / 2); // One token at 2 per second
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        now.addAndGet(10 * SECOND); // Refills to capacity, not beyond
+        assertTrue(bucket.isFull());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void testTokenBucket_ConcurrentCallersNeverExceedCapacity() throws Exception {
+        TokenBucket bucket = new TokenBucket(1000, 1e-6, now::get);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (bucket.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(1000, granted.get());
+    }
+
+    // ================== LOGIN THROTTLE ================== //
+
+    @Test
+    void testTryAcquire_LimitsEachUsernameSeparately() {
+        LoginThrottle throttle = new LoginThrottle(2, 0.1, 100, 100, now::get);
+
+        assertTrue(throttle.tryAcquire("alice"));
+        assertTrue(throttle.tryAcquire("alice"));
+        assertFalse(throttle.tryAcquire("alice"));
+        assertTrue(throttle.tryAcquire("bob"));
+
+        assertEquals(3, throttle.getAllowedCount());
+        assertEquals(1, throttle.getRejectedForUserCount());
+        now.addAndGet(10 * SECOND);
+        assertTrue(throttle.tryAcquire("alice"));
+    }
+
+    @Test
+    void testTryAcquire_GlobalBudgetLimitsAllUsersTogether() {
+        LoginThrottle throttle = new LoginThrottle(5, 1, 3, 0.001, now::get);
+
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (throttle.tryAcquire("user" + i)) {
+                allowed++;
+            }
+        }
+
+        assertEquals(3, allowed);
+        assertEquals(7, throttle.getRejectedGloballyCount());
+    }
+
+    @Test
+    void testEvictIdle_DropsRefilledBuckets() {
+        LoginThrottle throttle = new LoginThrottle(2, 1, 100, 100, now::get);
+        throttle.tryAcquire("alice");
+        throttle.tryAcquire("bob");
+        assertEquals(2, throttle.getTrackedUserCount());
+
+        now.addAndGet(5 * SECOND);
+
+        assertEquals(2, throttle.evictIdle());
+        assertEquals(0, throttle.getTrackedUserCount());
+    }
+
+    @Test
+    void testInvalidLimitsThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new LoginThrottle(0, 1, 1, 1, now::get));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, now::get));
+    }
+}
@@ -2,6 +2,9 @@ package test.security;
 
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import main.security.PasswordUtil;
 
 class PasswordUtilTest {
@@ -37,10 +40,13 @@ class PasswordUtilTest {
     }
 
     @Test
-    void testHashPassword_ValidInput_ReturnsBase64EncodedString() {
+    void testHashPassword_ValidInput_EncodesAlgorithmAndCost() {
         String salt = PasswordUtil.generateSalt();
         String hashedPassword = PasswordUtil.hashPassword("password123", salt);
-        assertDoesNotThrow(() -> java.util.Base64.getDecoder().decode(hashedPassword));
+        String[] parts = hashedPassword.split("\\$");
+        assertEquals("pbkdf2-" + PasswordUtil.ALGORITHM, parts[1]);
+        assertEquals(PasswordUtil.getIterations(), Integer.parseInt(parts[2]));
+        assertDoesNotThrow(() -> java.util.Base64.getDecoder().decode(parts[3]));
     }
 
     @Test
@@ -147,4 +153,65 @@ class PasswordUtilTest {
         assertThrows(IllegalArgumentException.class, () -> PasswordUtil.validatePassword("password123", salt, ""),
             "Validating with an empty hashed password should throw IllegalArgumentException.");
     }
-}
\ No newline at end of file
+
+    // ================== TEST HASH PARAMETERS ================== //
+
+    /**
+     * Hashes a password the way the original version of PasswordUtil did.
+     */
+    private static String legacyHash(String password, String salt) throws Exception {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), Base64.getDecoder().decode(salt), 65536, 128);
+        return Base64.getEncoder().encodeToString(
+                SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1").generateSecret(spec).getEncoded());
+    }
+
+    @Test
+    void testValidatePassword_LegacyHash_ValidatesAndNeedsRehash() throws Exception {
+        String salt = PasswordUtil.generateSalt();
+        String legacy = legacyHash("password123", salt);
+
+        assertTrue(PasswordUtil.validatePassword("password123", salt, legacy));
+        assertFalse(PasswordUtil.validatePassword("wrongpassword", salt, legacy));
+        assertTrue(PasswordUtil.needsRehash(legacy));
+    }
+
+    @Test
+    void testSetIterations_OldHashesStillValidateButNeedRehash() {
+        int original = PasswordUtil.getIterations();
+        String salt = PasswordUtil.generateSalt();
+        String hashedPassword = PasswordUtil.hashPassword("password123", salt);
+        assertFalse(PasswordUtil.needsRehash(hashedPassword));
+        try {
+            PasswordUtil.setIterations(PasswordUtil.MIN_ITERATIONS);
+
+            assertTrue(PasswordUtil.needsRehash(hashedPassword));
+            assertTrue(PasswordUtil.validatePassword("password123", salt, hashedPassword));
+            assertTrue(PasswordUtil.hashPassword("password123", salt).contains("$" + PasswordUtil.MIN_ITERATIONS + "$"));
+        } finally {
+            PasswordUtil.setIterations(original);
+        }
+    }
+
+    @Test
+    void testSetIterations_OutOfRangeThrows() {
+        assertThrows(IllegalArgumentException.class, () -> PasswordUtil.setIterations(PasswordUtil.MIN_ITERATIONS - 1));
+    }
+
+    @Test
+    void testCalibrate_ReturnsPowerOfTwoWithinBounds() {
+        int count = PasswordUtil.calibrate(20);
+
+        assertTrue(count >= PasswordUtil.MIN_ITERATIONS && count <= PasswordUtil.MAX_ITERATIONS);
+        assertTrue(count == PasswordUtil.MIN_ITERATIONS || Integer.bitCount(count) == 1);
+        assertTrue(PasswordUtil.calibrate(2000) >= count);
+    }
+
+    @Test
+    void testValidatePassword_MalformedHashThrows() {
+        String salt = PasswordUtil.generateSalt();
+        assertThrows(IllegalArgumentException.class,
+            () -> PasswordUtil.validatePassword("password123", salt, "$pbkdf2-md5$100$abc"));
+        assertThrows(IllegalArgumentException.class,
+            () -> PasswordUtil.validatePassword("password123", salt, "$pbkdf2-sha256$many$abc"));
+    }
+}
@@ -0,0 +1,122 @@
+package test.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.security.SessionManager;
+
+class SessionManagerTest {
+    private static final long TTL_MILLIS = 60_000;
+
+    private MutableClock clock;
+    private SessionManager sessions;
+
+    /**
+     * Clock the tests can move forward.
+     */
+    private static final class MutableClock extends Clock {
+        private long millis = 1_000_000;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        sessions = new SessionManager(TTL_MILLIS, clock);
+    }
+
+    @Test
+    void testValidate_ReturnsUsernameOfIssuedToken() {
+        String token = sessions.issue("alice");
+
+        assertEquals("alice", sessions.validate(token));
+        assertNotEquals(token, sessions.issue("alice"));
+    }
+
+    @Test
+    void testValidate_RejectsTamperedAndForeignTokens() {
+        String token = sessions.issue("alice");
+        String[] parts = token.split("\\.");
+        String renamed = parts[0] + "." + parts[1] + "." + "Ym9i" + "." + parts[3]; // "bob"
+
+        assertNull(sessions.validate(renamed));
+        assertNull(sessions.validate(token.substring(0, token.length() - 2)));
+        assertNull(sessions.validate(new SessionManager(TTL_MILLIS, clock).issue("alice")));
+        assertNull(sessions.validate("not-a-token"));
+        assertNull(sessions.validate(null));
+    }
+
+    @Test
+    void testValidate_ExpiredSessionIsRejectedAndEvicted() {
+        String token = sessions.issue("alice");
+        clock.millis += TTL_MILLIS;
+
+        assertNull(sessions.validate(token));
+        assertEquals(0, sessions.getSessionCount());
+        assertEquals(1, sessions.getEvictedCount());
+    }
+
+    @Test
+    void testRevoke_EndsOneSession() {
+        String first = sessions.issue("alice");
+        String second = sessions.issue("alice");
+
+        assertTrue(sessions.revoke(first));
+        assertFalse(sessions.revoke(first));
+        assertNull(sessions.validate(first));
+        assertEquals("alice", sessions.validate(second));
+    }
+
+    @Test
+    void testRevokeAll_EndsEveryUserSession() {
+        String first = sessions.issue("alice");
+        String second = sessions.issue("alice");
+        String other = sessions.issue("bob");
+
+        assertEquals(2, sessions.revokeAll("alice"));
+        assertNull(sessions.validate(first));
+        assertNull(sessions.validate(second));
+        assertEquals("bob", sessions.validate(other));
+    }
+
+    @Test
+    void testIssue_SweepsExpiredSessionsPeriodically() {
+        for (int i = 0; i < 100; i++) {
+            sessions.issue("user" + i);
+        }
+        clock.millis += TTL_MILLIS;
+        for (int i = 0; i < 2000; i++) {
+            sessions.issue("later" + i);
+        }
+
+        assertEquals(2000, sessions.getSessionCount());
+        assertEquals(100, sessions.getEvictedCount());
+    }
+
+    @Test
+    void testInvalidArgumentsThrow() {
+        assertThrows(IllegalArgumentException.class, () -> sessions.issue(""));
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(0, clock));
+    }
+}
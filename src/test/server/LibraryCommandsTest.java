@@ -0,0 +1,122 @@
+package test.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.database.MusicStore;
+import main.model.LoadedUserCache;
+import main.model.User;
+import main.model.UserManager;
+import main.persistence.DataStores;
+import main.persistence.FileDataStore;
+import main.server.LibraryCommands;
+
+class LibraryCommandsTest {
+    @TempDir
+    Path dir;
+
+    private UserManager userManager;
+    private LibraryCommands session;
+    private StringWriter output;
+    private PrintWriter out;
+
+    @BeforeEach
+    void setUp() {
+        DataStores.setDefault(new FileDataStore(dir));
+        userManager = new UserManager();
+        session = new LibraryCommands(userManager, new MusicStore("src/main/albums/"));
+        output = new StringWriter();
+        out = new PrintWriter(output);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userManager.shutdown();
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
+    }
+
+    private String run(String line) {
+        output.getBuffer().setLength(0);
+        session.execute(line, out);
+        out.flush();
+        return output.toString();
+    }
+
+    @Test
+    void testTokenize_QuotesAndEscapes() {
+        assertEquals(List.of("add-album", "A Rush of Blood to the Head", "Coldplay"),
+                LibraryCommands.tokenize("add-album \"A Rush of Blood to the Head\"   Coldplay"));
+        assertEquals(List.of("play", "Don't \"Stop\"", ""),
+                LibraryCommands.tokenize("play Don't\\ \\\"Stop\\\" \"\""));
+        assertTrue(LibraryCommands.tokenize("   ").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> LibraryCommands.tokenize("rate \"Hello"));
+    }
+
+    @Test
+    void testCommandsChangeTheUsersLibrary() {
+        run("register bob pass123");
+        assertTrue(run("login bob pass123").startsWith("token\t"));
+        run("add-song \"Rolling in the Deep\" Adele");
+        run("rate \"Rolling in the Deep\" Adele 4");
+
+        assertEquals("Rolling in the Deep\tAdele\t21\t4\t-" + System.lineSeparator(), run("songs"));
+        assertEquals(1, session.getUser().getLibrary().getSongLibrary().size());
+        assertFalse(session.execute("quit", out));
+    }
+
+    @Test
+    void testCommandsKeepTheSessionsLibraryLoaded() {
+        for (String name : List.of("ann", "ben", "cat")) {
+            userManager.registerUser(name, "pass123");
+        }
+        userManager.setUserCache(new LoadedUserCache(2, Long.MAX_VALUE));
+        run("login ann pass123");
+        run("songs"); // Reads ann's library
+        User ben = userManager.loginUser("ben", "pass123");
+        ben.getLibrary();
+
+        run("songs"); // ann is now the most recently used
+        userManager.loginUser("cat", "pass123").getLibrary();
+
+        assertTrue(session.getUser().isLibraryLoaded());
+        assertFalse(ben.isLibraryLoaded());
+    }
+
+    @Test
+    void testCloseAfterShutdownSavesRightAway() {
+        run("register dave pass123");
+        run("login dave pass123");
+        userManager.shutdown();
+        run("add-album 21 Adele"); // Not queued: background saves have stopped
+
+        session.close();
+
+        UserManager restarted = new UserManager();
+        try {
+            assertEquals(1, restarted.loginUser("dave", "pass123").getLibrary().getAlbumLibrary().size());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    void testInvalidCommandsThrow() {
+        assertThrows(IllegalStateException.class, () -> run("albums"));
+        run("register carol pass123");
+        run("login carol pass123");
+        assertThrows(IllegalArgumentException.class, () -> run("rate Daydreamer Adele 4")); // Not in library
+        assertThrows(IllegalArgumentException.class, () -> run("add-album Unknown Nobody"));
+        assertThrows(IllegalArgumentException.class, () -> run("rate Daydreamer"));
+        assertThrows(IllegalArgumentException.class, () -> run("frobnicate"));
+    }
+}
@@ -0,0 +1,229 @@
+package test.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.database.MusicStore;
+import main.model.UserManager;
+import main.persistence.DataStores;
+import main.persistence.FileDataStore;
+import main.security.LoginThrottle;
+import main.security.PasswordUtil;
+import main.server.LibraryServer;
+
+class LibraryServerTest {
+    @TempDir
+    Path dir;
+
+    private UserManager userManager;
+    private LibraryServer server;
+    private int port;
+    private int originalIterations;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DataStores.setDefault(new FileDataStore(dir));
+        originalIterations = PasswordUtil.getIterations();
+        PasswordUtil.setIterations(PasswordUtil.MIN_ITERATIONS); // Cheap hashes for many logins
+        userManager = new UserManager();
+        userManager.setLoginThrottle(new LoginThrottle(1000, 1000, 1000, 1000, System::nanoTime));
+        server = new LibraryServer(userManager, new MusicStore("src/main/albums/"), 64);
+        port = server.start(0);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+        userManager.shutdown();
+        PasswordUtil.setIterations(originalIterations);
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
+    }
+
+    /**
+     * A test client: sends one command and reads its response up to the status line.
+     */
+    private final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+        private String status;
+
+        Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+        }
+
+        List<String> send(String command) throws IOException {
+            out.println(command);
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("- ")) {
+                    lines.add(line.substring(2));
+                } else {
+                    status = line;
+                    return lines;
+                }
+            }
+            status = null;
+            return lines;
+        }
+
+        List<String> ok(String command) throws IOException {
+            List<String> lines = send(command);
+            assertEquals("OK", status, command);
+            return lines;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    void testLibrarySessionOverTcp() throws IOException {
+        String token;
+        try (Client client = new Client()) {
+            client.ok("register alice secret1");
+            token = client.ok("login alice secret1").get(0).split("\t")[1];
+            client.ok("add-album 21 Adele");
+            client.ok("rate \"Rolling in the Deep\" Adele 5");
+            client.ok("play \"Rolling in the Deep\" Adele");
+            client.ok("create-playlist \"Road trip\"");
+            client.ok("playlist-add \"Road trip\" \"Someone Like You\" Adele");
+
+            assertEquals(1, client.ok("albums").size());
+            assertTrue(client.ok("recent").get(0).startsWith("Rolling in the Deep\tAdele\t21\t5\tfavorite"));
+            assertEquals(1, client.ok("playlist \"Road trip\"").size());
+            assertFalse(client.ok("search-songs artist Adele").isEmpty());
+            client.ok("quit");
+        }
+
+        // Another connection resumes the session without the password and sees the same library
+        try (Client client = new Client()) {
+            client.ok("resume " + token);
+            assertEquals("Rolling in the Deep\tAdele\t21\t5\tfavorite", client.ok("favorites").get(0));
+            client.ok("logout");
+            client.send("resume " + token);
+            assertTrue(client.status.startsWith("ERR"));
+        }
+    }
+
+    @Test
+    void testStopWaitsForSessionsToEnd() throws Exception {
+        try (Client client = new Client()) {
+            client.ok("register erin secret1");
+            client.ok("login erin secret1");
+            client.ok("add-album 21 Adele");
+
+            server.stop();
+
+            assertEquals(0, server.getConnectionCount()); // Every session has been closed
+            assertNull(client.in.readLine());
+        }
+    }
+
+    @Test
+    void testLogoutEndsOnlyThatConnectionsSession() throws IOException {
+        try (Client first = new Client(); Client second = new Client()) {
+            first.ok("register frank secret1");
+            String firstToken = first.ok("login frank secret1").get(0).split("\t")[1];
+            String secondToken = second.ok("login frank secret1").get(0).split("\t")[1];
+            assertNotEquals(firstToken, secondToken);
+
+            first.ok("logout");
+
+            assertEquals(1, second.ok("summary").size()); // Still logged in
+            try (Client third = new Client()) {
+                third.send("resume " + firstToken);
+                assertTrue(third.status.startsWith("ERR"));
+                assertEquals("token\t" + secondToken, third.ok("resume " + secondToken).get(0));
+                third.ok("logout");
+            }
+            second.send("resume " + secondToken);
+            assertTrue(second.status.startsWith("ERR")); // Revoked by the third connection's logout
+        }
+    }
+
+    @Test
+    void testErrorsKeepTheConnectionOpen() throws IOException {
+        try (Client client = new Client()) {
+            client.send("songs");
+            assertEquals("ERR Not logged in.", client.status);
+            client.send("dance");
+            assertTrue(client.status.startsWith("ERR Unknown command"));
+            client.send("login nobody password");
+            assertEquals("ERR User not found.", client.status);
+            client.send("add-album \"21");
+            assertEquals("ERR Unclosed quote.", client.status);
+            assertFalse(client.ok("help").isEmpty());
+        }
+        assertEquals(4, server.getFailedCommandCount());
+    }
+
+    @Test
+    void testManyConcurrentSessions() throws Exception {
+        final int clients = 40;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                final String name = "user" + i;
+                results.add(pool.submit(() -> {
+                    try (Client client = new Client()) {
+                        client.ok("register " + name + " pw" + name);
+                        client.ok("login " + name + " pw" + name);
+                        client.ok("add-album 19 Adele");
+                        client.ok("play \"Daydreamer\" Adele");
+                        return client.ok("songs");
+                    }
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                assertEquals(12, result.get(1, TimeUnit.MINUTES).size()); // The songs of 19
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(clients, server.getAcceptedCount());
+        assertEquals(clients, userManager.getUserCount());
+    }
+
+    @Test
+    void testConnectionsBeyondLimitAreRefused() throws Exception {
+        server.stop();
+        server = new LibraryServer(userManager, new MusicStore("src/main/albums/"), 1);
+        port = server.start(0);
+        try (Client first = new Client()) {
+            first.ok("help"); // Connection is being served
+            try (Client second = new Client()) {
+                assertTrue(second.send("help").isEmpty());
+                assertEquals("ERR Server busy", second.status);
+            }
+        }
+        assertEquals(1, server.getRefusedCount());
+    }
+}
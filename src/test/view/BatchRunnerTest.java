@@ -0,0 +1,116 @@
+package test.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.database.MusicStore;
+import main.model.User;
+import main.model.UserManager;
+import main.persistence.DataStores;
+import main.persistence.FileDataStore;
+import main.security.PasswordUtil;
+import main.view.BatchRunner;
+
+class BatchRunnerTest {
+    @TempDir
+    Path dir;
+
+    private UserManager userManager;
+    private BatchRunner runner;
+    private StringWriter output;
+    private int originalIterations;
+
+    @BeforeEach
+    void setUp() {
+        DataStores.setDefault(new FileDataStore(dir));
+        originalIterations = PasswordUtil.getIterations();
+        PasswordUtil.setIterations(PasswordUtil.MIN_ITERATIONS);
+        userManager = new UserManager();
+        userManager.registerUser("dana", "pass123");
+        runner = new BatchRunner(userManager, new MusicStore("src/main/albums/"));
+        output = new StringWriter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userManager.shutdown();
+        PasswordUtil.setIterations(originalIterations);
+        DataStores.setDefault(new FileDataStore(Paths.get("")));
+    }
+
+    private BatchRunner.Report run(String script) throws IOException {
+        return runner.run(new BufferedReader(new StringReader(script)), new PrintWriter(output));
+    }
+
+    @Test
+    void testScriptChangesTheLibraryAndIsTimed() throws IOException {
+        BatchRunner.Report report = run(String.join("\n",
+                "# Set up dana's library",
+                "login dana pass123",
+                "",
+                "add-album \"21\" Adele",
+                "rate \"Rolling in the Deep\" Adele 5",
+                "play \"Rolling in the Deep\" Adele",
+                "play \"Someone Like You\" Adele",
+                "favorites"));
+
+        assertEquals(6, report.getCommandCount());
+        assertEquals(0, report.getFailureCount());
+        assertEquals(Map.of("login", 1, "add-album", 1, "rate", 1, "play", 2, "favorites", 1),
+                report.getCommandCounts());
+        assertTrue(report.getElapsedMillis() >= 0);
+
+        User dana = userManager.loginUser("dana", "pass123");
+        assertEquals(1, dana.getLibrary().getAlbumLibrary().size());
+        assertEquals(2, dana.getLibrary().getPlaybackTracker().getRecentlyPlayed().size());
+
+        String text = output.toString();
+        assertTrue(text.contains("> add-album \"21\" Adele"));
+        assertTrue(text.contains("Rolling in the Deep\tAdele\t21\t5\tfavorite"));
+        assertTrue(text.contains("ok ("));
+        assertTrue(text.contains("=== Batch Summary: 6 commands, 0 failed"));
+    }
+
+    @Test
+    void testErrorsAreReportedWithLineNumbers() throws IOException {
+        runner.setLogin("dana", "pass123");
+        BatchRunner.Report report = run("add-song Daydreamer Adele\nrate Nothing Nobody 3\nsongs\n");
+
+        assertEquals(4, report.getCommandCount()); // The login, then all three lines
+        assertEquals(1, report.getFailureCount());
+        assertTrue(output.toString().contains("error at line 2: "));
+        assertTrue(output.toString().contains("Daydreamer\tAdele\t19\t"));
+    }
+
+    @Test
+    void testFailFastStopsAtFirstError() throws IOException {
+        runner.setFailFast(true);
+        BatchRunner.Report report = run("songs\nlogin dana pass123\nsongs\n");
+
+        assertEquals(1, report.getCommandCount());
+        assertEquals(1, report.getFailureCount());
+        assertTrue(output.toString().contains("error at line 1: Not logged in."));
+    }
+
+    @Test
+    void testQuitEndsTheScript() throws IOException {
+        runner.setLogin("dana", "pass123");
+        BatchRunner.Report report = run("add-album 19 Adele\nquit\nremove-album 19 Adele\n");
+
+        assertEquals(3, report.getCommandCount());
+        assertEquals(1, userManager.loginUser("dana", "pass123").getLibrary().getAlbumLibrary().size());
+    }
+}
@@ -0,0 +1,67 @@
+package test.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import main.model.Page;
+import main.view.PagedRenderer;
+
+class PagedRendererTest {
+    private final StringWriter output = new StringWriter();
+    private final List<Integer> fetchedOffsets = new ArrayList<>();
+
+    private void render(int itemCount, String... choices) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 1; i <= itemCount; i++) {
+            items.add(i);
+        }
+        Deque<String> input = new ArrayDeque<>(List.of(choices));
+        PagedRenderer renderer = new PagedRenderer(new PrintWriter(output), input::poll, 3);
+        renderer.render("=== Numbers ===", (offset, limit) -> {
+            fetchedOffsets.add(offset);
+            return Page.slice(items, offset, limit);
+        }, (out, item) -> out.println("item " + item));
+    }
+
+    @Test
+    void testShortListingIsShownWithoutPrompting() {
+        render(3);
+        assertEquals(List.of(0), fetchedOffsets);
+        assertFalse(output.toString().contains("Page "));
+        assertTrue(output.toString().contains("item 3"));
+    }
+
+    @Test
+    void testNextPreviousAndJumpFetchOnlyThePageShown() {
+        render(10, "n", "p", "j 4", "2", "q");
+        assertEquals(List.of(0, 3, 0, 9, 3), fetchedOffsets);
+        assertTrue(output.toString().contains("Page 4 of 4 (10 items)"));
+        assertTrue(output.toString().contains("item 10"));
+    }
+
+    @Test
+    void testListingEndsAfterTheLastPageOrAtEndOfInput() {
+        render(5, "", "");
+        assertEquals(List.of(0, 3), fetchedOffsets);
+
+        fetchedOffsets.clear();
+        render(5);
+        assertEquals(List.of(0), fetchedOffsets);
+    }
+
+    @Test
+    void testInvalidChoicesAskAgain() {
+        render(7, "x", "j 9", "n", "q");
+        assertEquals(List.of(0, 3), fetchedOffsets);
+        assertTrue(output.toString().contains("Invalid choice."));
+        assertTrue(output.toString().contains("Pages are 1 to 3"));
+    }
+}